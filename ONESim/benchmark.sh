@@ -0,0 +1,2 @@
+#! /bin/sh
+java -Xmx2G -cp .:lib/ECLA.jar:lib/DTNConsoleConnection.jar benchmark.BenchmarkRunner $*
\ No newline at end of file
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import core.DTNSim;
+import core.Settings;
+import core.SimError;
+import core.SimScenario;
+
+/**
+ * Superclass of the micro benchmarks of the simulator's hot paths. A
+ * benchmark is set up once for every combination of the host and message
+ * count parameters and then {@link #run()} is called repeatedly by the
+ * {@link BenchmarkRunner}, which measures the time of the calls.
+ */
+public abstract class Benchmark {
+	/** Distance between the hosts (meters) the world size of benchmark
+	 * scenarios is scaled with; keeps the host density constant */
+	public static final double HOST_SPACING = 100;
+
+	/**
+	 * Sets up the benchmark state
+	 * @param nrofHosts Number of hosts to use
+	 * @param nrofMessages Number of messages to use
+	 */
+	public abstract void setUp(int nrofHosts, int nrofMessages);
+
+	/**
+	 * Runs one operation of the benchmark
+	 * @return A value computed by the operation; the runner consumes it so
+	 * that the operation can't be optimized away
+	 */
+	public abstract int run();
+
+	/**
+	 * Returns true if the benchmark depends on the host count parameter.
+	 * Benchmarks that don't are run only with the first host count.
+	 * @return true by default
+	 */
+	public boolean usesHosts() {
+		return true;
+	}
+
+	/**
+	 * Returns true if the benchmark depends on the message count
+	 * parameter. Benchmarks that don't are run only with the first message
+	 * count.
+	 * @return true by default
+	 */
+	public boolean usesMessages() {
+		return true;
+	}
+
+	/**
+	 * Releases the benchmark state. The default implementation does
+	 * nothing.
+	 */
+	public void tearDown() {
+	}
+
+	/**
+	 * Creates a new scenario of one group of random waypoint hosts with the
+	 * default settings and the given additional settings. The static state
+	 * of the simulator is reset after the settings have been read.
+	 * @param nrofHosts Number of hosts in the scenario
+	 * @param extra Additional settings (override the others) or null
+	 * @return The scenario
+	 */
+	protected static SimScenario createScenario(int nrofHosts,
+			Properties extra) {
+		int side = (int)Math.ceil(Math.sqrt(nrofHosts) * HOST_SPACING);
+		Properties p = new Properties();
+		p.setProperty("Scenario.name", "benchmark");
+		p.setProperty("Scenario.nrofHostGroups", "1");
+		p.setProperty("Group1.groupID", "h");
+		p.setProperty("Group1.nrofHosts", String.valueOf(nrofHosts));
+		p.setProperty("Group1.movementModel", "RandomWaypoint");
+		p.setProperty("Group1.speed", "0.5, 1.5");
+		p.setProperty("Group1.waitTime", "0, 120");
+		p.setProperty("MovementModel.worldSize", side + ", " + side);
+		p.setProperty("MovementModel.warmup", "0");
+		p.setProperty("Events.nrof", "0");
+		p.setProperty("Report.nrofReports", "0");
+		if (extra != null) {
+			p.putAll(extra);
+		}
+
+		File settingsFile = null;
+		try {
+			settingsFile = File.createTempFile("benchmark", ".txt");
+			OutputStream out = new FileOutputStream(settingsFile);
+			p.store(out, null);
+			out.close();
+			Settings.init(settingsFile.getPath());
+		} catch (IOException e) {
+			throw new SimError("Can't write benchmark settings", e);
+		} finally {
+			if (settingsFile != null) {
+				settingsFile.delete();
+			}
+		}
+		DTNSim.resetForNextRun(); // after init, resetting may read settings
+		return SimScenario.getInstance();
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the micro benchmarks and prints the average time of an operation
+ * of every benchmark with every host and message count. Every benchmark
+ * is first run for a number of warmup iterations (to let the JIT compiler
+ * do its work) and then for the measured iterations.
+ * <P>
+ * Usage: <CODE>BenchmarkRunner [-w warmupIterations] [-i iterations]
+ * [-t iterationMillis] [-h hostCounts] [-m messageCounts]
+ * [benchmark...]</CODE><BR>
+ * The counts are comma separated lists. Benchmarks are given by their
+ * class names without the package; by default all the benchmarks are run.
+ * </P>
+ */
+public class BenchmarkRunner {
+	/** Names of all the benchmarks */
+	public static final String[] BENCHMARKS = {"ConnectivityGridBenchmark",
+		"SimpleBroadcastInterfaceBenchmark",
+		"InterferenceLimitedInterfaceBenchmark", "MakeRoomBenchmark",
+		"MessageReplicateBenchmark", "DijkstraPathFinderBenchmark",
+		"MaxPropDijkstraBenchmark", "ProphetAgingBenchmark",
+		"StandardEventsReaderBenchmark"};
+	/** Default number of warmup iterations ({@value}) */
+	public static final int DEF_WARMUP_ITERATIONS = 3;
+	/** Default number of measured iterations ({@value}) */
+	public static final int DEF_ITERATIONS = 5;
+	/** Default length of an iteration ({@value} milliseconds) */
+	public static final int DEF_ITERATION_MILLIS = 1000;
+	/** Default host counts */
+	public static final int[] DEF_HOST_COUNTS = {100, 1000};
+	/** Default message counts */
+	public static final int[] DEF_MESSAGE_COUNTS = {100, 1000};
+
+	/** sum of the values of the operations (so they can't be optimized
+	 * away) */
+	private static volatile long sink;
+
+	private int warmupIterations = DEF_WARMUP_ITERATIONS;
+	private int iterations = DEF_ITERATIONS;
+	private long iterationNanos = DEF_ITERATION_MILLIS * 1000000L;
+
+	/**
+	 * Runs the benchmarks given as command line arguments
+	 * @param args The command line arguments
+	 */
+	public static void main(String[] args) {
+		/* set US locale to parse decimals in consistent way */
+		java.util.Locale.setDefault(java.util.Locale.US);
+
+		BenchmarkRunner runner = new BenchmarkRunner();
+		int[] hostCounts = DEF_HOST_COUNTS;
+		int[] messageCounts = DEF_MESSAGE_COUNTS;
+		List<String> names = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-w")) {
+				runner.warmupIterations = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-i")) {
+				runner.iterations = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-t")) {
+				runner.iterationNanos = Long.parseLong(args[++i]) * 1000000L;
+			} else if (args[i].equals("-h")) {
+				hostCounts = parseCounts(args[++i]);
+			} else if (args[i].equals("-m")) {
+				messageCounts = parseCounts(args[++i]);
+			} else {
+				names.add(args[i]);
+			}
+		}
+		if (names.size() == 0) {
+			for (String name : BENCHMARKS) {
+				names.add(name);
+			}
+		}
+
+		System.out.println(String.format("%-40s %8s %8s %14s %12s",
+				"Benchmark", "hosts", "messages", "ns/op", "error"));
+		for (String name : names) {
+			Benchmark b = createBenchmark(name);
+			for (int h = 0; h < (b.usesHosts() ? hostCounts.length : 1); h++) {
+				for (int m = 0; m < (b.usesMessages() ?
+						messageCounts.length : 1); m++) {
+					runner.run(name, b, hostCounts[h], messageCounts[m]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses a comma separated list of counts
+	 * @param csv The list
+	 * @return The counts
+	 */
+	private static int[] parseCounts(String csv) {
+		String[] values = csv.split(",");
+		int[] counts = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			counts[i] = Integer.parseInt(values[i].trim());
+		}
+		return counts;
+	}
+
+	/**
+	 * Creates a benchmark by its class name
+	 * @param name Name of the benchmark class (without the package)
+	 * @return The benchmark
+	 */
+	private static Benchmark createBenchmark(String name) {
+		try {
+			return (Benchmark)Class.forName(
+					Benchmark.class.getPackage().getName() + "." + name)
+					.getDeclaredConstructor().newInstance();
+		} catch (Exception e) {
+			throw new IllegalArgumentException("Can't create benchmark " +
+					name, e);
+		}
+	}
+
+	/**
+	 * Sets up a benchmark, runs the warmup and measured iterations and
+	 * prints the result
+	 * @param name Name of the benchmark
+	 * @param b The benchmark
+	 * @param nrofHosts Host count parameter
+	 * @param nrofMessages Message count parameter
+	 */
+	private void run(String name, Benchmark b, int nrofHosts,
+			int nrofMessages) {
+		b.setUp(nrofHosts, nrofMessages);
+		for (int i = 0; i < warmupIterations; i++) {
+			runIteration(b);
+		}
+
+		double sum = 0;
+		double sumSq = 0;
+		for (int i = 0; i < iterations; i++) {
+			double nsPerOp = runIteration(b);
+			sum += nsPerOp;
+			sumSq += nsPerOp * nsPerOp;
+		}
+		b.tearDown();
+
+		double mean = sum / iterations;
+		double var = iterations > 1 ?
+				(sumSq - iterations * mean * mean) / (iterations - 1) : 0;
+		System.out.println(String.format("%-40s %8s %8s %14.1f %12.1f", name,
+				b.usesHosts() ? String.valueOf(nrofHosts) : "-",
+				b.usesMessages() ? String.valueOf(nrofMessages) : "-", mean,
+				Math.sqrt(Math.max(var, 0))));
+	}
+
+	/**
+	 * Runs a benchmark's operations for the length of one iteration. The
+	 * clock is read after batches of operations whose size grows until a
+	 * batch takes about a hundredth of the iteration.
+	 * @param b The benchmark
+	 * @return The average time of an operation (nanoseconds)
+	 */
+	private double runIteration(Benchmark b) {
+		long ops = 0;
+		long batch = 1;
+		long value = 0;
+		long start = System.nanoTime();
+		long end = start + iterationNanos;
+		long now;
+		do {
+			long batchStart = System.nanoTime();
+			for (long k = 0; k < batch; k++) {
+				value += b.run();
+			}
+			ops += batch;
+			now = System.nanoTime();
+			if (now - batchStart < iterationNanos / 100) {
+				batch *= 2;
+			}
+		} while (now < end);
+		sink += value;
+		return (1.0 * (now - start)) / ops;
+	}
+}
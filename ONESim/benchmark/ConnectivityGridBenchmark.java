@@ -0,0 +1,61 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import interfaces.ConnectivityGrid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimScenario;
+import core.World;
+
+/**
+ * Benchmark of updating the locations of all the hosts' interfaces in a
+ * {@link ConnectivityGrid} after the hosts have moved one update interval.
+ */
+public class ConnectivityGridBenchmark extends Benchmark {
+	/** Number of recorded movement steps */
+	public static final int NROF_STEPS = 100;
+
+	private ConnectivityGrid grid;
+	private List<NetworkInterface> interfaces;
+	private RecordedMovement movement;
+
+	@Override
+	public void setUp(int nrofHosts, int nrofMessages) {
+		SimScenario scen = createScenario(nrofHosts, null);
+		List<DTNHost> hosts = scen.getHosts();
+
+		this.interfaces = new ArrayList<NetworkInterface>();
+		for (DTNHost h : hosts) {
+			interfaces.addAll(h.getInterfaces());
+		}
+		double cellSize = interfaces.get(0).getTransmitRange() *
+			World.DEF_CON_CELL_SIZE_MULT;
+		this.grid = ConnectivityGrid.ConnectivityGridFactory(
+				getClass().getName().hashCode(), cellSize);
+		grid.addInterfaces(interfaces);
+
+		this.movement = new RecordedMovement(hosts, NROF_STEPS,
+				scen.getUpdateInterval());
+	}
+
+	@Override
+	public boolean usesMessages() {
+		return false;
+	}
+
+	@Override
+	public int run() {
+		movement.nextStep();
+		for (int i = 0, n = interfaces.size(); i < n; i++) {
+			grid.updateLocation(interfaces.get(i));
+		}
+		return interfaces.size();
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import input.WKTMapReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import movement.map.DijkstraPathFinder;
+import movement.map.MapNode;
+import movement.map.SimMap;
+import core.SimError;
+
+/**
+ * Benchmark of finding shortest paths between random nodes of the Helsinki
+ * map with {@link DijkstraPathFinder}.
+ */
+public class DijkstraPathFinderBenchmark extends Benchmark {
+	/** The map files of the benchmark map */
+	public static final String[] MAP_FILES = {"data/roads.wkt",
+		"data/main_roads.wkt", "data/pedestrian_paths.wkt",
+		"data/shops.wkt"};
+	/** Number of (repeated) random node pairs */
+	public static final int NROF_PAIRS = 1024;
+
+	private DijkstraPathFinder finder;
+	private MapNode[] from;
+	private MapNode[] to;
+	private int next;
+
+	@Override
+	public void setUp(int nrofHosts, int nrofMessages) {
+		WKTMapReader r = new WKTMapReader(true);
+		try {
+			for (int i = 0; i < MAP_FILES.length; i++) {
+				r.addPaths(new File(MAP_FILES[i]), i + 1);
+			}
+		} catch (IOException e) {
+			throw new SimError(e.toString(), e);
+		}
+		SimMap map = r.getMap();
+		this.finder = new DijkstraPathFinder(map, null);
+
+		List<MapNode> nodes = map.getNodes();
+		Random rng = new Random(0);
+		this.from = new MapNode[NROF_PAIRS];
+		this.to = new MapNode[NROF_PAIRS];
+		for (int i = 0; i < NROF_PAIRS; i++) {
+			from[i] = nodes.get(rng.nextInt(nodes.size()));
+			to[i] = nodes.get(rng.nextInt(nodes.size()));
+		}
+		this.next = 0;
+	}
+
+	@Override
+	public boolean usesHosts() {
+		return false;
+	}
+
+	@Override
+	public boolean usesMessages() {
+		return false;
+	}
+
+	@Override
+	public int run() {
+		int i = next;
+		next = (next + 1) % NROF_PAIRS;
+		return finder.getShortestPath(from[i], to[i]).size();
+	}
+}
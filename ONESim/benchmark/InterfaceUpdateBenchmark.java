@@ -0,0 +1,68 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimScenario;
+
+/**
+ * Benchmark of updating the network interfaces of all the hosts (finding
+ * the interfaces in range and connecting and disconnecting them) after
+ * the hosts have moved one update interval. Subclasses define the type of
+ * the interfaces.
+ */
+public abstract class InterfaceUpdateBenchmark extends Benchmark {
+	/** Number of recorded movement steps */
+	public static final int NROF_STEPS = 100;
+
+	private String interfaceType;
+	private List<NetworkInterface> interfaces;
+	private RecordedMovement movement;
+
+	/**
+	 * Constructor.
+	 * @param interfaceType Class name of the benchmarked interface type
+	 */
+	public InterfaceUpdateBenchmark(String interfaceType) {
+		this.interfaceType = interfaceType;
+	}
+
+	@Override
+	public void setUp(int nrofHosts, int nrofMessages) {
+		Properties p = new Properties();
+		p.setProperty("btInterface.type", interfaceType);
+		SimScenario scen = createScenario(nrofHosts, p);
+		List<DTNHost> hosts = scen.getHosts();
+
+		this.interfaces = new ArrayList<NetworkInterface>();
+		for (DTNHost h : hosts) {
+			interfaces.addAll(h.getInterfaces());
+		}
+		this.movement = new RecordedMovement(hosts, NROF_STEPS,
+				scen.getUpdateInterval());
+	}
+
+	@Override
+	public boolean usesMessages() {
+		return false;
+	}
+
+	@Override
+	public int run() {
+		movement.nextStep();
+		int nrofConnections = 0;
+		for (int i = 0, n = interfaces.size(); i < n; i++) {
+			NetworkInterface ni = interfaces.get(i);
+			ni.update();
+			nrofConnections += ni.getConnections().size();
+		}
+		return nrofConnections;
+	}
+}
@@ -0,0 +1,15 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+/**
+ * Interface update benchmark of {@link interfaces.InterferenceLimitedInterface}.
+ */
+public class InterferenceLimitedInterfaceBenchmark extends InterfaceUpdateBenchmark {
+
+	public InterferenceLimitedInterfaceBenchmark() {
+		super("InterferenceLimitedInterface");
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.Properties;
+
+import core.DTNHost;
+import core.Message;
+import core.SimScenario;
+
+/**
+ * Benchmark of creating a message to a full buffer of an active router,
+ * which makes room for the new message by dropping the oldest message
+ * (see routing.ActiveRouter#makeRoomForMessage(int)). The buffer holds the
+ * given number of messages.
+ */
+public class MakeRoomBenchmark extends Benchmark {
+	/** Size of the messages (bytes) */
+	public static final int MESSAGE_SIZE = 1000;
+
+	private DTNHost from;
+	private DTNHost to;
+	private int nextId;
+
+	@Override
+	public void setUp(int nrofHosts, int nrofMessages) {
+		Properties p = new Properties();
+		p.setProperty("Group.router", "EpidemicRouter");
+		p.setProperty("Group.bufferSize",
+				String.valueOf(nrofMessages * MESSAGE_SIZE));
+		SimScenario scen = createScenario(nrofHosts, p);
+
+		this.from = scen.getHosts().get(0);
+		this.to = scen.getHosts().get(nrofHosts - 1);
+		this.nextId = 0;
+		for (int i = 0; i < nrofMessages; i++) {
+			run();
+		}
+	}
+
+	@Override
+	public int run() {
+		from.createNewMessage(new Message(from, to, "M" + nextId++,
+				MESSAGE_SIZE));
+		return from.getNrofMessages();
+	}
+}
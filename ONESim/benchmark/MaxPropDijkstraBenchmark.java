@@ -0,0 +1,62 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import routing.maxprop.MaxPropDijkstra;
+import routing.maxprop.MeetingProbabilitySet;
+
+/**
+ * Benchmark of calculating the MaxProp path costs from a random host to the
+ * destinations of the messages in a buffer with {@link MaxPropDijkstra}.
+ * Every host has met {@link #NROF_MET_HOSTS} random other hosts.
+ */
+public class MaxPropDijkstraBenchmark extends Benchmark {
+	/** Number of hosts every host has met */
+	public static final int NROF_MET_HOSTS = 20;
+	/** Number of (repeated) random source hosts */
+	public static final int NROF_SOURCES = 1024;
+
+	private Map<Integer, MeetingProbabilitySet> probs;
+	private Set<Integer> destinations;
+	private Integer[] sources;
+	private int next;
+
+	@Override
+	public void setUp(int nrofHosts, int nrofMessages) {
+		Random rng = new Random(0);
+		this.probs = new HashMap<Integer, MeetingProbabilitySet>();
+		for (int i = 0; i < nrofHosts; i++) {
+			MeetingProbabilitySet set = new MeetingProbabilitySet(
+					MeetingProbabilitySet.INFINITE_SET_SIZE, 1);
+			for (int k = 0; k < NROF_MET_HOSTS; k++) {
+				set.updateMeetingProbFor(rng.nextInt(nrofHosts));
+			}
+			probs.put(i, set);
+		}
+
+		this.destinations = new HashSet<Integer>();
+		for (int i = 0; i < nrofMessages; i++) {
+			destinations.add(rng.nextInt(nrofHosts));
+		}
+		this.sources = new Integer[NROF_SOURCES];
+		for (int i = 0; i < NROF_SOURCES; i++) {
+			sources[i] = rng.nextInt(nrofHosts);
+		}
+		this.next = 0;
+	}
+
+	@Override
+	public int run() {
+		Integer from = sources[next];
+		next = (next + 1) % NROF_SOURCES;
+		return new MaxPropDijkstra(probs).getCosts(from, destinations).size();
+	}
+}
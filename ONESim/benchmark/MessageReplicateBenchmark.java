@@ -0,0 +1,47 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.List;
+
+import core.DTNHost;
+import core.Message;
+
+/**
+ * Benchmark of {@link Message#replicate()} for a message that has
+ * travelled through {@link #NROF_HOPS} hosts.
+ */
+public class MessageReplicateBenchmark extends Benchmark {
+	/** Number of hops on the message's path */
+	public static final int NROF_HOPS = 10;
+
+	private Message message;
+
+	@Override
+	public void setUp(int nrofHosts, int nrofMessages) {
+		List<DTNHost> hosts = createScenario(NROF_HOPS + 1, null).getHosts();
+		this.message = new Message(hosts.get(0), hosts.get(NROF_HOPS), "M",
+				1000);
+		for (int i = 1; i <= NROF_HOPS; i++) {
+			message.addNodeOnPath(hosts.get(i));
+		}
+		message.addProperty("property", Integer.valueOf(1));
+	}
+
+	@Override
+	public boolean usesHosts() {
+		return false;
+	}
+
+	@Override
+	public boolean usesMessages() {
+		return false;
+	}
+
+	@Override
+	public int run() {
+		return message.replicate().getHopCount();
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import routing.ProphetRouter;
+import core.DTNHost;
+import core.SimClock;
+
+/**
+ * Benchmark of aging the delivery predictabilities of all the hosts'
+ * {@link ProphetRouter}s after one time unit. Every host has met
+ * {@link #NROF_MET_HOSTS} random other hosts.
+ */
+public class ProphetAgingBenchmark extends Benchmark {
+	/** Number of hosts every host has met */
+	public static final int NROF_MET_HOSTS = 10;
+	/** Length of the time unit (seconds) */
+	public static final int TIME_UNIT = 30;
+
+	private List<DTNHost> hosts;
+
+	@Override
+	public void setUp(int nrofHosts, int nrofMessages) {
+		Properties p = new Properties();
+		p.setProperty("Group.router", "ProphetRouter");
+		p.setProperty("ProphetRouter.secondsInTimeUnit",
+				String.valueOf(TIME_UNIT));
+		this.hosts = createScenario(nrofHosts, p).getHosts();
+
+		/* meetings update the predictabilities */
+		Random rng = new Random(0);
+		for (DTNHost h : hosts) {
+			for (int k = 0; k < NROF_MET_HOSTS; k++) {
+				DTNHost other = hosts.get(rng.nextInt(nrofHosts));
+				if (other != h) {
+					h.forceConnection(other, null, true);
+					h.forceConnection(other, null, false);
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean usesMessages() {
+		return false;
+	}
+
+	@Override
+	public int run() {
+		SimClock.getInstance().advance(TIME_UNIT);
+		double sum = 0;
+		DTNHost target = hosts.get(0);
+		for (int i = 0, n = hosts.size(); i < n; i++) {
+			sum += ((ProphetRouter)hosts.get(i).getRouter()).getPredFor(target);
+		}
+		return (int)sum;
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.List;
+
+import core.Coord;
+import core.DTNHost;
+import core.SimClock;
+
+/**
+ * Locations of hosts recorded over a number of update steps. Benchmarks
+ * replay the steps (forward and then backward) by setting the recorded
+ * locations, so that the cost of the movement models isn't included in the
+ * measurements of connectivity code.
+ */
+public class RecordedMovement {
+	private List<DTNHost> hosts;
+	private Coord[][] locations;
+	private int step;
+	private int direction;
+
+	/**
+	 * Moves the hosts and records their locations after every step. The
+	 * simulation clock is advanced while moving.
+	 * @param hosts The hosts to move
+	 * @param nrofSteps Number of steps to record
+	 * @param interval Length of a step (simulated seconds)
+	 */
+	public RecordedMovement(List<DTNHost> hosts, int nrofSteps,
+			double interval) {
+		this.hosts = hosts;
+		this.locations = new Coord[nrofSteps][hosts.size()];
+		for (int s = 0; s < nrofSteps; s++) {
+			for (int i = 0, n = hosts.size(); i < n; i++) {
+				DTNHost h = hosts.get(i);
+				h.move(interval);
+				locations[s][i] = h.getLocation().clone();
+			}
+			SimClock.getInstance().advance(interval);
+		}
+		this.step = 0;
+		this.direction = 1;
+	}
+
+	/**
+	 * Moves the hosts to the locations of the next recorded step
+	 */
+	public void nextStep() {
+		if (step + direction < 0 || step + direction >= locations.length) {
+			direction = -direction;
+		}
+		step += direction;
+
+		Coord[] stepLocations = locations[step];
+		for (int i = 0, n = hosts.size(); i < n; i++) {
+			hosts.get(i).setLocation(stepLocations[i]);
+		}
+	}
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ui.DTNSimTextUI;
+import core.DTNSim;
+import core.Settings;
+import core.SimClock;
+import core.SimScenario;
+
+/**
+ * Runs the scalability benchmark scenarios in batch mode and compares the
+ * results to a baseline. Every scenario is run with every given run index
+ * (scale) in its own JVM, which reports the wall clock time, the peak heap
+ * usage, the bytes allocated by the simulation thread and the simulated
+ * seconds per second of the run. The scenario settings are read after
+ * {@link #COMMON_SETTINGS}.
+ * <P>
+ * Usage: <CODE>ScalabilityRunner [-r runIndexes] [-b baselineFile]
+ * [-o resultsFile] [-t tolerance] [-j jvmOption]... [scenarioFile...]</CODE>
+ * <BR>
+ * By default all the scenarios of {@link #SCENARIO_DIR} are run with the
+ * run indexes 0-3. A run regresses if its time, heap usage or allocations
+ * are more than the tolerance (a fraction, default {@value #DEF_TOLERANCE})
+ * larger, or its simulated seconds per second more than the tolerance
+ * smaller, than in the baseline. The exit status is 1 if any run regressed.
+ * A new baseline is recorded by writing the results to the baseline file.
+ * </P>
+ */
+public class ScalabilityRunner {
+	/** Directory of the benchmark scenarios */
+	public static final String SCENARIO_DIR = "scalability";
+	/** Settings file read before every scenario */
+	public static final String COMMON_SETTINGS = SCENARIO_DIR + "/common.txt";
+	/** Default run indexes */
+	public static final String DEF_RUN_INDEXES = "0,1,2,3";
+	/** Default tolerance ({@value}) */
+	public static final double DEF_TOLERANCE = 0.1;
+	/** Command line flag that makes the runner run one scenario in this
+	 * JVM ({@value}) */
+	public static final String CHILD_FLAG = "-child";
+	/** Prefix of the result line a child prints ({@value}) */
+	public static final String RESULT_PREFIX = "RESULT";
+	/** Names of the result values */
+	public static final String[] VALUE_NAMES = {"wall_s", "peak_heap_mb",
+		"alloc_mb", "sim_s_per_s"};
+	/** Index of the value that regresses when it gets smaller */
+	private static final int SPEED_VALUE = 3;
+
+	/**
+	 * Runs the scenarios given as command line arguments or, with the
+	 * {@link #CHILD_FLAG}, one run of a scenario
+	 * @param args The command line arguments
+	 * @throws Exception if running the scenarios failed
+	 */
+	public static void main(String[] args) throws Exception {
+		java.util.Locale.setDefault(java.util.Locale.US);
+
+		if (args.length == 3 && args[0].equals(CHILD_FLAG)) {
+			runChild(Integer.parseInt(args[1]), args[2]);
+			return;
+		}
+
+		String runIndexes = DEF_RUN_INDEXES;
+		String baselineFile = null;
+		String resultsFile = null;
+		double tolerance = DEF_TOLERANCE;
+		List<String> jvmOptions = new ArrayList<String>();
+		List<String> scenarios = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-r")) {
+				runIndexes = args[++i];
+			} else if (args[i].equals("-b")) {
+				baselineFile = args[++i];
+			} else if (args[i].equals("-o")) {
+				resultsFile = args[++i];
+			} else if (args[i].equals("-t")) {
+				tolerance = Double.parseDouble(args[++i]);
+			} else if (args[i].equals("-j")) {
+				jvmOptions.add(args[++i]);
+			} else {
+				scenarios.add(args[i]);
+			}
+		}
+		if (scenarios.size() == 0) {
+			for (File f : new File(SCENARIO_DIR).listFiles()) {
+				if (!f.getPath().equals(new File(COMMON_SETTINGS).getPath())) {
+					scenarios.add(f.getPath());
+				}
+			}
+			java.util.Collections.sort(scenarios);
+		}
+
+		Map<String, double[]> baseline = null;
+		if (baselineFile != null && new File(baselineFile).exists()) {
+			baseline = readResults(baselineFile);
+		}
+		PrintWriter results = null;
+		if (resultsFile != null) {
+			results = new PrintWriter(new FileWriter(resultsFile));
+			results.println(formatHeader());
+		}
+
+		System.out.println(formatHeader() + " status");
+		boolean regressed = false;
+		for (String scenario : scenarios) {
+			for (String index : runIndexes.split(",")) {
+				String[] result = runJvm(jvmOptions, index.trim(), scenario);
+				if (result == null) {
+					System.out.println(scenario + " run " + index + " failed");
+					regressed = true;
+					continue;
+				}
+				String line = format(result);
+				if (results != null) {
+					results.println(line);
+					results.flush();
+				}
+				String status = compare(result, baseline, tolerance);
+				regressed |= status.startsWith("REGRESSED");
+				System.out.println(line + " " + status);
+			}
+		}
+		if (results != null) {
+			results.close();
+		}
+		System.exit(regressed ? 1 : 0);
+	}
+
+	/**
+	 * Runs a scenario in a new JVM
+	 * @param jvmOptions Options for the JVM
+	 * @param runIndex The run index
+	 * @param scenario Path of the scenario's settings file
+	 * @return The result (name and values) or null if the run failed
+	 * @throws IOException if starting the JVM failed
+	 * @throws InterruptedException if interrupted while waiting for the JVM
+	 */
+	private static String[] runJvm(List<String> jvmOptions, String runIndex,
+			String scenario) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" +
+				File.separator + "java");
+		command.addAll(jvmOptions);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ScalabilityRunner.class.getName());
+		command.add(CHILD_FLAG);
+		command.add(runIndex);
+		command.add(scenario);
+
+		ProcessBuilder pb = new ProcessBuilder(command);
+		pb.redirectErrorStream(true);
+		Process p = pb.start();
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				p.getInputStream()));
+		String[] result = null;
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (line.startsWith(RESULT_PREFIX + " ")) {
+				result = line.substring(RESULT_PREFIX.length() + 1).split(" ");
+			}
+		}
+		in.close();
+		return p.waitFor() == 0 ? result : null;
+	}
+
+	/**
+	 * Runs a scenario in this JVM and prints the result line
+	 * @param runIndex The run index
+	 * @param scenario Path of the scenario's settings file
+	 */
+	private static void runChild(int runIndex, String scenario) {
+		Settings.init(COMMON_SETTINGS);
+		Settings.addSettings(scenario);
+		Settings.setRunIndex(runIndex);
+		DTNSim.resetForNextRun();
+
+		List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+				heapPools.add(pool);
+			}
+		}
+		long allocStart = getAllocatedBytes();
+		long start = System.nanoTime();
+
+		new DTNSimTextUI().start();
+
+		double wallTime = (System.nanoTime() - start) / 1e9;
+		long allocated = getAllocatedBytes() - allocStart;
+		long peakHeap = 0;
+		for (MemoryPoolMXBean pool : heapPools) {
+			peakHeap += pool.getPeakUsage().getUsed();
+		}
+
+		String name = new File(scenario).getName().replaceAll("\\.txt$", "") +
+			"_" + SimScenario.getInstance().getHosts().size();
+		System.out.println(RESULT_PREFIX + " " + name + " " +
+				String.format("%.2f %.1f %.1f %.2f", wallTime,
+						peakHeap / 1048576.0, allocated / 1048576.0,
+						SimClock.getTime() / wallTime));
+	}
+
+	/**
+	 * Returns the number of bytes the current thread has allocated
+	 * @return The number of bytes or 0 if the JVM doesn't support
+	 * measuring allocations
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean =
+				(com.sun.management.ThreadMXBean)bean;
+			if (sunBean.isThreadAllocatedMemorySupported() &&
+					sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getThreadAllocatedBytes(
+						Thread.currentThread().getId());
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Reads results from a file
+	 * @param fileName Name of the file
+	 * @return The values of the results by the result names
+	 * @throws IOException if the file couldn't be read
+	 */
+	private static Map<String, double[]> readResults(String fileName)
+			throws IOException {
+		Map<String, double[]> results = new HashMap<String, double[]>();
+		BufferedReader in = new BufferedReader(new FileReader(fileName));
+		String line;
+		while ((line = in.readLine()) != null) {
+			String[] parts = line.trim().split("\\s+");
+			if (parts.length != VALUE_NAMES.length + 1 ||
+					parts[0].equals("scenario")) {
+				continue; // header or empty line
+			}
+			double[] values = new double[VALUE_NAMES.length];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = Double.parseDouble(parts[i + 1]);
+			}
+			results.put(parts[0], values);
+		}
+		in.close();
+		return results;
+	}
+
+	/**
+	 * Compares a result to the baseline
+	 * @param result The result
+	 * @param baseline The baseline results or null if there's no baseline
+	 * @param tolerance The tolerance (a fraction)
+	 * @return The status of the result: "OK", "NEW" (not in the baseline)
+	 * or "REGRESSED" followed by the names of the regressed values
+	 */
+	private static String compare(String[] result,
+			Map<String, double[]> baseline, double tolerance) {
+		if (baseline == null || !baseline.containsKey(result[0])) {
+			return "NEW";
+		}
+		double[] base = baseline.get(result[0]);
+		String regressed = "";
+		for (int i = 0; i < VALUE_NAMES.length; i++) {
+			double value = Double.parseDouble(result[i + 1]);
+			if (i == SPEED_VALUE ? value < base[i] * (1 - tolerance) :
+					value > base[i] * (1 + tolerance)) {
+				regressed += " " + VALUE_NAMES[i];
+			}
+		}
+		return regressed.length() == 0 ? "OK" : "REGRESSED" + regressed;
+	}
+
+	/**
+	 * Returns the header line of results
+	 * @return The header line
+	 */
+	private static String formatHeader() {
+		return format(new String[] {"scenario", VALUE_NAMES[0],
+				VALUE_NAMES[1], VALUE_NAMES[2], VALUE_NAMES[3]});
+	}
+
+	/**
+	 * Formats a result line
+	 * @param result The name and values of the result
+	 * @return The formatted line
+	 */
+	private static String format(String[] result) {
+		return String.format("%-20s %10s %12s %12s %12s", (Object[])result);
+	}
+}
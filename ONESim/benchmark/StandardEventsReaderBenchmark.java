@@ -0,0 +1,66 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import input.StandardEventsReader;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+import core.SimError;
+
+/**
+ * Benchmark of parsing an external events file with
+ * {@link StandardEventsReader}. The file has the given number of messages;
+ * each message is created, sent and delivered and the sending hosts are
+ * connected before sending.
+ */
+public class StandardEventsReaderBenchmark extends Benchmark {
+	/** Number of event lines per message */
+	public static final int EVENTS_PER_MESSAGE = 4;
+
+	private File eventsFile;
+	private int nrofEvents;
+
+	@Override
+	public void setUp(int nrofHosts, int nrofMessages) {
+		Random rng = new Random(0);
+		try {
+			this.eventsFile = File.createTempFile("benchmark", ".txt");
+			PrintWriter out = new PrintWriter(new FileWriter(eventsFile));
+			double time = 0;
+			for (int i = 0; i < nrofMessages; i++) {
+				int from = rng.nextInt(nrofHosts);
+				int to = rng.nextInt(nrofHosts);
+				time += rng.nextDouble();
+				out.println(time + " C M" + i + " " + from + " " + to +
+						" 1000");
+				out.println(time + " CONN " + from + " " + to + " up");
+				out.println(time + " S M" + i + " " + from + " " + to);
+				out.println(time + " DE M" + i + " " + from + " " + to);
+			}
+			out.close();
+		} catch (IOException e) {
+			throw new SimError("Can't write benchmark events", e);
+		}
+		this.nrofEvents = nrofMessages * EVENTS_PER_MESSAGE;
+	}
+
+	@Override
+	public void tearDown() {
+		eventsFile.delete();
+	}
+
+	@Override
+	public int run() {
+		StandardEventsReader reader = new StandardEventsReader(eventsFile);
+		int nrofRead = reader.readEvents(nrofEvents).size();
+		reader.close();
+		return nrofRead;
+	}
+}
@@ -11,6 +11,8 @@ import routing.MessageRouter;
  * 固定数据速率的节点间连接，继承Connection虚类
  */
 public class CBRConnection extends Connection {
+	private static final long serialVersionUID = 42L;
+
 	private int speed;
 	private double transferDoneTime;
 
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Checkpoints of the full state of a running simulation. A checkpoint
+ * contains the settings, the static state of all the classes registered
+ * for resetting (see {@link DTNSim#registerForReset(String)}), which
+ * includes the scenario and through it the world, hosts, routers, movement
+ * models, connections and event queues, and the state of the user
+ * interface (e.g., the reports). Everything is written with Java
+ * serialization to one compressed stream, so objects shared by the static
+ * and the other state stay shared after a restore. Static fields that are
+ * annotated with {@link Excluded} are not included.
+ * <P>
+ * The serialization of the large linked structures is bounded so that
+ * checkpoints don't need a large stack: hosts write their state
+ * separately from the host objects (see {@link World}) and map nodes'
+ * neighbors are written as indexes by their map.
+ * </P>
+ * <P>
+ * The classes whose objects are written to checkpoints (the simulation
+ * model, its events and the reports) declare a <CODE>serialVersionUID</CODE>,
+ * so a checkpoint can still be restored after compatible changes to those
+ * classes (e.g., new methods). Other classes don't need one.
+ * </P>
+ * <P>
+ * A deserialized HashMap or HashSet may have a different capacity, and thus
+ * a different iteration order, than the original one. Classes whose
+ * iteration order affects the simulation rebuild their maps with the
+ * original capacity (e.g., the message buffers of
+ * {@link routing.MessageRouter}). Other hash ordered state, and state
+ * that depends on identity hash codes (e.g., the DTNHost keyed tables of
+ * the MaxProp routers, whose order isn't reproducible even between two
+ * runs without checkpoints), isn't restored in exactly the same order.
+ * </P>
+ * <P>
+ * Checkpoints are written periodically by the batch mode user interface
+ * when {@link #INTERVAL_S} or {@link #TIMES_S} is set. A simulation is
+ * restored with the {@link DTNSim#RESTORE_FLAG} command line option.
+ * </P>
+ */
+public class Checkpoint {
+	/** Checkpoint settings namespace ({@value}) */
+	public static final String SETTINGS_NS = "Checkpoint";
+	/** Checkpoint interval -setting id ({@value}). Simulated seconds
+	 * between checkpoints. */
+	public static final String INTERVAL_S = "interval";
+	/** Checkpoint times -setting id ({@value}). Comma separated simulation
+	 * times when checkpoints are written (e.g., the end of a warmup
+	 * period), in addition to the periodic ones. */
+	public static final String TIMES_S = "times";
+	/** Checkpoint file -setting id ({@value}). Path of the checkpoint
+	 * file; supports value filling. Every checkpoint replaces the previous
+	 * one. Default is {@link #DEF_FILE}. */
+	public static final String FILE_S = "file";
+	/** Default checkpoint file ({@value}) */
+	public static final String DEF_FILE = "%%Scenario.name%%.checkpoint";
+
+	/** Identifier in the beginning of checkpoint files */
+	private static final int MAGIC = 0x4f4e4543;
+	/** Version of the checkpoint format */
+	private static final int VERSION = 1;
+
+	/**
+	 * Marks a static field that is not included in checkpoints (e.g., an
+	 * open file or a thread). The field keeps the value it has in the
+	 * restoring process, so the class must be able to recreate the value
+	 * when needed.
+	 */
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.FIELD)
+	public @interface Excluded {
+	}
+
+	/**
+	 * Writes a checkpoint of the current simulation. The checkpoint is first
+	 * written to a temporary file that then replaces the checkpoint file,
+	 * so a crash while writing doesn't destroy the previous checkpoint.
+	 * @param fileName Path of the checkpoint file
+	 * @param uiState State of the user interface to include in the
+	 * checkpoint (or null)
+	 * @throws SimError if the checkpoint couldn't be written (the previous
+	 * checkpoint file is not changed)
+	 */
+	public static void write(String fileName, Serializable uiState) {
+		File file = new File(fileName);
+		File tmp = new File(fileName + ".tmp");
+		try {
+			writeTmp(tmp, uiState);
+		} catch (SimError e) {
+			tmp.delete();
+			throw e;
+		}
+
+		file.delete();
+		if (!tmp.renameTo(file)) {
+			throw new SimError("Can't replace checkpoint file " + file);
+		}
+	}
+
+	/**
+	 * Writes a checkpoint to a temporary file
+	 * @param tmp The file
+	 * @param uiState State of the user interface (or null)
+	 * @throws SimError if the checkpoint couldn't be written
+	 */
+	private static void writeTmp(File tmp, Serializable uiState) {
+		try {
+			ObjectOutputStream out = new ObjectOutputStream(
+					new BufferedOutputStream(new GZIPOutputStream(
+							new FileOutputStream(tmp)) {
+						{ def.setLevel(Deflater.BEST_SPEED); }
+					}));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				/* settings first; classes may read them when loaded */
+				out.writeObject(Settings.props);
+				out.writeInt(Settings.getRunIndex());
+				writeStatics(out);
+				out.writeObject(uiState);
+			} finally {
+				out.close();
+			}
+		} catch (NotSerializableException e) {
+			throw new SimError("Can't write checkpoint: " + e.getMessage() +
+					" is not serializable", e);
+		} catch (IOException e) {
+			throw new SimError("Can't write checkpoint: " + e, e);
+		} catch (StackOverflowError e) {
+			throw new SimError("Can't write checkpoint: too deep object " +
+					"graph");
+		}
+	}
+
+	/**
+	 * Restores a simulation from a checkpoint. The settings and the static
+	 * state of the classes are replaced with the ones in the checkpoint.
+	 * @param fileName Path of the checkpoint file
+	 * @return The state of the user interface that was included in the
+	 * checkpoint
+	 * @throws SimError if the checkpoint couldn't be read
+	 */
+	public static Object read(String fileName) {
+		try {
+			ObjectInputStream in = new ObjectInputStream(
+					new BufferedInputStream(new GZIPInputStream(
+							new FileInputStream(fileName))));
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+					throw new SimError(fileName + " is not a checkpoint " +
+							"file of this version");
+				}
+				Settings.props = (Properties)in.readObject();
+				Settings.setRunIndex(in.readInt());
+				readStatics(in);
+				return in.readObject();
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new SimError("Can't read checkpoint: " + e, e);
+		} catch (ClassNotFoundException e) {
+			throw new SimError("Can't read checkpoint: " + e, e);
+		}
+	}
+
+	/**
+	 * Writes the non-final static fields of the classes registered for
+	 * resetting, except the ones annotated with {@link Excluded}
+	 * @param out The stream to write to
+	 * @throws IOException if writing failed
+	 */
+	private static void writeStatics(ObjectOutputStream out)
+			throws IOException {
+		List<Field> fields = new ArrayList<Field>();
+		for (Class<?> c : DTNSim.getResetClasses()) {
+			for (Field f : c.getDeclaredFields()) {
+				int mod = f.getModifiers();
+				if (Modifier.isStatic(mod) && !Modifier.isFinal(mod) &&
+						!f.isAnnotationPresent(Excluded.class)) {
+					fields.add(f);
+				}
+			}
+		}
+
+		out.writeInt(fields.size());
+		for (Field f : fields) {
+			f.setAccessible(true);
+			out.writeUTF(f.getDeclaringClass().getName());
+			out.writeUTF(f.getName());
+			try {
+				out.writeObject(f.get(null));
+			} catch (IllegalAccessException e) {
+				throw new SimError(e);
+			}
+		}
+	}
+
+	/**
+	 * Reads the static fields written by {@link #writeStatics} and sets
+	 * their values. The classes are initialized (and thus registered for
+	 * resetting) before the values are set.
+	 * @param in The stream to read from
+	 * @throws IOException if reading failed
+	 * @throws ClassNotFoundException if a class in the checkpoint doesn't
+	 * exist
+	 */
+	private static void readStatics(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		int nrofFields = in.readInt();
+		Field[] fields = new Field[nrofFields];
+		Object[] values = new Object[nrofFields];
+		for (int i = 0; i < nrofFields; i++) {
+			Class<?> c = Class.forName(in.readUTF());
+			String name = in.readUTF();
+			try {
+				fields[i] = c.getDeclaredField(name);
+			} catch (NoSuchFieldException e) {
+				throw new SimError("Checkpoint doesn't match class " +
+						c.getName() + ": no field " + name);
+			}
+			values[i] = in.readObject();
+		}
+
+		/* set the values only after all the objects have been read, so
+		 * that static initializers run while reading don't override them */
+		for (int i = 0; i < nrofFields; i++) {
+			fields[i].setAccessible(true);
+			try {
+				fields[i].set(null, values[i]);
+			} catch (IllegalAccessException e) {
+				throw new SimError(e);
+			}
+		}
+	}
+}
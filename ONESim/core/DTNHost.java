@@ -4,6 +4,10 @@
  */
 package core;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -16,23 +20,27 @@ import routing.RoutingInfo;
 /**
  * A DTN capable host.
  */
-public class DTNHost implements Comparable<DTNHost> {
+public class DTNHost implements Comparable<DTNHost>, Serializable {
+	private static final long serialVersionUID = 42L;
+
 	private static int nextAddress = 0;
 	private int address;
 
 	private Coord location; 	// where is the host
 	private Coord destination;	// where is it going
 
-	private MessageRouter router;
-	private MovementModel movement;
-	private Path path;
+	/* the transient fields are serialized by the world
+	 * (see writeState(ObjectOutputStream)) */
+	private transient MessageRouter router;
+	private transient MovementModel movement;
+	private transient Path path;
 	private double speed;
 	private double nextTimeToMove;
 	private String name;
-	private List<MessageListener> msgListeners;
-	private List<MovementListener> movListeners;
-	private List<NetworkInterface> net;
-	private ModuleCommunicationBus comBus;
+	private transient List<MessageListener> msgListeners;
+	private transient List<MovementListener> movListeners;
+	private transient List<NetworkInterface> net;
+	private transient ModuleCommunicationBus comBus;
 
 	static {
 		DTNSim.registerForReset(DTNHost.class.getCanonicalName());
@@ -330,6 +338,48 @@ public class DTNHost implements Comparable<DTNHost> {
 		this.router.update();
 	}
 
+	/**
+	 * Updates node's network layer and router and measures the time spent
+	 * and the bytes allocated in them.
+	 * @param simulateConnections Should network layer be updated too
+	 * @param profiler The profiler to add the measurements to
+	 */
+	void update(boolean simulateConnections, Profiler profiler) {
+		if (!isActive()) {
+			return;
+		}
+
+		if (simulateConnections) {
+			for (NetworkInterface i : net) {
+				long start = System.nanoTime();
+				long alloc = profiler.getAllocatedBytes();
+				i.update();
+				profiler.add(Profiler.CONNECTIVITY, i.getClass(),
+						System.nanoTime() - start,
+						profiler.getAllocatedBytes() - alloc);
+			}
+		}
+		long start = System.nanoTime();
+		long alloc = profiler.getAllocatedBytes();
+		this.router.update();
+		profiler.add(Profiler.ROUTING, router.getClass(),
+				System.nanoTime() - start, profiler.getAllocatedBytes() - alloc);
+	}
+
+	/**
+	 * Moves the node (see {@link #move(double)}) and measures the time spent
+	 * and the bytes allocated in it.
+	 * @param timeIncrement How long time the node moves
+	 * @param profiler The profiler to add the measurement to
+	 */
+	void move(double timeIncrement, Profiler profiler) {
+		long start = System.nanoTime();
+		long alloc = profiler.getAllocatedBytes();
+		move(timeIncrement);
+		profiler.add(Profiler.MOVEMENT, movement.getClass(),
+				System.nanoTime() - start, profiler.getAllocatedBytes() - alloc);
+	}
+
 	/**
 	 * Moves the node towards the next waypoint or waits if it is
 	 * not time to move yet
@@ -383,11 +433,17 @@ public class DTNHost implements Comparable<DTNHost> {
 
 		if (path == null || !path.hasNext()) {
 			this.nextTimeToMove = movement.nextPathAvailable();
+			if (path != null) {
+				movement.recyclePath(path); // path traveled -> allow reuse
+			}
 			this.path = null;
 			return false;
 		}
 
-		this.destination = path.getNextWaypoint();
+		if (this.destination == null) {
+			this.destination = new Coord(0,0);
+		}
+		path.getNextWaypoint(this.destination); // reuse destination object
 		this.speed = path.getSpeed();
 
 		if (this.movListeners != null) {
@@ -501,4 +557,48 @@ public class DTNHost implements Comparable<DTNHost> {
 		return this.getAddress() - h.getAddress();
 	}
 
+	/**
+	 * Writes the state of the host that isn't serialized with the host
+	 * object. Hosts are referenced from connections, messages and routing
+	 * tables of other hosts, so serializing all the state with the host
+	 * would recurse through all the (transitively) connected hosts.
+	 * Instead, the world writes the state of its hosts one by one (see
+	 * {@link World}), including the connections of the interfaces.
+	 * @param out The stream to write to
+	 * @throws IOException if writing failed
+	 */
+	void writeState(ObjectOutputStream out) throws IOException {
+		out.writeObject(router);
+		out.writeObject(movement);
+		out.writeObject(path);
+		out.writeObject(msgListeners);
+		out.writeObject(movListeners);
+		out.writeObject(net);
+		out.writeObject(comBus);
+		for (NetworkInterface ni : net) {
+			ni.writeConnections(out);
+		}
+	}
+
+	/**
+	 * Reads the state written by {@link #writeState(ObjectOutputStream)}
+	 * @param in The stream to read from
+	 * @throws IOException if reading failed
+	 * @throws ClassNotFoundException if a class of the stream wasn't found
+	 */
+	@SuppressWarnings("unchecked")
+	void readState(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		this.router = (MessageRouter)in.readObject();
+		this.movement = (MovementModel)in.readObject();
+		this.path = (Path)in.readObject();
+		this.msgListeners = (List<MessageListener>)in.readObject();
+		this.movListeners = (List<MovementListener>)in.readObject();
+		this.net = (List<NetworkInterface>)in.readObject();
+		this.comBus = (ModuleCommunicationBus)in.readObject();
+		for (NetworkInterface ni : net) {
+			ni.readConnections(in);
+		}
+	}
+
 }
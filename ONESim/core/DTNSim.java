@@ -18,6 +18,12 @@ public class DTNSim {
 	/** If this option ({@value}) is given to program, batch mode and
 	 * Text UI are used*/
 	public static final String BATCH_MODE_FLAG = "-b";
+	/** If this option ({@value}) is given to program, the simulation is
+	 * restored from the checkpoint file given after the option and run to
+	 * the end in batch mode (see {@link Checkpoint}). The file can be
+	 * followed by a run index and settings files that override the
+	 * checkpointed settings. */
+	public static final String RESTORE_FLAG = "-r";
 	
 	/** Delimiter for batch mode index range values (colon) */
 	public static final String RANGE_DELIMETER = ":";
@@ -39,6 +45,12 @@ public class DTNSim {
 	 * {@link Settings#setRunIndex(int)}). Following arguments are the settings 
 	 * files for the simulation run (if any). For GUI mode, the number before 
 	 * settings files (if given) is the run index to use for that run.
+	 * If the first argument is {@link #RESTORE_FLAG}, the simulation is
+	 * restored from the checkpoint file given as the second argument; the
+	 * settings are read from the checkpoint. The checkpoint file can be
+	 * followed by the run index of the restored run and settings files that
+	 * override the checkpointed settings (see
+	 * {@link ui.DTNSimUI#restore(String, Integer, String[])}).
 	 * @param args Command line arguments
 	 */
 	public static void main(String[] args) {
@@ -50,6 +62,33 @@ public class DTNSim {
 
 		/* set US locale to parse decimals in consistent way */
 		java.util.Locale.setDefault(java.util.Locale.US);
+
+		if (args.length > 0 && args[0].equals(RESTORE_FLAG)) {
+			if (args.length < 2) {
+				System.err.println("Usage: " + RESTORE_FLAG +
+						" checkpointFile [runIndex] [settingsFile...]");
+				System.exit(-1);
+			}
+			Integer runIndex = null;
+			int firstFile = 2;
+			if (args.length > 2) {
+				try { /* is there a run index for the restored run ? */
+					runIndex = Integer.parseInt(args[2]);
+					firstFile = 3;
+				} catch (NumberFormatException e) {
+					firstFile = 2;
+				}
+			}
+			String[] overrides = new String[args.length - firstFile];
+			System.arraycopy(args, firstFile, overrides, 0, overrides.length);
+
+			long startTime = System.currentTimeMillis();
+			print("Restoring from " + args[1]);
+			new DTNSimTextUI().restore(args[1], runIndex, overrides);
+			double duration = (System.currentTimeMillis() - startTime)/1000.0;
+			print("---\nAll done in " + String.format("%.2f", duration) + "s");
+			return;
+		}
 		
 		if (args.length > 0) {
 			//命令行运行的模式
@@ -175,10 +214,19 @@ public class DTNSim {
 	}
 	
 	/**
-	 * Resets all registered classes.
+	 * Returns the classes registered for resetting
+	 * @return The classes
+	 */
+	static List<Class<?>> getResetClasses() {
+		return resetList;
+	}
+
+	/**
+	 * Resets all registered classes. Called between batch runs and by
+	 * tools (e.g., benchmarks) that create several scenarios in one JVM.
 	 * 对于所有需要reset的类，调用它们的reset方法
 	 */
-	private static void resetForNextRun() {
+	public static void resetForNextRun() {
 		for (Class<?> c : resetList) {
 			try {
 				//用反射获得方法对象，并进行调用
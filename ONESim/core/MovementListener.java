@@ -13,7 +13,9 @@ public interface MovementListener {
 	 * Method is called every time a host receives a new destination from its
 	 * movement model. 
 	 * @param host The host that got a new destination
-	 * @param destination Coordinates of the destination
+	 * @param destination Coordinates of the destination (the same object is
+	 * reused for the host's subsequent destinations, so clone it if needed
+	 * after the call)
 	 * @param speed Speed towards that destination
 	 */
 	public void newDestination(DTNHost host, Coord destination, double speed);
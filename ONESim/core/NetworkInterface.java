@@ -7,6 +7,10 @@ package core;
 import interfaces.ConnectivityGrid;
 import interfaces.ConnectivityOptimizer;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -14,7 +18,10 @@ import java.util.Random;
 /**
  * Network interface of a DTNHost. Takes care of connectivity among hosts.
  */
-abstract public class NetworkInterface implements ModuleCommunicationListener {
+abstract public class NetworkInterface implements ModuleCommunicationListener,
+		Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** transmit range -setting id ({@value})*/
 	public static final String TRANSMIT_RANGE_S = "transmitRange";
 	/** transmit speed -setting id ({@value})*/
@@ -39,7 +46,9 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	protected DTNHost host = null;
 
 	protected String interfacetype;
-	protected List<Connection> connections; // connected hosts
+	/** connected hosts; serialized by the host (see
+	 * {@link DTNHost#writeState(ObjectOutputStream)}) */
+	protected transient List<Connection> connections;
 	private List<ConnectionListener> cListeners = null; // list of listeners
 	private int address; // network interface address
 	protected double transmitRange;
@@ -184,6 +193,30 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	public List<Connection> getConnections() {
 		return this.connections;
 	}
+
+	/**
+	 * Writes the connections of the interface to a stream. The connections
+	 * aren't serialized with the interface, because they lead to the other
+	 * interfaces and their connections.
+	 * @param out The stream to write to
+	 * @throws IOException if writing failed
+	 */
+	void writeConnections(ObjectOutputStream out) throws IOException {
+		out.writeObject(connections);
+	}
+
+	/**
+	 * Reads the connections written by
+	 * {@link #writeConnections(ObjectOutputStream)}
+	 * @param in The stream to read from
+	 * @throws IOException if reading failed
+	 * @throws ClassNotFoundException if a class of the stream wasn't found
+	 */
+	@SuppressWarnings("unchecked")
+	void readConnections(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		this.connections = (List<Connection>)in.readObject();
+	}
 	
 	/**
 	 * Checks if this interface is currently in the scanning mode
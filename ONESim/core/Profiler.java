@@ -0,0 +1,331 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the wall clock time spent in the phases of world updates and
+ * by the classes (routers, network interfaces, movement models, external
+ * events and update listeners) that take part in each phase. Profiling is
+ * off until the profiler is enabled with {@link #getInstance()}; after that
+ * every {@link #setSampleInterval(int) n}th world update is measured with
+ * {@link System#nanoTime()}. The counters are updated only by the thread
+ * that runs the simulation, so they are not synchronized.
+ * <P>
+ * Optionally, the profiler also tracks the bytes allocated by the
+ * simulation thread in every phase and class (see
+ * {@link #setTrackAllocations(boolean)}). Allocations are read from the
+ * JVM's per-thread allocation counters, which not all JVMs support.
+ * </P>
+ */
+public class Profiler {
+	/** Phase of processing external events */
+	public static final int EVENTS = 0;
+	/** Phase of moving the hosts */
+	public static final int MOVEMENT = 1;
+	/** Phase of updating the hosts' network interfaces */
+	public static final int CONNECTIVITY = 2;
+	/** Phase of updating the hosts' routers */
+	public static final int ROUTING = 3;
+	/** Phase of informing the update listeners */
+	public static final int LISTENERS = 4;
+	/** Writing report output. This happens within the other phases, so
+	 * its time is also included in their times. */
+	public static final int REPORT_WRITES = 5;
+	/** Names of the phases */
+	public static final String[] PHASE_NAMES = {"events", "movement",
+		"connectivity", "routing", "listeners", "reportWrites"};
+
+	@Checkpoint.Excluded
+	private static Profiler profiler;
+	/** the profiler if a measured update is running, null otherwise */
+	@Checkpoint.Excluded
+	private static Profiler active;
+
+	private int sampleInterval;
+	private long nrofUpdates;
+	private long nrofSampled;
+	private long updateTime;
+	private long updateBytes;
+	private long[] phaseTimes;
+	private long[] phaseCounts;
+	private long[] phaseBytes;
+	/** time, count and allocated bytes of every class per phase */
+	private List<Map<Class<?>, long[]>> classStats;
+
+	/** the allocation counters or null if allocations aren't tracked */
+	private com.sun.management.ThreadMXBean allocBean;
+	/** ID of the thread whose allocations are tracked */
+	private long allocThreadId;
+	/** bytes allocated by reading the allocation counter once */
+	private long allocOverhead;
+	/** number of times the allocation counter has been read */
+	private long nrofAllocReadings;
+
+	static {
+		DTNSim.registerForReset(Profiler.class.getCanonicalName());
+		reset();
+	}
+
+	private Profiler() {
+		this.sampleInterval = 1;
+		this.phaseTimes = new long[PHASE_NAMES.length];
+		this.phaseCounts = new long[PHASE_NAMES.length];
+		this.phaseBytes = new long[PHASE_NAMES.length];
+		this.classStats = new ArrayList<Map<Class<?>, long[]>>();
+		for (int i = 0; i < PHASE_NAMES.length; i++) {
+			classStats.add(new HashMap<Class<?>, long[]>());
+		}
+	}
+
+	/**
+	 * Returns the profiler and enables profiling if it wasn't enabled yet
+	 * @return The profiler
+	 */
+	public static Profiler getInstance() {
+		if (profiler == null) {
+			profiler = new Profiler();
+		}
+		return profiler;
+	}
+
+	/**
+	 * Returns true if profiling is enabled
+	 * @return true if profiling is enabled
+	 */
+	public static boolean isEnabled() {
+		return profiler != null;
+	}
+
+	/**
+	 * Returns the profiler if a measured world update is running
+	 * @return The profiler or null if no update is being measured
+	 */
+	public static Profiler getActive() {
+		return active;
+	}
+
+	/**
+	 * Disables profiling and discards the measurements
+	 */
+	public static void reset() {
+		profiler = null;
+		active = null;
+	}
+
+	/**
+	 * Sets how often world updates are measured
+	 * @param interval Every interval'th update is measured
+	 */
+	public void setSampleInterval(int interval) {
+		this.sampleInterval = interval;
+	}
+
+	/**
+	 * Returns how often world updates are measured
+	 * @return the sample interval
+	 */
+	public int getSampleInterval() {
+		return this.sampleInterval;
+	}
+
+	/**
+	 * Returns true if the JVM can count the bytes allocated by a thread
+	 * @return true if allocations can be tracked
+	 */
+	public static boolean isAllocationTrackingSupported() {
+		Object bean = ManagementFactory.getThreadMXBean();
+		return bean instanceof com.sun.management.ThreadMXBean &&
+			((com.sun.management.ThreadMXBean)bean)
+				.isThreadAllocatedMemorySupported();
+	}
+
+	/**
+	 * Sets if the bytes allocated by the calling thread (the thread that
+	 * runs the simulation) are tracked
+	 * @param track True to track allocations, false to not to
+	 * @throws SimError if tracking is requested but the JVM doesn't support
+	 * it
+	 */
+	public void setTrackAllocations(boolean track) {
+		if (!track) {
+			this.allocBean = null;
+			return;
+		}
+		if (!isAllocationTrackingSupported()) {
+			throw new SimError("The JVM doesn't support tracking " +
+					"allocations of a thread");
+		}
+		com.sun.management.ThreadMXBean bean =
+			(com.sun.management.ThreadMXBean)
+			ManagementFactory.getThreadMXBean();
+		if (!bean.isThreadAllocatedMemoryEnabled()) {
+			bean.setThreadAllocatedMemoryEnabled(true);
+		}
+		this.allocThreadId = Thread.currentThread().getId();
+		this.allocBean = bean;
+
+		/* reading the counter may allocate; the smallest difference of a
+		 * few back-to-back readings is subtracted per reading */
+		this.allocOverhead = 0;
+		long overhead = Long.MAX_VALUE;
+		for (int i = 0; i < 10; i++) {
+			long start = getAllocatedBytes();
+			overhead = Math.min(overhead, getAllocatedBytes() - start);
+		}
+		this.allocOverhead = overhead;
+		this.nrofAllocReadings = 0;
+	}
+
+	/**
+	 * Returns true if allocations are tracked
+	 * @return true if allocations are tracked
+	 */
+	public boolean isTrackingAllocations() {
+		return this.allocBean != null;
+	}
+
+	/**
+	 * Returns the number of bytes the simulation thread has allocated so
+	 * far. Measurements of allocations are the differences of two
+	 * readings. The bytes allocated by the readings themselves are
+	 * excluded.
+	 * @return The number of bytes or 0 if allocations aren't tracked
+	 */
+	public long getAllocatedBytes() {
+		if (allocBean == null) {
+			return 0;
+		}
+		nrofAllocReadings++;
+		return allocBean.getThreadAllocatedBytes(allocThreadId) -
+			nrofAllocReadings * allocOverhead;
+	}
+
+	/**
+	 * Called by the world in the beginning of every update. Decides if the
+	 * update is measured.
+	 * @return The profiler if the update should be measured, null if not
+	 */
+	static Profiler startUpdate() {
+		if (profiler == null) {
+			return null;
+		}
+		if (profiler.nrofUpdates++ % profiler.sampleInterval != 0) {
+			return null;
+		}
+		profiler.nrofSampled++;
+		active = profiler;
+		return profiler;
+	}
+
+	/**
+	 * Called by the world in the end of every measured update
+	 * @param time The wall clock time of the update (nanoseconds)
+	 * @param bytes The bytes allocated during the update
+	 */
+	void endUpdate(long time, long bytes) {
+		this.updateTime += time;
+		this.updateBytes += bytes;
+		active = null;
+	}
+
+	/**
+	 * Adds a measurement of a phase
+	 * @param phase The phase
+	 * @param c The class the time was spent in
+	 * @param time The time spent (nanoseconds)
+	 * @param bytes The bytes allocated (0 if allocations aren't tracked)
+	 */
+	public void add(int phase, Class<?> c, long time, long bytes) {
+		phaseTimes[phase] += time;
+		phaseCounts[phase]++;
+		phaseBytes[phase] += bytes;
+
+		Map<Class<?>, long[]> phaseStats = classStats.get(phase);
+		long[] stats = phaseStats.get(c);
+		if (stats == null) {
+			stats = new long[3];
+			phaseStats.put(c, stats);
+		}
+		stats[0] += time;
+		stats[1]++;
+		stats[2] += bytes;
+	}
+
+	/**
+	 * Returns the number of world updates since profiling was enabled
+	 * @return the number of updates
+	 */
+	public long getNrofUpdates() {
+		return this.nrofUpdates;
+	}
+
+	/**
+	 * Returns the number of measured world updates
+	 * @return the number of measured updates
+	 */
+	public long getNrofSampled() {
+		return this.nrofSampled;
+	}
+
+	/**
+	 * Returns the total time of the measured world updates
+	 * @return the time in nanoseconds
+	 */
+	public long getUpdateTime() {
+		return this.updateTime;
+	}
+
+	/**
+	 * Returns the bytes allocated in the measured world updates
+	 * @return the number of bytes (0 if allocations aren't tracked)
+	 */
+	public long getUpdateBytes() {
+		return this.updateBytes;
+	}
+
+	/**
+	 * Returns the time measured for a phase
+	 * @param phase The phase
+	 * @return the time in nanoseconds
+	 */
+	public long getTime(int phase) {
+		return phaseTimes[phase];
+	}
+
+	/**
+	 * Returns the number of measurements of a phase
+	 * @param phase The phase
+	 * @return the number of measurements
+	 */
+	public long getCount(int phase) {
+		return phaseCounts[phase];
+	}
+
+	/**
+	 * Returns the bytes allocated in a phase
+	 * @param phase The phase
+	 * @return the number of bytes (0 if allocations aren't tracked)
+	 */
+	public long getBytes(int phase) {
+		return phaseBytes[phase];
+	}
+
+	/**
+	 * Returns the time, the number of measurements and the allocated bytes
+	 * of the classes measured for a phase
+	 * @param phase The phase
+	 * @return A map from the classes to arrays of the time (nanoseconds),
+	 * the number of measurements and the allocated bytes
+	 */
+	public Map<Class<?>, long[]> getClassStats(int phase) {
+		return classStats.get(phase);
+	}
+}
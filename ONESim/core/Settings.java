@@ -103,6 +103,15 @@ public class Settings {
 		runIndex = index;
 		writtenSettings.clear();
 	}
+
+	/**
+	 * Returns the run index of the settings
+	 * @return The run index
+	 * @see #setRunIndex(int)
+	 */
+	public static int getRunIndex() {
+		return runIndex;
+	}
 	
 	/**
 	 * Checks that the given integer array contains a valid range. I.e., 
@@ -126,6 +135,28 @@ public class Settings {
 		}
 	}
 	
+	/**
+	 * Checks that the given double array contains a valid range. I.e.,
+	 * the length of the array must be two and
+	 * <code>first_value <= second_value</code>.
+	 * @param range The range array
+	 * @param sname Name of the setting (for error messages)
+	 * @throws SettingsError If the given array didn't qualify as a range
+	 */
+	public void assertValidRange(double range[], String sname)
+		throws SettingsError {
+		if (range.length != 2) {
+			throw new SettingsError("Range setting " +
+					getFullPropertyName(sname) +
+					" should contain only two comma separated values");
+		}
+		if (range[0] > range[1]) {
+			throw new SettingsError("Range setting's " +
+					getFullPropertyName(sname) +
+					" first value should be smaller or equal to second value");
+		}
+	}
+
 	/**
 	 * Sets the namespace to something else than the current namespace.
 	 * This change can be reverted using {@link #restoreNameSpace()}
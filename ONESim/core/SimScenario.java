@@ -21,6 +21,7 @@ import routing.MessageRouter;
  * simulation run.
  */
 public class SimScenario implements Serializable {
+	private static final long serialVersionUID = 42L;
 	
 	/** a way to get a hold of this... */	
 	private static SimScenario myinstance=null;
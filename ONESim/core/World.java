@@ -6,9 +6,14 @@ package core;
 
 import input.EventQueue;
 import input.ExternalEvent;
+import input.MergedEventQueue;
 import input.ScheduledUpdatesQueue;
 import interfaces.ConnectivityGrid;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -19,7 +24,9 @@ import java.util.Random;
  * location and connections.
  * 世界类包含了模拟中所有的节点，它负责维护节点间的连接，及其位置的更新
  */
-public class World {
+public class World implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** namespace of optimization settings ({@value})*/
 	public static final String SETTINGS_NS = "Optimization";
 	/**
@@ -43,6 +50,17 @@ public class World {
 	/** should the update order of nodes be randomized -setting's default value
 	 * ({@value}) */
 	public static final boolean DEF_RANDOMIZE_UPDATES = true;
+	/**
+	 * Should only the hosts affected by an external event be updated after
+	 * the event -setting id ({@value}). Boolean (true/false) variable.
+	 * If true, the hosts that an event looks up with
+	 * {@link #getNodeByAddress(int)} are updated right after the event and
+	 * all hosts are updated once at the end of the update interval. Events
+	 * that don't look up any hosts (e.g., scheduled updates) still cause
+	 * an update of all hosts. Default is false (all hosts are updated after
+	 * every event).
+	 */
+	public static final String UPDATE_DIRTY_HOSTS_S = "updateDirtyHostsOnly";
 
 	private int sizeX;
 	private int sizeY;
@@ -50,7 +68,8 @@ public class World {
 	private double updateInterval;
 	private SimClock simClock;
 	private double nextQueueEventTime;
-	private EventQueue nextEventQueue;
+	/** all event queues (scheduled updates first) merged in time order */
+	private MergedEventQueue mergedQueues;
 	/** list of nodes; nodes are indexed by their network address */
 	private List<DTNHost> hosts;
 	private boolean simulateConnections;
@@ -62,9 +81,19 @@ public class World {
 	private List<UpdateListener> updateListeners;
 	/** Queue of scheduled update requests */
 	private ScheduledUpdatesQueue scheduledUpdates;
+	/** should only the hosts affected by an event be updated after it */
+	private boolean updateDirtyOnly;
+	/** are the host lookups of the current event recorded */
+	private boolean trackDirty;
+	/** hosts looked up by the current event (indexed by address) */
+	private boolean[] isDirty;
+	/** hosts looked up by the current event in the lookup order */
+	private List<DTNHost> dirtyHosts;
 
 	/** single ConnectivityCell's size is biggest radio range times this */
 	private int conCellSizeMult;
+	/** the profiler if the current update is measured, null if not */
+	private transient Profiler profiler;
 
 	/**
 	 * Constructor.
@@ -84,6 +113,11 @@ public class World {
 		this.scheduledUpdates = new ScheduledUpdatesQueue();
 		this.isCancelled = false;		
 
+		List<EventQueue> queues = new ArrayList<EventQueue>();
+		queues.add(scheduledUpdates); // index 0, wins ties with other queues
+		queues.addAll(eventQueues);
+		this.mergedQueues = new MergedEventQueue(queues);
+
 		setNextEventQueue();
 		initSettings();
 	}
@@ -105,6 +139,18 @@ public class World {
 		else { // null pointer means "don't randomize"
 			this.updateOrder = null;
 		}
+
+		if (s.contains(UPDATE_DIRTY_HOSTS_S)) {
+			updateDirtyOnly = s.getBoolean(UPDATE_DIRTY_HOSTS_S);
+		}
+		else {
+			updateDirtyOnly = false;
+		}
+		this.trackDirty = false;
+		if (updateDirtyOnly) {
+			this.isDirty = new boolean[hosts.size()];
+			this.dirtyHosts = new ArrayList<DTNHost>();
+		}
 
 		if (s.contains(CELL_SIZE_MULT_S)) {
 			conCellSizeMult = s.getInt(CELL_SIZE_MULT_S);
@@ -146,21 +192,14 @@ public class World {
 	 * Goes through all event Queues and sets the 
 	 * event queue that has the next event.
 	 * 遍历所有的外部事件队列，寻找出（发生事件的时间距离当前SimClock）最近的那个事件队列
+	 * The next event times of all queues are re-read, so this should be
+	 * called if the times may have changed outside the simulation loop.
+	 * Within an update interval, only the queue whose event was processed
+	 * and the scheduled updates are re-read.
 	 */
 	public void setNextEventQueue() {
-		EventQueue nextQueue = scheduledUpdates;
-		double earliest = nextQueue.nextEventsTime();
-
-		/* find the queue that has the next event */
-		for (EventQueue eq : eventQueues) {
-			if (eq.nextEventsTime() < earliest){
-				nextQueue = eq;	
-				earliest = eq.nextEventsTime();
-			}
-		}
-
-		this.nextEventQueue = nextQueue;
-		this.nextQueueEventTime = earliest;
+		this.mergedQueues.updateAll();
+		this.nextQueueEventTime = this.mergedQueues.nextEventsTime();
 	}
 
 	/** 
@@ -170,16 +209,27 @@ public class World {
 	 */
 	public void update () {
 		double runUntil = SimClock.getTime() + this.updateInterval;
+		this.profiler = Profiler.startUpdate();
+		long updateStart = profiler != null ? System.nanoTime() : 0;
+		long updateAlloc = profiler != null ? profiler.getAllocatedBytes() : 0;
 
 		setNextEventQueue();
 
 		/* process all events that are due until next interval update */
 		while (this.nextQueueEventTime <= runUntil) {
 			simClock.setTime(this.nextQueueEventTime);
-			ExternalEvent ee = this.nextEventQueue.nextEvent();
-			ee.processEvent(this);
-			updateHosts(); // update all hosts after every event
-			setNextEventQueue();
+			ExternalEvent ee = this.mergedQueues.nextEvent();
+			if (updateDirtyOnly) {
+				trackDirty = true;
+				processEvent(ee);
+				trackDirty = false;
+				updateDirtyHosts();
+			}
+			else {
+				processEvent(ee);
+				updateHosts(); // update all hosts after every event
+			}
+			this.nextQueueEventTime = this.mergedQueues.nextEventsTime();
 		}
 
 		moveHosts(this.updateInterval);
@@ -189,7 +239,56 @@ public class World {
 
 		/* inform all update listeners */
 		for (UpdateListener ul : this.updateListeners) {
-			ul.updated(this.hosts);
+			if (profiler != null) {
+				long start = System.nanoTime();
+				long alloc = profiler.getAllocatedBytes();
+				ul.updated(this.hosts);
+				profiler.add(Profiler.LISTENERS, ul.getClass(),
+						System.nanoTime() - start,
+						profiler.getAllocatedBytes() - alloc);
+			}
+			else {
+				ul.updated(this.hosts);
+			}
+		}
+
+		if (profiler != null) {
+			profiler.endUpdate(System.nanoTime() - updateStart,
+					profiler.getAllocatedBytes() - updateAlloc);
+			this.profiler = null;
+		}
+	}
+
+	/**
+	 * Processes an external event (and measures it if the update is
+	 * profiled)
+	 * @param ee The event
+	 */
+	private void processEvent(ExternalEvent ee) {
+		if (profiler != null) {
+			long start = System.nanoTime();
+			long alloc = profiler.getAllocatedBytes();
+			ee.processEvent(this);
+			profiler.add(Profiler.EVENTS, ee.getClass(),
+					System.nanoTime() - start,
+					profiler.getAllocatedBytes() - alloc);
+		}
+		else {
+			ee.processEvent(this);
+		}
+	}
+
+	/**
+	 * Updates a host (and measures the update if the world update is
+	 * profiled)
+	 * @param host The host
+	 */
+	private void updateHost(DTNHost host) {
+		if (profiler != null) {
+			host.update(simulateConnections, profiler);
+		}
+		else {
+			host.update(simulateConnections);
 		}
 	}
 
@@ -204,7 +303,7 @@ public class World {
 				if (this.isCancelled) {
 					break;
 				}
-				hosts.get(i).update(simulateConnections);
+				updateHost(hosts.get(i));
 			}
 		}
 		else { // update order randomizing is on
@@ -216,10 +315,30 @@ public class World {
 				if (this.isCancelled) {
 					break;
 				}
-				this.updateOrder.get(i).update(simulateConnections);
+				updateHost(this.updateOrder.get(i));
 			}			
 		}
 	}
+
+	/**
+	 * Updates the hosts that the last event looked up, or all hosts if
+	 * the event didn't look up any hosts, and clears the dirty hosts.
+	 */
+	private void updateDirtyHosts() {
+		if (dirtyHosts.size() == 0) {
+			updateHosts();
+			return;
+		}
+
+		for (int i=0, n = dirtyHosts.size(); i < n; i++) {
+			DTNHost host = dirtyHosts.get(i);
+			isDirty[host.getAddress()] = false;
+			if (!this.isCancelled) {
+				updateHost(host);
+			}
+		}
+		dirtyHosts.clear();
+	}
 
 	/**
 	 * Moves all hosts in the world for a given amount of time
@@ -228,7 +347,12 @@ public class World {
 	private void moveHosts(double timeIncrement) {
 		for (int i=0,n = hosts.size(); i<n; i++) {
 			DTNHost host = hosts.get(i);
-			host.move(timeIncrement);			
+			if (profiler != null) {
+				host.move(timeIncrement, profiler);
+			}
+			else {
+				host.move(timeIncrement);
+			}
 		}		
 	}
 
@@ -278,6 +402,11 @@ public class World {
 		assert node.getAddress() == address : "Node indexing failed. " + 
 			"Node " + node + " in index " + address;
 
+		if (trackDirty && !isDirty[address]) {
+			isDirty[address] = true;
+			dirtyHosts.add(node);
+		}
+
 		return node; 
 	}
 
@@ -288,5 +417,34 @@ public class World {
 	 */
 	public void scheduleUpdate(double simTime) {
 		scheduledUpdates.addUpdate(simTime);
+		mergedQueues.update(0);
+	}
+
+	/**
+	 * Writes the world to a stream. The state of the hosts is written here
+	 * host by host after the other fields (see
+	 * {@link DTNHost#writeState(ObjectOutputStream)}).
+	 * @param out The stream to write to
+	 * @throws IOException if writing failed
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		for (DTNHost host : hosts) {
+			host.writeState(out);
+		}
+	}
+
+	/**
+	 * Reads the world from a stream
+	 * @param in The stream to read from
+	 * @throws IOException if reading failed
+	 * @throws ClassNotFoundException if a class of the stream wasn't found
+	 */
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		for (DTNHost host : hosts) {
+			host.readState(in);
+		}
 	}
 }
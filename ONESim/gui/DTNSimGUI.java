@@ -5,6 +5,7 @@
 package gui;
 
 import gui.playfield.PlayField;
+import gui.playfield.WorldSnapshot;
 
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -12,6 +13,7 @@ import java.awt.event.MouseWheelListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
@@ -25,8 +27,9 @@ import core.DTNHost;
 import core.SimClock;
 
 /**
- * Graphical User Interface for simulator
- *
+ * Graphical User Interface for simulator. The simulation thread doesn't
+ * wait for the GUI to be drawn: it captures a snapshot of the world for the
+ * play field and only schedules the view to be updated.
  */
 public class DTNSimGUI extends DTNSimUI {
 	private MainWindow main;
@@ -34,6 +37,8 @@ public class DTNSimGUI extends DTNSimUI {
 	private GUIControls guiControls;
 	private EventLogPanel eventLogPanel;
 	private InfoPanel infoPanel;
+	/** is a view update scheduled but not yet run */
+	private AtomicBoolean viewUpdatePending = new AtomicBoolean(false);
 	
 	private void startGUI() {
 		try {
@@ -188,24 +193,39 @@ public class DTNSimGUI extends DTNSimUI {
      */
     public void update(boolean forcedUpdate) {
     	double guiUpdateInterval = guiControls.getUpdateInterval(); 		
+    	double simTime = SimClock.getTime();
+    	// a paused view must show the latest state and the focused host
+    	boolean stale = (guiControls.isPaused() && this.lastUpdate < simTime)
+    		|| this.field.isFocusChanged();
     	
     	// update only if long enough simTime has passed (and not forced)
-		if (!forcedUpdate && guiUpdateInterval > (SimClock.getTime()
+		if (!forcedUpdate && !stale && guiUpdateInterval > (simTime
 				- this.lastUpdate)) {
 			return;
 		}
-    	
-		try {
-			// run update in EDT, TODO: optimize threading
-			SwingUtilities.invokeAndWait(new Runnable() {
-			    public void run() {
-					updateView();
-			    }
-			});
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		} catch (InvocationTargetException e) {
-			e.printStackTrace();
+		
+		this.lastUpdate = simTime;
+		this.field.captureSnapshot();
+		
+		Runnable viewUpdate = new Runnable() {
+		    public void run() {
+		    	viewUpdatePending.set(false);
+				updateView();
+		    }
+		};
+		
+		if (forcedUpdate) {
+			try {
+				SwingUtilities.invokeAndWait(viewUpdate);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			} catch (InvocationTargetException e) {
+				e.printStackTrace();
+			}
+		}
+		else if (viewUpdatePending.compareAndSet(false, true)) {
+			// run update in EDT unless the previous one is still waiting
+			SwingUtilities.invokeLater(viewUpdate);
 		}
 		
     	// wait a while if we don't want to run simulation at full speed
@@ -220,9 +240,9 @@ public class DTNSimGUI extends DTNSimUI {
      *
      */
     private void updateView() {
-    	double simTime = SimClock.getTime();
-    	this.lastUpdate = simTime;
+    	double simTime = this.field.getSnapshotTime();
     	guiControls.setSimTime(simTime); //update time to control panel
+    	infoPanel.updateInfo(this.field.getSnapshot());
 
     	this.field.updateField();
     }
@@ -240,9 +260,13 @@ public class DTNSimGUI extends DTNSimUI {
      * @param host The node to center
      */
     public void setFocus(DTNHost host) {
-    	centerViewAt(host.getLocation());
+    	WorldSnapshot snapshot = this.field.getSnapshot();
+    	int index = snapshot.getIndex(host.getAddress());
+    	if (index >= 0) {
+    		centerViewAt(new Coord(snapshot.getX(index), snapshot.getY(index)));
+    	}
+    	field.setFocus(host); // show path on the playfield
     	infoPanel.showInfo(host);
-    	showPath(host.getPath()); // show path on the playfield
     }
     
     /**
@@ -296,6 +320,15 @@ public class DTNSimGUI extends DTNSimUI {
     	return this.infoPanel;
     }
     
+    /**
+     * Returns the latest world snapshot of the playfield. To be called only
+     * from the event dispatch thread.
+     * @return The snapshot
+     */
+    public WorldSnapshot getSnapshot() {
+    	return this.field.getSnapshot();
+    }
+    
     /**
      * Returns the parent frame (window) of the gui.
      * @return The parent frame
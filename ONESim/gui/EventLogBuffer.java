@@ -0,0 +1,190 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package gui;
+
+import core.Message;
+
+/**
+ * Ring buffer of event log records. Every record is stored in primitive
+ * arrays: the time and type of the event, the addresses of the involved
+ * hosts and the involved message. When the buffer is full, the oldest
+ * record is replaced. The simulation thread adds records and the GUI
+ * thread takes copies of the buffer with {@link #copyTo(EventLogBuffer)};
+ * the getters are meant only for such copies.
+ */
+public class EventLogBuffer {
+	private int capacity;
+	/** index of the oldest record */
+	private int start;
+	private int size;
+	/** number of records added to the buffer ever */
+	private long nrofAdded;
+
+	private double[] times;
+	private byte[] types;
+	private int[] hosts1;
+	private int[] hosts2;
+	private Message[] messages;
+	private boolean[] highlights;
+
+	/**
+	 * Creates a new buffer
+	 * @param capacity Maximum number of records in the buffer
+	 */
+	public EventLogBuffer(int capacity) {
+		this.capacity = capacity;
+		this.start = 0;
+		this.size = 0;
+		this.nrofAdded = 0;
+		this.times = new double[capacity];
+		this.types = new byte[capacity];
+		this.hosts1 = new int[capacity];
+		this.hosts2 = new int[capacity];
+		this.messages = new Message[capacity];
+		this.highlights = new boolean[capacity];
+	}
+
+	/**
+	 * Adds a record to the buffer
+	 * @param time Time of the event
+	 * @param type Type of the event
+	 * @param host1 Address of the first involved host or -1 if none
+	 * @param host2 Address of the second involved host or -1 if none
+	 * @param message The involved message or null if none
+	 * @param highlight True if the record should be highlighted
+	 */
+	public synchronized void add(double time, byte type, int host1,
+			int host2, Message message, boolean highlight) {
+		int i;
+		if (size < capacity) {
+			i = (start + size) % capacity;
+			size++;
+		}
+		else { // replace the oldest record
+			i = start;
+			start = (start + 1) % capacity;
+		}
+
+		times[i] = time;
+		types[i] = type;
+		hosts1[i] = host1;
+		hosts2[i] = host2;
+		messages[i] = message;
+		highlights[i] = highlight;
+		nrofAdded++;
+	}
+
+	/**
+	 * Returns the number of records added to the buffer ever
+	 * @return the number of added records
+	 */
+	public synchronized long getNrofAdded() {
+		return this.nrofAdded;
+	}
+
+	/**
+	 * Copies the records of this buffer to another buffer of the same
+	 * capacity, the oldest record first
+	 * @param copy The buffer to copy to
+	 */
+	public synchronized void copyTo(EventLogBuffer copy) {
+		assert copy.capacity == capacity : "Capacities differ";
+		int first = Math.min(size, capacity - start);
+		int second = size - first;
+		copyRange(start, 0, first, copy);
+		copyRange(0, first, second, copy);
+
+		copy.start = 0;
+		copy.size = size;
+		copy.nrofAdded = nrofAdded;
+	}
+
+	/**
+	 * Copies records to another buffer
+	 * @param from Index of the first record to copy in this buffer
+	 * @param to Index of the first record in the other buffer
+	 * @param n Number of records to copy
+	 * @param copy The other buffer
+	 */
+	private void copyRange(int from, int to, int n, EventLogBuffer copy) {
+		System.arraycopy(times, from, copy.times, to, n);
+		System.arraycopy(types, from, copy.types, to, n);
+		System.arraycopy(hosts1, from, copy.hosts1, to, n);
+		System.arraycopy(hosts2, from, copy.hosts2, to, n);
+		System.arraycopy(messages, from, copy.messages, to, n);
+		System.arraycopy(highlights, from, copy.highlights, to, n);
+	}
+
+	/**
+	 * Returns the number of records in the buffer
+	 * @return the number of records
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the index of a record in the arrays
+	 * @param index Index of the record (0 is the oldest record)
+	 * @return Index in the arrays
+	 */
+	private int slot(int index) {
+		return (start + index) % capacity;
+	}
+
+	/**
+	 * Returns the time of an event
+	 * @param index Index of the record (0 is the oldest record)
+	 * @return The time of the event
+	 */
+	public double getTime(int index) {
+		return times[slot(index)];
+	}
+
+	/**
+	 * Returns the type of an event
+	 * @param index Index of the record (0 is the oldest record)
+	 * @return The type of the event
+	 */
+	public byte getType(int index) {
+		return types[slot(index)];
+	}
+
+	/**
+	 * Returns the address of the first host involved in an event
+	 * @param index Index of the record (0 is the oldest record)
+	 * @return The address of the host or -1 if there was no host
+	 */
+	public int getHost1(int index) {
+		return hosts1[slot(index)];
+	}
+
+	/**
+	 * Returns the address of the second host involved in an event
+	 * @param index Index of the record (0 is the oldest record)
+	 * @return The address of the host or -1 if there was no host
+	 */
+	public int getHost2(int index) {
+		return hosts2[slot(index)];
+	}
+
+	/**
+	 * Returns the message involved in an event
+	 * @param index Index of the record (0 is the oldest record)
+	 * @return The message or null if there was no message
+	 */
+	public Message getMessage(int index) {
+		return messages[slot(index)];
+	}
+
+	/**
+	 * Returns true if the record of an event is highlighted
+	 * @param index Index of the record (0 is the oldest record)
+	 * @return True if the record is highlighted
+	 */
+	public boolean isHighlighted(int index) {
+		return highlights[slot(index)];
+	}
+}
@@ -4,20 +4,30 @@
  */
 package gui;
 
+import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.GridLayout;
 import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Vector;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
 
+import javax.swing.AbstractListModel;
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
 import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JPanel;
+import javax.swing.ListCellRenderer;
 import javax.swing.Timer;
+import javax.swing.border.TitledBorder;
 
 import core.ConnectionListener;
 import core.DTNHost;
@@ -25,39 +35,80 @@ import core.Message;
 import core.MessageListener;
 import core.Settings;
 import core.SimClock;
+import core.SimScenario;
 
 /**
- * Event log panel where log entries are displayed.
+ * Event log panel where log entries are displayed. The entries are stored
+ * as primitive records in a ring buffer ({@link EventLogBuffer}) and shown
+ * in a list that creates components only for drawing the visible rows.
+ * The number of logged events per simulated second can be limited with the
+ * {@link #MAX_EVENT_RATE_S} setting; events that pause the simulation are
+ * always logged.
  */
-public class EventLogPanel extends JPanel 
-	implements ConnectionListener, MessageListener, ActionListener {
+public class EventLogPanel extends JPanel
+	implements ConnectionListener, MessageListener {
+	private static final long serialVersionUID = 42L;
+
+	/** Maximum event rate -setting id ({@value}). Integer valued. Maximum
+	 * number of events logged per simulated second. Default is no limit. */
+	public static final String MAX_EVENT_RATE_S = "maxEventRate";
 
 	private static final String PANEL_TITLE = "Event log";
 	/** format of a single log entry */
-	private static final String ENTRY_FORMAT = "% 9.1f: %s "; 
+	private static final String ENTRY_FORMAT = "% 9.1f: %s ";
 	private static final int FONT_SIZE = 12;
 	private static final String FONT_TYPE = "monospaced";
 	private static final Color LOG_BUTTON_BG = Color.WHITE;
 	private static final String HOST_DELIM = "<->";
 	private static final Color HIGHLIGHT_BG_COLOR = Color.GREEN;
 
-	// constants used for button property  
-	private static final String HOST_PROP = "host";
-	private static final String MSG_PROP = "message";
+	// event types of the log records and their descriptions
+	private static final byte CON_UP = 0;
+	private static final byte CON_DOWN = 1;
+	private static final byte MSG_REMOVED = 2;
+	private static final byte MSG_DROPPED = 3;
+	private static final byte MSG_DELIVERED = 4;
+	private static final byte MSG_DELIVERED_AGAIN = 5;
+	private static final byte MSG_RELAYED = 6;
+	private static final byte MSG_CREATED = 7;
+	private static final byte MSG_ABORTED = 8;
+	private static final byte MSG_STARTED = 9;
+	private static final String[] EVENT_NAMES = {"Connection UP",
+		"Connection DOWN", "Message removed", "Message dropped",
+		"Message delivered", "Message delivered again", "Message relayed",
+		"Message created", "Message relay aborted", "Message relay started"};
 
 	/** How often the log is updated (milliseconds) */
 	public static final int LOG_UP_INTERVAL = 500;
-	
-	/** Regular expression to filter log entries (changed trough Settings) */ 
+
+	/** Regular expression to filter log entries (changed trough Settings) */
 	private String regExp = null;
 	/** how many events to show in log (changed trough Settings) */
 	private int maxNrofEvents = 30;
-	
+	/** how many events to log per simulated second (-1 = no limit) */
+	private int maxEventRate = -1;
+
 	private Font font;	// font used in log entries
 	private DTNSimGUI gui;
-	private Vector<JPanel> eventPanes;
-	private GridLayout layout;
-	
+	private List<DTNHost> hosts;
+	private String title;
+
+	/** records of the logged events (written by the simulation thread) */
+	private EventLogBuffer events;
+	/** copy of the records that is shown (used by the GUI thread) */
+	private EventLogBuffer shownEvents;
+	private EventListModel listModel;
+	private EventRenderer renderer;
+	private JList<Integer> list;
+
+	/** the simulated second whose events are counted for the rate limit */
+	private int rateSecond = -1;
+	/** number of events in the rate limit's simulated second */
+	private int rateCount = 0;
+	/** number of events not logged because of the rate limit */
+	private volatile long nrofSkipped = 0;
+	private long shownNrofSkipped = 0;
+
 	private EventLogControlPanel controls;
 	private EventLogControl conUpCheck;
 	private EventLogControl conDownCheck;
@@ -68,36 +119,48 @@ public class EventLogPanel extends JPanel
 	private EventLogControl msgDeliveredCheck;
 	private EventLogControl msgDropCheck;
 	private EventLogControl msgAbortCheck;
-	
+
 	/**
 	 * Creates a new log panel
-	 * @param gui The where this log belongs to (for callbacks) 
+	 * @param gui The where this log belongs to (for callbacks)
 	 */
 	public EventLogPanel(DTNSimGUI gui) {
 		this.gui = gui;
-		String title = PANEL_TITLE;
+		this.hosts = SimScenario.getInstance().getHosts();
+		this.title = PANEL_TITLE;
 		Settings s = new Settings("GUI.EventLogPanel");
-		
+
 		if (s.contains("nrofEvents")) {
 			this.maxNrofEvents = s.getInt("nrofEvents");
 		}
 		if (s.contains("REfilter")) {
 			this.regExp = s.getSetting("REfilter");
 		}
-		
-		layout = new GridLayout(maxNrofEvents,1);
+		if (s.contains(MAX_EVENT_RATE_S)) {
+			this.maxEventRate = s.getInt(MAX_EVENT_RATE_S);
+		}
 
-		this.setLayout(layout);
 		if (this.regExp != null) {
 			title += " - RE-filter: " + regExp;
 		}
+		this.setLayout(new BorderLayout());
 		this.setBorder(BorderFactory.createTitledBorder(
 				getBorder(), title));
-		
-		this.eventPanes = new Vector<JPanel>(maxNrofEvents);
+
+		this.events = new EventLogBuffer(maxNrofEvents);
+		this.shownEvents = new EventLogBuffer(maxNrofEvents);
 		this.font = new Font(FONT_TYPE,Font.PLAIN, FONT_SIZE);
 		this.controls = createControls();
-		
+
+		this.listModel = new EventListModel();
+		this.renderer = new EventRenderer();
+		this.list = new JList<Integer>(listModel);
+		this.list.setCellRenderer(renderer);
+		this.list.setFixedCellHeight(renderer.getPrototypeSize().height);
+		this.list.setFixedCellWidth(renderer.getPrototypeSize().width);
+		this.list.addMouseListener(new EntryMouseHandler());
+		this.add(list, BorderLayout.CENTER);
+
 		// set log view to update every LOG_UP_INTERVAL milliseconds
 		// also ensures that the update is done in Swing's EDT
 		ActionListener taskPerformer = new ActionListener() {
@@ -128,7 +191,7 @@ public class EventLogPanel extends JPanel
 		msgAbortCheck = c.addControl("aborted");
 		return c;
 	}
-	
+
 	/**
 	 * Returns the control panel that this log uses
 	 * @return The control panel
@@ -136,187 +199,312 @@ public class EventLogPanel extends JPanel
 	public EventLogControlPanel getControls() {
 		return this.controls;
 	}
-	
+
 	/**
-	 * Adds a new event to the event log panel
-	 * @param description Textual description of the event
-	 * @param host1 Host that caused the event or null if there was not any
-	 * @param host2 Another host that was involved in the event (or null)
-	 * @param message Message that was involved in the event (or null)
-	 * @param highlight If true, the log entry is highlighted
+	 * Updates the log view if new events have been logged
 	 */
-	private void addEvent(String description, DTNHost host1,
-			DTNHost host2, Message message, boolean highlight) {
-		JPanel eventPane = new JPanel();
-		eventPane.setLayout(new BoxLayout(eventPane,BoxLayout.LINE_AXIS));
-		
-		String text = String.format(ENTRY_FORMAT, 
-				SimClock.getTime(),description);
-		JLabel label = new JLabel(text);
-		label.setFont(font);
-		eventPane.add(label);
-		
-		if (host1 != null) {
-			addInfoButton(eventPane,host1,HOST_PROP);
-		}
-		if (host2 != null) {
-			JLabel betweenLabel = new JLabel(HOST_DELIM);
-			betweenLabel.setFont(font);
-			eventPane.add(betweenLabel);
-			addInfoButton(eventPane,host2,HOST_PROP);
-		}
-		if (message != null) {
-			addInfoButton(eventPane, message, MSG_PROP);
+	private void updateLogView() {
+		long skipped = this.nrofSkipped;
+		if (events.getNrofAdded() == shownEvents.getNrofAdded() &&
+				skipped == shownNrofSkipped) {
+			return;
 		}
 
-		if (highlight) {
-			eventPane.setBackground(HIGHLIGHT_BG_COLOR);
+		// keep following the newest events if they were visible
+		int oldSize = shownEvents.size();
+		boolean atEnd = list.getLastVisibleIndex() >= oldSize - 1;
+
+		events.copyTo(shownEvents);
+		listModel.update(oldSize);
+		if (atEnd && shownEvents.size() > 0) {
+			list.ensureIndexIsVisible(shownEvents.size() - 1);
 		}
-		
-		eventPanes.add(eventPane);
-		
-		// if the log is full, remove oldest entries first
-		if (this.eventPanes.size() > maxNrofEvents) {
-			eventPanes.remove(0);
+
+		if (skipped != shownNrofSkipped) {
+			shownNrofSkipped = skipped;
+			((TitledBorder)getBorder()).setTitle(title + " (" + skipped +
+					" events over rate limit not shown)");
+			repaint();
 		}
 	}
-	
+
 	/**
-	 * Updates the log view
+	 * Returns the host with the given address
+	 * @param address Address of the host or -1
+	 * @return The host or null if the address was -1
 	 */
-	private void updateLogView() {
-		//TODO Optimization: Check if update is really necessary
-		this.removeAll();
-		for (int i=0; i< this.eventPanes.size(); i++) {
-			this.add(eventPanes.get(i));
-		}
-		revalidate();
+	private DTNHost getHost(int address) {
+		return address >= 0 ? hosts.get(address) : null;
+	}
+
+	/**
+	 * Returns the address of a host
+	 * @param host The host or null
+	 * @return The address of the host or -1 if the host was null
+	 */
+	private static int getAddress(DTNHost host) {
+		return host != null ? host.getAddress() : -1;
 	}
-	
-	
+
 	/**
-	 * Adds a new button to a log entry panel and attaches a client 
-	 * property into it
-	 * @param panel Panel where to add the button
-	 * @param o Client property object to add
-	 * @param clientProp Client property key to use for the object
+	 * Returns true if an event exceeds the maximum event rate
+	 * @return true if the event shouldn't be logged
 	 */
-	private void addInfoButton(JPanel panel, Object o, String clientProp) {
-		JButton hButton;
-		hButton = new JButton(o.toString());
-		hButton.putClientProperty(clientProp, o);
-		hButton.addActionListener(this);
-		hButton.setFont(font);
-		hButton.setMargin(new Insets(0,0,0,0));
-		hButton.setBackground(LOG_BUTTON_BG);
-		panel.add(hButton);
+	private boolean isOverRateLimit() {
+		if (maxEventRate < 0) {
+			return false;
+		}
+		int second = SimClock.getIntTime();
+		if (second != rateSecond) {
+			rateSecond = second;
+			rateCount = 0;
+		}
+		return ++rateCount > maxEventRate;
 	}
-	
+
 	/**
 	 * Processes a log event
 	 * @param check EventLogControls used to check if this entry type should
 	 * be shown and/or paused upon
-	 * @param name Text description of the event
+	 * @param type Type of the event
 	 * @param host1 First host involved in the event (if any, can be null)
 	 * @param host2 Second host involved in the event (if any, can be null)
-	 * @param message The message involved in the event (if any, can be null) 
+	 * @param message The message involved in the event (if any, can be null)
 	 */
-	private void processEvent(EventLogControl check, final String name,
-			final DTNHost host1, final DTNHost host2, final Message message) {
-		String descString;	// String format description of the event
-		
+	private void processEvent(EventLogControl check, byte type,
+			DTNHost host1, DTNHost host2, Message message) {
 		if (!check.showEvent()) {
-			return; // if event's "show" is not checked, won't pause either 
+			return; // if event's "show" is not checked, won't pause either
 		}
-		
-		descString = name + " " + 
-			(host1!=null ? host1 : "") + 
-			(host2!= null ? (HOST_DELIM + host2) : "") + 
-			(message!=null ? " " + message : "");
-		
-		if (regExp != null && !descString.matches(regExp)){
-			return;	// description doesn't match defined regular expression
+
+		if (regExp != null) {
+			String descString = EVENT_NAMES[type] + " " +
+				(host1!=null ? host1 : "") +
+				(host2!= null ? (HOST_DELIM + host2) : "") +
+				(message!=null ? " " + message : "");
+			if (!descString.matches(regExp)) {
+				return;	// description doesn't match the regular expression
+			}
 		}
-		
-		if (check.pauseOnEvent()) {
+
+		boolean pause = check.pauseOnEvent();
+		if (pause) {
 			gui.setPaused(true);
 			if (host1 != null) {
 				gui.setFocus(host1);
 			}
 		}
-		
-      	addEvent(name, host1, host2, message, check.pauseOnEvent());	
+		else if (isOverRateLimit()) {
+			nrofSkipped++;
+			return;
+		}
+
+		events.add(SimClock.getTime(), type, getAddress(host1),
+				getAddress(host2), message, pause);
 	}
-	
+
 	// Implementations of ConnectionListener and MessageListener interfaces
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
-		processEvent(conUpCheck, "Connection UP", host1, host2, null);
+		processEvent(conUpCheck, CON_UP, host1, host2, null);
 	}
 
 	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
-		processEvent(conDownCheck, "Connection DOWN", host1, host2, null);
+		processEvent(conDownCheck, CON_DOWN, host1, host2, null);
 	}
 
 	public void messageDeleted(Message m, DTNHost where, boolean dropped) {
 		if (!dropped) {
-			processEvent(msgRemoveCheck, "Message removed", where, null, m);
+			processEvent(msgRemoveCheck, MSG_REMOVED, where, null, m);
 		}
 		else {
-			processEvent(msgDropCheck, "Message dropped", where, null, m);
+			processEvent(msgDropCheck, MSG_DROPPED, where, null, m);
 		}
 	}
 
 	public void messageTransferred(Message m, DTNHost from, DTNHost to,
 			boolean firstDelivery) {
 		if (firstDelivery) {
-			processEvent(msgDeliveredCheck, "Message delivered", from, to, m); 
+			processEvent(msgDeliveredCheck, MSG_DELIVERED, from, to, m);
 		}
 		else if (to == m.getTo()) {
-			processEvent(msgDeliveredCheck, "Message delivered again", 
-					from, to, m);
+			processEvent(msgDeliveredCheck, MSG_DELIVERED_AGAIN, from, to, m);
 		}
 		else {
-			processEvent(msgRelayCheck, "Message relayed", from, to, m);
+			processEvent(msgRelayCheck, MSG_RELAYED, from, to, m);
 		}
 	}
 
 	public void newMessage(Message m) {
-		processEvent(msgCreateCheck, "Message created", m.getFrom(), null, m);
+		processEvent(msgCreateCheck, MSG_CREATED, m.getFrom(), null, m);
 	}
-	
+
 	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {
-		processEvent(msgAbortCheck, "Message relay aborted", from, to, m);
+		processEvent(msgAbortCheck, MSG_ABORTED, from, to, m);
 	}
-	
+
 	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
-		processEvent(msgTransferStartCheck,"Message relay started", from,
-				to,m);
-		
+		processEvent(msgTransferStartCheck, MSG_STARTED, from, to, m);
 	}
-	
+
 	// end of message interface implementations
-	
-	
+
+	public String toString() {
+		return this.getClass().getSimpleName() + " with " +
+			this.shownEvents.size() + " events";
+	}
+
 	/**
-	 * Action listener for log entry (host & message) buttons
+	 * List model of the shown event records. The elements are the indexes
+	 * of the records.
 	 */
-	public void actionPerformed(ActionEvent e) {
-		JButton source = (JButton)e.getSource();
-		
-		if (source.getClientProperty(HOST_PROP) != null) {
-			// button was a host button -> focus it on GUI
-			gui.setFocus((DTNHost)source.getClientProperty(HOST_PROP));
+	private class EventListModel extends AbstractListModel<Integer> {
+		private static final long serialVersionUID = 42L;
+
+		public int getSize() {
+			return shownEvents.size();
 		}
-		else if (source.getClientProperty(MSG_PROP) != null) {
-			// was a message button -> show information about the message
-			Message m = (Message)source.getClientProperty(MSG_PROP);
-			gui.getInfoPanel().showInfo(m);
+
+		public Integer getElementAt(int index) {
+			return index;
+		}
+
+		/**
+		 * Informs the list that the shown records have changed
+		 * @param oldSize Number of records before the change
+		 */
+		public void update(int oldSize) {
+			int size = shownEvents.size();
+			if (size > oldSize) {
+				fireIntervalAdded(this, oldSize, size - 1);
+			}
+			if (oldSize > 0) {
+				fireContentsChanged(this, 0, Math.min(oldSize, size) - 1);
+			}
 		}
 	}
-	
-	public String toString() {
-		return this.getClass().getSimpleName() + " with " + 
-			this.eventPanes.size() + " events";
+
+	/**
+	 * Renderer of the log entries. The same components are used for drawing
+	 * every visible row of the list. The host and message buttons only look
+	 * like buttons; clicks on them are handled by {@link EntryMouseHandler}.
+	 */
+	private class EventRenderer extends JPanel
+			implements ListCellRenderer<Integer> {
+		private static final long serialVersionUID = 42L;
+
+		private JLabel label;
+		private JButton host1Button;
+		private JLabel delimLabel;
+		private JButton host2Button;
+		private JButton msgButton;
+		private Color defaultBg;
+
+		public EventRenderer() {
+			setLayout(new BoxLayout(this, BoxLayout.LINE_AXIS));
+			this.label = new JLabel();
+			this.label.setFont(font);
+			this.host1Button = createInfoButton();
+			this.delimLabel = new JLabel(HOST_DELIM);
+			this.delimLabel.setFont(font);
+			this.host2Button = createInfoButton();
+			this.msgButton = createInfoButton();
+			this.defaultBg = getBackground();
+
+			add(label);
+			add(host1Button);
+			add(delimLabel);
+			add(host2Button);
+			add(msgButton);
+		}
+
+		/**
+		 * Creates a new button for host or message info
+		 * @return The button
+		 */
+		private JButton createInfoButton() {
+			JButton button = new JButton();
+			button.setFont(font);
+			button.setMargin(new Insets(0,0,0,0));
+			button.setBackground(LOG_BUTTON_BG);
+			return button;
+		}
+
+		/**
+		 * Returns the size of a typical log entry
+		 * @return The size
+		 */
+		public Dimension getPrototypeSize() {
+			label.setText(String.format(ENTRY_FORMAT, 99999.9,
+					EVENT_NAMES[MSG_DELIVERED_AGAIN]));
+			setButton(host1Button, "p9999");
+			delimLabel.setVisible(true);
+			setButton(host2Button, "p9999");
+			setButton(msgButton, "M99999");
+			return getPreferredSize();
+		}
+
+		/**
+		 * Sets the text of a button and shows it, or hides it if there's no
+		 * object for it
+		 * @param button The button
+		 * @param o The object the button is for or null
+		 */
+		private void setButton(JButton button, Object o) {
+			button.setVisible(o != null);
+			if (o != null) {
+				button.setText(o.toString());
+			}
+		}
+
+		public Component getListCellRendererComponent(
+				JList<? extends Integer> list, Integer value, int index,
+				boolean isSelected,
+				boolean cellHasFocus) {
+			label.setText(String.format(ENTRY_FORMAT,
+					shownEvents.getTime(index),
+					EVENT_NAMES[shownEvents.getType(index)]));
+			setButton(host1Button, getHost(shownEvents.getHost1(index)));
+			DTNHost host2 = getHost(shownEvents.getHost2(index));
+			delimLabel.setVisible(host2 != null);
+			setButton(host2Button, host2);
+			setButton(msgButton, shownEvents.getMessage(index));
+			setBackground(shownEvents.isHighlighted(index) ?
+					HIGHLIGHT_BG_COLOR : defaultBg);
+			return this;
+		}
 	}
-	
+
+	/**
+	 * Mouse handler for the log entries' host and message buttons
+	 */
+	private class EntryMouseHandler extends MouseAdapter {
+		public void mouseClicked(MouseEvent e) {
+			Point p = e.getPoint();
+			int index = list.locationToIndex(p);
+			if (index < 0 || !list.getCellBounds(index, index).contains(p)) {
+				return;
+			}
+
+			// lay out the renderer like the clicked row to find the button
+			Rectangle bounds = list.getCellBounds(index, index);
+			renderer.getListCellRendererComponent(list, index, index,
+					false, false);
+			renderer.setBounds(bounds);
+			renderer.doLayout();
+			Component c = renderer.getComponentAt(p.x - bounds.x,
+					p.y - bounds.y);
+
+			if (c == renderer.host1Button) {
+				gui.setFocus(getHost(shownEvents.getHost1(index)));
+			}
+			else if (c == renderer.host2Button) {
+				gui.setFocus(getHost(shownEvents.getHost2(index)));
+			}
+			else if (c == renderer.msgButton) {
+				// show information about the message
+				gui.getInfoPanel().showInfo(shownEvents.getMessage(index));
+			}
+		}
+	}
+
 }
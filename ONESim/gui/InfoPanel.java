@@ -14,12 +14,16 @@ import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 
+import gui.playfield.WorldSnapshot;
 import movement.Path;
+import core.Coord;
 import core.DTNHost;
 import core.Message;
 
 /**
- * Information panel that shows data of selected messages and nodes.
+ * Information panel that shows data of selected messages and nodes. Node
+ * data is read from the world snapshots of the playfield, so it is shown
+ * once a snapshot with the selected node as its focused host is available.
  */
 public class InfoPanel extends JPanel implements ActionListener{
 	private JComboBox msgChooser;
@@ -28,6 +32,8 @@ public class InfoPanel extends JPanel implements ActionListener{
 	private JButton routingInfoButton;
 	private Message selectedMessage;
 	private DTNHost selectedHost;
+	/** is the selected host's information waiting for a snapshot */
+	private boolean hostInfoPending;
 	private DTNSimGUI gui;
 	
 	public InfoPanel(DTNSimGUI gui) {
@@ -41,20 +47,48 @@ public class InfoPanel extends JPanel implements ActionListener{
 		this.info = null;
 		this.infoButton = null;
 		this.selectedMessage = null;
+		this.hostInfoPending = false;
 	}
 	
 	/**
-	 * Show information about a host
+	 * Show information about a host. The information is shown from the
+	 * first snapshot that has the host as its focused host.
 	 * @param host Host to show the information of
+	 * @see #updateInfo(WorldSnapshot)
 	 */
-	@SuppressWarnings("unchecked")
 	public void showInfo(DTNHost host) {
-		Vector messages = new Vector<Message>(host.getMessageCollection());
-		Collections.sort(messages);
 		reset();
 		this.selectedHost = host;
-		String text = (host.isActive() ? "" : "INACTIVE ") + host + " at " +
-			host.getLocation();
+		this.hostInfoPending = true;
+		updateInfo(gui.getSnapshot());
+	}
+	
+	/**
+	 * Shows the information of the selected host if it is waiting for
+	 * a snapshot and the snapshot has captured the host's data
+	 * @param snapshot The latest snapshot
+	 */
+	public void updateInfo(WorldSnapshot snapshot) {
+		if (!hostInfoPending ||
+				snapshot.getFocusHost() != selectedHost.getAddress()) {
+			return;
+		}
+		this.hostInfoPending = false;
+		showInfo(snapshot, snapshot.getIndex(selectedHost.getAddress()));
+	}
+	
+	/**
+	 * Shows the information of the selected host from a snapshot
+	 * @param snapshot The snapshot
+	 * @param host Index of the host in the snapshot
+	 */
+	@SuppressWarnings("unchecked")
+	private void showInfo(WorldSnapshot snapshot, int host) {
+		Vector messages = new Vector<Message>(snapshot.getFocusMessages());
+		Collections.sort(messages);
+		String text = (snapshot.isActive(host) ? "" : "INACTIVE ") +
+			snapshot.getName(host) + " at " +
+			new Coord(snapshot.getX(host), snapshot.getY(host));
 		
 		msgChooser = new JComboBox(messages);
 		msgChooser.insertItemAt(messages.size() + " messages", 0);
@@ -119,9 +153,13 @@ public class InfoPanel extends JPanel implements ActionListener{
 			setMessageInfo(m);
 		}
 		else if (e.getSource() == this.infoButton) {
+			WorldSnapshot snapshot = gui.getSnapshot();
 			Path p = new Path();
 			for (DTNHost h : this.selectedMessage.getHops()) {
-				p.addWaypoint(h.getLocation());
+				int host = snapshot.getIndex(h.getAddress());
+				if (host >= 0) {
+					p.addWaypoint(snapshot.getX(host), snapshot.getY(host));
+				}
 			}
 				
 			this.gui.showPath(p);
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package gui.playfield;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid index of axis aligned boxes (or points) in world
+ * coordinates for finding the items that intersect an area. Every item is
+ * stored in all the cells its box overlaps; the items of the cells are
+ * stored in one array in the cell order (like in a CSR graph), so building
+ * the index needs no objects per item or cell.
+ */
+public class GridIndex {
+	/** average number of items per cell the grid size is chosen for */
+	private static final int ITEMS_PER_CELL = 4;
+	/** maximum number of cells in one dimension */
+	private static final int MAX_CELLS = 1024;
+
+	private double minX;
+	private double minY;
+	private double cellSize;
+	private int cols;
+	private int rows;
+	/** start of each cell's items in the items array (size cells+1) */
+	private int[] cellStart;
+	/** item indexes of the cells */
+	private int[] items;
+
+	/** query stamps of the items (to report every item only once) */
+	private int[] marks;
+	private int stamp;
+	private int[] result;
+	private int resultSize;
+
+	/**
+	 * Creates an empty index
+	 */
+	public GridIndex() {
+		this.cols = 1;
+		this.rows = 1;
+		this.cellSize = 1;
+		this.cellStart = new int[2];
+		this.items = new int[0];
+		this.marks = new int[0];
+		this.result = new int[16];
+		this.stamp = 0;
+	}
+
+	/**
+	 * Builds the index of points
+	 * @param n Number of points
+	 * @param xs X coordinates of the points
+	 * @param ys Y coordinates of the points
+	 */
+	public void build(int n, double[] xs, double[] ys) {
+		build(n, xs, ys, xs, ys);
+	}
+
+	/**
+	 * Builds the index of boxes. Item <code>i</code> covers the area from
+	 * <code>(x1[i], y1[i])</code> to <code>(x2[i], y2[i])</code>.
+	 * @param n Number of boxes
+	 * @param x1 Minimum x coordinates of the boxes
+	 * @param y1 Minimum y coordinates of the boxes
+	 * @param x2 Maximum x coordinates of the boxes
+	 * @param y2 Maximum y coordinates of the boxes
+	 */
+	public void build(int n, double[] x1, double[] y1, double[] x2,
+			double[] y2) {
+		double maxX = 0;
+		double maxY = 0;
+		minX = 0;
+		minY = 0;
+		for (int i = 0; i < n; i++) {
+			if (i == 0 || x1[i] < minX) { minX = x1[i]; }
+			if (i == 0 || y1[i] < minY) { minY = y1[i]; }
+			if (i == 0 || x2[i] > maxX) { maxX = x2[i]; }
+			if (i == 0 || y2[i] > maxY) { maxY = y2[i]; }
+		}
+
+		/* square cells, about ITEMS_PER_CELL items per cell */
+		double width = Math.max(maxX - minX, 1);
+		double height = Math.max(maxY - minY, 1);
+		int nrofCells = Math.max(1, n / ITEMS_PER_CELL);
+		cellSize = Math.sqrt(width * height / nrofCells);
+		cellSize = Math.max(cellSize, Math.max(width, height) / MAX_CELLS);
+		cols = (int)(width / cellSize) + 1;
+		rows = (int)(height / cellSize) + 1;
+
+		if (cellStart.length < cols * rows + 1) {
+			cellStart = new int[cols * rows + 1];
+		}
+		else {
+			Arrays.fill(cellStart, 0);
+		}
+
+		/* count the items of each cell... */
+		for (int i = 0; i < n; i++) {
+			for (int r = row(y1[i]), r2 = row(y2[i]); r <= r2; r++) {
+				for (int c = col(x1[i]), c2 = col(x2[i]); c <= c2; c++) {
+					cellStart[r * cols + c + 1]++;
+				}
+			}
+		}
+		for (int cell = 0; cell < cols * rows; cell++) {
+			cellStart[cell + 1] += cellStart[cell];
+		}
+
+		/* ...and put them in place; this moves the start of every cell to the
+		 * start of the next cell, so the starts are shifted back after it */
+		if (items.length < cellStart[cols * rows]) {
+			items = new int[cellStart[cols * rows]];
+		}
+		for (int i = 0; i < n; i++) {
+			for (int r = row(y1[i]), r2 = row(y2[i]); r <= r2; r++) {
+				for (int c = col(x1[i]), c2 = col(x2[i]); c <= c2; c++) {
+					items[cellStart[r * cols + c]++] = i;
+				}
+			}
+		}
+		for (int cell = cols * rows; cell > 0; cell--) {
+			cellStart[cell] = cellStart[cell - 1];
+		}
+		cellStart[0] = 0;
+
+		if (marks.length < n) {
+			marks = new int[n];
+			stamp = 0;
+		}
+	}
+
+	/**
+	 * Returns the column of an x coordinate (clamped to the grid)
+	 * @param x The x coordinate
+	 * @return the column
+	 */
+	private int col(double x) {
+		int c = (int)((x - minX) / cellSize);
+		return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+	}
+
+	/**
+	 * Returns the row of a y coordinate (clamped to the grid)
+	 * @param y The y coordinate
+	 * @return the row
+	 */
+	private int row(double y) {
+		int r = (int)((y - minY) / cellSize);
+		return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+	}
+
+	/**
+	 * Finds the items that are in the cells overlapping an area. The result
+	 * may include items near the area too. The result can be read with
+	 * {@link #getResult(int)} until the next query.
+	 * @param x1 Minimum x coordinate of the area
+	 * @param y1 Minimum y coordinate of the area
+	 * @param x2 Maximum x coordinate of the area
+	 * @param y2 Maximum y coordinate of the area
+	 * @return The number of items found
+	 */
+	public int query(double x1, double y1, double x2, double y2) {
+		resultSize = 0;
+		if (++stamp == 0) { // stamp wrapped around; forget old marks
+			Arrays.fill(marks, 0);
+			stamp = 1;
+		}
+
+		for (int r = row(y1), r2 = row(y2); r <= r2; r++) {
+			for (int c = col(x1), c2 = col(x2); c <= c2; c++) {
+				int cell = r * cols + c;
+				for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+					int item = items[k];
+					if (marks[item] == stamp) {
+						continue;
+					}
+					marks[item] = stamp;
+					if (resultSize == result.length) {
+						result = Arrays.copyOf(result, 2 * resultSize);
+					}
+					result[resultSize++] = item;
+				}
+			}
+		}
+		return resultSize;
+	}
+
+	/**
+	 * Returns an item found by the latest query
+	 * @param i Index of the result (0 &lt;= i &lt; number of items found)
+	 * @return Index of the item
+	 */
+	public int getResult(int i) {
+		return result[i];
+	}
+}
@@ -4,50 +4,185 @@
  */
 package gui.playfield;
 
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 
-import movement.map.MapNode;
+import movement.map.MapGraph;
 import movement.map.SimMap;
-import core.Coord;
 
 /**
- * PlayfieldGraphic for SimMap visualization
- *
+ * PlayfieldGraphic for SimMap visualization. The map is drawn to an
+ * off-screen image that covers the clip area and some margin around it.
+ * The image is re-drawn only when the scale changes or the clip area moves
+ * outside it, and only the map segments near the image's area (found with
+ * a {@link GridIndex}) are drawn to it.
  */
 public class MapGraphic extends PlayFieldGraphic {
 	private SimMap simMap;
 	private final Color PATH_COLOR = Color.LIGHT_GRAY;
 	private final Color BG_COLOR = Color.WHITE;
-		
+
+	/** end point coordinates of the map segments */
+	private double[] x1, y1, x2, y2;
+	private int nrofSegments;
+	/** grid index of the segments' bounding boxes */
+	private GridIndex segmentIndex;
+
+	/** off-screen image of the map (null if not drawn yet) */
+	private BufferedImage cache;
+	/** area of the play field the cached image covers */
+	private Rectangle cacheArea;
+	/** scale the cached image was drawn with */
+	private double cacheScale;
+
 	public MapGraphic(SimMap simMap) {
 		this.simMap = simMap;
+		this.cache = null;
+		this.cacheArea = new Rectangle();
+		if (simMap != null) {
+			createSegments(simMap.getGraph());
+		}
+	}
+
+	/**
+	 * Creates the segments of the map and their index. Bidirectional edges
+	 * between map nodes are included only once.
+	 * @param graph Graph of the map
+	 */
+	private void createSegments(MapGraph graph) {
+		int n = graph.getNrofNodes();
+		int max = graph.getNrofEdges();
+		this.x1 = new double[max];
+		this.y1 = new double[max];
+		this.x2 = new double[max];
+		this.y2 = new double[max];
+		this.nrofSegments = 0;
+
+		for (int i = 0; i < n; i++) {
+			for (int e = graph.getEdgeStart(i); e < graph.getEdgeEnd(i); e++) {
+				int j = graph.getEdgeTarget(e);
+				if (j < i && hasEdge(graph, j, i)) {
+					continue; // the segment was added with node j
+				}
+				x1[nrofSegments] = graph.getX(j);
+				y1[nrofSegments] = graph.getY(j);
+				x2[nrofSegments] = graph.getX(i);
+				y2[nrofSegments] = graph.getY(i);
+				nrofSegments++;
+			}
+		}
+
+		double[] minX = new double[nrofSegments];
+		double[] minY = new double[nrofSegments];
+		double[] maxX = new double[nrofSegments];
+		double[] maxY = new double[nrofSegments];
+		for (int s = 0; s < nrofSegments; s++) {
+			minX[s] = Math.min(x1[s], x2[s]);
+			minY[s] = Math.min(y1[s], y2[s]);
+			maxX[s] = Math.max(x1[s], x2[s]);
+			maxY[s] = Math.max(y1[s], y2[s]);
+		}
+		this.segmentIndex = new GridIndex();
+		this.segmentIndex.build(nrofSegments, minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Returns true if there is an edge from one node to another
+	 * @param graph The graph
+	 * @param from Index of the source node
+	 * @param to Index of the target node
+	 * @return true if the edge exists
+	 */
+	private static boolean hasEdge(MapGraph graph, int from, int to) {
+		for (int e = graph.getEdgeStart(from); e < graph.getEdgeEnd(from);
+				e++) {
+			if (graph.getEdgeTarget(e) == to) {
+				return true;
+			}
+		}
+		return false;
+	}
 
-	}	
-	
-	// TODO: draw only once and store to buffer
 	@Override
 	public void draw(Graphics2D g2) {
-		Coord c,c2;
-		
 		if (simMap == null) {
 			return;
 		}
-		
+
+		Rectangle clip = g2.getClipBounds();
+		if (clip == null) { // no clip area -> draw everything directly
+			drawSegments(g2, null);
+			return;
+		}
+
+		if (cache == null || cacheScale != scale ||
+				!cacheArea.contains(clip)) {
+			updateCache(clip);
+		}
+		g2.drawImage(cache, cacheArea.x, cacheArea.y, null);
+	}
+
+	/**
+	 * Re-draws the cached map image so that it covers the clip area and a
+	 * margin of a quarter of the clip area's size on each side
+	 * @param clip The clip area
+	 */
+	private void updateCache(Rectangle clip) {
+		Rectangle area = new Rectangle(clip);
+		area.grow(clip.width / 4 + 1, clip.height / 4 + 1);
+
+		if (cache == null || cache.getWidth() != area.width ||
+				cache.getHeight() != area.height) {
+			cache = new BufferedImage(area.width, area.height,
+					BufferedImage.TYPE_INT_ARGB);
+		}
+		Graphics2D g = cache.createGraphics();
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(0, 0, area.width, area.height);
+		g.setComposite(AlphaComposite.SrcOver);
+		g.translate(-area.x, -area.y);
+		drawSegments(g, area);
+		g.dispose();
+
+		this.cacheArea = area;
+		this.cacheScale = scale;
+	}
+
+	/**
+	 * Draws the map segments that are near an area
+	 * @param g2 The graphics context to draw to
+	 * @param area The area in play field coordinates or null for the whole
+	 * map
+	 */
+	private void drawSegments(Graphics2D g2, Rectangle area) {
 		g2.setColor(PATH_COLOR);
 		g2.setBackground(BG_COLOR);
-		
-		// draws all edges between map nodes (bidirectional edges twice)
-		for (MapNode n : simMap.getNodes()) {
-			c = n.getLocation();
-			
-			// draw a line to adjacent nodes
-			for (MapNode n2 : n.getNeighbors()) {
-				c2 = n2.getLocation();
-				g2.drawLine(scale(c2.getX()), scale(c2.getY()),
-						scale(c.getX()), scale(c.getY()));
+
+		if (area == null) {
+			for (int s = 0; s < nrofSegments; s++) {
+				drawSegment(g2, s);
 			}
+			return;
 		}
-	}	
+
+		int nrofFound = segmentIndex.query(invScale(area.x),
+				invScale(area.y), invScale(area.x + area.width),
+				invScale(area.y + area.height));
+		for (int k = 0; k < nrofFound; k++) {
+			drawSegment(g2, segmentIndex.getResult(k));
+		}
+	}
+
+	/**
+	 * Draws a line between the end points of a segment
+	 * @param g2 The graphics context to draw to
+	 * @param s Index of the segment
+	 */
+	private void drawSegment(Graphics2D g2, int s) {
+		g2.drawLine(scale(x1[s]), scale(y1[s]), scale(x2[s]), scale(y2[s]));
+	}
 
 }
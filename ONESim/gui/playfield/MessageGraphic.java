@@ -8,31 +8,50 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Polygon;
 
-import core.DTNHost;
-
 /**
- * Visualization of a message
- *
+ * Visualization of a message. The hosts' locations are read from the
+ * world snapshot that is drawn.
  */
 public class MessageGraphic extends PlayFieldGraphic {
 	private Color msgColor = Color.RED;
 	
-	private DTNHost from;
-	private DTNHost to;
+	/** addresses of the hosts */
+	private int from;
+	private int to;
+	private WorldSnapshot snapshot;
 	
-	public MessageGraphic(DTNHost from, DTNHost to) {
+	/**
+	 * Creates a graphic for a message transfer
+	 * @param from Address of the host the message was from
+	 * @param to Address of the host the message was to
+	 */
+	public MessageGraphic(int from, int to) {
 		this.to = to;
 		this.from = from;
 	}
 	
+	@Override
+	public void setSnapshot(WorldSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+	
 	@Override
 	public void draw(Graphics2D g2) {
+		if (snapshot == null) {
+			return;
+		}
+		int fromHost = snapshot.getIndex(from);
+		int toHost = snapshot.getIndex(to);
+		if (fromHost < 0 || toHost < 0) {
+			return;
+		}
+		
 		g2.setColor(msgColor);
 		
-		int fromX = scale(from.getLocation().getX());
-		int fromY = scale(from.getLocation().getY());
-		int toX = scale(to.getLocation().getX());
-		int toY = scale(to.getLocation().getY());
+		int fromX = scale(snapshot.getX(fromHost));
+		int fromY = scale(snapshot.getY(fromHost));
+		int toX = scale(snapshot.getX(toHost));
+		int toY = scale(snapshot.getY(toHost));
 
 		// line from "from host" to "to host"
 		Polygon p = new Polygon(new int[] {fromX, toX}, 
@@ -6,19 +6,37 @@ package gui.playfield;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.geom.Ellipse2D;
-import java.util.ArrayList;
-
-import core.Connection;
-import core.Coord;
-import core.DTNHost;
-import core.NetworkInterface;
+import java.awt.Rectangle;
+import java.util.Arrays;
 
 /**
- * Visualization of a DTN Node
- *
+ * Visualization of the DTN nodes of a world snapshot. Only the nodes and
+ * connections that are inside the clip area of the graphics context are
+ * drawn. The visible area is divided into tiles of {@link #TILE_SIZE}
+ * pixels and the nodes of tiles with at least {@link #DENSE_TILE_NODES}
+ * nodes are drawn as one shaded tile, so zoomed out views of dense
+ * scenarios stay readable and fast to draw.
  */
 public class NodeGraphic extends PlayFieldGraphic {
+	/** Edge length of the density tiles in pixels ({@value}) */
+	public static final int TILE_SIZE = 16;
+	/** Number of nodes that makes a tile dense ({@value}) */
+	public static final int DENSE_TILE_NODES = 8;
+	/** How far (in world units) node graphics can extend from the node's
+	 * location, in addition to the radio range and name ({@value}) */
+	private static final double NODE_MARGIN = 50;
+	/** How far (in pixels) a node's name can extend ({@value}) */
+	private static final int NAME_MARGIN = 100;
+	/** Colors of the density tiles from the sparsest to the densest */
+	private static final Color[] TILE_COLORS = new Color[8];
+
+	static {
+		for (int i = 0; i < TILE_COLORS.length; i++) {
+			TILE_COLORS[i] = new Color(0, 0, 255,
+					64 + 191 * i / (TILE_COLORS.length - 1));
+		}
+	}
+
 	private static boolean drawCoverage = true;
 	private static boolean drawNodeName = true;
 	private static boolean drawConnections = true;
@@ -31,63 +49,194 @@ public class NodeGraphic extends PlayFieldGraphic {
 	private static Color msgColor2 = Color.GREEN;
 	private static Color msgColor3 = Color.RED;
 
-	private DTNHost node;
+	private WorldSnapshot snapshot;
+
+	/** node counts of the visible tiles */
+	private int[] tileCounts = new int[0];
+	/** tiles of the visible nodes (-1 for nodes outside the tiles) */
+	private int[] nodeTiles = new int[0];
+
+	/**
+	 * Creates a graphic for the nodes of a snapshot
+	 * @param snapshot The snapshot
+	 */
+	public NodeGraphic(WorldSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
 
-	public NodeGraphic(DTNHost node) {	
-		this.node = node;
+	/**
+	 * Sets the snapshot whose nodes are drawn
+	 * @param snapshot The snapshot
+	 */
+	@Override
+	public void setSnapshot(WorldSnapshot snapshot) {
+		this.snapshot = snapshot;
 	}
 
 	@Override
 	public void draw(Graphics2D g2) {
-		drawHost(g2);
-		drawMessages(g2);
+		Rectangle clip = g2.getClipBounds();
+		if (clip == null) { // no clip area -> draw everything
+			if (drawConnections) {
+				drawConnections(g2, null);
+			}
+			for (int i = 0, n = snapshot.getNrofHosts(); i < n; i++) {
+				drawHost(g2, i);
+				drawMessages(g2, i);
+			}
+			return;
+		}
+
+		/* find the nodes whose graphics may be in the clip area */
+		double margin = Math.max(snapshot.getMaxTransmitRange(), NODE_MARGIN)
+			+ invScale(Math.max(NAME_MARGIN, TILE_SIZE));
+		GridIndex index = snapshot.getHostIndex();
+		int nrofFound = index.query(invScale(clip.x) - margin,
+				invScale(clip.y) - margin,
+				invScale(clip.x + clip.width) + margin,
+				invScale(clip.y + clip.height) + margin);
+
+		drawDenseTiles(g2, clip, index, nrofFound);
+		if (drawConnections) {
+			drawConnections(g2, clip);
+		}
+		for (int k = 0; k < nrofFound; k++) {
+			int host = index.getResult(k);
+			if (!isInDenseTile(host)) {
+				drawHost(g2, host);
+				drawMessages(g2, host);
+			}
+		}
 	}
 
 	/**
-	 * Visualize node's location, radio ranges and connections
+	 * Counts the nodes of the tiles in the clip area and draws the dense
+	 * tiles. The tiles are aligned to the play field's origin so that they
+	 * don't move when the view is scrolled.
 	 * @param g2 The graphic context to draw to
+	 * @param clip The clip area
+	 * @param index Host index with the result of the visible nodes query
+	 * @param nrofFound Number of nodes in the query result
 	 */
-	private void drawHost(Graphics2D g2) {
-		Coord loc = node.getLocation();
-
-		if (drawCoverage && node.isActive()) {
-			ArrayList<NetworkInterface> interfaces = new ArrayList<NetworkInterface>();
-			interfaces.addAll(node.getInterfaces());
-			for (NetworkInterface ni : interfaces) {
-				double range = ni.getTransmitRange();
-				Ellipse2D.Double coverage;
-
-				coverage = new Ellipse2D.Double(scale(loc.getX()-range),
-						scale(loc.getY()-range), scale(range * 2), scale(range * 2)); 
+	private void drawDenseTiles(Graphics2D g2, Rectangle clip,
+			GridIndex index, int nrofFound) {
+		int tx0 = tile(clip.x);
+		int ty0 = tile(clip.y);
+		int cols = tile(clip.x + clip.width - 1) - tx0 + 1;
+		int rows = tile(clip.y + clip.height - 1) - ty0 + 1;
+
+		if (tileCounts.length < cols * rows) {
+			tileCounts = new int[cols * rows];
+		}
+		else {
+			Arrays.fill(tileCounts, 0, cols * rows, 0);
+		}
+		if (nodeTiles.length < snapshot.getNrofHosts()) {
+			nodeTiles = new int[snapshot.getNrofHosts()];
+		}
+		Arrays.fill(nodeTiles, 0, snapshot.getNrofHosts(), -1);
 
-				// draw the "range" circle
-				g2.setColor(rangeColor);
-				g2.draw(coverage);
+		for (int k = 0; k < nrofFound; k++) {
+			int host = index.getResult(k);
+			int tx = tile(scale(snapshot.getX(host))) - tx0;
+			int ty = tile(scale(snapshot.getY(host))) - ty0;
+			if (tx >= 0 && tx < cols && ty >= 0 && ty < rows) {
+				nodeTiles[host] = ty * cols + tx;
+				tileCounts[ty * cols + tx]++;
 			}
 		}
 
-		if (drawConnections) {
-			g2.setColor(conColor);
-			Coord c1 = node.getLocation();
-			ArrayList<Connection> conList = new ArrayList<Connection>();
-			// create a copy to prevent concurrent modification exceptions
-			conList.addAll(node.getConnections());
-			for (Connection c : conList) {
-				Coord c2 = c.getOtherNode(node).getLocation();
-
-				g2.drawLine(scale(c1.getX()), scale(c1.getY()),
-						scale(c2.getX()), scale(c2.getY()));
+		for (int tile = 0; tile < cols * rows; tile++) {
+			int count = tileCounts[tile];
+			if (count < DENSE_TILE_NODES) {
+				continue;
+			}
+			int shade = Math.min(count / DENSE_TILE_NODES - 1,
+					TILE_COLORS.length - 1);
+			g2.setColor(TILE_COLORS[shade]);
+			g2.fillRect((tx0 + tile % cols) * TILE_SIZE,
+					(ty0 + tile / cols) * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+		}
+	}
+
+	/**
+	 * Returns the tile of a graphics coordinate
+	 * @param value The x or y coordinate in pixels
+	 * @return The tile column or row
+	 */
+	private static int tile(int value) {
+		return value >= 0 ? value / TILE_SIZE : (value + 1) / TILE_SIZE - 1;
+	}
+
+	/**
+	 * Returns true if a node is drawn as a part of a dense tile
+	 * @param host Address of the node
+	 * @return true if the node is in a dense tile
+	 */
+	private boolean isInDenseTile(int host) {
+		int tile = nodeTiles[host];
+		return tile >= 0 && tileCounts[tile] >= DENSE_TILE_NODES;
+	}
+
+	/**
+	 * Visualize the connections between the nodes
+	 * @param g2 The graphic context to draw to
+	 * @param clip The clip area (connections outside it aren't drawn) or
+	 * null if all connections should be drawn
+	 */
+	private void drawConnections(Graphics2D g2, Rectangle clip) {
+		g2.setColor(conColor);
+		for (int c = 0, n = snapshot.getNrofConnections(); c < n; c++) {
+			int h1 = snapshot.getConnectedHost(c, 0);
+			int h2 = snapshot.getConnectedHost(c, 1);
+
+			if (clip != null) {
+				if (isInDenseTile(h1) && isInDenseTile(h2)) {
+					continue;
+				}
+				int x1 = scale(snapshot.getX(h1));
+				int y1 = scale(snapshot.getY(h1));
+				int x2 = scale(snapshot.getX(h2));
+				int y2 = scale(snapshot.getY(h2));
+				if (Math.max(x1, x2) < clip.x || Math.max(y1, y2) < clip.y ||
+						Math.min(x1, x2) > clip.x + clip.width ||
+						Math.min(y1, y2) > clip.y + clip.height) {
+					continue;
+				}
+			}
+
+			g2.drawLine(scale(snapshot.getX(h1)), scale(snapshot.getY(h1)),
+					scale(snapshot.getX(h2)), scale(snapshot.getY(h2)));
+		}
+	}
+
+	/**
+	 * Visualize node's location and radio ranges
+	 * @param g2 The graphic context to draw to
+	 * @param host Address of the node
+	 */
+	private void drawHost(Graphics2D g2, int host) {
+		double x = snapshot.getX(host);
+		double y = snapshot.getY(host);
+
+		if (drawCoverage && snapshot.isActive(host)) {
+			// draw the "range" circles
+			g2.setColor(rangeColor);
+			for (int i = 0, n = snapshot.getNrofInterfaces(host); i < n; i++) {
+				double range = snapshot.getTransmitRange(host, i);
+
+				g2.drawOval(scale(x - range), scale(y - range),
+						scale(range * 2), scale(range * 2));
 			}
 		}
 
 		g2.setColor(hostColor);	// draw rectangle to host's location
-		g2.drawRect(scale(loc.getX()-1),scale(loc.getY()-1),scale(2),scale(2));
+		g2.drawRect(scale(x-1),scale(y-1),scale(2),scale(2));
 
 		if (drawNodeName) {
 			g2.setColor(hostNameColor);
 			// Draw node's address next to it
-			g2.drawString(node.toString(), scale(loc.getX()),
-					scale(loc.getY()));
+			g2.drawString(snapshot.getName(host), scale(x), scale(y));
 		}
 	}
 
@@ -117,25 +266,29 @@ public class NodeGraphic extends PlayFieldGraphic {
 
 
 	/**
-	 * Visualize the messages this node is carrying
+	 * Visualize the messages a node is carrying
 	 * @param g2 The graphic context to draw to
+	 * @param host Address of the node
 	 */
-	private void drawMessages(Graphics2D g2) {
-		int nrofMessages = node.getNrofMessages();
-		Coord loc = node.getLocation();
+	private void drawMessages(Graphics2D g2, int host) {
+		int nrofMessages = snapshot.getNrofMessages(host);
+		double x = snapshot.getX(host);
+		double y = snapshot.getY(host);
 
-		drawBar(g2,loc, nrofMessages % 10, 1);
-		drawBar(g2,loc, nrofMessages / 10, 2);
+		drawBar(g2, x, y, nrofMessages % 10, 1);
+		drawBar(g2, x, y, nrofMessages / 10, 2);
 	}
 
 	/**
 	 * Draws a bar (stack of squares) next to a location
 	 * @param g2 The graphic context to draw to
-	 * @param loc The location where to draw
+	 * @param x The x coordinate of the location where to draw
+	 * @param y The y coordinate of the location where to draw
 	 * @param nrof How many squares in the stack
 	 * @param col Which column
 	 */
-	private void drawBar(Graphics2D g2, Coord loc, int nrof, int col) {
+	private void drawBar(Graphics2D g2, double x, double y, int nrof,
+			int col) {
 		final int BAR_HEIGHT = 5;
 		final int BAR_WIDTH = 5;
 		final int BAR_DISPLACEMENT = 2;
@@ -154,8 +307,8 @@ public class NodeGraphic extends PlayFieldGraphic {
 				}
 			}
 
-			g2.fillRect(scale(loc.getX()-BAR_DISPLACEMENT-(BAR_WIDTH*col)),
-					scale(loc.getY()- BAR_DISPLACEMENT- i* BAR_HEIGHT),
+			g2.fillRect(scale(x-BAR_DISPLACEMENT-(BAR_WIDTH*col)),
+					scale(y- BAR_DISPLACEMENT- i* BAR_HEIGHT),
 					scale(BAR_WIDTH), scale(BAR_HEIGHT));
 		}
 
@@ -12,14 +12,22 @@ import movement.Path;
 import core.Coord;
 
 /**
- * Visualization of a Path
- *
+ * Visualization of a Path. The graphic shows either a fixed path or the
+ * current path of a host, read from the world snapshot that is drawn.
  */
 public class PathGraphic extends PlayFieldGraphic {
 	private final static Color PATH_COLOR = Color.RED;
 	private List<Coord> coords;
+	/** address of the host whose path is shown or -1 for a fixed path */
+	private int host;
+	private WorldSnapshot snapshot;
 	
+	/**
+	 * Creates a graphic for a fixed path
+	 * @param path The path to show (or null for no path)
+	 */
 	public PathGraphic(Path path) {
+		this.host = -1;
 		if (path == null) {
 			this.coords = null;
 		}
@@ -30,12 +38,32 @@ public class PathGraphic extends PlayFieldGraphic {
 		}
 	}
 	
+	/**
+	 * Creates a graphic for the current path of a host. The path is shown
+	 * when the drawn snapshot has captured the path of the host.
+	 * @param host Address of the host
+	 * @see WorldSnapshot#getFocusHost()
+	 */
+	public PathGraphic(int host) {
+		this.host = host;
+		this.coords = null;
+	}
+	
+	@Override
+	public void setSnapshot(WorldSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+	
 	/**
 	 * Draws a line trough all path's coordinates.
 	 * @param g2 The graphics context to draw to
 	 */
 	@Override
 	public void draw(Graphics2D g2) {
+		if (host >= 0) {
+			drawHostPath(g2);
+			return;
+		}
 		if (coords == null) {
 			return;
 		}
@@ -50,5 +78,22 @@ public class PathGraphic extends PlayFieldGraphic {
 			prev = next;
 		}
 	}
+	
+	/**
+	 * Draws the path of the host from the snapshot
+	 * @param g2 The graphics context to draw to
+	 */
+	private void drawHostPath(Graphics2D g2) {
+		if (snapshot == null || snapshot.getFocusHost() != host) {
+			return;
+		}
+		
+		g2.setColor(PATH_COLOR);
+		for (int i=1, n=snapshot.getNrofPathWaypoints(); i < n; i++) {
+			g2.drawLine(scale(snapshot.getPathX(i-1)),
+					scale(snapshot.getPathY(i-1)),
+					scale(snapshot.getPathX(i)), scale(snapshot.getPathY(i)));
+		}
+	}
 
 }
@@ -24,10 +24,18 @@ import core.World;
 
 /**
  * The canvas where node graphics and message visualizations are drawn.
- *
+ * The nodes are drawn from snapshots of the world that the simulation
+ * thread captures with {@link #captureSnapshot()}, so drawing doesn't need
+ * to access the world while it is being updated.
  */
 public class PlayField extends JPanel {
 	private World w;
+	private SnapshotBuffer snapshots;
+	/** address of the focused host (set by the drawing thread) */
+	private volatile int focusHost;
+	/** address of the focused host in the latest captured snapshot */
+	private int capturedFocus;
+	private NodeGraphic nodeGraphic;
 	private Color bgColor = Color.WHITE;
 	
 	private List<PlayFieldGraphic> overlayGraphics;
@@ -48,6 +56,11 @@ public class PlayField extends JPanel {
 	 */
 	public PlayField (World w) {
 		this.w = w;
+		this.snapshots = new SnapshotBuffer();
+		this.focusHost = -1;
+		this.capturedFocus = -1;
+		this.snapshots.publish(w, capturedFocus);
+		this.nodeGraphic = new NodeGraphic(snapshots.getLatest());
 		this.refGraphic = new ScaleReferenceGraphic();
 		updateFieldSize();
         this.setBackground(bgColor);
@@ -59,6 +72,41 @@ public class PlayField extends JPanel {
         this.autoClearOverlay = true;
 	}
 	
+	/**
+	 * Captures a snapshot of the world's current state for drawing. To be
+	 * called only from the simulation thread.
+	 */
+	public void captureSnapshot() {
+		this.capturedFocus = focusHost;
+		this.snapshots.publish(w, capturedFocus);
+	}
+
+	/**
+	 * Returns true if the focused host has changed after the latest
+	 * snapshot was captured. To be called only from the simulation thread.
+	 * @return true if a new snapshot is needed for the focused host
+	 */
+	public boolean isFocusChanged() {
+		return this.focusHost != this.capturedFocus;
+	}
+
+	/**
+	 * Returns the latest captured snapshot. To be called only from the
+	 * drawing thread.
+	 * @return the snapshot that is drawn
+	 */
+	public WorldSnapshot getSnapshot() {
+		return this.snapshots.getLatest();
+	}
+
+	/**
+	 * Returns the simulation time of the latest captured snapshot
+	 * @return the simulation time of the snapshot that is drawn
+	 */
+	public double getSnapshotTime() {
+		return this.snapshots.getLatest().getTime();
+	}
+
 	/**
 	 * Schedule the play field to be drawn
 	 */
@@ -157,13 +205,15 @@ public class PlayField extends JPanel {
 		}
 		
 		// draw hosts
-		for (DTNHost h : w.getHosts()) {
-			new NodeGraphic(h).draw(g2); // TODO: Optimization..?
-		}
+		WorldSnapshot snapshot = snapshots.getLatest();
+		nodeGraphic.setSnapshot(snapshot);
+		nodeGraphic.draw(g2);
 		
 		// draw overlay graphics
 		for (int i=0, n=overlayGraphics.size(); i<n; i++) {
-			overlayGraphics.get(i).draw(g2);
+			PlayFieldGraphic overlay = overlayGraphics.get(i);
+			overlay.setSnapshot(snapshot);
+			overlay.draw(g2);
 		}
 		
 		// draw reference scale
@@ -185,7 +235,20 @@ public class PlayField extends JPanel {
 	 */
 	public void addMessageTransfer(DTNHost from, DTNHost to) {
 		autoClear();
-		this.overlayGraphics.add(new MessageGraphic(from,to));
+		this.overlayGraphics.add(new MessageGraphic(from.getAddress(),
+				to.getAddress()));
+	}
+	
+	/**
+	 * Sets the focused host whose path and messages are captured to the
+	 * snapshots and adds the host's path to the overlay graphics
+	 * @param host The host to focus
+	 */
+	public void setFocus(DTNHost host) {
+		this.focusHost = host.getAddress();
+		autoClear();
+		this.overlayGraphics.add(new PathGraphic(host.getAddress()));
+		this.updateField();
 	}
 	
 	/**
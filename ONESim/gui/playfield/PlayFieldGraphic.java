@@ -36,6 +36,15 @@ public abstract class PlayFieldGraphic {
 	 * @param g2 The context to draw the graphics to
 	 */
 	public abstract void draw(Graphics2D g2);
+	
+	/**
+	 * Sets the world snapshot that the graphic is drawn from. Graphics that
+	 * show the state of the hosts override this; by default the snapshot is
+	 * ignored.
+	 * @param snapshot The snapshot
+	 */
+	public void setSnapshot(WorldSnapshot snapshot) {
+	}
 
 	
 	/**
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package gui.playfield;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import core.World;
+
+/**
+ * Lock-free buffer that hands {@link WorldSnapshot}s from the simulation
+ * thread to the drawing thread. The buffer is a double buffer with a spare
+ * snapshot between the two sides (i.e., a triple buffer): the simulation
+ * thread captures to its own back snapshot and swaps it with the spare, and
+ * the drawing thread swaps its front snapshot with the spare when a newer
+ * one is available. Neither side ever waits for the other and the drawing
+ * thread never sees a snapshot that is being captured. Only one thread may
+ * capture and only one thread may draw.
+ */
+public class SnapshotBuffer {
+	/** flag bit of {@link #spare} telling that the spare is newer than
+	 * the front snapshot */
+	private static final int FRESH = 4;
+	/** mask of the snapshot index in {@link #spare} */
+	private static final int INDEX_MASK = 3;
+
+	private WorldSnapshot[] snapshots;
+	/** index of the spare snapshot and the {@link #FRESH} flag */
+	private AtomicInteger spare;
+	/** index of the snapshot the simulation thread captures to */
+	private int back;
+	/** index of the snapshot the drawing thread draws from */
+	private int front;
+
+	/**
+	 * Creates a buffer with empty snapshots
+	 */
+	public SnapshotBuffer() {
+		this.snapshots = new WorldSnapshot[3];
+		for (int i = 0; i < snapshots.length; i++) {
+			snapshots[i] = new WorldSnapshot();
+		}
+		this.front = 0;
+		this.spare = new AtomicInteger(1);
+		this.back = 2;
+	}
+
+	/**
+	 * Captures a snapshot of the world and publishes it to the drawing
+	 * thread. To be called only from the simulation thread.
+	 * @param world The world to capture
+	 * @param focus Address of the host whose path and messages are captured
+	 * or -1 for none
+	 */
+	public void publish(World world, int focus) {
+		snapshots[back].capture(world, focus);
+		back = spare.getAndSet(back | FRESH) & INDEX_MASK;
+	}
+
+	/**
+	 * Returns the latest published snapshot. The snapshot stays unchanged
+	 * until this method is called again. To be called only from the drawing
+	 * thread.
+	 * @return The latest snapshot
+	 */
+	public WorldSnapshot getLatest() {
+		if ((spare.get() & FRESH) != 0) {
+			front = spare.getAndSet(front) & INDEX_MASK;
+		}
+		return snapshots[front];
+	}
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package gui.playfield;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import movement.Path;
+import core.Connection;
+import core.Coord;
+import core.DTNHost;
+import core.Message;
+import core.NetworkInterface;
+import core.SimClock;
+import core.World;
+
+/**
+ * Snapshot of the state of the world that the play field needs for drawing
+ * the hosts: locations, radio ranges, connections and the number of
+ * messages of every host, stored in primitive arrays. Hosts are indexed by
+ * their position in the world's host list; {@link #getAddress(int)} and
+ * {@link #getIndex(int)} map between the indexes and the host addresses.
+ * The path and the messages of one focused host are captured as well, for
+ * the overlay graphics and the info panel. Snapshots are captured by the
+ * simulation thread and handed to the drawing thread through a
+ * {@link SnapshotBuffer}; a snapshot is not modified while it is visible to
+ * the drawing thread.
+ */
+public class WorldSnapshot {
+	private double time;
+	/** number of times the snapshot has been captured */
+	private int version;
+	private int nrofHosts;
+	/** addresses of the hosts */
+	private int[] addresses;
+	/** indexes of the hosts by their address (-1 for unknown addresses) */
+	private int[] indexes;
+	private double[] xs;
+	private double[] ys;
+	private boolean[] active;
+	private String[] names;
+	private int[] nrofMessages;
+
+	/** index of the first range of every host in {@link #ranges} */
+	private int[] rangeStart;
+	/** transmit ranges of the hosts' interfaces */
+	private double[] ranges;
+	private double maxRange;
+
+	private int nrofConnections;
+	/** indexes of the hosts at the ends of the connections */
+	private int[] conHosts;
+
+	/** address of the focused host or -1 if no host is focused */
+	private int focusHost;
+	/** waypoint coordinates of the focused host's path */
+	private double[] pathXs;
+	private double[] pathYs;
+	private int nrofPathWaypoints;
+	/** messages of the focused host */
+	private List<Message> focusMessages;
+
+	/** grid index of the host locations (built when needed) */
+	private GridIndex hostIndex;
+	/** version of the snapshot the host index was built for */
+	private int hostIndexVersion;
+
+	/**
+	 * Creates an empty snapshot
+	 */
+	public WorldSnapshot() {
+		this.time = 0;
+		this.version = 0;
+		this.maxRange = 0;
+		this.nrofHosts = 0;
+		this.nrofConnections = 0;
+		allocate(0);
+		this.rangeStart = new int[1];
+		this.ranges = new double[0];
+		this.conHosts = new int[0];
+		this.indexes = new int[0];
+		this.focusHost = -1;
+		this.pathXs = new double[0];
+		this.pathYs = new double[0];
+		this.nrofPathWaypoints = 0;
+		this.focusMessages = Collections.emptyList();
+		this.hostIndex = new GridIndex();
+		this.hostIndexVersion = -1;
+	}
+
+	/**
+	 * Allocates the per host arrays
+	 * @param size Number of hosts the arrays can hold
+	 */
+	private void allocate(int size) {
+		this.addresses = new int[size];
+		this.xs = new double[size];
+		this.ys = new double[size];
+		this.active = new boolean[size];
+		this.names = new String[size];
+		this.nrofMessages = new int[size];
+		this.rangeStart = new int[size + 1];
+	}
+
+	/**
+	 * Captures the current state of a world to this snapshot without
+	 * a focused host
+	 * @param world The world
+	 * @see #capture(World, int)
+	 */
+	public void capture(World world) {
+		capture(world, -1);
+	}
+
+	/**
+	 * Captures the current state of a world to this snapshot. The arrays of
+	 * the snapshot are reused if they are large enough.
+	 * @param world The world
+	 * @param focus Address of the host whose path and messages are captured
+	 * or -1 for none
+	 */
+	public void capture(World world, int focus) {
+		List<DTNHost> hosts = world.getHosts();
+		int n = hosts.size();
+		if (xs.length < n) {
+			allocate(n);
+		}
+
+		this.time = SimClock.getTime();
+		this.version++;
+		this.maxRange = 0;
+		this.nrofHosts = n;
+		this.nrofConnections = 0;
+		int nrofRanges = 0;
+
+		int maxAddress = -1;
+		for (int i = 0; i < n; i++) {
+			addresses[i] = hosts.get(i).getAddress();
+			maxAddress = Math.max(maxAddress, addresses[i]);
+		}
+		if (indexes.length <= maxAddress) {
+			indexes = new int[maxAddress + 1];
+		}
+		Arrays.fill(indexes, -1);
+		for (int i = 0; i < n; i++) {
+			indexes[addresses[i]] = i;
+		}
+
+		this.focusHost = -1;
+		this.nrofPathWaypoints = 0;
+		this.focusMessages = Collections.emptyList();
+
+		for (int i = 0; i < n; i++) {
+			DTNHost h = hosts.get(i);
+			Coord loc = h.getLocation();
+			xs[i] = loc.getX();
+			ys[i] = loc.getY();
+			active[i] = h.isActive();
+			names[i] = h.toString();
+			nrofMessages[i] = h.getNrofMessages();
+
+			rangeStart[i] = nrofRanges;
+			for (NetworkInterface ni : h.getInterfaces()) {
+				if (nrofRanges == ranges.length) {
+					ranges = Arrays.copyOf(ranges, 2 * nrofRanges + 16);
+				}
+				ranges[nrofRanges++] = ni.getTransmitRange();
+				maxRange = Math.max(maxRange, ni.getTransmitRange());
+			}
+
+			/* every connection is stored once, by its lower index host */
+			for (Connection c : h.getConnections()) {
+				int other = indexes[c.getOtherNode(h).getAddress()];
+				if (other <= i) {
+					continue;
+				}
+				if (2 * nrofConnections == conHosts.length) {
+					conHosts = Arrays.copyOf(conHosts, 2 * conHosts.length + 32);
+				}
+				conHosts[2 * nrofConnections] = i;
+				conHosts[2 * nrofConnections + 1] = other;
+				nrofConnections++;
+			}
+
+			if (addresses[i] == focus) {
+				captureFocus(h);
+			}
+		}
+		rangeStart[n] = nrofRanges;
+	}
+
+	/**
+	 * Captures the path and the messages of the focused host
+	 * @param h The focused host
+	 */
+	private void captureFocus(DTNHost h) {
+		this.focusHost = h.getAddress();
+		this.focusMessages = new ArrayList<Message>(h.getMessageCollection());
+
+		Path path = h.getPath();
+		if (path == null) {
+			return;
+		}
+		List<Coord> coords = path.getCoords();
+		if (pathXs.length < coords.size()) {
+			pathXs = new double[coords.size()];
+			pathYs = new double[coords.size()];
+		}
+		for (Coord c : coords) {
+			pathXs[nrofPathWaypoints] = c.getX();
+			pathYs[nrofPathWaypoints] = c.getY();
+			nrofPathWaypoints++;
+		}
+	}
+
+	/**
+	 * Returns the simulation time when the snapshot was captured
+	 * @return the simulation time of the snapshot
+	 */
+	public double getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Returns the number of times the snapshot has been captured. Together
+	 * with the identity of the snapshot object this tells if the contents
+	 * have changed.
+	 * @return the version of the snapshot
+	 */
+	public int getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Returns the number of hosts in the snapshot
+	 * @return the number of hosts
+	 */
+	public int getNrofHosts() {
+		return this.nrofHosts;
+	}
+
+	/**
+	 * Returns the address of a host
+	 * @param host Index of the host
+	 * @return the address of the host
+	 */
+	public int getAddress(int host) {
+		return addresses[host];
+	}
+
+	/**
+	 * Returns the index of a host in the snapshot
+	 * @param address Address of the host
+	 * @return the index of the host or -1 if the snapshot has no host with
+	 * the address
+	 */
+	public int getIndex(int address) {
+		if (address < 0 || address >= indexes.length) {
+			return -1;
+		}
+		return indexes[address];
+	}
+
+	/**
+	 * Returns the x coordinate of a host's location
+	 * @param host Index of the host
+	 * @return the x coordinate
+	 */
+	public double getX(int host) {
+		return xs[host];
+	}
+
+	/**
+	 * Returns the y coordinate of a host's location
+	 * @param host Index of the host
+	 * @return the y coordinate
+	 */
+	public double getY(int host) {
+		return ys[host];
+	}
+
+	/**
+	 * Returns true if a host was active
+	 * @param host Index of the host
+	 * @return true if the host was active
+	 */
+	public boolean isActive(int host) {
+		return active[host];
+	}
+
+	/**
+	 * Returns the name of a host
+	 * @param host Index of the host
+	 * @return the name of the host
+	 */
+	public String getName(int host) {
+		return names[host];
+	}
+
+	/**
+	 * Returns the number of messages a host was carrying
+	 * @param host Index of the host
+	 * @return the number of messages
+	 */
+	public int getNrofMessages(int host) {
+		return nrofMessages[host];
+	}
+
+	/**
+	 * Returns the number of network interfaces of a host
+	 * @param host Index of the host
+	 * @return the number of interfaces
+	 */
+	public int getNrofInterfaces(int host) {
+		return rangeStart[host + 1] - rangeStart[host];
+	}
+
+	/**
+	 * Returns the transmit range of a host's network interface
+	 * @param host Index of the host
+	 * @param index Index of the interface
+	 * @return the transmit range
+	 */
+	public double getTransmitRange(int host, int index) {
+		return ranges[rangeStart[host] + index];
+	}
+
+	/**
+	 * Returns the largest transmit range of the hosts' interfaces
+	 * @return the largest transmit range
+	 */
+	public double getMaxTransmitRange() {
+		return this.maxRange;
+	}
+
+	/**
+	 * Returns a grid index of the host locations. The index is built by the
+	 * drawing thread the first time it is needed for a captured snapshot.
+	 * @return the grid index of the hosts
+	 */
+	public GridIndex getHostIndex() {
+		if (hostIndexVersion != version) {
+			hostIndex.build(nrofHosts, xs, ys);
+			hostIndexVersion = version;
+		}
+		return this.hostIndex;
+	}
+
+	/**
+	 * Returns the number of connections between the hosts
+	 * @return the number of connections
+	 */
+	public int getNrofConnections() {
+		return this.nrofConnections;
+	}
+
+	/**
+	 * Returns the index of the host at one end of a connection
+	 * @param con Index of the connection
+	 * @param end End of the connection (0 or 1)
+	 * @return the index of the host
+	 */
+	public int getConnectedHost(int con, int end) {
+		return conHosts[2 * con + end];
+	}
+
+	/**
+	 * Returns the address of the host whose path and messages were captured
+	 * @return the address of the focused host or -1 if no host was focused
+	 */
+	public int getFocusHost() {
+		return this.focusHost;
+	}
+
+	/**
+	 * Returns the number of waypoints in the focused host's path
+	 * @return the number of waypoints (0 if the host had no path)
+	 */
+	public int getNrofPathWaypoints() {
+		return this.nrofPathWaypoints;
+	}
+
+	/**
+	 * Returns the x coordinate of a waypoint of the focused host's path
+	 * @param index Index of the waypoint
+	 * @return the x coordinate
+	 */
+	public double getPathX(int index) {
+		return pathXs[index];
+	}
+
+	/**
+	 * Returns the y coordinate of a waypoint of the focused host's path
+	 * @param index Index of the waypoint
+	 * @return the y coordinate
+	 */
+	public double getPathY(int index) {
+		return pathYs[index];
+	}
+
+	/**
+	 * Returns the messages the focused host was carrying. The list must not
+	 * be modified.
+	 * @return the messages of the focused host
+	 */
+	public List<Message> getFocusMessages() {
+		return this.focusMessages;
+	}
+}
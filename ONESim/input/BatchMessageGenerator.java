@@ -0,0 +1,368 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import core.ParetoRNG;
+import core.Settings;
+import core.SettingsError;
+
+/**
+ * Message creation -external events generator for workloads with a large
+ * number of messages. The messages are generated in batches: the creation
+ * times, sender and receiver addresses and sizes of the next
+ * {@link #BATCH_SIZE_S} messages are drawn at once into primitive arrays
+ * that are reused for all batches, so generating a message doesn't allocate
+ * anything but the returned event and its ID.
+ * <p>
+ * The time between two messages is drawn from a configurable
+ * {@link InterArrivalDistribution}, selected with
+ * {@link #INTERVAL_DISTRIBUTION_S}. The meaning of the
+ * {@link MessageEventGenerator#MESSAGE_INTERVAL_S} setting depends on the
+ * distribution:
+ * <ul>
+ * <li><code>uniform</code> (default): a single value or a range (min, max)
+ * of uniformly distributed intervals</li>
+ * <li><code>poisson</code>: the mean interval of a Poisson process, i.e.,
+ * the intervals are exponentially distributed</li>
+ * <li><code>pareto</code>: the minimum interval, or a range (min, max) of a
+ * Pareto distribution whose shape is set with {@link #PARETO_SHAPE_S}</li>
+ * <li><code>trace</code>: not used; the intervals are read from the file
+ * set with {@link #INTERVAL_FILE_S}</li>
+ * </ul>
+ * Other settings (sizes, host ranges, ID prefix and creation time range)
+ * are the same as with {@link MessageEventGenerator}, but the creation
+ * times are not rounded to whole seconds.
+ */
+public class BatchMessageGenerator implements EventQueue {
+	private static final long serialVersionUID = 42L;
+
+	/** Inter-arrival time distribution -setting id ({@value}). One of
+	 * <code>uniform</code>, <code>poisson</code>, <code>pareto</code>, or
+	 * <code>trace</code>. Default is <code>uniform</code>. */
+	public static final String INTERVAL_DISTRIBUTION_S = "intervalDistribution";
+	/** Shape (k) of the Pareto distribution -setting id ({@value}).
+	 * Required with the <code>pareto</code> distribution. */
+	public static final String PARETO_SHAPE_S = "paretoShape";
+	/** Path of the inter-arrival time trace -setting id ({@value}).
+	 * Required with the <code>trace</code> distribution. The file contains
+	 * one interval (seconds) per line; empty lines and lines starting with
+	 * '#' are skipped. When all intervals are used, the trace is started
+	 * again from the beginning. */
+	public static final String INTERVAL_FILE_S = "intervalFile";
+	/** Number of messages to generate per batch -setting id ({@value}).
+	 * Default is {@value #DEF_BATCH_SIZE}. */
+	public static final String BATCH_SIZE_S = "batchSize";
+
+	/** default value for the batch size */
+	public static final int DEF_BATCH_SIZE = 1024;
+
+	/** Range of host addresses that can be senders or receivers */
+	private int[] hostRange;
+	/** Range of host addresses that can be receivers */
+	private int[] toHostRange;
+	/** Size range of the messages (min, max) */
+	private int[] sizeRange;
+	/** Time range for message creation (min, max) */
+	private double[] msgTime;
+	/** Prefix for the messages */
+	private String idPrefix;
+	/** Next identifier for a message */
+	private int id;
+
+	/** Random number generator for this generator */
+	private Random rng;
+	/** Distribution of the times between messages */
+	private InterArrivalDistribution intervals;
+
+	/** creation times of the current batch */
+	private double[] times;
+	/** sender addresses of the current batch */
+	private int[] froms;
+	/** receiver addresses of the current batch */
+	private int[] tos;
+	/** message sizes of the current batch */
+	private int[] sizes;
+	/** number of messages in the current batch */
+	private int batchCount;
+	/** index of the next message in the current batch */
+	private int cursor;
+	/** creation time of the first message of the next batch */
+	private double nextBatchTime;
+
+	/**
+	 * Constructor. Reads the settings and generates the first batch.
+	 * @param s Settings for this generator.
+	 */
+	public BatchMessageGenerator(Settings s) {
+		this.sizeRange = s.getCsvInts(MessageEventGenerator.MESSAGE_SIZE_S);
+		this.hostRange = s.getCsvInts(MessageEventGenerator.HOST_RANGE_S, 2);
+		this.idPrefix = s.getSetting(MessageEventGenerator.MESSAGE_ID_PREFIX_S);
+		this.id = 0;
+
+		if (s.contains(MessageEventGenerator.MESSAGE_TIME_S)) {
+			this.msgTime = s.getCsvDoubles(
+					MessageEventGenerator.MESSAGE_TIME_S, 2);
+		}
+		else {
+			this.msgTime = null;
+		}
+		if (s.contains(MessageEventGenerator.TO_HOST_RANGE_S)) {
+			this.toHostRange = s.getCsvInts(
+					MessageEventGenerator.TO_HOST_RANGE_S, 2);
+		}
+		else {
+			this.toHostRange = this.hostRange;
+		}
+
+		if (this.sizeRange.length == 1) {
+			this.sizeRange = new int[] {this.sizeRange[0], this.sizeRange[0]};
+		}
+		else {
+			s.assertValidRange(this.sizeRange,
+					MessageEventGenerator.MESSAGE_SIZE_S);
+		}
+		s.assertValidRange(this.hostRange, MessageEventGenerator.HOST_RANGE_S);
+		if (this.toHostRange[1] - this.toHostRange[0] < 1 ||
+				(this.toHostRange[1] - this.toHostRange[0] == 1 &&
+				 this.hostRange[1] - this.hostRange[0] == 1 &&
+				 this.toHostRange[0] == this.hostRange[0])) {
+			throw new SettingsError("Host ranges must allow at least one " +
+					"sender-receiver pair with different hosts");
+		}
+
+		/* if prefix is unique, so will be the rng's sequence */
+		this.rng = new Random(idPrefix.hashCode());
+		this.intervals = createDistribution(s);
+
+		int batchSize = DEF_BATCH_SIZE;
+		if (s.contains(BATCH_SIZE_S)) {
+			batchSize = s.getInt(BATCH_SIZE_S);
+			if (batchSize < 1) {
+				throw new SettingsError("Invalid value for " +
+						s.getFullPropertyName(BATCH_SIZE_S) + ": " + batchSize);
+			}
+		}
+		this.times = new double[batchSize];
+		this.froms = new int[batchSize];
+		this.tos = new int[batchSize];
+		this.sizes = new int[batchSize];
+
+		this.nextBatchTime = (this.msgTime != null ? this.msgTime[0] : 0) +
+			intervals.nextInterval();
+		fillBatch();
+	}
+
+	/**
+	 * Creates the inter-arrival time distribution defined in the settings
+	 * @param s The settings of this generator
+	 * @return The distribution
+	 */
+	private InterArrivalDistribution createDistribution(Settings s) {
+		String type = "uniform";
+		if (s.contains(INTERVAL_DISTRIBUTION_S)) {
+			type = s.getSetting(INTERVAL_DISTRIBUTION_S);
+		}
+		final Random rng = this.rng;
+
+		if (type.equals("uniform")) {
+			double[] range = s.getCsvDoubles(
+					MessageEventGenerator.MESSAGE_INTERVAL_S);
+			if (range.length == 1) {
+				range = new double[] {range[0], range[0]};
+			}
+			else {
+				s.assertValidRange(range,
+						MessageEventGenerator.MESSAGE_INTERVAL_S);
+			}
+			final double min = range[0];
+			final double diff = range[1] - range[0];
+			return new InterArrivalDistribution() {
+				public double nextInterval() {
+					return diff == 0 ? min : min + rng.nextDouble() * diff;
+				}
+			};
+		}
+		else if (type.equals("poisson")) {
+			final double mean = s.getDouble(
+					MessageEventGenerator.MESSAGE_INTERVAL_S);
+			if (mean <= 0) {
+				throw new SettingsError("Mean interval must be positive for " +
+						"the poisson distribution");
+			}
+			return new InterArrivalDistribution() {
+				public double nextInterval() {
+					return -mean * Math.log(1 - rng.nextDouble());
+				}
+			};
+		}
+		else if (type.equals("pareto")) {
+			double[] range = s.getCsvDoubles(
+					MessageEventGenerator.MESSAGE_INTERVAL_S);
+			double max = -1; /* unbounded */
+			if (range.length > 1) {
+				s.assertValidRange(range,
+						MessageEventGenerator.MESSAGE_INTERVAL_S);
+				max = range[1];
+			}
+			if (range[0] <= 0) {
+				throw new SettingsError("Minimum interval must be positive " +
+						"for the pareto distribution");
+			}
+			final ParetoRNG pareto = new ParetoRNG(rng,
+					s.getDouble(PARETO_SHAPE_S), range[0], max);
+			return new InterArrivalDistribution() {
+				public double nextInterval() {
+					return pareto.getDouble();
+				}
+			};
+		}
+		else if (type.equals("trace")) {
+			final double[] trace = readIntervals(
+					s.getSetting(INTERVAL_FILE_S));
+			return new InterArrivalDistribution() {
+				private int next = 0;
+				public double nextInterval() {
+					double interval = trace[next];
+					next = (next + 1) % trace.length;
+					return interval;
+				}
+			};
+		}
+		else {
+			throw new SettingsError("Unknown inter-arrival distribution '" +
+					type + "' for " +
+					s.getFullPropertyName(INTERVAL_DISTRIBUTION_S));
+		}
+	}
+
+	/**
+	 * Reads inter-arrival times from a file
+	 * @param fileName Path to the file
+	 * @return The intervals in the order they are in the file
+	 */
+	private static double[] readIntervals(String fileName) {
+		double[] values = new double[64];
+		int count = 0;
+		BufferedReader reader = null;
+		String line = null;
+
+		try {
+			reader = new BufferedReader(new FileReader(fileName));
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#")) {
+					continue;
+				}
+				double value = Double.parseDouble(line);
+				if (value < 0) {
+					throw new SettingsError("Negative interval " + value +
+							" in " + fileName);
+				}
+				if (count == values.length) {
+					values = Arrays.copyOf(values, count * 2);
+				}
+				values[count++] = value;
+			}
+		} catch (IOException e) {
+			throw new SettingsError("Couldn't read intervals from '" +
+					fileName + "': " + e.getMessage());
+		} catch (NumberFormatException e) {
+			throw new SettingsError("Invalid interval '" + line + "' in " +
+					fileName);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {}
+			}
+		}
+
+		double sum = 0;
+		for (int i = 0; i < count; i++) {
+			sum += values[i];
+		}
+		if (count == 0 || sum == 0) {
+			throw new SettingsError("No positive intervals in " + fileName);
+		}
+		return Arrays.copyOf(values, count);
+	}
+
+	/**
+	 * Generates the next batch of messages to the batch arrays. Messages
+	 * whose creation time would be after the creation time range are not
+	 * generated.
+	 */
+	private void fillBatch() {
+		double endTime = msgTime != null ? msgTime[1] : Double.MAX_VALUE;
+		double time = this.nextBatchTime;
+		int n = 0;
+
+		while (n < times.length && time <= endTime) {
+			int from = drawAddress(hostRange);
+			int to;
+			do {
+				to = drawAddress(toHostRange);
+			} while (to == from);
+
+			times[n] = time;
+			froms[n] = from;
+			tos[n] = to;
+			sizes[n] = sizeRange[0] == sizeRange[1] ? sizeRange[0] :
+				sizeRange[0] + rng.nextInt(sizeRange[1] - sizeRange[0]);
+			n++;
+			time += intervals.nextInterval();
+		}
+
+		this.batchCount = n;
+		this.cursor = 0;
+		this.nextBatchTime = time;
+	}
+
+	/**
+	 * Draws a random host address from an address range
+	 * @param range The range of hosts
+	 * @return A random host address
+	 */
+	private int drawAddress(int[] range) {
+		if (range[1] - range[0] <= 1) {
+			return range[0];
+		}
+		return range[0] + rng.nextInt(range[1] - range[0]);
+	}
+
+	/**
+	 * Returns the next message creation event
+	 * @see input.EventQueue#nextEvent()
+	 */
+	public ExternalEvent nextEvent() {
+		if (cursor == batchCount) {
+			return new ExternalEvent(Double.MAX_VALUE);
+		}
+
+		int i = cursor++;
+		this.id++;
+		MessageCreateEvent mce = new MessageCreateEvent(froms[i], tos[i],
+				idPrefix + this.id, sizes[i], 0, times[i]);
+
+		if (cursor == batchCount && batchCount == times.length) {
+			fillBatch();
+		}
+		return mce;
+	}
+
+	/**
+	 * Returns next message creation event's time
+	 * @see input.EventQueue#nextEventsTime()
+	 */
+	public double nextEventsTime() {
+		return cursor < batchCount ? times[cursor] : Double.MAX_VALUE;
+	}
+}
@@ -1,137 +1,569 @@
-/* 
+/*
  * Copyright 2010 Aalto University, ComNet
- * Released under GPLv3. See LICENSE.txt for details. 
+ * Released under GPLv3. See LICENSE.txt for details.
  */
 package input;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 import core.SimError;
 
 /**
  * Reads External Events from a binary file. Can also create binary files
- * from a list of external events.
+ * from a list of external events or from a standard events file (see
+ * {@link StandardEventsReader}).
+ * <P>
+ * The events are stored in columns of fixed size values, which are read
+ * through memory-mapped chunks of the file. Message and interface ids are
+ * interned to a string table. Since the time column is sorted, the reader
+ * can skip to any time with a binary search (see {@link #skipTo(double)}).
+ * The format of the file is (all values big-endian):
+ * <UL>
+ * <LI> header: magic (int), version (int), number of events (long),
+ * number of strings (int), offset of the string table (long)</LI>
+ * <LI> columns: time (doubles), event type (bytes), host address and
+ * second host address (ints), message or interface id index (ints, -1 for
+ * none), message size and response size (ints)</LI>
+ * <LI> string table: all ids (UTF strings) in the order of their indexes</LI>
+ * </UL>
+ * </P>
  */
 public class BinaryEventsReader implements ExternalEventsReader {
 	/** Extension of binary external events file */
 	public static final String BINARY_EXT = ".binee";
-	
-	private ObjectInputStream in;
-	private int eventsLeft;
-	
+	/** Magic number in the beginning of binary external events files */
+	public static final int MAGIC = 0x4F4E4545; // "ONEE"
+	/** Version of the binary events format */
+	public static final int VERSION = 2;
+	/** Default number of events in a memory-mapped chunk */
+	public static final int DEFAULT_CHUNK_EVENTS = 1 << 16;
+
+	/** Size of the file header in bytes */
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 8;
+	/** Widths (in bytes) of the columns */
+	private static final int[] COLUMN_WIDTHS = {8, 1, 4, 4, 4, 4, 4};
+	private static final int TIME_COL = 0;
+	private static final int TYPE_COL = 1;
+	private static final int HOST_COL = 2;
+	private static final int HOST2_COL = 3;
+	private static final int ID_COL = 4;
+	private static final int SIZE_COL = 5;
+	private static final int RESP_SIZE_COL = 6;
+
+	/* event type codes */
+	private static final byte TYPE_CREATE = 0;
+	private static final byte TYPE_SEND = 1;
+	private static final byte TYPE_DELIVERED = 2;
+	private static final byte TYPE_ABORT = 3;
+	private static final byte TYPE_DROP = 4;
+	private static final byte TYPE_REMOVE = 5;
+	private static final byte TYPE_CONN_UP = 6;
+	private static final byte TYPE_CONN_DOWN = 7;
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private long nrofEvents;
+	/** the interned message and interface ids */
+	private String[] strings;
+	/** index of the next event to read */
+	private long nextEvent;
+
+	/** memory-mapped chunks of the columns */
+	private MappedByteBuffer[] columns;
+	/** index of the first event in the current chunk */
+	private long chunkFirst;
+	/** number of events in the current chunk */
+	private int chunkSize;
+	/** maximum number of events in a chunk */
+	private int maxChunkEvents;
+
 	/**
 	 * Constructor.
 	 * @param eventsFile The file where the events are read
 	 */
-	public BinaryEventsReader(File eventsFile) {	
+	public BinaryEventsReader(File eventsFile) {
+		this(eventsFile, DEFAULT_CHUNK_EVENTS);
+	}
+
+	/**
+	 * Constructor.
+	 * @param eventsFile The file where the events are read
+	 * @param chunkEvents Maximum number of events mapped to memory at once
+	 */
+	public BinaryEventsReader(File eventsFile, int chunkEvents) {
+		this.maxChunkEvents = Math.max(chunkEvents, 1);
+		this.columns = new MappedByteBuffer[COLUMN_WIDTHS.length];
 		try {
-			FileInputStream fis = new FileInputStream(eventsFile);
-			in = new ObjectInputStream(fis);
-			// first object should tell the amount of events
-			eventsLeft = (Integer)in.readObject(); 
+			this.file = new RandomAccessFile(eventsFile, "r");
+			this.channel = file.getChannel();
+			if (channel.size() < HEADER_SIZE || file.readInt() != MAGIC) {
+				throw new SimError("Invalid binary input file for external " +
+						"events:" + eventsFile.getAbsolutePath());
+			}
+			int version = file.readInt();
+			if (version != VERSION) {
+				throw new SimError("Unsupported binary external events " +
+						"version " + version + " in " +
+						eventsFile.getAbsolutePath());
+			}
+			this.nrofEvents = file.readLong();
+			this.strings = new String[file.readInt()];
+			channel.position(file.readLong());
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					Channels.newInputStream(channel)));
+			for (int i = 0; i < strings.length; i++) {
+				strings[i] = in.readUTF();
+			}
 		} catch (IOException e) {
 			throw new SimError(e);
-		} catch (ClassNotFoundException e) {
-			throw new SimError("Invalid binary input file for external " +
-					"events:" + eventsFile.getAbsolutePath(), e);
 		}
-		
+		this.nextEvent = 0;
 	}
-	
+
 	/**
 	 * Read events from a binary file created with storeBinaryFile method
 	 * @param nrof Maximum number of events to read
 	 * @return Events in an ArrayList (empty list if didn't read any)
 	 * @see #storeToBinaryFile(String, List)
 	 */
-	@SuppressWarnings("unchecked") // suppress cast warnings
 	public List<ExternalEvent> readEvents(int nrof) {
-		ArrayList<ExternalEvent> events = new ArrayList<ExternalEvent>(nrof);
+		int count = (int)Math.min(nrof, nrofEvents - nextEvent);
+		ArrayList<ExternalEvent> events =
+			new ArrayList<ExternalEvent>(Math.max(count, 0));
 
-		if (eventsLeft == 0) {
-			return events;
+		for (int i = 0; i < count; i++, nextEvent++) {
+			if (columns[TIME_COL] == null || nextEvent < chunkFirst ||
+					nextEvent >= chunkFirst + chunkSize) {
+				mapChunk(nextEvent);
+			}
+			events.add(createEvent((int)(nextEvent - chunkFirst)));
 		}
-		
+
+		return events;
+	}
+
+	/**
+	 * Skips all events that happen before the given time so that the next
+	 * call of {@link #readEvents(int)} returns events at or after the time.
+	 * The time column is binary searched, so the skipped events are not read.
+	 * @param time The time to skip to
+	 */
+	public void skipTo(double time) {
+		ByteBuffer buf = ByteBuffer.allocate(8);
+		long low = nextEvent;
+		long high = nrofEvents;
 		try {
-			for (int i=0; i < nrof && eventsLeft > 0; i++) {
-				events.add((ExternalEvent)in.readObject());
-				eventsLeft--;
+			while (low < high) {
+				long mid = (low + high) >>> 1;
+				buf.clear();
+				channel.read(buf, columnOffset(TIME_COL) + mid * 8);
+				if (buf.getDouble(0) < time) {
+					low = mid + 1;
+				}
+				else {
+					high = mid;
+				}
 			}
-			if (eventsLeft == 0) {
-				in.close();
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+		nextEvent = low;
+	}
+
+	/**
+	 * Returns the total number of events in the file
+	 * @return the number of events
+	 */
+	public long getNrofEvents() {
+		return nrofEvents;
+	}
+
+	/**
+	 * Maps new chunks of all columns to memory
+	 * @param first Index of the first event of the chunk
+	 */
+	private void mapChunk(long first) {
+		chunkFirst = first;
+		chunkSize = (int)Math.min(maxChunkEvents, nrofEvents - first);
+		try {
+			for (int c = 0; c < COLUMN_WIDTHS.length; c++) {
+				columns[c] = channel.map(FileChannel.MapMode.READ_ONLY,
+						columnOffset(c) + first * COLUMN_WIDTHS[c],
+						(long)chunkSize * COLUMN_WIDTHS[c]);
 			}
-		} catch (Exception e) { // FIXME: quick 'n' dirty exception handling
+		} catch (IOException e) {
 			throw new SimError(e);
 		}
-		return events;	
 	}
-	
+
+	/**
+	 * Creates an event from the values in the current chunk
+	 * @param i Index of the event in the chunk
+	 * @return The event
+	 */
+	private ExternalEvent createEvent(int i) {
+		double time = columns[TIME_COL].getDouble(i * 8);
+		byte type = columns[TYPE_COL].get(i);
+		int host = columns[HOST_COL].getInt(i * 4);
+		int host2 = columns[HOST2_COL].getInt(i * 4);
+		int idIndex = columns[ID_COL].getInt(i * 4);
+		String id = idIndex >= 0 ? strings[idIndex] : null;
+
+		switch (type) {
+		case TYPE_CREATE:
+			return new MessageCreateEvent(host, host2, id,
+					columns[SIZE_COL].getInt(i * 4),
+					columns[RESP_SIZE_COL].getInt(i * 4), time);
+		case TYPE_SEND:
+			return new MessageRelayEvent(host, host2, id, time,
+					MessageRelayEvent.SENDING);
+		case TYPE_DELIVERED:
+			return new MessageRelayEvent(host, host2, id, time,
+					MessageRelayEvent.TRANSFERRED);
+		case TYPE_ABORT:
+			return new MessageRelayEvent(host, host2, id, time,
+					MessageRelayEvent.ABORTED);
+		case TYPE_DROP:
+			return new MessageDeleteEvent(host, id, time, true);
+		case TYPE_REMOVE:
+			return new MessageDeleteEvent(host, id, time, false);
+		case TYPE_CONN_UP:
+			return new ConnectionEvent(host, host2, id, true, time);
+		case TYPE_CONN_DOWN:
+			return new ConnectionEvent(host, host2, id, false, time);
+		default:
+			throw new SimError("Invalid event type " + type + " in binary " +
+					"external events file");
+		}
+	}
+
+	/**
+	 * Returns the offset of a column in a file with the events of this reader
+	 */
+	private long columnOffset(int column) {
+		return columnOffset(column, nrofEvents);
+	}
+
+	/**
+	 * Returns the offset of a column in a file
+	 * @param column The column
+	 * @param nrofEvents Number of events in the file
+	 * @return The offset of the column's first value
+	 */
+	private static long columnOffset(int column, long nrofEvents) {
+		long offset = HEADER_SIZE;
+		for (int c = 0; c < column; c++) {
+			offset += nrofEvents * COLUMN_WIDTHS[c];
+		}
+		return offset;
+	}
+
 	/**
 	 * Checks if the given file is a binary external events file
 	 * @param file The file to check
 	 * @return True if the file is a binary ee file, false if not
 	 */
 	public static boolean isBinaryEeFile(File file) {
-		if (!file.getName().endsWith(BINARY_EXT)) {
+		if (!file.getName().endsWith(BINARY_EXT) || !file.isFile()) {
 			return false;
 		}
-		
-		// extension matches, try to read an event 
+
+		// extension matches, check the magic number
 		try {
-			BinaryEventsReader r = new BinaryEventsReader(file);
-			r.readEvents(1);
-			r.close();
+			RandomAccessFile f = new RandomAccessFile(file, "r");
+			try {
+				return f.length() >= HEADER_SIZE && f.readInt() == MAGIC;
+			} finally {
+				f.close();
+			}
 		}
-		catch (SimError e) {
+		catch (IOException e) {
 			return false; // read failed -> not a valid file
 		}
-		
-		return true; // seems to be a valid binary ee file
 	}
-	
+
 	/**
 	 * Stores the events to a binary file
 	 * @param fileName Path to the file where the events are stored
 	 * @param events List of events to store
 	 * @throws IOException if something in storing went wrong
+	 * @throws SimError if the list contains events that can't be stored
 	 */
 	public static void storeToBinaryFile(String fileName,
 			List<ExternalEvent> events) throws IOException {
 
 		// make sure the file name ends with binary extension
 		if (!fileName.endsWith(BINARY_EXT)) {
-			fileName += "BINARY_EXT";
+			fileName += BINARY_EXT;
 		}
-		
-		ObjectOutputStream out;
-		FileOutputStream fos = new FileOutputStream(fileName);
-		out = new ObjectOutputStream(fos);
 
-		// store the number of events
-		out.writeObject(new Integer(events.size()));
-		
-		// store events
-		for (ExternalEvent ee : events) {
-			out.writeObject(ee);
+		EventsWriter out = new EventsWriter(fileName, events.size());
+		try {
+			for (ExternalEvent ee : events) {
+				out.write(ee);
+			}
+		} finally {
+			out.close();
 		}
+	}
 
-		out.close();
+	/**
+	 * Converts a standard external events file (see
+	 * {@link StandardEventsReader}) to a binary file. The events are
+	 * streamed, so only the message ids are kept in memory.
+	 * @param textFile Path to the standard external events file
+	 * @param binaryFile Path to the binary file to create
+	 * @throws IOException if something in reading or storing went wrong
+	 * @throws SimError if the events file contained invalid events
+	 */
+	public static void convert(String textFile, String binaryFile)
+			throws IOException {
+		// count the events first so that all columns can be written at once
+		Pattern skipPattern = Pattern.compile("(#.*)|(^\\s*$)");
+		BufferedReader in = new BufferedReader(new FileReader(textFile));
+		long nrof = 0;
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (!skipPattern.matcher(line).matches()) {
+					nrof++;
+				}
+			}
+		} finally {
+			in.close();
+		}
+
+		StandardEventsReader reader = new StandardEventsReader(
+				new File(textFile));
+		EventsWriter out = new EventsWriter(binaryFile, nrof);
+		try {
+			List<ExternalEvent> events;
+			do {
+				events = reader.readEvents(DEFAULT_CHUNK_EVENTS);
+				for (ExternalEvent ee : events) {
+					out.write(ee);
+				}
+			} while (events.size() > 0);
+		} finally {
+			reader.close();
+			out.close();
+		}
+	}
+
+	/**
+	 * Converts a standard external events file to a binary file.
+	 * @param args Paths of the standard events file and the binary file
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("Usage: java input.BinaryEventsReader " +
+					"eventsFile binaryFile" + BINARY_EXT);
+			System.exit(1);
+		}
+		convert(args[0], args[1]);
 	}
 
 	public void close() {
+		for (int c = 0; c < columns.length; c++) {
+			columns[c] = null;
+		}
 		try {
-			this.in.close();
+			this.file.close();
 		}
 		catch (IOException ioe) {
 			throw new SimError(ioe);
 		}
 	}
-		
+
+	/**
+	 * Writer of binary external events files. The number of events must be
+	 * known beforehand so that the columns can be written in parallel
+	 * through small buffers.
+	 */
+	private static class EventsWriter {
+		private static final int BUFFER_SIZE = 1 << 15;
+		private RandomAccessFile file;
+		private FileChannel channel;
+		private long nrofEvents;
+		private long written;
+		private ByteBuffer[] buffers;
+		/** file positions where the buffers are flushed next */
+		private long[] positions;
+		private Map<String, Integer> stringIndexes;
+		private List<String> strings;
+
+		/**
+		 * Creates a writer for a new binary events file
+		 * @param fileName Path to the file
+		 * @param nrofEvents Number of events that will be written
+		 */
+		public EventsWriter(String fileName, long nrofEvents)
+				throws IOException {
+			File f = new File(fileName);
+			if (f.exists() && !f.delete()) {
+				throw new IOException("Can't overwrite " + fileName);
+			}
+			this.file = new RandomAccessFile(f, "rw");
+			this.channel = file.getChannel();
+			this.nrofEvents = nrofEvents;
+			this.written = 0;
+			this.buffers = new ByteBuffer[COLUMN_WIDTHS.length];
+			this.positions = new long[COLUMN_WIDTHS.length];
+			for (int c = 0; c < COLUMN_WIDTHS.length; c++) {
+				buffers[c] = ByteBuffer.allocate(BUFFER_SIZE);
+				positions[c] = columnOffset(c, nrofEvents);
+			}
+			this.stringIndexes = new HashMap<String, Integer>();
+			this.strings = new ArrayList<String>();
+		}
+
+		/**
+		 * Writes an event to the columns
+		 * @param ee The event
+		 * @throws SimError if the event can't be stored in the binary format
+		 * or if there are more events than was told in the constructor
+		 */
+		public void write(ExternalEvent ee) throws IOException {
+			int host, host2;
+			String id;
+			int size = 0, respSize = 0;
+			byte type;
+
+			if (written == nrofEvents) {
+				throw new SimError("Too many events for the binary file");
+			}
+
+			if (ee instanceof ConnectionEvent) {
+				ConnectionEvent ce = (ConnectionEvent)ee;
+				type = ce.isUp ? TYPE_CONN_UP : TYPE_CONN_DOWN;
+				host = ce.fromAddr;
+				host2 = ce.toAddr;
+				id = ce.interfaceId;
+			}
+			else if (ee instanceof MessageEvent) {
+				MessageEvent me = (MessageEvent)ee;
+				host = me.fromAddr;
+				host2 = me.toAddr;
+				id = me.id;
+				if (me instanceof MessageCreateEvent) {
+					type = TYPE_CREATE;
+					size = ((MessageCreateEvent)me).size;
+					respSize = ((MessageCreateEvent)me).responseSize;
+				}
+				else if (me instanceof MessageRelayEvent) {
+					type = (byte)(TYPE_SEND - MessageRelayEvent.SENDING +
+							((MessageRelayEvent)me).stage);
+				}
+				else if (me instanceof MessageDeleteEvent) {
+					type = ((MessageDeleteEvent)me).drop ? TYPE_DROP :
+						TYPE_REMOVE;
+				}
+				else {
+					throw new SimError("Can't store event " + ee +
+							" in binary format");
+				}
+			}
+			else {
+				throw new SimError("Can't store event " + ee +
+						" in binary format");
+			}
+
+			ensureSpace();
+			buffers[TIME_COL].putDouble(ee.getTime());
+			buffers[TYPE_COL].put(type);
+			buffers[HOST_COL].putInt(host);
+			buffers[HOST2_COL].putInt(host2);
+			buffers[ID_COL].putInt(getStringIndex(id));
+			buffers[SIZE_COL].putInt(size);
+			buffers[RESP_SIZE_COL].putInt(respSize);
+			written++;
+		}
+
+		/**
+		 * Returns the index of a string in the string table
+		 * @param s The string (or null)
+		 * @return The index of the string or -1 for null
+		 */
+		private int getStringIndex(String s) {
+			if (s == null) {
+				return -1;
+			}
+			Integer index = stringIndexes.get(s);
+			if (index == null) {
+				index = strings.size();
+				stringIndexes.put(s, index);
+				strings.add(s);
+			}
+			return index;
+		}
+
+		/**
+		 * Flushes the column buffers if there's no space for a new event
+		 */
+		private void ensureSpace() throws IOException {
+			if (buffers[TIME_COL].remaining() < COLUMN_WIDTHS[TIME_COL]) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			for (int c = 0; c < buffers.length; c++) {
+				buffers[c].flip();
+				while (buffers[c].hasRemaining()) {
+					positions[c] += channel.write(buffers[c], positions[c]);
+				}
+				buffers[c].clear();
+			}
+		}
+
+		/**
+		 * Writes the string table and the header and closes the file
+		 * @throws SimError if less events were written than was told in the
+		 * constructor
+		 */
+		public void close() throws IOException {
+			try {
+				flush();
+				if (written != nrofEvents) {
+					throw new SimError("Expected " + nrofEvents + " events " +
+							"for the binary file but got " + written);
+				}
+				long stringsOffset = columnOffset(COLUMN_WIDTHS.length,
+						nrofEvents);
+				channel.position(stringsOffset);
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(
+								Channels.newOutputStream(channel)));
+				for (String s : strings) {
+					out.writeUTF(s);
+				}
+				out.flush();
+				file.seek(0);
+				file.writeInt(MAGIC);
+				file.writeInt(VERSION);
+				file.writeLong(nrofEvents);
+				file.writeInt(strings.size());
+				file.writeLong(stringsOffset);
+			} finally {
+				file.close();
+			}
+		}
+	}
 }
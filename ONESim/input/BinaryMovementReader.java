@@ -0,0 +1,466 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import core.Coord;
+import core.SettingsError;
+import core.SimError;
+import core.Tuple;
+
+/**
+ * Reader for binary external movement traces. The binary format contains
+ * the same data as the text format read by {@link ExternalMovementReader}
+ * but it is read through memory-mapped chunks of fixed size and it has an
+ * index of the time instances, so reading can start from any time
+ * (see {@link #skipTo(double)}) and memory use doesn't depend on the size of
+ * the trace. Binary trace files are created from text traces with
+ * {@link #convert(String, String)}, or from the command line:<BR>
+ * <CODE>java input.BinaryMovementReader textTrace binaryTrace</CODE>
+ * <P>
+ * The format of the file is (all values big-endian):
+ * <UL>
+ * <LI> header: magic (int), version (int), minTime, maxTime, minX, maxX,
+ * minY, maxY (doubles), number of ids (int), number of records (long),
+ * number of time instances (int), offsets of the records, the id table and
+ * the time index (longs)</LI>
+ * <LI> records: id index (int), x and y (doubles) of every location, sorted
+ * by time</LI>
+ * <LI> id table: all ids (UTF strings) in the order of their indexes</LI>
+ * <LI> time index: time (double) and number of the first record (long) of
+ * every time instance</LI>
+ * </UL>
+ * </P>
+ */
+public class BinaryMovementReader implements MovementTraceReader {
+	/** Extension of binary external movement files */
+	public static final String BINARY_EXT = ".binem";
+	/** Magic number in the beginning of binary trace files */
+	public static final int MAGIC = 0x4F4E454D; // "ONEM"
+	/** Version of the binary trace format */
+	public static final int VERSION = 1;
+	/** Default number of records in a memory-mapped chunk */
+	public static final int DEFAULT_CHUNK_RECORDS = 1 << 20;
+
+	/** Size of the file header in bytes */
+	private static final int HEADER_SIZE = 4 + 4 + 6*8 + 4 + 8 + 4 + 3*8;
+	/** Size of a location record in bytes */
+	private static final int RECORD_SIZE = 4 + 8 + 8;
+	/** Size of a time index entry in bytes */
+	private static final int INDEX_ENTRY_SIZE = 8 + 8;
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private double minTime;
+	private double maxTime;
+	private double minX;
+	private double maxX;
+	private double minY;
+	private double maxY;
+	private boolean normalize;
+
+	/** the ids of the trace */
+	private String[] ids;
+	private long nrofRecords;
+	private int nrofInstances;
+	private long recordsOffset;
+	/** memory-mapped time index */
+	private MappedByteBuffer index;
+
+	/** memory-mapped chunk of records */
+	private MappedByteBuffer chunk;
+	/** number of the first record in the current chunk */
+	private long chunkFirst;
+	/** number of records in the current chunk */
+	private int chunkSize;
+	/** maximum number of records in a chunk */
+	private int maxChunkRecords;
+
+	/** index of the next time instance to read */
+	private int nextInstance;
+	private double lastTimeStamp = -1;
+
+	/**
+	 * Constructor. Creates a new reader that reads the data from a file.
+	 * @param inFilePath Path to the file where the data is read
+	 * @throws SettingsError if the file wasn't found or it wasn't a valid
+	 * binary trace file
+	 */
+	public BinaryMovementReader(String inFilePath) {
+		this(inFilePath, DEFAULT_CHUNK_RECORDS);
+	}
+
+	/**
+	 * Constructor. Creates a new reader that reads the data from a file.
+	 * @param inFilePath Path to the file where the data is read
+	 * @param chunkRecords Maximum number of records mapped to memory at once
+	 * @throws SettingsError if the file wasn't found or it wasn't a valid
+	 * binary trace file
+	 */
+	public BinaryMovementReader(String inFilePath, int chunkRecords) {
+		this.normalize = true;
+		this.maxChunkRecords = Math.max(chunkRecords, 1);
+		File inFile = new File(inFilePath);
+
+		try {
+			this.file = new RandomAccessFile(inFile, "r");
+			this.channel = file.getChannel();
+			readHeader(inFile);
+		} catch (IOException e) {
+			throw new SettingsError("Couldn't read binary external movement " +
+					"input file " + inFile + ": " + e.getMessage());
+		}
+
+		this.nextInstance = 0;
+		this.chunk = null;
+	}
+
+	/**
+	 * Reads the header and the id table and maps the time index to memory
+	 */
+	private void readHeader(File inFile) throws IOException {
+		if (channel.size() < HEADER_SIZE) {
+			throw new SettingsError(inFile + " is not a binary trace file");
+		}
+		ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+				HEADER_SIZE);
+		if (header.getInt() != MAGIC) {
+			throw new SettingsError(inFile + " is not a binary trace file");
+		}
+		int version = header.getInt();
+		if (version != VERSION) {
+			throw new SettingsError("Unsupported binary trace version " +
+					version + " in " + inFile);
+		}
+
+		minTime = header.getDouble();
+		maxTime = header.getDouble();
+		minX = header.getDouble();
+		maxX = header.getDouble();
+		minY = header.getDouble();
+		maxY = header.getDouble();
+		int nrofIds = header.getInt();
+		nrofRecords = header.getLong();
+		nrofInstances = header.getInt();
+		recordsOffset = header.getLong();
+		long idsOffset = header.getLong();
+		long indexOffset = header.getLong();
+
+		ids = new String[nrofIds];
+		file.seek(idsOffset);
+		for (int i = 0; i < nrofIds; i++) {
+			ids[i] = file.readUTF();
+		}
+
+		index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset,
+				(long)nrofInstances * INDEX_ENTRY_SIZE);
+	}
+
+	public void setNormalize(boolean normalize) {
+		this.normalize = normalize;
+	}
+
+	/**
+	 * Moves the reader to the first time instance at or after the given time.
+	 * The time index is binary searched so the skipped part of the trace
+	 * isn't read at all.
+	 * @param time The time to skip to (normalized if normalizing is on)
+	 */
+	public void skipTo(double time) {
+		if (normalize) {
+			time += minTime;
+		}
+		int low = nextInstance;
+		int high = nrofInstances;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getInstanceTime(mid) < time) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		nextInstance = low;
+	}
+
+	public List<Tuple<String, Coord>> readNextMovements() {
+		if (nextInstance >= nrofInstances) {
+			return new ArrayList<Tuple<String, Coord>>(0);
+		}
+
+		long first = getInstanceFirstRecord(nextInstance);
+		long end = nextInstance + 1 < nrofInstances ?
+				getInstanceFirstRecord(nextInstance + 1) : nrofRecords;
+		double time = getInstanceTime(nextInstance);
+		nextInstance++;
+
+		ArrayList<Tuple<String, Coord>> moves =
+			new ArrayList<Tuple<String, Coord>>((int)(end - first));
+
+		for (long r = first; r < end; r++) {
+			if (chunk == null || r < chunkFirst || r >= chunkFirst + chunkSize) {
+				mapChunk(r);
+			}
+			int pos = (int)(r - chunkFirst) * RECORD_SIZE;
+			String id = ids[chunk.getInt(pos)];
+			double x = chunk.getDouble(pos + 4);
+			double y = chunk.getDouble(pos + 12);
+			if (normalize) {
+				x -= minX;
+				y -= minY;
+			}
+			moves.add(new Tuple<String, Coord>(id, new Coord(x, y)));
+		}
+
+		lastTimeStamp = normalize ? time - minTime : time;
+		return moves;
+	}
+
+	/**
+	 * Maps a new chunk of records to memory, starting from the given record
+	 * @param first Number of the first record of the new chunk
+	 */
+	private void mapChunk(long first) {
+		chunkFirst = first;
+		chunkSize = (int)Math.min(maxChunkRecords, nrofRecords - first);
+		try {
+			chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+					recordsOffset + first * RECORD_SIZE,
+					(long)chunkSize * RECORD_SIZE);
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+	}
+
+	/**
+	 * Returns the (not normalized) time of a time instance
+	 */
+	private double getInstanceTime(int instance) {
+		return index.getDouble(instance * INDEX_ENTRY_SIZE);
+	}
+
+	/**
+	 * Returns the number of the first record of a time instance
+	 */
+	private long getInstanceFirstRecord(int instance) {
+		return index.getLong(instance * INDEX_ENTRY_SIZE + 8);
+	}
+
+	public double getLastTimeStamp() {
+		return lastTimeStamp;
+	}
+
+	public double getMaxTime() {
+		return maxTime;
+	}
+
+	public double getMaxX() {
+		return maxX;
+	}
+
+	public double getMaxY() {
+		return maxY;
+	}
+
+	public double getMinTime() {
+		return minTime;
+	}
+
+	public double getMinX() {
+		return minX;
+	}
+
+	public double getMinY() {
+		return minY;
+	}
+
+	/**
+	 * Returns the number of location records in the trace
+	 * @return the number of records
+	 */
+	public long getNrofRecords() {
+		return nrofRecords;
+	}
+
+	/**
+	 * Returns the number of time instances in the trace
+	 * @return the number of time instances
+	 */
+	public int getNrofInstances() {
+		return nrofInstances;
+	}
+
+	public void close() {
+		chunk = null;
+		index = null;
+		try {
+			file.close();
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+	}
+
+	/**
+	 * Checks if the given file is a binary external movement file
+	 * @param file The file to check
+	 * @return True if the file starts with the binary trace magic number
+	 */
+	public static boolean isBinaryTraceFile(File file) {
+		if (!file.isFile() || file.length() < HEADER_SIZE) {
+			return false;
+		}
+
+		try {
+			RandomAccessFile f = new RandomAccessFile(file, "r");
+			try {
+				return f.readInt() == MAGIC;
+			} finally {
+				f.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Converts a text trace (see {@link ExternalMovementReader} for the
+	 * syntax) to the binary format. The text file is streamed, so only the
+	 * ids and the time index are kept in memory.
+	 * @param textFile Path to the text trace file
+	 * @param binaryFile Path to the binary file to create
+	 * @throws IOException if something in reading or storing went wrong
+	 * @throws SettingsError if the text file contained invalid lines
+	 */
+	public static void convert(String textFile, String binaryFile)
+			throws IOException {
+		BufferedReader in = new BufferedReader(new FileReader(textFile));
+		FileOutputStream fos = new FileOutputStream(binaryFile);
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(fos, 1 << 16));
+
+		Map<String, Integer> idIndexes = new HashMap<String, Integer>();
+		List<String> idList = new ArrayList<String>();
+		double[] times = new double[1024];
+		long[] firsts = new long[1024];
+		int nrofInst = 0;
+		long nrofRec = 0;
+		double[] offsets = new double[6];
+
+		try {
+			String line = in.readLine();
+			try {
+				Scanner lineScan = new Scanner(line);
+				for (int i = 0; i < offsets.length; i++) {
+					offsets[i] = lineScan.nextDouble();
+				}
+			} catch (Exception e) {
+				throw new SettingsError("Invalid offset line '" + line + "'");
+			}
+
+			out.write(new byte[HEADER_SIZE]); // header is written last
+
+			double lastTime = Double.NEGATIVE_INFINITY;
+			while ((line = in.readLine()) != null) {
+				if (line.trim().length() == 0 ||
+						line.startsWith(ExternalMovementReader.COMMENT_PREFIX)) {
+					continue; /* skip empty and comment lines */
+				}
+				Scanner lineScan = new Scanner(line);
+				double time, x, y;
+				String id;
+				try {
+					time = lineScan.nextDouble();
+					id = lineScan.next();
+					x = lineScan.nextDouble();
+					y = lineScan.nextDouble();
+				} catch (Exception e) {
+					throw new SettingsError("Invalid line '" + line + "'");
+				}
+
+				if (time < lastTime) {
+					throw new SettingsError("Trace " + textFile + " is not " +
+							"sorted by time at line '" + line + "'");
+				}
+				if (time != lastTime) { // new time instance
+					if (nrofInst == times.length) {
+						times = Arrays.copyOf(times, nrofInst * 2);
+						firsts = Arrays.copyOf(firsts, nrofInst * 2);
+					}
+					times[nrofInst] = time;
+					firsts[nrofInst] = nrofRec;
+					nrofInst++;
+					lastTime = time;
+				}
+
+				Integer idIndex = idIndexes.get(id);
+				if (idIndex == null) {
+					idIndex = idList.size();
+					idIndexes.put(id, idIndex);
+					idList.add(id);
+				}
+				out.writeInt(idIndex);
+				out.writeDouble(x);
+				out.writeDouble(y);
+				nrofRec++;
+			}
+
+			long idsOffset = HEADER_SIZE + nrofRec * RECORD_SIZE;
+			for (String id : idList) {
+				out.writeUTF(id);
+			}
+			out.flush();
+			long indexOffset = fos.getChannel().position();
+			for (int i = 0; i < nrofInst; i++) {
+				out.writeDouble(times[i]);
+				out.writeLong(firsts[i]);
+			}
+			out.flush();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION);
+			for (double d : offsets) {
+				header.putDouble(d);
+			}
+			header.putInt(idList.size()).putLong(nrofRec).putInt(nrofInst);
+			header.putLong(HEADER_SIZE).putLong(idsOffset).putLong(indexOffset);
+			header.flip();
+			fos.getChannel().write(header, 0);
+		} finally {
+			in.close();
+			out.close();
+		}
+	}
+
+	/**
+	 * Converts a text trace to a binary trace.
+	 * @param args Paths of the text trace and the binary file to create
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("Usage: java input.BinaryMovementReader " +
+					"textTrace binaryTrace" + BINARY_EXT);
+			System.exit(1);
+		}
+		convert(args[0], args[1]);
+	}
+}
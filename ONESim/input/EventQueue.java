@@ -4,6 +4,8 @@
  */
 package input;
 
+import java.io.Serializable;
+
 /**
  * Interface for event queues. Any class that is not a movement model or a 
  * routing module but wishes to provide events for the simulation (like creating
@@ -18,7 +20,7 @@ package input;
  * 比如模拟过程中消息的产生，它可以看成是一系列以“生成消息”为目的的事件组织成的“聚合体”。
  * 故所有试图在模拟过程中产生除节点移动和Routing以外的显式update事件的情况，都应该成为一个EventQueue
  */
-public interface EventQueue {
+public interface EventQueue extends Serializable {
 	
 	/**
 	 * Returns the next event in the queue or ExternalEvent with time of 
@@ -30,7 +32,8 @@ public interface EventQueue {
 	
 	/**
 	 * Returns next event's time or Double.MAX_VALUE if there are no 
-	 * events left in the queue.
+	 * events left in the queue. Within an update interval the time is
+	 * re-read only after {@link #nextEvent()} has been called.
 	 * 获取下一事件的时间
 	 * @return Next event's time
 	 */
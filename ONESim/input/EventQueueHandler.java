@@ -4,6 +4,7 @@
  */
 package input;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -32,7 +33,9 @@ import core.Settings;
  * is loaded when the name of the class is defined with 
  * <code>CLASS_SETTING</code>. 
  */
-public class EventQueueHandler  {
+public class EventQueueHandler implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Event queue settings main namespace ({@value})*/
 	public static final String SETTINGS_NAMESPACE = "Events";
 	/** number of event queues -setting id ({@value})*/
@@ -48,6 +51,12 @@ public class EventQueueHandler  {
 	public static final String PRELOAD_SETTING = "nrofPreload";
 	/** path of external events file -setting id ({@value})*/
 	public static final String PATH_SETTING = "filePath";
+	/** start time of external events -setting id ({@value}).
+	 * @see ExternalEventsQueue#START_TIME_SETTING */
+	public static final String START_TIME_SETTING = "startTime";
+	/** read external events in a background thread -setting id
+	 * ({@value}). Boolean valued, default is false. */
+	public static final String PREFETCH_SETTING = "prefetch";
 	
 	private List<EventQueue> queues;
 	
@@ -71,7 +80,15 @@ public class EventQueueHandler  {
 				}
 				path = s.getSetting(PATH_SETTING);
 
-				queues.add(new ExternalEventsQueue(path, preload));
+				ExternalEventsQueue eq = new ExternalEventsQueue(path, preload);
+				if (s.contains(START_TIME_SETTING)) {
+					eq.setStartTime(s.getDouble(START_TIME_SETTING));
+				}
+				if (s.contains(PREFETCH_SETTING) &&
+						s.getBoolean(PREFETCH_SETTING)) {
+					eq.startPrefetch();
+				}
+				queues.add(eq);
 			}
 			else if (s.contains(CLASS_SETTING)) { // event generator class
 				String className = CLASS_PACKAGE + "." + 
@@ -15,6 +15,8 @@ import core.World;
  * 外部事件的超类，所有外部事件都必须继承此类，它可以作为一个dummy事件来使所有host进行更新操作
  */
 public class ExternalEvent implements Comparable<ExternalEvent>, Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Time of the event (simulated seconds) */
 	protected double time;
 	
@@ -5,6 +5,10 @@
 package input;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,22 +19,39 @@ import core.Settings;
  * the events and preloading only a proper amount of them.
  */
 public class ExternalEventsQueue implements EventQueue {
+	private static final long serialVersionUID = 42L;
+
 	/** ExternalEvents namespace ({@value})*/
 	public static final String SETTINGS_NAMESPACE = "ExternalEvents";
 	/** number of event to preload -setting id ({@value})*/
 	public static final String PRELOAD_SETTING = "nrofPreload";
 	/** path of external events file -setting id ({@value})*/
 	public static final String PATH_SETTING = "filePath";
+	/** start time -setting id ({@value}). Events before this time of the
+	 * events file are skipped and the time is moved to simulation time 0,
+	 * like with {@link movement.ExternalMovement#START_TIME_S}. */
+	public static final String START_TIME_SETTING = "startTime";
+	/** read events in a background thread -setting id ({@value}).
+	 * Boolean valued, default is false.
+	 * @see PrefetchingEventsReader */
+	public static final String PREFETCH_SETTING = "prefetch";
 	
 	/** default number of preloaded events */
 	public static final int DEFAULT_NROF_PRELOAD = 500;
 	
 	private File eventsFile;
-	private ExternalEventsReader reader;
+	/** the reader isn't checkpointed; it is reopened when restoring */
+	private transient ExternalEventsReader reader;
 	private int nextEventIndex;
 	private int nrofPreload;
 	private List<ExternalEvent> queue;
 	private boolean allEventsRead = false;
+	/** number of events read from the reader (after the skip, if any) */
+	private long nrofEventsRead;
+	/** time the binary events file was skipped to (or NaN) */
+	private double binarySkipTime = Double.NaN;
+	/** time of the events file that is simulation time 0 */
+	private double timeOffset = 0;
 	
 	/**
 	 * Creates a new Queue from a file
@@ -40,6 +61,7 @@ public class ExternalEventsQueue implements EventQueue {
 	 * @param nrofPreload How many events to preload
 	 * @see BinaryEventsReader#BINARY_EXT
 	 * @see BinaryEventsReader#storeToBinaryFile(String, List)
+	 * @see BinaryEventsReader#convert(String, String)
 	 */
 	public ExternalEventsQueue(String filePath, int nrofPreload) {
 		setNrofPreload(nrofPreload);
@@ -47,8 +69,9 @@ public class ExternalEventsQueue implements EventQueue {
 	}
 	
 	/**
-	 * Create a new Queue based on the given settings: {@link #PRELOAD_SETTING}
-	 * and {@link #PATH_SETTING}. The path setting supports value filling.
+	 * Create a new Queue based on the given settings: {@link #PRELOAD_SETTING},
+	 * {@link #PATH_SETTING}, {@link #START_TIME_SETTING} and
+	 * {@link #PREFETCH_SETTING}. The path setting supports value filling.
 	 * @param s The settings
 	 */
 	public ExternalEventsQueue(Settings s) {
@@ -60,6 +83,12 @@ public class ExternalEventsQueue implements EventQueue {
 		}
         String eeFilePath = s.valueFillString(s.getSetting(PATH_SETTING));
         init(eeFilePath);
+        if (s.contains(START_TIME_SETTING)) {
+            setStartTime(s.getDouble(START_TIME_SETTING));
+        }
+        if (s.contains(PREFETCH_SETTING) && s.getBoolean(PREFETCH_SETTING)) {
+            startPrefetch();
+        }
     }
 
 	/**
@@ -76,18 +105,77 @@ public class ExternalEventsQueue implements EventQueue {
 	
 	private void init(String eeFilePath) {
 		this.eventsFile = new File(eeFilePath);
-		
+		openReader();
+		this.queue = readEvents(nrofPreload);
+		this.nextEventIndex = 0;
+	}
+
+	/**
+	 * Opens the reader of the events file
+	 */
+	private void openReader() {
 		if (BinaryEventsReader.isBinaryEeFile(eventsFile)) {
 			this.reader = new BinaryEventsReader(eventsFile);
 		}
 		else {
 			this.reader = new StandardEventsReader(eventsFile);
 		}
-		
-		this.queue = readEvents(nrofPreload);
-		this.nextEventIndex = 0;
 	}
 	
+	/**
+	 * Starts reading the events in a background thread so that the next
+	 * events are ready when the current ones have been processed. The
+	 * order of the events doesn't change.
+	 * @see PrefetchingEventsReader
+	 */
+	public void startPrefetch() {
+		if (allEventsRead || reader instanceof PrefetchingEventsReader) {
+			return;
+		}
+		this.reader = new PrefetchingEventsReader(reader, nrofPreload);
+	}
+
+	/**
+	 * Starts the events at the given time of the events file: the events
+	 * before it are skipped and the times of the rest are moved so that
+	 * the start time is simulation time 0.
+	 * @param time The start time (in the events file's time)
+	 */
+	public void setStartTime(double time) {
+		skipTo(time - timeOffset);
+		for (int i = nextEventIndex; i < queue.size(); i++) {
+			queue.get(i).time -= time - timeOffset;
+		}
+		this.timeOffset = time;
+	}
+
+	/**
+	 * Skips all events that happen before the given time. With binary
+	 * events files the skipped events that are not in the buffer are not
+	 * read at all (unless the events are already being prefetched).
+	 * @param time The (simulation) time to skip to
+	 */
+	public void skipTo(double time) {
+		/* skip the buffered events first; the reader is after them */
+		while (eventsLeftInBuffer() > 0 && nextEventsTime() < time) {
+			nextEventIndex++;
+		}
+		if (eventsLeftInBuffer() == 0) {
+			if (reader instanceof BinaryEventsReader && !allEventsRead) {
+				/* search the rest of the file */
+				((BinaryEventsReader)reader).skipTo(time + timeOffset);
+				this.binarySkipTime = time + timeOffset;
+				this.nrofEventsRead = 0;
+			}
+			this.queue = readEvents(nrofPreload);
+			this.nextEventIndex = 0;
+		}
+
+		while (nextEventsTime() < time) {
+			nextEvent();
+		}
+	}
+
 	/**
 	 * Returns next event's time or Double.MAX_VALUE if there are no 
 	 * events left 
@@ -151,6 +239,12 @@ public class ExternalEventsQueue implements EventQueue {
 		}
 		
 		List<ExternalEvent> events = reader.readEvents(nrof);
+		nrofEventsRead += events.size();
+		if (timeOffset != 0) {
+			for (ExternalEvent ee : events) {
+				ee.time -= timeOffset;
+			}
+		}
 		
 		if (nrof > 0 && events.size() == 0) {
 			reader.close();
@@ -159,5 +253,49 @@ public class ExternalEventsQueue implements EventQueue {
 				
 		return events;
 	}
-	
+
+	/**
+	 * Writes the queue to a checkpoint. The events that have been read but
+	 * not processed are included; the position of the reader is stored as
+	 * the number of events read.
+	 * @param out The stream to write to
+	 * @throws IOException if writing failed
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeBoolean(reader instanceof PrefetchingEventsReader);
+	}
+
+	/**
+	 * Restores the queue from a checkpoint. The events file is reopened and
+	 * the events that had been read are skipped.
+	 * @param in The stream to read from
+	 * @throws IOException if reading failed
+	 * @throws ClassNotFoundException if a class of the checkpoint is missing
+	 */
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		boolean prefetch = in.readBoolean();
+		if (allEventsRead) {
+			return;
+		}
+
+		openReader();
+		if (!Double.isNaN(binarySkipTime)) {
+			((BinaryEventsReader)reader).skipTo(binarySkipTime);
+		}
+		for (long left = nrofEventsRead; left > 0; ) {
+			int nrof = reader.readEvents((int)Math.min(left, nrofPreload))
+				.size();
+			if (nrof == 0) {
+				throw new InvalidObjectException("Events file " + eventsFile +
+						" has fewer events than when it was checkpointed");
+			}
+			left -= nrof;
+		}
+		if (prefetch) {
+			this.reader = new PrefetchingEventsReader(reader, nrofPreload);
+		}
+	}
 }
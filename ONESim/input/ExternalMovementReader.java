@@ -34,8 +34,12 @@ import core.Tuple;
  * All lines must be sorted by time. Sampling interval (time difference between
  * two time instances) must be same for the whole file.
  * </P>
+ * <P>
+ * Large traces can be converted to the faster, indexed binary format with
+ * {@link BinaryMovementReader#convert(String, String)}.
+ * </P>
  */
-public class ExternalMovementReader {
+public class ExternalMovementReader implements MovementTraceReader {
 	/* Prefix for comment lines (lines starting with this are ignored) */
 	public static final String COMMENT_PREFIX = "#";
 	private Scanner scanner;
@@ -155,6 +159,35 @@ public class ExternalMovementReader {
 		return moves;
 	}
 	
+	/**
+	 * Skips all lines whose time is before the given time. The lines are
+	 * still parsed, so for large traces {@link BinaryMovementReader} should
+	 * be used instead.
+	 * @param time The time to skip to (normalized if normalizing is on)
+	 * @throws SettingsError if an invalid line was read
+	 */
+	public void skipTo(double time) {
+		while (scanner.hasNextLine()) {
+			double lineTime;
+			try {
+				lineTime = new Scanner(lastLine).nextDouble();
+			} catch (Exception e) {
+				throw new SettingsError("Invalid line '" + lastLine + "'");
+			}
+			if (normalize) {
+				lineTime -= minTime;
+			}
+			if (lineTime >= time) {
+				return;
+			}
+
+			do { /* skip empty and comment lines */
+				lastLine = scanner.nextLine();
+			} while (scanner.hasNextLine() && (lastLine.trim().length() == 0 ||
+					lastLine.startsWith(COMMENT_PREFIX)));
+		}
+	}
+
 	/**
 	 * Returns the time stamp where the last moves read with 
 	 * {@link #readNextMovements()} belong to.
@@ -211,5 +244,12 @@ public class ExternalMovementReader {
 	public double getMinY() {
 		return minY;
 	}
+
+	/**
+	 * Closes the input file
+	 */
+	public void close() {
+		scanner.close();
+	}
 	
 }
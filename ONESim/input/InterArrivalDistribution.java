@@ -0,0 +1,21 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.Serializable;
+
+/**
+ * Interface for distributions of the time between two consecutive events
+ * created by an event generator.
+ * @see BatchMessageGenerator
+ */
+public interface InterArrivalDistribution extends Serializable {
+
+	/**
+	 * Draws the time difference between the previous and the next event
+	 * @return The time difference (simulated seconds, non-negative)
+	 */
+	public double nextInterval();
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.util.List;
+
+/**
+ * Event queue that merges the events of multiple event queues in time
+ * order. The queues are kept in a binary heap ordered by their next
+ * event's time, so finding the next event is an O(1) and taking it an
+ * O(log k) operation for k queues. If two queues have events at the same
+ * time, the event of the queue that is earlier in the list is returned
+ * first.
+ * <P>
+ * The heap is updated for the queue whose event is taken. If the next
+ * event time of some other queue changes, the queue must be updated with
+ * {@link #update(int)} (or all queues with {@link #updateAll()}).
+ * </P>
+ */
+public class MergedEventQueue implements EventQueue {
+	private static final long serialVersionUID = 42L;
+
+	/** the merged queues */
+	private EventQueue[] queues;
+	/** next event times of the queues */
+	private double[] times;
+	/** heap of queue indexes */
+	private int[] heap;
+	/** position of each queue in the heap */
+	private int[] positions;
+
+	/**
+	 * Creates a new merged queue
+	 * @param queues The queues to merge
+	 */
+	public MergedEventQueue(List<EventQueue> queues) {
+		int k = queues.size();
+		this.queues = queues.toArray(new EventQueue[k]);
+		this.times = new double[k];
+		this.heap = new int[k];
+		this.positions = new int[k];
+		for (int i = 0; i < k; i++) {
+			heap[i] = positions[i] = i;
+		}
+		updateAll();
+	}
+
+	/**
+	 * Returns the next event of the queue that has the earliest event or
+	 * ExternalEvent with time of Double.MAX_VALUE if there are no events left
+	 * @return The next event
+	 */
+	public ExternalEvent nextEvent() {
+		if (queues.length == 0) {
+			return new ExternalEvent(Double.MAX_VALUE);
+		}
+		int q = heap[0];
+		ExternalEvent ee = queues[q].nextEvent();
+		update(q);
+		return ee;
+	}
+
+	/**
+	 * Returns the time of the earliest event in all the queues
+	 * @return Next event's time or Double.MAX_VALUE if there are no events
+	 */
+	public double nextEventsTime() {
+		return queues.length == 0 ? Double.MAX_VALUE : times[heap[0]];
+	}
+
+	/**
+	 * Returns the queue that has the earliest event
+	 * @return The queue with the earliest event (or null if there are no
+	 * queues)
+	 */
+	public EventQueue getNextQueue() {
+		return queues.length == 0 ? null : queues[heap[0]];
+	}
+
+	/**
+	 * Updates the position of a queue whose next event time has changed
+	 * @param index Index of the queue in the list given to the constructor
+	 */
+	public void update(int index) {
+		double time = queues[index].nextEventsTime();
+		double old = times[index];
+		times[index] = time;
+		if (time < old) {
+			siftUp(positions[index]);
+		}
+		else if (time > old) {
+			siftDown(positions[index]);
+		}
+	}
+
+	/**
+	 * Updates the next event times of all the queues
+	 */
+	public void updateAll() {
+		for (int i = 0; i < queues.length; i++) {
+			times[i] = queues[i].nextEventsTime();
+		}
+		for (int pos = (heap.length >>> 1) - 1; pos >= 0; pos--) {
+			siftDown(pos);
+		}
+	}
+
+	/**
+	 * Returns true if queue a's event should be before queue b's event
+	 */
+	private boolean isBefore(int a, int b) {
+		return times[a] < times[b] || (times[a] == times[b] && a < b);
+	}
+
+	private void siftUp(int pos) {
+		int q = heap[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (!isBefore(q, heap[parent])) {
+				break;
+			}
+			heap[pos] = heap[parent];
+			positions[heap[pos]] = pos;
+			pos = parent;
+		}
+		heap[pos] = q;
+		positions[q] = pos;
+	}
+
+	private void siftDown(int pos) {
+		int q = heap[pos];
+		int size = heap.length;
+		while (2 * pos + 1 < size) {
+			int child = 2 * pos + 1;
+			if (child + 1 < size && isBefore(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!isBefore(heap[child], q)) {
+				break;
+			}
+			heap[pos] = heap[child];
+			positions[heap[pos]] = pos;
+			pos = child;
+		}
+		heap[pos] = q;
+		positions[q] = pos;
+	}
+}
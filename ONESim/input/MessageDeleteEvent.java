@@ -16,8 +16,10 @@ import core.World;
  */
 
 public class MessageDeleteEvent extends MessageEvent {
+	private static final long serialVersionUID = 42L;
+
 	/** is the delete caused by a drop (not "normal" removing) */
-	private boolean drop; 
+	protected boolean drop;
 	
 	/**
 	 * Creates a message delete event
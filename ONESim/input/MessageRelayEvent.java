@@ -12,7 +12,9 @@ import core.World;
  * hosts (start and possible abort or delivery).
  */
 public class MessageRelayEvent extends MessageEvent {
-	private int stage;
+	private static final long serialVersionUID = 42L;
+
+	protected int stage;
 	
 	/** Message relay stage constant for start of sending */
 	public static final int SENDING = 1;
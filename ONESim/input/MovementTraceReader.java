@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.util.List;
+
+import core.Coord;
+import core.Tuple;
+
+/**
+ * Interface for readers of external movement traces, i.e., time ordered
+ * lists of node locations. Locations are read one time instance at a time.
+ * @see ExternalMovementReader
+ * @see BinaryMovementReader
+ */
+public interface MovementTraceReader {
+
+	/**
+	 * Sets normalizing of read values on/off. If on, values returned by
+	 * {@link #readNextMovements()} are decremented by minimum values of the
+	 * offsets. Default is on (normalize).
+	 * @param normalize If true, normalizing is on (false -> off).
+	 */
+	public void setNormalize(boolean normalize);
+
+	/**
+	 * Skips all time instances that are before the given time so that the
+	 * next call of {@link #readNextMovements()} returns the first time
+	 * instance at or after the time.
+	 * @param time The time to skip to (normalized if normalizing is on)
+	 */
+	public void skipTo(double time);
+
+	/**
+	 * Reads all new id-coordinate tuples that belong to the same time instance
+	 * @return A list of tuples or empty list if there were no more moves
+	 */
+	public List<Tuple<String, Coord>> readNextMovements();
+
+	/**
+	 * Returns the time stamp where the last moves read with
+	 * {@link #readNextMovements()} belong to.
+	 * @return The time stamp
+	 */
+	public double getLastTimeStamp();
+
+	/**
+	 * Returns offset minTime
+	 * @return the minTime
+	 */
+	public double getMinTime();
+
+	/**
+	 * Returns offset maxTime
+	 * @return the maxTime
+	 */
+	public double getMaxTime();
+
+	/**
+	 * Returns offset minX
+	 * @return the minX
+	 */
+	public double getMinX();
+
+	/**
+	 * Returns offset maxX
+	 * @return the maxX
+	 */
+	public double getMaxX();
+
+	/**
+	 * Returns offset minY
+	 * @return the minY
+	 */
+	public double getMinY();
+
+	/**
+	 * Returns offset maxY
+	 * @return the maxY
+	 */
+	public double getMaxY();
+
+	/**
+	 * Closes the input file of the reader.
+	 */
+	public void close();
+}
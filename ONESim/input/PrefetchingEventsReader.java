@@ -0,0 +1,176 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import core.Checkpoint;
+import core.DTNSim;
+import core.SimError;
+
+/**
+ * External events reader that reads the events of another reader in a
+ * background thread. While the simulation processes one batch of events,
+ * the next batch is read (and parsed) by the background thread, so reading
+ * the events is overlapped with the simulation. The events are returned in
+ * the same order as the underlying reader returns them. At most three
+ * batches are in memory at any time: the one being processed, one that is
+ * ready, and one that is being read.
+ */
+public class PrefetchingEventsReader implements ExternalEventsReader {
+	/** marker batch for a failed read */
+	private static final List<ExternalEvent> FAILED =
+		new ArrayList<ExternalEvent>(0);
+	/** all readers whose threads may be running */
+	@Checkpoint.Excluded
+	private static List<PrefetchingEventsReader> active;
+
+	private ExternalEventsReader reader;
+	private int batchSize;
+	/** batches that are ready to be returned */
+	private BlockingQueue<List<ExternalEvent>> ready;
+	private Thread thread;
+	/** exception or error thrown by the underlying reader (if any) */
+	private volatile Throwable error;
+	private volatile boolean closed;
+	/** has the last (empty) batch been returned */
+	private boolean allRead;
+
+	static {
+		DTNSim.registerForReset(PrefetchingEventsReader.class.
+				getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Creates a new prefetching reader and starts reading the first batch
+	 * @param reader The reader whose events are read
+	 * @param batchSize Number of events to read per batch
+	 */
+	public PrefetchingEventsReader(ExternalEventsReader reader,
+			int batchSize) {
+		this.reader = reader;
+		this.batchSize = batchSize;
+		this.ready = new ArrayBlockingQueue<List<ExternalEvent>>(1);
+		this.closed = false;
+		this.allRead = false;
+
+		this.thread = new Thread(new Runnable() {
+			public void run() {
+				prefetch();
+			}
+		}, "ExternalEventsPrefetcher");
+		this.thread.setDaemon(true);
+		synchronized (active) {
+			active.add(this);
+		}
+		this.thread.start();
+	}
+
+	/**
+	 * Reads batches from the underlying reader until all events are read
+	 * or this reader is closed. Run by the background thread.
+	 */
+	private void prefetch() {
+		try {
+			List<ExternalEvent> batch;
+			do {
+				batch = reader.readEvents(batchSize);
+				ready.put(batch);
+			} while (batch.size() > 0 && !closed);
+		} catch (InterruptedException e) {
+			// closed while waiting for space -> just stop
+		} catch (Throwable e) {
+			/* also errors, e.g., SimErrors of invalid input, must be passed
+			 * on or the simulation thread would wait for the batch forever */
+			if (!closed) {
+				error = e;
+				try {
+					/* wait until the previous batch has been taken */
+					ready.put(FAILED);
+				} catch (InterruptedException ie) {
+					// closed while waiting -> nobody reads the marker
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the next batch of events. The batch size is the one given in
+	 * the constructor.
+	 * @param nrof Ignored; batches are always of the constructor's size
+	 * @return Events in a List (empty list if there are no more events)
+	 * @throws SimError if reading the events failed (errors of the
+	 * underlying reader are rethrown as such)
+	 */
+	public List<ExternalEvent> readEvents(int nrof) {
+		if (allRead) {
+			return new ArrayList<ExternalEvent>(0);
+		}
+
+		List<ExternalEvent> batch;
+		try {
+			batch = ready.take();
+		} catch (InterruptedException e) {
+			throw new SimError("Interrupted while waiting for external " +
+					"events", e);
+		}
+
+		if (batch == FAILED) {
+			allRead = true;
+			if (error instanceof Error) {
+				throw (Error)error;
+			}
+			else if (error instanceof Exception) {
+				throw new SimError("Reading external events failed",
+						(Exception)error);
+			}
+			throw new SimError("Reading external events failed: " + error);
+		}
+		if (batch.size() == 0) {
+			allRead = true;
+		}
+		return batch;
+	}
+
+	/**
+	 * Stops the background thread and closes the underlying reader
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		thread.interrupt();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			throw new SimError(e);
+		}
+		synchronized (active) {
+			active.remove(this);
+		}
+		reader.close();
+	}
+
+	/**
+	 * Stops the threads of all readers that weren't closed
+	 */
+	public static void reset() {
+		if (active != null) {
+			List<PrefetchingEventsReader> readers;
+			synchronized (active) {
+				readers = new ArrayList<PrefetchingEventsReader>(active);
+			}
+			for (PrefetchingEventsReader r : readers) {
+				r.close();
+			}
+		}
+		active = new ArrayList<PrefetchingEventsReader>();
+	}
+}
@@ -4,25 +4,38 @@
  */
 package input;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Event queue where simulation objects can request an update to happen
  * at the specified simulation time. Multiple updates at the same time 
- * are merged to a single update.
+ * are merged to a single update. The update times are kept in a binary
+ * heap, so adding an update and taking the next one are O(log n)
+ * operations. The times in the heap are also kept in an open addressing
+ * hash set, so a time that is already queued is not added again.
  */
 public class ScheduledUpdatesQueue implements EventQueue {
-	/** Time of the event (simulated seconds) */
-	private ExternalEvent nextEvent;
-	private List<ExternalEvent> updates;
+	private static final long serialVersionUID = 42L;
+
+	/** initial capacity of the heap */
+	private static final int INIT_CAPACITY = 16;
+	/** binary heap of the update times */
+	private double[] heap;
+	/** number of times in the heap */
+	private int size;
+	/** marker for free slots of the time set */
+	private static final long FREE = Double.doubleToLongBits(Double.NaN);
+	/** hash set of the (bits of the) times in the heap */
+	private long[] times;
 	
 	/**
 	 * Constructor. Creates an empty update queue.
 	 */
 	public ScheduledUpdatesQueue(){
-		this.nextEvent = new ExternalEvent(Double.MAX_VALUE);
-		this.updates = new ArrayList<ExternalEvent>();
+		this.heap = new double[INIT_CAPACITY];
+		this.size = 0;
+		this.times = new long[2 * INIT_CAPACITY];
+		Arrays.fill(times, FREE);
 	}
 	
 	/**
@@ -31,16 +44,11 @@ public class ScheduledUpdatesQueue implements EventQueue {
 	 * @return the next scheduled event
 	 */
 	public ExternalEvent nextEvent() {
-		ExternalEvent event = this.nextEvent;
-		
-		if (this.updates.size() == 0) {
-			this.nextEvent = new ExternalEvent(Double.MAX_VALUE);
-		}
-		else {
-			this.nextEvent = this.updates.remove(0);
+		if (this.size == 0) {
+			return new ExternalEvent(Double.MAX_VALUE);
 		}
 		
-		return event;
+		return new ExternalEvent(poll());
 	}
 	
 	/**
@@ -49,7 +57,7 @@ public class ScheduledUpdatesQueue implements EventQueue {
 	 * @return the next scheduled event's time
 	 */
 	public double nextEventsTime() {
-		return this.nextEvent.getTime();
+		return this.size == 0 ? Double.MAX_VALUE : heap[0];
 	}
 
 	/**
@@ -57,49 +65,149 @@ public class ScheduledUpdatesQueue implements EventQueue {
 	 * @param simTime The time when the update should happen
 	 */
 	public void addUpdate(double simTime) {
-		ExternalEvent ee = new ExternalEvent(simTime);
-
-		if (ee.compareTo(nextEvent) == 0) { // this event is already next
-			return;
+		long bits = toBits(simTime);
+		int i = indexOf(bits, times);
+		if (times[i] == bits) {
+			return; // an update at this time is already queued
 		}
-		else if (this.nextEvent.getTime() > simTime) { // new nextEvent
-			putToQueue(this.nextEvent); // put the old nextEvent back to q
-			this.nextEvent = ee;
+		
+		if (this.size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+			growSet();
+			i = indexOf(bits, times);
 		}
-		else { // given event happens later..
-			putToQueue(ee);
+		times[i] = bits;
+		
+		/* sift up */
+		int pos = size++;
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (heap[parent] <= simTime) {
+				break;
+			}
+			heap[pos] = heap[parent];
+			pos = parent;
 		}
+		heap[pos] = simTime;
 	}
 	
 	/**
-	 * Puts a event to the queue in the right place
-	 * @param ee The event to put to the queue
+	 * Removes and returns the smallest time from the heap
+	 * @return the smallest time
 	 */
-	private void putToQueue(ExternalEvent ee) {
-		double eeTime = ee.getTime();
+	private double poll() {
+		double min = heap[0];
+		double last = heap[--size];
 		
-		for (int i=0, n=this.updates.size(); i<n; i++) {
-			double time = updates.get(i).getTime();
-			if (time == eeTime) {
-				return; // update with the given time exists -> no need for new
+		/* sift down the last time from the top */
+		int pos = 0;
+		int half = size >>> 1;
+		while (pos < half) {
+			int child = 2 * pos + 1;
+			if (child + 1 < size && heap[child + 1] < heap[child]) {
+				child++;
 			}
-			else if (eeTime < time) {
-				this.updates.add(i, ee);
-				return;
+			if (last <= heap[child]) {
+				break;
 			}
+			heap[pos] = heap[child];
+			pos = child;
 		}
+		heap[pos] = last;
 		
-		/* all existing updates are earlier -> add to the end of the list */
-		this.updates.add(ee);  
+		removeFromSet(min);
+		return min;
+	}
+	
+	/**
+	 * Returns the bits of a time in the time set
+	 * @param time The time
+	 * @return The bits (the same for 0.0 and -0.0)
+	 */
+	private static long toBits(double time) {
+		return Double.doubleToLongBits(time + 0.0);
+	}
+	
+	/**
+	 * Returns the slot of a key in a table: either the slot that has the key
+	 * or the free slot where the key should be put
+	 * @param key The key
+	 * @param table The keys of the table
+	 * @return Index of the slot
+	 */
+	private static int indexOf(long key, long[] table) {
+		int mask = table.length - 1;
+		int i = slotOf(key, mask);
+		while (table[i] != FREE && table[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+	
+	/**
+	 * Returns the home slot of a key
+	 * @param key The key
+	 * @param mask Mask of the table's indexes
+	 * @return Index of the slot where the search for the key starts
+	 */
+	private static int slotOf(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+	
+	/**
+	 * Doubles the capacity of the time set
+	 */
+	private void growSet() {
+		long[] old = times;
+		times = new long[old.length * 2];
+		Arrays.fill(times, FREE);
+		for (long key : old) {
+			if (key != FREE) {
+				times[indexOf(key, times)] = key;
+			}
+		}
+	}
+	
+	/**
+	 * Removes a time from the time set. The keys after the removed one are
+	 * moved back so that no search stops at the freed slot too early.
+	 * @param time The time to remove
+	 */
+	private void removeFromSet(double time) {
+		int mask = times.length - 1;
+		int i = indexOf(toBits(time), times);
+		int j = i;
+		while (true) {
+			times[i] = FREE;
+			long key;
+			int home;
+			do {
+				j = (j + 1) & mask;
+				key = times[j];
+				if (key == FREE) {
+					return;
+				}
+				home = slotOf(key, mask);
+				/* the key can stay if its home is cyclically in (i, j] */
+			} while (i <= j ? (i < home && home <= j) :
+				(i < home || home <= j));
+			times[i] = key;
+			i = j;
+		}
 	}
 	
 	public String toString() {
-		String times = "updates @ " + this.nextEvent.getTime();
+		double[] times = Arrays.copyOf(heap, size);
+		Arrays.sort(times);
+		String s = "updates @ " + nextEventsTime();
 		
-		for (ExternalEvent ee : this.updates) {
-			times += ", " + ee.getTime();
+		for (int i = 1; i < times.length; i++) {
+			if (times[i] != times[i-1]) {
+				s += ", " + times[i];
+			}
 		}
 		
-		return times;
+		return s;
 	}
 }
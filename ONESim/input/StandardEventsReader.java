@@ -5,10 +5,15 @@
 package input;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.InputMismatchException;
 import java.util.List;
-import java.util.Scanner;
+import java.util.NoSuchElementException;
 import java.util.regex.Pattern;
 
 import core.SimError;
@@ -38,6 +43,11 @@ import core.SimError;
  * message ID for referring to all messages the node has in message buffer 
  * (i.e., to delete all messages).
  * </P>
+ * <P> The file is parsed byte by byte without creating any other objects
+ * than the events and their message ids, so the file's character encoding
+ * must be ASCII compatible (e.g. UTF-8). Empty lines and lines starting
+ * with # are skipped.
+ * </P>
  */
 public class StandardEventsReader implements ExternalEventsReader {
 	/** Identifier of message creation event ({@value}) */
@@ -61,154 +71,496 @@ public class StandardEventsReader implements ExternalEventsReader {
 	/** Message identifier to use to refer to all messages ({@value}) */ 
 	public static final String ALL_MESSAGES_ID = "*";
 	
-	private Scanner scanner;
+	/** initial size of the input buffer */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/** the double values that aren't parsed directly from the bytes but
+	 * are accepted (the syntax of java.util.Scanner with US locale) */
+	private static final Pattern DOUBLE_PATTERN = Pattern.compile(
+			"[-+]?(NaN|Infinity|(([0-9]+|[1-9][0-9]{0,2}(,[0-9]{3})+)" +
+			"(\\.[0-9]*)?|\\.[0-9]+)([eE][-+]?[0-9]+)?)");
+	/** integer values with grouping separators */
+	private static final Pattern GROUPED_INT_PATTERN = Pattern.compile(
+			"[-+]?[1-9][0-9]{0,2}(,[0-9]{3})+");
+	/** powers of ten that are exactly representable as doubles */
+	private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5,
+		1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17,
+		1e18, 1e19, 1e20, 1e21, 1e22};
+
+	private InputStream in;
+	/** input buffer; the current line is in [lineStart, lineEnd) */
+	private byte[] buf;
+	/** number of valid bytes in the buffer */
+	private int bufEnd;
+	/** position where the next line starts */
+	private int pos;
+	private int lineStart;
+	private int lineEnd;
+	/** start and end of the current token of the line */
+	private int tokStart;
+	private int tokEnd;
+	/** has the end of the file been reached */
+	private boolean eof;
 	
 	public StandardEventsReader(File eventsFile){
 		try {
-			this.scanner = new Scanner(eventsFile);
+			this.in = new FileInputStream(eventsFile);
 		} catch (FileNotFoundException e) {
 			throw new SimError(e.getMessage(),e);
 		}
+		this.buf = new byte[BUFFER_SIZE];
+		this.bufEnd = this.pos = 0;
+		this.eof = false;
 	}
 	
 	
 	public List<ExternalEvent> readEvents(int nrof) {
 		ArrayList<ExternalEvent> events = new ArrayList<ExternalEvent>(nrof);
 		int eventsRead = 0;
-		// skip empty and comment lines
-		Pattern skipPattern = Pattern.compile("(#.*)|(^\\s*$)");
 
-		while (eventsRead < nrof && scanner.hasNextLine()) {
-			String line = scanner.nextLine();
-			Scanner lineScan = new Scanner(line);
-			if (skipPattern.matcher(line).matches()) {
+		while (eventsRead < nrof && nextLine()) {
+			if (isSkipLine()) {
 				// skip empty and comment lines
 				continue;
 			}
 			
-			double time;
-			String action;
-			String msgId;
-			int hostAddr;
-			int host2Addr;
-					
 			try {
-				time = lineScan.nextDouble();
-				action = lineScan.next();		
+				events.add(parseEvent());
+				eventsRead++;
+			} catch (Exception e) {
+				throw new SimError("Can't parse external event " + 
+						(eventsRead+1) + " from '" + getLine() + "'", e);
+			}
+		}
+		
+		return events;
+	}
+
+	/**
+	 * Parses an event from the current line
+	 * @return The event
+	 */
+	private ExternalEvent parseEvent() {
+		double time;
+		int hostAddr;
+		int host2Addr;
+		String msgId;
+		
+		time = nextDouble();
+		nextToken();
+		
+		if (tokenEquals(DROP)) {
+			msgId = nextString();
+			hostAddr = nextHostAddress();
+			return new MessageDeleteEvent(hostAddr, msgId, time, true);
+		}
+		else if (tokenEquals(REMOVE)) {
+			msgId = nextString();
+			hostAddr = nextHostAddress();
+			return new MessageDeleteEvent(hostAddr, msgId, time, false);
+		}
+		else if (tokenEquals(CONNECTION)) {
+			boolean isUp;
+			hostAddr = nextHostAddress();
+			host2Addr = nextHostAddress();
+			nextToken();
+			
+			if (tokenEqualsIgnoreCase(CONNECTION_UP)) {
+				isUp = true;
+			}
+			else if (tokenEqualsIgnoreCase(CONNECTION_DOWN)) {
+				isUp = false;
+			}
+			else {
+				throw new SimError("Unknown up/down value '" + 
+						getToken() + "'");
+			}
 			
-				if (action.equals(DROP)) {
-					msgId = lineScan.next();
-					hostAddr = getHostAddress(lineScan.next());
-					events.add(new MessageDeleteEvent(hostAddr, msgId,
-							time, true));
+			String interfaceId = null;
+			if (hasNextToken()) {
+				interfaceId = nextString();
+			}
+			
+			return new ConnectionEvent(hostAddr, host2Addr, interfaceId,
+					isUp, time);
+		}
+		else {
+			int stage = -1; /* -1 for unknown action, 0 for create */
+			if (tokenEquals(CREATE)) {
+				stage = 0;
+			}
+			else if (tokenEquals(SEND)) {
+				stage = MessageRelayEvent.SENDING;
+			}
+			else if (tokenEquals(DELIVERED)) {
+				stage = MessageRelayEvent.TRANSFERRED;
+			}
+			else if (tokenEquals(ABORT)) {
+				stage = MessageRelayEvent.ABORTED;
+			}
+			String action = stage == -1 ? getToken() : null;
+			
+			msgId = nextString();
+			hostAddr = nextHostAddress();
+			host2Addr = nextHostAddress();
+			
+			if (stage == 0) {
+				int size = nextInt();
+				int respSize = 0;
+				if (hasNextInt()) {
+					respSize = nextInt();
 				}
-				else if (action.equals(REMOVE)) {
-					msgId = lineScan.next();
-					hostAddr = getHostAddress(lineScan.next());
-					events.add(new MessageDeleteEvent(hostAddr, msgId,
-							time, false));
-				}
-				else if (action.equals(CONNECTION)) {
-					String connEventType;
-					boolean isUp;
-					hostAddr = getHostAddress(lineScan.next());
-					host2Addr = getHostAddress(lineScan.next());
-					connEventType = lineScan.next();
-					
-					String interfaceId = null;
-					if (lineScan.hasNext()) {
-						interfaceId = lineScan.next();
-					}	
-					
-					if (connEventType.equalsIgnoreCase(CONNECTION_UP)) {
-						isUp = true;
-					}
-					else if (connEventType.equalsIgnoreCase(CONNECTION_DOWN)) {
-						isUp = false;
-					}
-					else {
-						throw new SimError("Unknown up/down value '" + 
-								connEventType + "'");
-					}
-					
-					ConnectionEvent ce = new ConnectionEvent(hostAddr, 
-							host2Addr, interfaceId, isUp, time);
-					
-					events.add(ce);
+				return new MessageCreateEvent(hostAddr, host2Addr, msgId, 
+						size, respSize, time);
+			}
+			else if (stage == -1) {
+				throw new SimError("Unknown action '" + action + 
+					"' in external events");
+			}
+			return new MessageRelayEvent(hostAddr, host2Addr, msgId, time,
+					stage);
+		}
+	}
+
+	/**
+	 * Moves to the next line of the file
+	 * @return true if there was a next line, false if the end of the file
+	 * was reached
+	 */
+	private boolean nextLine() {
+		int i = pos;
+		while (true) {
+			for (; i < bufEnd; i++) {
+				byte b = buf[i];
+				if (b == '\n' || b == '\r') {
+					break;
 				}
-				else {
-					msgId = lineScan.next();
-					hostAddr = getHostAddress(lineScan.next());
-				
-					host2Addr = getHostAddress(lineScan.next());
-				
-					if (action.equals(CREATE)){
-						int size = lineScan.nextInt();
-						int respSize = 0;
-						if (lineScan.hasNextInt()) {
-							respSize = lineScan.nextInt();
-						}
-						events.add(new MessageCreateEvent(hostAddr, host2Addr,
-								msgId, size, respSize, time));
-					}
-					else {
-						int stage = -1;
-						if (action.equals(SEND)) {
-							stage = MessageRelayEvent.SENDING;
-						}
-						else if (action.equals(DELIVERED)) {
-							stage = MessageRelayEvent.TRANSFERRED;
-						}
-						else if (action.equals(ABORT)) {
-							stage = MessageRelayEvent.ABORTED;
-						}
-						else {
-							throw new SimError("Unknown action '" + action + 
-								"' in external events");
-						}
-						events.add(new MessageRelayEvent(hostAddr, host2Addr,
-								msgId, time, stage));
-					}						
+			}
+			
+			if (i < bufEnd && (buf[i] == '\n' || i + 1 < bufEnd || eof)) {
+				lineStart = pos;
+				lineEnd = i;
+				pos = i + 1;
+				if (buf[i] == '\r' && pos < bufEnd && buf[pos] == '\n') {
+					pos++; // windows line end
 				}
-				// discard the newline in the end
-				if (lineScan.hasNextLine()) {
-					lineScan.nextLine(); // TODO: test
+				break;
+			}
+			else if (eof) {
+				if (pos == bufEnd) {
+					return false;
 				}
-				eventsRead++;
-			} catch (Exception e) {
-				throw new SimError("Can't parse external event " + 
-						(eventsRead+1) + " from '" + line + "'", e);
+				lineStart = pos; // last line without line end
+				lineEnd = pos = bufEnd;
+				break;
 			}
+			
+			i -= fill();
 		}
 		
-		return events;
+		tokStart = tokEnd = lineStart;
+		return true;
+	}
+
+	/**
+	 * Reads more data to the buffer. The unread part of the buffer is moved
+	 * to the beginning of the buffer.
+	 * @return The number of bytes the unread part was moved
+	 */
+	private int fill() {
+		int shift = pos;
+		int unread = bufEnd - pos;
+		if (unread == buf.length) { // very long line
+			buf = Arrays.copyOf(buf, buf.length * 2);
+		}
+		System.arraycopy(buf, pos, buf, 0, unread);
+		pos = 0;
+		bufEnd = unread;
+		
+		try {
+			int n = in.read(buf, bufEnd, buf.length - bufEnd);
+			if (n < 0) {
+				eof = true;
+			}
+			else {
+				bufEnd += n;
+			}
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+		return shift;
+	}
+
+	/**
+	 * Returns true if the current line is empty, contains only whitespace
+	 * or is a comment line
+	 */
+	private boolean isSkipLine() {
+		if (lineStart < lineEnd && buf[lineStart] == '#') {
+			return true;
+		}
+		for (int i = lineStart; i < lineEnd; i++) {
+			byte b = buf[i];
+			if (b != ' ' && b != '\t' && b != 0x0B && b != '\f') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if the byte is a token delimiter
+	 */
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+	}
+
+	/**
+	 * Returns true if the current line has more tokens
+	 */
+	private boolean hasNextToken() {
+		int i = tokEnd;
+		while (i < lineEnd && isWhitespace(buf[i])) {
+			i++;
+		}
+		return i < lineEnd;
+	}
+
+	/**
+	 * Moves to the next token of the line
+	 * @throws NoSuchElementException if the line has no more tokens
+	 */
+	private void nextToken() {
+		int i = tokEnd;
+		while (i < lineEnd && isWhitespace(buf[i])) {
+			i++;
+		}
+		if (i == lineEnd) {
+			throw new NoSuchElementException();
+		}
+		tokStart = i;
+		while (i < lineEnd && !isWhitespace(buf[i])) {
+			i++;
+		}
+		tokEnd = i;
+	}
+
+	/**
+	 * Returns the current token as a String
+	 */
+	private String getToken() {
+		return new String(buf, tokStart, tokEnd - tokStart);
+	}
+
+	/**
+	 * Returns the current line as a String
+	 */
+	private String getLine() {
+		return new String(buf, lineStart, lineEnd - lineStart);
+	}
+
+	/**
+	 * Returns the next token as a String
+	 */
+	private String nextString() {
+		nextToken();
+		return getToken();
+	}
+
+	/**
+	 * Returns true if the current token equals to the given (ASCII) string
+	 */
+	private boolean tokenEquals(String s) {
+		if (tokEnd - tokStart != s.length()) {
+			return false;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			if (buf[tokStart + i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if the current token equals to the given (ASCII) string
+	 * ignoring case
+	 */
+	private boolean tokenEqualsIgnoreCase(String s) {
+		if (tokEnd - tokStart != s.length()) {
+			return false;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			if (Character.toLowerCase((char)buf[tokStart + i]) !=
+					Character.toLowerCase(s.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parses the next token as a double value. Simple decimal values are
+	 * parsed directly from the bytes and others (that match
+	 * {@link #DOUBLE_PATTERN}) with {@link Double#parseDouble(String)}.
+	 * @throws InputMismatchException if the token is not a double value
+	 */
+	private double nextDouble() {
+		nextToken();
+		int i = tokStart;
+		boolean negative = false;
+		if (i < tokEnd && (buf[i] == '-' || buf[i] == '+')) {
+			negative = buf[i] == '-';
+			i++;
+		}
+		
+		long mantissa = 0;
+		int digits = 0;
+		int exp = 0;
+		boolean dot = false;
+		for (; i < tokEnd; i++) {
+			byte b = buf[i];
+			if (b >= '0' && b <= '9') {
+				mantissa = mantissa * 10 + (b - '0');
+				digits++;
+				if (dot) {
+					exp--;
+				}
+			}
+			else if (b == '.' && !dot) {
+				dot = true;
+			}
+			else {
+				break;
+			}
+		}
+		
+		if (i == tokEnd && digits > 0 && digits <= 15 && -exp < POW10.length) {
+			// mantissa and the power of ten are exact -> so is the result
+			double value = exp == 0 ? mantissa : mantissa / POW10[-exp];
+			return negative ? -value : value;
+		}
+		
+		// exponents, long values etc.; no type suffixes or hex values
+		String token = getToken();
+		if (!DOUBLE_PATTERN.matcher(token).matches()) {
+			throw new InputMismatchException(token);
+		}
+		return Double.parseDouble(token.replace(",", ""));
+	}
+
+	/**
+	 * Returns true if the next token of the line is an integer value
+	 */
+	private boolean hasNextInt() {
+		if (!hasNextToken()) {
+			return false;
+		}
+		int start = tokStart;
+		int end = tokEnd;
+		try {
+			nextInt();
+			return true;
+		} catch (InputMismatchException e) {
+			return false;
+		} finally {
+			tokStart = start;
+			tokEnd = end;
+		}
+	}
+
+	/**
+	 * Parses the next token as an integer value
+	 * @throws InputMismatchException if the token is not an integer value
+	 */
+	private int nextInt() {
+		nextToken();
+		int i = tokStart;
+		boolean negative = false;
+		if (i < tokEnd && (buf[i] == '-' || buf[i] == '+')) {
+			negative = buf[i] == '-';
+			i++;
+		}
+		if (i == tokEnd) {
+			throw new InputMismatchException(getToken());
+		}
+		
+		long value = 0;
+		for (; i < tokEnd; i++) {
+			byte b = buf[i];
+			if (b < '0' || b > '9') {
+				return nextGroupedInt();
+			}
+			value = value * 10 + (b - '0');
+			if (value > Integer.MAX_VALUE + 1L) {
+				throw new InputMismatchException(getToken());
+			}
+		}
+		
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE) {
+			throw new InputMismatchException(getToken());
+		}
+		return (int)value;
 	}
 
 	/**
-	 * Parses a host address from a hostId string (the numeric part after
+	 * Parses the current token as an integer value with grouping
+	 * separators (e.g. 1,000)
+	 * @throws InputMismatchException if the token is not such a value
+	 */
+	private int nextGroupedInt() {
+		String token = getToken();
+		if (!GROUPED_INT_PATTERN.matcher(token).matches()) {
+			throw new InputMismatchException(token);
+		}
+		try {
+			return Integer.parseInt(token.replace(",", ""));
+		} catch (NumberFormatException e) { // out of range
+			throw new InputMismatchException(token);
+		}
+	}
+
+	/**
+	 * Parses a host address from the next token (the numeric part after
 	 * optional non-numeric part).
-	 * @param hostId The id to parse the address from
 	 * @return The address
 	 * @throws SimError if no address could be parsed from the id
 	 */
-	private int getHostAddress(String hostId) {
-		String addressPart = "";
-		if (hostId.matches("^\\d+$")) {
-			addressPart = hostId; // host id is only the address
+	private int nextHostAddress() {
+		nextToken();
+		int digitsStart = tokEnd;
+		while (digitsStart > tokStart && buf[digitsStart - 1] >= '0' && 
+				buf[digitsStart - 1] <= '9') {
+			digitsStart--;
 		}
-		else if (hostId.matches("^\\D+\\d+$")) {
-			String [] parts = hostId.split("\\D");
-			addressPart = parts[parts.length-1]; // last occurence is the addr
+		for (int i = tokStart; i < digitsStart; i++) {
+			if (buf[i] >= '0' && buf[i] <= '9') {
+				digitsStart = tokEnd; // digits in the non-numeric part
+				break;
+			}
 		}
-		else {
-			throw new SimError("Invalid host ID '" + hostId + "'");
+		if (digitsStart == tokEnd) {
+			throw new SimError("Invalid host ID '" + getToken() + "'");
 		}
 		
-		return Integer.parseInt(addressPart);
+		long address = 0;
+		for (int i = digitsStart; i < tokEnd; i++) {
+			address = address * 10 + (buf[i] - '0');
+			if (address > Integer.MAX_VALUE) {
+				throw new NumberFormatException("For input string: \"" + 
+						new String(buf, digitsStart, tokEnd - digitsStart) +
+						"\"");
+			}
+		}
+		return (int)address;
 	}
 	
 	public void close() {
-		this.scanner.close();
+		try {
+			this.in.close();
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
 	}
 
 }
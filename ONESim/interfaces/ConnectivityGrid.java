@@ -4,6 +4,7 @@
  */
 package interfaces;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -38,6 +39,8 @@ import core.Settings;
  * from zero to conserve memory. 
  */
 public class ConnectivityGrid extends ConnectivityOptimizer {
+	private static final long serialVersionUID = 42L;
+
 	private GridCell[][] cells;
 	private HashMap<NetworkInterface,GridCell> ginterfaces;
 	private int cellSize;
@@ -232,7 +235,9 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	 * A single cell in the cell grid. Contains the interfaces that are 
 	 * currently in that part of the grid.
 	 */
-	public class GridCell {
+	public class GridCell implements Serializable {
+		private static final long serialVersionUID = 42L;
+
 		// how large array is initially chosen
 		private static final int EXPECTED_INTERFACE_COUNT = 5;
 		private ArrayList<NetworkInterface> interfaces;
@@ -19,6 +19,8 @@ import core.VBRConnection;
  * transmissions. The configured transmit speed is the maximum obtainable speed.
  */
 public class InterferenceLimitedInterface extends NetworkInterface {
+	private static final long serialVersionUID = 42L;
+
 	protected int currentTransmitSpeed;
 	protected int numberOfTransmissions;
 
@@ -4,11 +4,12 @@
  */
 package movement;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Random;
 
-import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.PathFinder;
 import movement.map.SimMap;
 import core.Coord;
 import core.Settings;
@@ -27,6 +28,7 @@ import core.Settings;
  */
 public class BusTravellerMovement extends MapBasedMovement implements 
 	SwitchableMovement, TransportMovement {
+	private static final long serialVersionUID = 42L;
 
 	public static final String PROBABILITIES_STRING = "probs";
 	public static final String PROBABILITY_TAKE_OTHER_BUS = "probTakeOtherBus";
@@ -45,7 +47,7 @@ public class BusTravellerMovement extends MapBasedMovement implements
 	private ContinueBusTripDecider cbtd;
 	private double[] probabilities;
 	private double probTakeOtherBus;
-	private DijkstraPathFinder pathFinder;
+	private PathFinder pathFinder;
 	
 	private Coord startBusStop;
 	private Coord endBusStop;
@@ -73,7 +75,7 @@ public class BusTravellerMovement extends MapBasedMovement implements
 			probTakeOtherBus = settings.getDouble(PROBABILITY_TAKE_OTHER_BUS);
 		}
 		cbtd = new ContinueBusTripDecider(rng, probabilities);
-		pathFinder = new DijkstraPathFinder(null);
+		pathFinder = createPathFinder(null);
 		takeBus = true;
 	}
 	
@@ -107,6 +109,10 @@ public class BusTravellerMovement extends MapBasedMovement implements
 		location = mapNodes[index].getLocation().clone();
 		
 		List<Coord> allStops = controlSystem.getBusStops();
+		if (allStops != null) {
+			/* the stops are known only after the buses have been created */
+			precomputePaths(pathFinder, getNodesAt(allStops));
+		}
 		Coord closestToNode = getClosestCoordinate(allStops, location.clone());
 		latestBusStop = closestToNode.clone();
 		
@@ -135,7 +141,7 @@ public class BusTravellerMovement extends MapBasedMovement implements
 			MapNode destinationNode = map.getNodeByCoord(latestBusStop);
 			List<MapNode> nodes = pathFinder.getShortestPath(thisNode, 
 					destinationNode);
-			Path path = new Path(generateSpeed());
+			Path path = obtainPath(generateSpeed());
 			for (MapNode node : nodes) {
 				path.addWaypoint(node.getLocation());
 			}
@@ -229,7 +235,8 @@ public class BusTravellerMovement extends MapBasedMovement implements
 	 * 
 	 * @author Frans Ekman
 	 */
-	class ContinueBusTripDecider {
+	class ContinueBusTripDecider implements Serializable {
+		private static final long serialVersionUID = 42L;
 		
 		private double[] probabilities; // Probability to travel with bus
 		private int state;
@@ -6,8 +6,8 @@ package movement;
 
 import java.util.List;
 
-import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.PathFinder;
 import core.Coord;
 import core.Settings;
 
@@ -18,11 +18,12 @@ import core.Settings;
  */
 public class CarMovement extends MapBasedMovement implements 
 	SwitchableMovement, TransportMovement {
+	private static final long serialVersionUID = 42L;
 
 	private Coord from;
 	private Coord to;
 	
-	private DijkstraPathFinder pathFinder;
+	private PathFinder pathFinder;
 	
 	/**
 	 * Car movement constructor
@@ -30,7 +31,7 @@ public class CarMovement extends MapBasedMovement implements
 	 */
 	public CarMovement(Settings settings) {
 		super(settings);
-		pathFinder = new DijkstraPathFinder(getOkMapNodeTypes());
+		pathFinder = createPathFinder(getOkMapNodeTypes());
 	}
 	
 	/**
@@ -54,7 +55,7 @@ public class CarMovement extends MapBasedMovement implements
 
 	@Override
 	public Path getPath() {
-		Path path = new Path(generateSpeed());
+		Path path = obtainPath(generateSpeed());
 		
 		MapNode fromNode = getMap().getNodeByCoord(from);
 		MapNode toNode = getMap().getNodeByCoord(to);
@@ -10,8 +10,8 @@ import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
 
-import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.PathFinder;
 import movement.map.SimMap;
 import core.Coord;
 import core.Settings;
@@ -26,6 +26,7 @@ import core.Settings;
  */
 public class EveningActivityMovement extends MapBasedMovement 
 	implements SwitchableMovement {
+	private static final long serialVersionUID = 42L;
 
 	private static final int WALKING_TO_MEETING_SPOT_MODE = 0;
 	private static final int EVENING_ACTIVITY_MODE = 1;
@@ -48,7 +49,7 @@ public class EveningActivityMovement extends MapBasedMovement
 	
 	private int mode;
 	private boolean ready;
-	private DijkstraPathFinder pathFinder;
+	private PathFinder pathFinder;
 	
 	private Coord lastWaypoint;
 	private Coord startAtLocation;
@@ -72,7 +73,7 @@ public class EveningActivityMovement extends MapBasedMovement
 	public EveningActivityMovement(Settings settings) {
 		super(settings);
 		super.backAllowed = false;
-		pathFinder = new DijkstraPathFinder(null);
+		pathFinder = createPathFinder(null);
 		mode = WALKING_TO_MEETING_SPOT_MODE;
 		
 		nrOfMeetingSpots = settings.getInt(NR_OF_MEETING_SPOTS_SETTING);
@@ -128,6 +129,7 @@ public class EveningActivityMovement extends MapBasedMovement
 		scs.setRandomNumberGenerator(rng);
 		scs.addEveningActivityNode(this);
 		scs.setMeetingSpots(meetingSpotLocations);
+		precomputePaths(pathFinder, getNodesAt(meetingSpotLocations));
 		
 		maxPathLength = 100;
 		minPathLength = 10;
@@ -181,7 +183,7 @@ public class EveningActivityMovement extends MapBasedMovement
 			
 			List<MapNode> nodes = pathFinder.getShortestPath(thisNode, 
 					destinationNode);
-			Path path = new Path(generateSpeed());
+			Path path = obtainPath(generateSpeed());
 			for (MapNode node : nodes) {
 				path.addWaypoint(node.getLocation());
 			}
@@ -4,6 +4,8 @@
  */
 package movement;
 
+import java.io.Serializable;
+
 import core.Coord;
 
 /**
@@ -15,7 +17,9 @@ import core.Coord;
  * 
  * @author Frans Ekman
  */
-public class EveningTrip {
+public class EveningTrip implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	private EveningActivityMovement[] eveningActivityNodes;
 	private int eveningActivityNodesInBuffer;
 	private Path path;
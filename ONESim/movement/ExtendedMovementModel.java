@@ -14,6 +14,7 @@ import core.Settings;
  * @author Frans Ekman
  */
 public abstract class ExtendedMovementModel extends MovementModel {
+	private static final long serialVersionUID = 42L;
 
 	private SwitchableMovement currentMovementModel;
 	private boolean getPathCalledOnce;
@@ -75,6 +76,16 @@ public abstract class ExtendedMovementModel extends MovementModel {
 		return ((MovementModel)currentMovementModel).getPath();
 	}
 	
+	/**
+	 * Passes the traveled path to the current movement model so that the
+	 * submodels, which create the paths, can reuse it.
+	 * @param path The traveled path
+	 */
+	@Override
+	public void recyclePath(Path path) {
+		((MovementModel)currentMovementModel).recyclePath(path);
+	}
+	
 	@Override
 	protected double generateWaitTime() {
 		return ((MovementModel)currentMovementModel).generateWaitTime();
@@ -4,14 +4,18 @@
  */
 package movement;
 
+import input.BinaryMovementReader;
 import input.ExternalMovementReader;
+import input.MovementTraceReader;
 
+import java.io.File;
+import java.util.ArrayDeque;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 
+import core.Checkpoint;
 import core.Coord;
 import core.DTNSim;
 import core.Settings;
@@ -19,19 +23,33 @@ import core.SimClock;
 import core.Tuple;
 
 /**
- * Movement model that uses external data of node locations.
+ * Movement model that uses external data of node locations. The data is read
+ * either from a text file (see {@link ExternalMovementReader}) or, if the
+ * file is a binary trace file, using {@link BinaryMovementReader}.
  */
 public class ExternalMovement extends MovementModel {
+	private static final long serialVersionUID = 42L;
+
 	/** Namespace for settings */
 	public static final String EXTERNAL_MOVEMENT_NS = "ExternalMovement";
 	/** external locations file's path -setting id ({@value})*/
 	public static final String MOVEMENT_FILE_S = "file";
 	/** number of preloaded intervals per preload run -setting id ({@value})*/
 	public static final String NROF_PRELOAD_S = "nrofPreload";
+	/**
+	 * trace time (seconds from the beginning of the trace) where the
+	 * simulation starts -setting id ({@value}). Locations before this time
+	 * are skipped and the rest of the trace is shifted so that this time is
+	 * simulation time 0. Default is 0.
+	 */
+	public static final String START_TIME_S = "startTime";
 	
 	/** default initial location for excess nodes */
 	private static final Coord DEF_INIT_LOC = new Coord(0,0);
-	private static ExternalMovementReader reader;
+	/** the reader isn't checkpointed; it is reopened when needed after a
+	 * restore (see {@link #getReader()}) */
+	@Checkpoint.Excluded
+	private static MovementTraceReader reader;
 	private static String inputFileName;
 	
 	/** mapping of external id to movement model */
@@ -40,6 +58,8 @@ public class ExternalMovement extends MovementModel {
 	private static List<Tuple<String, Coord>> initLocations;
 	/** time of the very first location data */
 	private static double initTime;
+	/** trace time that corresponds to simulation time 0 */
+	private static double traceStartTime;
 	/** sampling interval (seconds) of the location data */
 	private static double samplingInterval;
 	/** last read time stamp after preloading */
@@ -81,10 +101,18 @@ public class ExternalMovement extends MovementModel {
 			Settings s = new Settings(EXTERNAL_MOVEMENT_NS);
 			idMapping = new HashMap<String, ExternalMovement>();
 			inputFileName = s.getSetting(MOVEMENT_FILE_S);
-			reader = new ExternalMovementReader(inputFileName);
-			
+			reader = openReader(inputFileName);
+
+			if (s.contains(START_TIME_S)) {
+				traceStartTime = s.getDouble(START_TIME_S);
+				reader.skipTo(traceStartTime);
+			}
+			else {
+				traceStartTime = 0;
+			}
+
 			initLocations = reader.readNextMovements();
-			initTime = reader.getLastTimeStamp();
+			initTime = reader.getLastTimeStamp() - traceStartTime;
 			samplingInterval = -1;
 			lastPreloadTime = -1;
 			
@@ -106,7 +134,7 @@ public class ExternalMovement extends MovementModel {
 	private ExternalMovement(MovementModel mm) {
 		super(mm);
 		
-		pathQueue = new LinkedList<Tuple<Double, Path>>();
+		pathQueue = new ArrayDeque<Tuple<Double, Path>>();
 		latestPath = null;
 		
 		if (initLocations.size() > 0) { // we have location data left
@@ -126,6 +154,39 @@ public class ExternalMovement extends MovementModel {
 		}		
 	}
 	
+	/**
+	 * Opens a trace file with a reader that suits the file's format
+	 * @param fileName Path of the trace file
+	 * @return The reader
+	 */
+	private static MovementTraceReader openReader(String fileName) {
+		if (BinaryMovementReader.isBinaryTraceFile(new File(fileName))) {
+			return new BinaryMovementReader(fileName);
+		}
+		else {
+			return new ExternalMovementReader(fileName);
+		}
+	}
+
+	/**
+	 * Returns the reader of the trace. If the simulation was restored from
+	 * a checkpoint, the trace is reopened and the time instances that had
+	 * already been read are skipped.
+	 * @return The reader
+	 */
+	private static MovementTraceReader getReader() {
+		if (reader == null) {
+			reader = openReader(inputFileName);
+			double lastRead = samplingInterval == -1 ? initTime :
+				lastPreloadTime;
+			if (!Double.isNaN(lastRead)) {
+				reader.skipTo(lastRead + traceStartTime);
+				reader.readNextMovements(); // the instance that was read last
+			}
+		}
+		return reader;
+	}
+
 	/**
 	 * Checks if more paths should be preloaded and preloads them if
 	 * needed.
@@ -135,10 +196,10 @@ public class ExternalMovement extends MovementModel {
 			lastPreloadTime = readMorePaths();
 		}
 		
-		if (lastPreloadTime != Double.NaN && SimClock.getTime() >= 
+		if (!Double.isNaN(lastPreloadTime) && SimClock.getTime() >= 
 				lastPreloadTime - (samplingInterval * MIN_AHEAD_INTERVALS) ) {
 			for (int i=0; i < nrofPreload && 
-					lastPreloadTime != Double.NaN; i++) {
+					!Double.isNaN(lastPreloadTime); i++) {
 				lastPreloadTime = readMorePaths();
 			}
 		}
@@ -223,12 +284,14 @@ public class ExternalMovement extends MovementModel {
 	
 	@Override
 	public int getMaxX() {
-		return (int)(reader.getMaxX() - reader.getMinX()) + 1;
+		MovementTraceReader r = getReader();
+		return (int)(r.getMaxX() - r.getMinX()) + 1;
 	}
 
 	@Override
 	public int getMaxY() {
-		return (int)(reader.getMaxY() - reader.getMinY()) + 1;
+		MovementTraceReader r = getReader();
+		return (int)(r.getMaxY() - r.getMinY()) + 1;
 	}
 
 	
@@ -243,8 +306,9 @@ public class ExternalMovement extends MovementModel {
 	 * were read.
 	 */
 	private static double readMorePaths() {
-		List<Tuple<String, Coord>> list = reader.readNextMovements();
-		double time = reader.getLastTimeStamp();
+		MovementTraceReader r = getReader();
+		List<Tuple<String, Coord>> list = r.readNextMovements();
+		double time = r.getLastTimeStamp() - traceStartTime;
 		
 		if (samplingInterval == -1) {
 			samplingInterval = time - initTime;
@@ -270,6 +334,10 @@ public class ExternalMovement extends MovementModel {
 	 * Reset state so that next instance will have a fresh state
 	 */
 	public static void reset() {
+		if (reader != null) {
+			reader.close();
+			reader = null;
+		}
 		idMapping = null;
 	}
 
@@ -10,8 +10,8 @@ import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
 
-import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.PathFinder;
 import movement.map.SimMap;
 import core.Coord;
 import core.Settings;
@@ -26,6 +26,7 @@ import core.SimClock;
  */
 public class HomeActivityMovement extends MapBasedMovement 
 	implements SwitchableMovement {
+	private static final long serialVersionUID = 42L;
 
 	private static final int WALKING_HOME_MODE = 0;
 	private static final int AT_HOME_MODE = 1;
@@ -38,7 +39,7 @@ public class HomeActivityMovement extends MapBasedMovement
 	public static final String STD_FOR_TIME_DIFF_SETTING = "timeDiffSTD";
 	
 	private int mode;
-	private DijkstraPathFinder pathFinder;
+	private PathFinder pathFinder;
 	
 	private int distance;
 	
@@ -57,7 +58,7 @@ public class HomeActivityMovement extends MapBasedMovement
 	public HomeActivityMovement(Settings settings) {
 		super(settings);
 		distance = 100;
-		pathFinder = new DijkstraPathFinder(null);
+		pathFinder = createPathFinder(null);
 		mode = WALKING_HOME_MODE;	
 		
 		String homeLocationsFile = null;
@@ -93,6 +94,7 @@ public class HomeActivityMovement extends MapBasedMovement
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
+			precomputePaths(pathFinder, getNodesAt(allHomes));
 		}
 		
 		if (timeDiffSTD == -1) {
@@ -169,7 +171,7 @@ public class HomeActivityMovement extends MapBasedMovement
 			MapNode destinationNode = map.getNodeByCoord(homeLocation);
 			List<MapNode> nodes = pathFinder.getShortestPath(thisNode, 
 					destinationNode);
-			Path path = new Path(generateSpeed());
+			Path path = obtainPath(generateSpeed());
 			for (MapNode node : nodes) {
 				path.addWaypoint(node.getLocation());
 			}
@@ -194,8 +196,8 @@ public class HomeActivityMovement extends MapBasedMovement
 			path.addWaypoint(c);
 			return path;
 		} else {
-			Path path =  new Path(1);
-			path.addWaypoint(lastWaypoint.clone());
+			Path path = obtainPath(1);
+			path.addWaypoint(lastWaypoint);
 			mode = READY_MODE;
 			return path;
 		}
@@ -9,6 +9,7 @@ import input.WKTMapReader;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -17,7 +18,12 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.Vector;
 
+import movement.map.AStarPathFinder;
+import movement.map.ContractionHierarchyPathFinder;
+import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.PathFinder;
+import movement.map.ShortestPathCache;
 import movement.map.SimMap;
 import core.Coord;
 import core.Settings;
@@ -29,6 +35,8 @@ import core.SimError;
  * roads of a SimMap. 
  */
 public class MapBasedMovement extends MovementModel implements SwitchableMovement {
+	private static final long serialVersionUID = 42L;
+
 	/** sim map for the model */
 	private SimMap map = null;
 	/** node where the last path ended or node next to initial placement */
@@ -55,11 +63,59 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 	 */
 	public static final String MAP_SELECT_S = "okMaps";
 	
+	/**
+	 * Per node group setting for selecting the shortest path algorithm
+	 * ({@value}) of the map based movement models that use shortest paths.
+	 * Valid values are<BR>
+	 * <UL>
+	 * <LI/> 1 : Dijkstra's algorithm (default option)
+	 * <LI/> 2 : A* with euclidean distance heuristic
+	 * <LI/> 3 : contraction hierarchies (see {@link #CH_CACHE_DIR_S})
+	 * </UL>
+	 */
+	public static final String PATH_FINDER_S = "pathFinder";
+	/** Setting value for Dijkstra path finder */
+	public static final int PF_DIJKSTRA = 1;
+	/** Setting value for A* path finder */
+	public static final int PF_ASTAR = 2;
+	/** Setting value for contraction hierarchy path finder */
+	public static final int PF_CH = 3;
+	/**
+	 * Contraction hierarchy cache directory -setting id ({@value}). If
+	 * defined, preprocessed contraction hierarchies are stored to and loaded
+	 * from this directory instead of preprocessing the map on every run.
+	 */
+	public static final String CH_CACHE_DIR_S = "chCacheDir";
+	
+	/**
+	 * Shortest path cache size -setting id ({@value}). Defines how many
+	 * shortest path trees (one per source map node) are cached and shared
+	 * by all nodes using the same map. Only used with the Dijkstra path
+	 * finder. Default is 0 (no caching).
+	 */
+	public static final String PATH_CACHE_SIZE_S = "pathCacheSize";
+	/**
+	 * Shortest path precomputation limit -setting id ({@value}). If path
+	 * caching is enabled and a movement model's set of destinations (e.g.,
+	 * Points Of Interest) has at most this many nodes, the shortest path
+	 * trees of all those nodes are computed in the beginning and are never
+	 * evicted from the cache. Default is 0 (no precomputation).
+	 */
+	public static final String PATH_PRECOMPUTE_S = "pathCachePrecompute";
+	
 	/** the indexes of the OK map files or null if all maps are OK */
 	private int [] okMapNodeTypes;
 	
 	/** how many map files are read */
 	private int nrofMapFilesRead = 0;
+	/** how many shortest path trees are cached (0 = no caching) */
+	private int pathCacheSize;
+	/** max size of a destination set whose paths are precomputed */
+	private int pathPrecomputeLimit;
+	/** shortest path algorithm (see {@link #PATH_FINDER_S}) */
+	private int pathFinderType;
+	/** contraction hierarchy cache directory or null for no caching */
+	private String chCacheDir;
 	/** map cache -- in case last mm read the same map, use it without loading*/
 	private static SimMap cachedMap = null;
 	/** names of the previously cached map's files (for hit comparison) */
@@ -73,6 +129,7 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 		super(settings);
 		map = readMap();
 		readOkMapNodeTypes(settings);
+		readPathFinderSettings(settings);
 		maxPathLength = 100;
 		minPathLength = 10;
 		backAllowed = false;
@@ -90,6 +147,7 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 		map = newMap;
 		this.nrofMapFilesRead = nrofMaps;
 		readOkMapNodeTypes(settings);
+		readPathFinderSettings(settings);
 		maxPathLength = 100;
 		minPathLength = 10;
 		backAllowed = false;
@@ -122,6 +180,35 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 		}		
 	}
 	
+	/**
+	 * Reads the shortest path algorithm settings
+	 * @param settings The settings where the group specific settings are read
+	 */
+	private void readPathFinderSettings(Settings settings) {
+		Settings s = new Settings(MAP_BASE_MOVEMENT_NS);
+		this.pathCacheSize = 0;
+		this.pathPrecomputeLimit = 0;
+		this.pathFinderType = PF_DIJKSTRA;
+		this.chCacheDir = null;
+		
+		if (settings.contains(PATH_FINDER_S)) {
+			this.pathFinderType = settings.getInt(PATH_FINDER_S);
+			if (pathFinderType < PF_DIJKSTRA || pathFinderType > PF_CH) {
+				throw new SettingsError("Invalid value for " + 
+						settings.getFullPropertyName(PATH_FINDER_S));
+			}
+		}
+		if (s.contains(CH_CACHE_DIR_S)) {
+			this.chCacheDir = s.getSetting(CH_CACHE_DIR_S);
+		}
+		if (s.contains(PATH_CACHE_SIZE_S)) {
+			this.pathCacheSize = s.getInt(PATH_CACHE_SIZE_S);
+		}
+		if (s.contains(PATH_PRECOMPUTE_S)) {
+			this.pathPrecomputeLimit = s.getInt(PATH_PRECOMPUTE_S);
+		}
+	}
+	
 	/**
 	 * Copyconstructor.
 	 * @param mbm The MapBasedMovement object to base the new object to 
@@ -133,6 +220,10 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 		this.minPathLength = mbm.minPathLength;
 		this.maxPathLength = mbm.maxPathLength;
 		this.backAllowed = mbm.backAllowed;
+		this.pathCacheSize = mbm.pathCacheSize;
+		this.pathPrecomputeLimit = mbm.pathPrecomputeLimit;
+		this.pathFinderType = mbm.pathFinderType;
+		this.chCacheDir = mbm.chCacheDir;
 	}
 	
 	/**
@@ -177,9 +268,67 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 		return okMapNodeTypes;
 	}
 	
+	/**
+	 * Creates a shortest path finder for this model's map using the 
+	 * algorithm selected with {@link #PATH_FINDER_S}. If path caching
+	 * is enabled (see {@link #PATH_CACHE_SIZE_S}) for Dijkstra, or 
+	 * contraction hierarchies are used, the finder is shared with all other
+	 * models that use the same map and map node types.
+	 * @param okMapNodes The map node types that are OK for paths or null if
+	 * all nodes are OK
+	 * @return A path finder
+	 */
+	protected PathFinder createPathFinder(int[] okMapNodes) {
+		switch (pathFinderType) {
+		case PF_ASTAR:
+			return new AStarPathFinder(map, okMapNodes);
+		case PF_CH:
+			return ContractionHierarchyPathFinder.getInstance(map, okMapNodes,
+					chCacheDir);
+		default:
+			if (pathCacheSize > 0) {
+				return ShortestPathCache.getCache(map, okMapNodes, 
+						pathCacheSize);
+			}
+			return new DijkstraPathFinder(map, okMapNodes);
+		}
+	}
+	
+	/**
+	 * Precomputes the shortest paths from the given destination nodes if 
+	 * the path finder is a cache and there are at most 
+	 * {@link #PATH_PRECOMPUTE_S} nodes.
+	 * @param finder The path finder
+	 * @param destinations The set of possible destinations of the model
+	 */
+	protected void precomputePaths(PathFinder finder, 
+			Collection<MapNode> destinations) {
+		if (finder instanceof ShortestPathCache && destinations.size() > 0 &&
+				destinations.size() <= pathPrecomputeLimit) {
+			((ShortestPathCache)finder).precompute(destinations);
+		}
+	}
+
+	/**
+	 * Returns the map nodes at the given locations. Locations that are not
+	 * at a map node are skipped.
+	 * @param locations The locations
+	 * @return The map nodes at the locations
+	 */
+	protected List<MapNode> getNodesAt(Collection<Coord> locations) {
+		List<MapNode> nodes = new ArrayList<MapNode>();
+		for (Coord c : locations) {
+			MapNode n = map.getNodeByCoord(c);
+			if (n != null) {
+				nodes.add(n);
+			}
+		}
+		return nodes;
+	}
+	
 	@Override
 	public Path getPath() {
-		Path p = new Path(generateSpeed());
+		Path p = obtainPath(generateSpeed());
 		MapNode curNode = lastMapNode;
 		MapNode prevNode = lastMapNode;
 		MapNode nextNode = null;	
@@ -7,8 +7,8 @@ package movement;
 import java.util.List;
 
 import core.SettingsError;
-import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.PathFinder;
 import movement.map.MapRoute;
 import core.Coord;
 import core.Settings;
@@ -16,11 +16,12 @@ import core.Settings;
 /**
  * Map based movement model that uses predetermined paths within the map area.
  * Nodes using this model (can) stop on every route waypoint and find their
- * way to next waypoint using {@link DijkstraPathFinder}. There can be
+ * way to next waypoint using a {@link PathFinder}. There can be
  * different type of routes; see {@link #ROUTE_TYPE_S}.
  */
 public class MapRouteMovement extends MapBasedMovement implements 
 	SwitchableMovement {
+	private static final long serialVersionUID = 42L;
 	
 	/** Per node group setting used for selecting a route file ({@value}) */
 	public static final String ROUTE_FILE_S = "routeFile";
@@ -37,8 +38,8 @@ public class MapRouteMovement extends MapBasedMovement implements
 	 */
 	public static final String ROUTE_FIRST_STOP_S = "routeFirstStop";
 	
-	/** the Dijkstra shortest path finder */
-	private DijkstraPathFinder pathFinder;
+	/** the shortest path finder */
+	private PathFinder pathFinder;
 
 	/** Prototype's reference to all routes read for the group */
 	private List<MapRoute> allRoutes = null;
@@ -62,7 +63,7 @@ public class MapRouteMovement extends MapBasedMovement implements
 		int type = settings.getInt(ROUTE_TYPE_S);
 		allRoutes = MapRoute.readRoutes(fileName, type, getMap());
 		nextRouteIndex = 0;
-		pathFinder = new DijkstraPathFinder(getOkMapNodeTypes());
+		pathFinder = createPathFinder(getOkMapNodeTypes());
 		this.route = this.allRoutes.get(this.nextRouteIndex).replicate();
 		if (this.nextRouteIndex >= this.allRoutes.size()) {
 			this.nextRouteIndex = 0;
@@ -106,7 +107,7 @@ public class MapRouteMovement extends MapBasedMovement implements
 
 	@Override
 	public Path getPath() {
-		Path p = new Path(generateSpeed());
+		Path p = obtainPath(generateSpeed());
 		MapNode to = route.nextStop();
 		
 		List<MapNode> nodePath = pathFinder.getShortestPath(lastMapNode, to);
@@ -4,6 +4,7 @@
  */
 package movement;
 
+import java.io.Serializable;
 import java.util.Random;
 
 import core.Coord;
@@ -23,7 +24,9 @@ import core.SimError;
  * {@link #getInitialLocation()} and {@link #getPath()} are worthwhile to 
  * override.</P>
  */
-public abstract class MovementModel {
+public abstract class MovementModel implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** node's speed CSV (min, max) -setting id ({@value})*/
 	public static final String SPEED = "speed";
 	/** node's wait time CSV (min, max) -setting id ({@value})*/
@@ -41,6 +44,8 @@ public abstract class MovementModel {
 	public static final String WORLD_SIZE = "worldSize";
 	/** movement models' rng seed -setting id ({@value})*/
 	public static final String RNG_SEED = "rngSeed";
+	/** max number of traveled paths kept for reuse per model instance */
+	private static final int MAX_POOLED_PATHS = 2;
 	
 	/** common rng for all movement models in the simulation */
 	protected static Random rng; 
@@ -56,6 +61,11 @@ public abstract class MovementModel {
 	private int maxY;
 	
 	protected ModuleCommunicationBus comBus;
+	
+	/** traveled paths that can be reused by this model (created lazily) */
+	private Path[] pathPool;
+	/** number of paths in the pool */
+	private int nrofPooledPaths;
 
 	// static initialization of all movement models' random number generator
 	static {
@@ -143,6 +153,8 @@ public abstract class MovementModel {
 		this.maxY = mm.maxY;
 		this.ah = mm.ah;
 		this.comBus = null;
+		this.pathPool = null;
+		this.nrofPooledPaths = 0;
 	}
 		
 	/**
@@ -197,6 +209,48 @@ public abstract class MovementModel {
 	 */
 	public abstract Path getPath();
 	
+	/**
+	 * Returns an empty constant speed path for {@link #getPath()}. The path
+	 * is taken from this model's pool of traveled paths if one is available.
+	 * Paths returned by this method are given back to the pool by
+	 * {@link #recyclePath(Path)} once they've been traveled, so movement
+	 * models must not keep references to them after returning them from
+	 * getPath.
+	 * @param speed The speed on the path
+	 * @return An empty path
+	 */
+	protected Path obtainPath(double speed) {
+		Path p;
+		if (nrofPooledPaths > 0) {
+			p = pathPool[--nrofPooledPaths];
+			pathPool[nrofPooledPaths] = null;
+			p.reset(speed);
+		}
+		else {
+			p = new Path(speed);
+			p.setRecyclable(true);
+		}
+		return p;
+	}
+	
+	/**
+	 * Called by the host when it has traveled a path returned by
+	 * {@link #getPath()}. Paths created with {@link #obtainPath(double)} are
+	 * stored for reuse; other paths are ignored.
+	 * @param path The traveled path
+	 */
+	public void recyclePath(Path path) {
+		if (!path.isRecyclable()) {
+			return;
+		}
+		if (pathPool == null) {
+			pathPool = new Path[MAX_POOLED_PATHS];
+		}
+		if (nrofPooledPaths < pathPool.length) {
+			pathPool[nrofPooledPaths++] = path;
+		}
+	}
+	
 	/**
 	 * Returns a new initial placement for a node
 	 * @return The initial coordinates for a node
@@ -7,11 +7,12 @@ package movement;
 import input.WKTReader;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
-import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.PathFinder;
 import movement.map.SimMap;
 import core.Coord;
 import core.ParetoRNG;
@@ -29,6 +30,7 @@ import core.SimClock;
  */
 public class OfficeActivityMovement extends MapBasedMovement implements 
 	SwitchableMovement {
+	private static final long serialVersionUID = 42L;
 
 	private static final int WALKING_TO_OFFICE_MODE = 0;
 	private static final int AT_OFFICE_MODE = 1;
@@ -52,7 +54,7 @@ public class OfficeActivityMovement extends MapBasedMovement implements
 	private int workDayLength;
 	private int startedWorkingTime;
 	private boolean ready;;
-	private DijkstraPathFinder pathFinder;
+	private PathFinder pathFinder;
 	
 	private ParetoRNG paretoRNG;
 	
@@ -86,7 +88,7 @@ public class OfficeActivityMovement extends MapBasedMovement implements
 		officeMaxWaitTime = settings.getDouble(OFFICE_MAX_WAIT_TIME_SETTING);
 		
 		startedWorkingTime = -1;
-		pathFinder = new DijkstraPathFinder(null);
+		pathFinder = createPathFinder(null);
 		mode = WALKING_TO_OFFICE_MODE;
 		
 		String officeLocationsFile = null;
@@ -129,6 +131,26 @@ public class OfficeActivityMovement extends MapBasedMovement implements
 		deskLocation = getRandomCoorinateInsideOffice();
 		paretoRNG = new ParetoRNG(rng, officeWaitTimeParetoCoeff, 
 				officeMinWaitTime, officeMaxWaitTime);
+		precomputePaths(pathFinder, getOfficeNodes());
+	}
+	
+	/**
+	 * Returns the map nodes the offices can be at: the nodes of the office
+	 * locations file or, without the file, the nodes the office index is
+	 * drawn from
+	 * @return The possible office nodes
+	 */
+	private List<MapNode> getOfficeNodes() {
+		if (allOffices != null) {
+			return getNodesAt(allOffices);
+		}
+		List<MapNode> mapNodes = getMap().getNodes();
+		List<MapNode> offices = new ArrayList<MapNode>();
+		int step = mapNodes.size() / nrOfOffices;
+		for (int i = 0; i <= (mapNodes.size() - 2) / step; i++) {
+			offices.add(mapNodes.get(i));
+		}
+		return offices;
 	}
 	
 	/**
@@ -204,7 +226,7 @@ public class OfficeActivityMovement extends MapBasedMovement implements
 			MapNode destinationNode = map.getNodeByCoord(officeLocation);
 			List<MapNode> nodes = pathFinder.getShortestPath(thisNode, 
 					destinationNode);
-			Path path = new Path(generateSpeed());
+			Path path = obtainPath(generateSpeed());
 			for (MapNode node : nodes) {
 				path.addWaypoint(node.getLocation());
 			}
@@ -217,8 +239,8 @@ public class OfficeActivityMovement extends MapBasedMovement implements
 			startedWorkingTime = SimClock.getIntTime();
 		}
 		if (SimClock.getIntTime() - startedWorkingTime >= workDayLength) {
-			Path path =  new Path(1);
-			path.addWaypoint(lastWaypoint.clone());
+			Path path = obtainPath(1);
+			path.addWaypoint(lastWaypoint);
 			ready = true;
 			return path;
 		}
@@ -231,7 +253,7 @@ public class OfficeActivityMovement extends MapBasedMovement implements
 			sittingAtDesk = true;
 		}
 		
-		Path path =  new Path(1);
+		Path path = obtainPath(1);
 		path.addWaypoint(c);
 		return path;
 	}
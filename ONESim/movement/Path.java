@@ -4,39 +4,67 @@
  */
 package movement;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import core.Coord;
 
 /**
- * A Path between multiple Coordinates.
+ * A Path between multiple Coordinates. The waypoints and speeds are stored
+ * in primitive arrays and read with a cursor, so a path can be traveled
+ * without creating new objects (see {@link #getNextWaypoint(Coord)}) and
+ * reused after it has been traveled (see
+ * {@link MovementModel#obtainPath(double)}).
  */
-public class Path  {
-	/** coordinates of the path */
-	private List<Coord> coords;
+public class Path implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** initial capacity of the waypoint arrays */
+	private static final int INIT_CAPACITY = 4;
+
+	/** x coordinates of the path */
+	private double[] xs;
+	/** y coordinates of the path */
+	private double[] ys;
+	/** number of waypoints in the path */
+	private int size;
 	/** speeds in the path legs */
-	private List<Double> speeds;
+	private double[] speeds;
+	/** number of speeds in the path */
+	private int nrofSpeeds;
 	private int nextWpIndex;
+	/** can the path be reused by a movement model after it's traveled */
+	private boolean recyclable;
 	
 	/**
 	 * Creates a path with zero speed.
 	 */
 	public Path() {
 		this.nextWpIndex = 0;
-		this.coords = new ArrayList<Coord>();
-		this.speeds = new ArrayList<Double>(1);
+		this.xs = new double[INIT_CAPACITY];
+		this.ys = new double[INIT_CAPACITY];
+		this.size = 0;
+		this.speeds = new double[1];
+		this.nrofSpeeds = 0;
+		this.recyclable = false;
 	}
 
 	/**
-	 * Copy constructor. Creates a copy of this path with a shallow copy of
+	 * Copy constructor. Creates a copy of this path with a copy of
 	 * the coordinates and speeds.
 	 * @param path The path to create the copy from
 	 */
 	public Path(Path path) {
 		this.nextWpIndex = path.nextWpIndex;
-		this.coords = new ArrayList<Coord>((ArrayList<Coord>)path.coords);
-		this.speeds = new ArrayList<Double>((ArrayList<Double>)path.speeds);
+		this.xs = Arrays.copyOf(path.xs, Math.max(path.size, 1));
+		this.ys = Arrays.copyOf(path.ys, Math.max(path.size, 1));
+		this.size = path.size;
+		this.speeds = Arrays.copyOf(path.speeds,
+				Math.max(path.nrofSpeeds, 1));
+		this.nrofSpeeds = path.nrofSpeeds;
+		this.recyclable = false;
 	}
 	
 	/**
@@ -53,16 +81,55 @@ public class Path  {
 	 * is discarded.
 	 */
 	public void setSpeed(double speed) {
-		this.speeds = new ArrayList<Double>(1);
-		speeds.add(speed);
+		this.speeds[0] = speed;
+		this.nrofSpeeds = 1;
 	}
 	
 	/**
-	 * Returns a reference to the coordinates of this path 
+	 * Clears all waypoints and speeds of the path and sets a new constant
+	 * speed so that the path can be reused.
+	 * @param speed The speed on the path
+	 */
+	void reset(double speed) {
+		this.size = 0;
+		this.nextWpIndex = 0;
+		setSpeed(speed);
+	}
+
+	/**
+	 * Returns true if this path can be reused after it has been traveled
+	 * @return true if the path can be recycled
+	 */
+	boolean isRecyclable() {
+		return this.recyclable;
+	}
+
+	/**
+	 * Sets whether this path can be reused after it has been traveled
+	 * @param recyclable True if the path can be recycled
+	 */
+	void setRecyclable(boolean recyclable) {
+		this.recyclable = recyclable;
+	}
+
+	/**
+	 * Returns the coordinates of this path in a new list
 	 * @return coordinates of the path
 	 */
 	public List<Coord> getCoords() {
-		return this.coords;
+		List<Coord> coords = new ArrayList<Coord>(size);
+		for (int i = 0; i < size; i++) {
+			coords.add(new Coord(xs[i], ys[i]));
+		}
+		return coords;
+	}
+
+	/**
+	 * Returns the number of waypoints in this path
+	 * @return the number of waypoints
+	 */
+	public int getNrofWaypoints() {
+		return this.size;
 	}
 	
 	/**
@@ -70,9 +137,18 @@ public class Path  {
 	 * @param wp The waypoint to add
 	 */
 	public void addWaypoint(Coord wp) {
-		assert this.speeds.size() <= 1 : "This method should be used only for" +
+		addWaypoint(wp.getX(), wp.getY());
+	}
+
+	/**
+	 * Adds a new waypoint to the end of the path.
+	 * @param x The x coordinate of the waypoint
+	 * @param y The y coordinate of the waypoint
+	 */
+	public void addWaypoint(double x, double y) {
+		assert this.nrofSpeeds <= 1 : "This method should be used only for" +
 			" paths with constant speed";
-		this.coords.add(wp);
+		add(x, y);
 	}
 	
 	/**
@@ -81,17 +157,47 @@ public class Path  {
 	 * @param speed The speed towards that waypoint
 	 */
 	public void addWaypoint(Coord wp, double speed) {
-		this.coords.add(wp);
-		this.speeds.add(speed);
+		add(wp.getX(), wp.getY());
+		if (nrofSpeeds == speeds.length) {
+			speeds = Arrays.copyOf(speeds, speeds.length * 2);
+		}
+		speeds[nrofSpeeds++] = speed;
+	}
+
+	/**
+	 * Appends coordinates to the waypoint arrays
+	 */
+	private void add(double x, double y) {
+		if (size == xs.length) {
+			xs = Arrays.copyOf(xs, size * 2);
+			ys = Arrays.copyOf(ys, size * 2);
+		}
+		xs[size] = x;
+		ys[size] = y;
+		size++;
 	}
 	
 	/**
 	 * Returns the next waypoint on this path
-	 * @return the next waypoint
+	 * @return the next waypoint (in a new Coord object)
 	 */
 	public Coord getNextWaypoint() {
 		assert hasNext() : "Path didn't have " + (nextWpIndex+1) + ". waypoint";
-		return coords.get(nextWpIndex++);
+		Coord c = new Coord(xs[nextWpIndex], ys[nextWpIndex]);
+		nextWpIndex++;
+		return c;
+	}
+
+	/**
+	 * Moves to the next waypoint on this path and sets its location to the
+	 * given coordinate. Use this instead of {@link #getNextWaypoint()} to
+	 * avoid creating a new object for every waypoint.
+	 * @param wp The coordinate where the next waypoint is stored
+	 */
+	public void getNextWaypoint(Coord wp) {
+		assert hasNext() : "Path didn't have " + (nextWpIndex+1) + ". waypoint";
+		wp.setLocation(xs[nextWpIndex], ys[nextWpIndex]);
+		nextWpIndex++;
 	}
 	
 	/**
@@ -99,7 +205,7 @@ public class Path  {
 	 * @return true if the path has more waypoints, false if not
 	 */
 	public boolean hasNext() {
-		return nextWpIndex < this.coords.size();
+		return nextWpIndex < this.size;
 	}
 	
 	/**
@@ -108,14 +214,14 @@ public class Path  {
 	 * @return the speed towards the next waypoint
 	 */
 	public double getSpeed() {
-		assert speeds.size() != 0 : "No speed set"; 
+		assert nrofSpeeds != 0 : "No speed set";
 		assert nextWpIndex != 0 : "No waypoint asked";
 		
-		if (speeds.size() == 1) {
-			return speeds.get(0);
+		if (nrofSpeeds == 1) {
+			return speeds[0];
 		}
 		else {
-			return speeds.get(nextWpIndex-1);
+			return speeds[nextWpIndex-1];
 		}
 	}
 	
@@ -125,17 +231,25 @@ public class Path  {
 	 */
 	public String toString() {
 		String s ="";
-		for (int i=0, n=coords.size(); i<n; i++) {
-			Coord c = coords.get(i);
+		for (int i=0, n=size; i<n; i++) {
+			Coord c = new Coord(xs[i], ys[i]);
 			s+= "->" + c;
-			if (speeds.size() > 1) {
-				s += String.format("@%.2f ",speeds.get(i));
+			if (nrofSpeeds > 1) {
+				s += String.format("@%.2f ",speeds[i]);
 			}
 		}
 		return s;
 	}
 	
+	/**
+	 * Returns the speeds of this path in a new list
+	 * @return the speeds of the path
+	 */
 	public List<Double> getSpeeds() {
-		return this.speeds;
+		List<Double> list = new ArrayList<Double>(nrofSpeeds);
+		for (int i = 0; i < nrofSpeeds; i++) {
+			list.add(speeds[i]);
+		}
+		return list;
 	}
 }
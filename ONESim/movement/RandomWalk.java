@@ -13,6 +13,7 @@ import core.Settings;
  * @author Frans Ekman
  */
 public class RandomWalk extends MovementModel implements SwitchableMovement {
+	private static final long serialVersionUID = 42L;
 
 	private Coord lastWaypoint;
 	private double minDistance;
@@ -48,8 +49,8 @@ public class RandomWalk extends MovementModel implements SwitchableMovement {
 	@Override
 	public Path getPath() {
 		Path p;
-		p = new Path(generateSpeed());
-		p.addWaypoint(lastWaypoint.clone());
+		p = obtainPath(generateSpeed());
+		p.addWaypoint(lastWaypoint);
 		double maxX = getMaxX();
 		double maxY = getMaxY();
 		
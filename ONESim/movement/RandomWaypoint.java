@@ -12,6 +12,8 @@ import core.Settings;
  * simulation area.
  */
 public class RandomWaypoint extends MovementModel {
+	private static final long serialVersionUID = 42L;
+
 	/** how many waypoints should there be per path */
 	private static final int PATH_LENGTH = 1;
 	private Coord lastWaypoint;
@@ -40,8 +42,8 @@ public class RandomWaypoint extends MovementModel {
 	@Override
 	public Path getPath() {
 		Path p;
-		p = new Path(generateSpeed());
-		p.addWaypoint(lastWaypoint.clone());
+		p = obtainPath(generateSpeed());
+		p.addWaypoint(lastWaypoint);
 		Coord c = lastWaypoint;
 		
 		for (int i=0; i<PATH_LENGTH; i++) {
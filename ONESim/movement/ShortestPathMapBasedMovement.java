@@ -6,8 +6,8 @@ package movement;
 
 import java.util.List;
 
-import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.PathFinder;
 import movement.map.PointsOfInterest;
 import core.Settings;
 
@@ -17,8 +17,10 @@ import core.Settings;
  */
 public class ShortestPathMapBasedMovement extends MapBasedMovement implements 
 	SwitchableMovement {
-	/** the Dijkstra shortest path finder */
-	private DijkstraPathFinder pathFinder;
+	private static final long serialVersionUID = 42L;
+
+	/** the shortest path finder */
+	private PathFinder pathFinder;
 
 	/** Points Of Interest handler */
 	private PointsOfInterest pois;
@@ -29,9 +31,10 @@ public class ShortestPathMapBasedMovement extends MapBasedMovement implements
 	 */
 	public ShortestPathMapBasedMovement(Settings settings) {
 		super(settings);
-		this.pathFinder = new DijkstraPathFinder(getOkMapNodeTypes());
+		this.pathFinder = createPathFinder(getOkMapNodeTypes());
 		this.pois = new PointsOfInterest(getMap(), getOkMapNodeTypes(),
 				settings, rng);
+		precomputePaths(pathFinder, pois.getPoiNodes());
 	}
 	
 	/**
@@ -47,7 +50,7 @@ public class ShortestPathMapBasedMovement extends MapBasedMovement implements
 	
 	@Override
 	public Path getPath() {
-		Path p = new Path(generateSpeed());
+		Path p = obtainPath(generateSpeed());
 		MapNode to = pois.selectDestination();
 		
 		List<MapNode> nodePath = pathFinder.getShortestPath(lastMapNode, to);
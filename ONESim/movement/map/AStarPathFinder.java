@@ -0,0 +1,168 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Implementation of the A* shortest path algorithm using the euclidean
+ * distance to the destination as the heuristic. Since all edge lengths of a
+ * {@link SimMap} are euclidean distances, the heuristic is admissible and the
+ * found paths are shortest paths, but far fewer nodes are explored than
+ * with {@link DijkstraPathFinder} on large maps.
+ */
+public class AStarPathFinder implements PathFinder {
+	private static final long serialVersionUID = 42L;
+
+	/** Value for infinite distance  */
+	private static final double INFINITY = Double.MAX_VALUE;
+
+	/** The map where the paths are searched from */
+	private SimMap map;
+	/** Graph representation of the map for the current search */
+	private MapGraph graph;
+	/** Distances of the nodes from the source node */
+	private double[] distances;
+	/** Indexes of the previous nodes on the shortest path(s) */
+	private int[] prevNodes;
+	/** Search round when the node's distance was last set */
+	private int[] reached;
+	/** Number of the current search round */
+	private int round;
+	/** Priority queue of open nodes ordered by distance + heuristic */
+	private IndexedMinHeap open;
+
+	/** Bit mask of the OK map node types (or -1 for all types) */
+	private int okMapNodeMask;
+	private int [] okMapNodes;
+
+	/**
+	 * Constructor.
+	 * @param map The map whose paths are searched
+	 * @param okMapNodes The map node types that are OK for paths or null if
+	 * all nodes are OK
+	 */
+	public AStarPathFinder(SimMap map, int [] okMapNodes) {
+		this.map = map;
+		this.okMapNodes = okMapNodes;
+		this.okMapNodeMask = MapGraph.toTypeMask(okMapNodes);
+	}
+
+	/**
+	 * Initializes a new search with a source node
+	 * @param source Index of the path's source node
+	 * @param target Index of the path's destination node
+	 */
+	private void initWith(int source, int target) {
+		if (graph.getNrofNodes() != (reached == null ? -1 : reached.length)) {
+			int n = graph.getNrofNodes();
+			this.distances = new double[n];
+			this.prevNodes = new int[n];
+			this.reached = new int[n];
+			this.open = new IndexedMinHeap(n);
+			this.round = 0;
+		}
+
+		open.clear();
+		round++;
+
+		setDistance(source, -1, 0, target);
+	}
+
+	public List<MapNode> getShortestPath(MapNode from, MapNode to) {
+		List<MapNode> path = new LinkedList<MapNode>();
+		graph = map.getGraph();
+
+		assert (okMapNodes != null ? from.isType(okMapNodes) : true);
+		assert graph.contains(from) && graph.contains(to) : "Nodes " + from +
+			" and " + to + " are not part of the same map";
+
+		if (from.compareTo(to) == 0) { // source and destination are the same
+			path.add(from); // return a list containing only source node
+			return path;
+		}
+
+		int target = to.getIndex();
+		initWith(from.getIndex(), target);
+		int node = -1;
+
+		while (!open.isEmpty()) {
+			node = open.poll();
+			if (node == target) {
+				break;
+			}
+			expand(node, target);
+		}
+
+		if (node == target) { // found a path
+			for (int n = target; n != -1; n = prevNodes[n]) {
+				path.add(0, graph.getNode(n)); // put previous node to beginning
+			}
+		}
+
+		return path;
+	}
+
+	/**
+	 * Expands a node, i.e., updates the distances of its neighbors. Nodes
+	 * are re-opened if a shorter distance is found for them (which is
+	 * possible only due to rounding of the edge lengths).
+	 * @param node Index of the node to expand
+	 * @param target Index of the destination node
+	 */
+	private void expand(int node, int target) {
+		double nodeDist = distances[node];
+		for (int e = graph.getEdgeStart(node), end = graph.getEdgeEnd(node);
+				e < end; e++) {
+			int n = graph.getEdgeTarget(e);
+			if (!graph.isOk(n, okMapNodeMask)) {
+				continue; // skip nodes that are not OK
+			}
+
+			double nDist = nodeDist + graph.getEdgeWeight(e);
+			if (getDistance(n) > nDist) {
+				setDistance(n, node, nDist, target);
+			}
+		}
+	}
+
+	/**
+	 * Returns the distance of a node from the source node
+	 * @param n Index of the node
+	 * @return The distance or {@link #INFINITY} if the node hasn't been
+	 * reached yet
+	 */
+	private double getDistance(int n) {
+		return reached[n] == round ? distances[n] : INFINITY;
+	}
+
+	/**
+	 * Sets the distance from source node to a node and (re)places the node
+	 * in the open queue
+	 * @param n Index of the node whose distance is set
+	 * @param prev Index of the previous node on the path (or -1 for none)
+	 * @param distance The distance of the node from the source node
+	 * @param target Index of the destination node
+	 */
+	private void setDistance(int n, int prev, double distance, int target) {
+		reached[n] = round;
+		distances[n] = distance;
+		prevNodes[n] = prev;
+		open.insertOrDecrease(n, distance + heuristic(n, target));
+	}
+
+	/**
+	 * Returns the euclidean distance between two nodes
+	 * @param n Index of the first node
+	 * @param target Index of the second node
+	 * @return The euclidean distance between the nodes
+	 */
+	private double heuristic(int n, int target) {
+		double dx = graph.getX(n) - graph.getX(target);
+		double dy = graph.getY(n) - graph.getY(target);
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+}
@@ -0,0 +1,790 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import core.DTNSim;
+import core.SimError;
+
+/**
+ * Path finder that uses contraction hierarchies. In the preprocessing phase
+ * the (OK) map nodes are contracted one by one in the order of importance
+ * and shortcut edges are added to preserve the shortest path distances.
+ * Queries are then answered with a bidirectional search that only follows
+ * edges towards more important nodes, which explores only a tiny part of
+ * large maps. Only the map nodes of the OK types are part of the hierarchy,
+ * so paths never go through other nodes.<BR>
+ * The preprocessing result can be cached to a directory; the cache file is
+ * identified by a checksum of the map graph and the OK node types, so it is
+ * reused only for exactly the same map and types.
+ */
+public class ContractionHierarchyPathFinder implements PathFinder {
+	private static final long serialVersionUID = 42L;
+
+	/** Value for infinite distance  */
+	private static final double INFINITY = Double.MAX_VALUE;
+	/** Max number of nodes settled in a single witness search */
+	private static final int WITNESS_SETTLE_LIMIT = 500;
+	/** Identifier in the beginning of hierarchy cache files */
+	private static final int FILE_MAGIC = 0x4F4E4543; // "ONEC"
+	/** Version of the hierarchy cache file format */
+	private static final int FILE_VERSION = 1;
+	/** Prefix of hierarchy cache file names */
+	private static final String FILE_PREFIX = "ch_";
+	/** Suffix of hierarchy cache file names */
+	private static final String FILE_SUFFIX = ".bin";
+
+	/** All hierarchies created during this run */
+	private static List<ContractionHierarchyPathFinder> instances;
+
+	/** The map of the hierarchy */
+	private SimMap map;
+	/** The graph the hierarchy was built for */
+	private MapGraph graph;
+	/** The OK map node types of the hierarchy */
+	private int[] okMapNodes;
+	/** Bit mask of the OK map node types (or -1 for all types) */
+	private int okMapNodeMask;
+
+	/** Contraction order of the nodes (-1 for nodes that are not OK) */
+	private int[] rank;
+	/** Upward edges (to a higher rank node) in CSR format by source node */
+	private int[] upOffsets;
+	private int[] upTargets;
+	private int[] upMids;
+	private double[] upWeights;
+	/** Downward edges (from a higher rank node) in CSR format by target */
+	private int[] downOffsets;
+	private int[] downSources;
+	private int[] downMids;
+	private double[] downWeights;
+
+	/* query buffers for the forward and backward searches */
+	private double[] fDist;
+	private int[] fPrev;
+	private int[] fPrevEdge;
+	private int[] fReached;
+	private IndexedMinHeap fQueue;
+	private double[] bDist;
+	private int[] bPrev;
+	private int[] bPrevEdge;
+	private int[] bReached;
+	private IndexedMinHeap bQueue;
+	private int round;
+
+	static {
+		DTNSim.registerForReset(
+				ContractionHierarchyPathFinder.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Constructor. Loads the hierarchy from the cache directory or builds
+	 * it (and saves it to the cache directory).
+	 * @param map The map whose paths are searched
+	 * @param okMapNodes The map node types that are OK for paths or null if
+	 * all nodes are OK
+	 * @param cacheDir Directory for hierarchy cache files or null if the
+	 * hierarchy should not be cached on disk
+	 */
+	private ContractionHierarchyPathFinder(SimMap map, int[] okMapNodes,
+			String cacheDir) {
+		this.map = map;
+		this.graph = map.getGraph();
+		this.okMapNodes = okMapNodes;
+		this.okMapNodeMask = MapGraph.toTypeMask(okMapNodes);
+
+		File cacheFile = null;
+		if (cacheDir != null) {
+			cacheFile = new File(cacheDir, FILE_PREFIX +
+					Long.toHexString(getChecksum()) + "_" +
+					Integer.toHexString(okMapNodeMask) + FILE_SUFFIX);
+		}
+
+		if (cacheFile == null || !load(cacheFile)) {
+			build();
+			if (cacheFile != null) {
+				save(cacheFile);
+			}
+		}
+
+		initBuffers();
+	}
+
+	/**
+	 * Returns a hierarchy for the given map and map node types. If a
+	 * hierarchy for the same map and types already exists, that is returned.
+	 * @param map The map whose paths are searched
+	 * @param okMapNodes The map node types that are OK for paths or null if
+	 * all nodes are OK
+	 * @param cacheDir Directory for hierarchy cache files or null if the
+	 * hierarchy should not be cached on disk
+	 * @return A (shared) contraction hierarchy path finder
+	 */
+	public static ContractionHierarchyPathFinder getInstance(SimMap map,
+			int[] okMapNodes, String cacheDir) {
+		int mask = MapGraph.toTypeMask(okMapNodes);
+		for (ContractionHierarchyPathFinder ch : instances) {
+			if (ch.map == map && ch.graph == map.getGraph() &&
+					ch.okMapNodeMask == mask) {
+				return ch;
+			}
+		}
+
+		ContractionHierarchyPathFinder ch =
+			new ContractionHierarchyPathFinder(map, okMapNodes, cacheDir);
+		instances.add(ch);
+		return ch;
+	}
+
+	/**
+	 * Returns the number of shortcut edges in the hierarchy
+	 * @return the number of shortcut edges
+	 */
+	public int getNrofShortcuts() {
+		int count = 0;
+		for (int m : upMids) {
+			count += (m >= 0 ? 1 : 0);
+		}
+		for (int m : downMids) {
+			count += (m >= 0 ? 1 : 0);
+		}
+		return count;
+	}
+
+	public List<MapNode> getShortestPath(MapNode from, MapNode to) {
+		List<MapNode> path = new LinkedList<MapNode>();
+
+		assert (okMapNodes != null ? from.isType(okMapNodes) : true);
+		assert graph == map.getGraph() : "Map has changed after preprocessing";
+		assert graph.contains(from) && graph.contains(to) : "Nodes " + from +
+			" and " + to + " are not part of the same map";
+
+		if (from.compareTo(to) == 0) { // source and destination are the same
+			path.add(from); // return a list containing only source node
+			return path;
+		}
+
+		int source = from.getIndex();
+		int target = to.getIndex();
+		if (rank[source] < 0 || rank[target] < 0) {
+			return path; // not part of the hierarchy -> no path
+		}
+
+		int meet = search(source, target);
+		if (meet < 0) {
+			return path;
+		}
+
+		/* source -> meeting node (edges are followed backwards) */
+		LinkedList<Integer> edges = new LinkedList<Integer>();
+		for (int n = meet; fPrev[n] != -1; n = fPrev[n]) {
+			edges.addFirst(n);
+		}
+		path.add(from);
+		for (int n : edges) {
+			unpack(fPrev[n], n, upMids[fPrevEdge[n]], path);
+		}
+
+		/* meeting node -> destination */
+		for (int n = meet; bPrev[n] != -1; n = bPrev[n]) {
+			unpack(n, bPrev[n], downMids[bPrevEdge[n]], path);
+		}
+
+		return path;
+	}
+
+	/**
+	 * Runs the bidirectional upward search
+	 * @param source Index of the source node
+	 * @param target Index of the target node
+	 * @return Index of the node where the shortest path's forward and
+	 * backward parts meet or -1 if there's no path
+	 */
+	private int search(int source, int target) {
+		round++;
+		fQueue.clear();
+		bQueue.clear();
+		fReached[source] = round;
+		fDist[source] = 0;
+		fPrev[source] = -1;
+		fQueue.insertOrDecrease(source, 0);
+		bReached[target] = round;
+		bDist[target] = 0;
+		bPrev[target] = -1;
+		bQueue.insertOrDecrease(target, 0);
+
+		double best = INFINITY;
+		int meet = -1;
+
+		while (true) {
+			boolean fActive = !fQueue.isEmpty() && fQueue.peekKey() < best;
+			boolean bActive = !bQueue.isEmpty() && bQueue.peekKey() < best;
+			if (!fActive && !bActive) {
+				break;
+			}
+
+			if (fActive && (!bActive || fQueue.peekKey() <= bQueue.peekKey())) {
+				int n = fQueue.poll();
+				if (bReached[n] == round && fDist[n] + bDist[n] < best) {
+					best = fDist[n] + bDist[n];
+					meet = n;
+				}
+				for (int e = upOffsets[n]; e < upOffsets[n + 1]; e++) {
+					int m = upTargets[e];
+					double d = fDist[n] + upWeights[e];
+					if (fReached[m] != round || d < fDist[m]) {
+						fReached[m] = round;
+						fDist[m] = d;
+						fPrev[m] = n;
+						fPrevEdge[m] = e;
+						fQueue.insertOrDecrease(m, d);
+					}
+				}
+			}
+			else {
+				int n = bQueue.poll();
+				if (fReached[n] == round && fDist[n] + bDist[n] < best) {
+					best = fDist[n] + bDist[n];
+					meet = n;
+				}
+				for (int e = downOffsets[n]; e < downOffsets[n + 1]; e++) {
+					int m = downSources[e];
+					double d = bDist[n] + downWeights[e];
+					if (bReached[m] != round || d < bDist[m]) {
+						bReached[m] = round;
+						bDist[m] = d;
+						bPrev[m] = n;
+						bPrevEdge[m] = e;
+						bQueue.insertOrDecrease(m, d);
+					}
+				}
+			}
+		}
+
+		return meet;
+	}
+
+	/**
+	 * Unpacks a (shortcut) edge to the original map nodes and appends the
+	 * nodes after the edge's source to the path
+	 * @param from Index of the edge's source node
+	 * @param to Index of the edge's target node
+	 * @param mid Index of the contracted node the shortcut skips or -1 for
+	 * an original map edge
+	 * @param path The path where the nodes are appended
+	 */
+	private void unpack(int from, int to, int mid, List<MapNode> path) {
+		LinkedList<int[]> stack = new LinkedList<int[]>();
+		stack.push(new int[] {from, to, mid});
+
+		while (!stack.isEmpty()) {
+			int[] e = stack.pop();
+			if (e[2] < 0) {
+				path.add(graph.getNode(e[1]));
+			}
+			else { // push the second half first so the first is popped first
+				stack.push(new int[] {e[2], e[1], findMid(e[2], e[1])});
+				stack.push(new int[] {e[0], e[2], findMid(e[0], e[2])});
+			}
+		}
+	}
+
+	/**
+	 * Finds the hierarchy edge between two nodes and returns its middle node
+	 * @param from Index of the edge's source node
+	 * @param to Index of the edge's target node
+	 * @return Index of the shortcut's middle node or -1 for original edges
+	 */
+	private int findMid(int from, int to) {
+		if (rank[from] < rank[to]) {
+			for (int e = upOffsets[from]; e < upOffsets[from + 1]; e++) {
+				if (upTargets[e] == to) {
+					return upMids[e];
+				}
+			}
+		}
+		else {
+			for (int e = downOffsets[to]; e < downOffsets[to + 1]; e++) {
+				if (downSources[e] == from) {
+					return downMids[e];
+				}
+			}
+		}
+		throw new SimError("No hierarchy edge from " + graph.getNode(from) +
+				" to " + graph.getNode(to));
+	}
+
+	/**
+	 * Creates the buffers used in the queries
+	 */
+	private void initBuffers() {
+		int n = graph.getNrofNodes();
+		this.fDist = new double[n];
+		this.fPrev = new int[n];
+		this.fPrevEdge = new int[n];
+		this.fReached = new int[n];
+		this.fQueue = new IndexedMinHeap(n);
+		this.bDist = new double[n];
+		this.bPrev = new int[n];
+		this.bPrevEdge = new int[n];
+		this.bReached = new int[n];
+		this.bQueue = new IndexedMinHeap(n);
+		this.round = 0;
+	}
+
+	/**
+	 * Builds the hierarchy by contracting all OK nodes
+	 */
+	private void build() {
+		new Builder().build();
+	}
+
+	/**
+	 * Returns a checksum of the map graph (node locations and edges)
+	 * @return a checksum of the map graph
+	 */
+	private long getChecksum() {
+		long sum = graph.getNrofNodes();
+		for (int i = 0, n = graph.getNrofNodes(); i < n; i++) {
+			sum = 31 * sum + Double.doubleToLongBits(graph.getX(i));
+			sum = 31 * sum + Double.doubleToLongBits(graph.getY(i));
+			sum = 31 * sum + graph.getTypeMask(i);
+			for (int e = graph.getEdgeStart(i); e < graph.getEdgeEnd(i); e++) {
+				sum = 31 * sum + graph.getEdgeTarget(e);
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Loads the hierarchy from a cache file
+	 * @param file The file to load the hierarchy from
+	 * @return True if the hierarchy was loaded, false if the file didn't
+	 * exist or it wasn't for the same map and types
+	 */
+	private boolean load(File file) {
+		if (!file.exists()) {
+			return false;
+		}
+
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+			int n = graph.getNrofNodes();
+			if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION ||
+					in.readLong() != getChecksum() ||
+					in.readInt() != okMapNodeMask || in.readInt() != n) {
+				return false; // cache file for some other map
+			}
+
+			this.rank = readInts(in, n);
+			this.upOffsets = readInts(in, n + 1);
+			int nrofUp = upOffsets[n];
+			this.upTargets = readInts(in, nrofUp);
+			this.upMids = readInts(in, nrofUp);
+			this.upWeights = readDoubles(in, nrofUp);
+			this.downOffsets = readInts(in, n + 1);
+			int nrofDown = downOffsets[n];
+			this.downSources = readInts(in, nrofDown);
+			this.downMids = readInts(in, nrofDown);
+			this.downWeights = readDoubles(in, nrofDown);
+			return true;
+		} catch (IOException e) {
+			return false; // corrupted file -> rebuild
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * Saves the hierarchy to a cache file. The cache is optional, so if the
+	 * file can't be written, a warning is printed and the (partial) file is
+	 * removed.
+	 * @param file The file to save the hierarchy to
+	 */
+	private void save(File file) {
+		DataOutputStream out = null;
+		boolean saved = false;
+		try {
+			File dir = file.getParentFile();
+			if (dir != null && !dir.exists() && !dir.mkdirs()) {
+				throw new IOException("Couldn't create directory " + dir);
+			}
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+			out.writeInt(FILE_MAGIC);
+			out.writeInt(FILE_VERSION);
+			out.writeLong(getChecksum());
+			out.writeInt(okMapNodeMask);
+			out.writeInt(graph.getNrofNodes());
+			writeInts(out, rank);
+			writeInts(out, upOffsets);
+			writeInts(out, upTargets);
+			writeInts(out, upMids);
+			writeDoubles(out, upWeights);
+			writeInts(out, downOffsets);
+			writeInts(out, downSources);
+			writeInts(out, downMids);
+			writeDoubles(out, downWeights);
+			out.close();
+			saved = true;
+		} catch (IOException e) {
+			System.err.println("Warning: couldn't write contraction " +
+					"hierarchy to '" + file + "': " + e.getMessage());
+		} finally {
+			close(out);
+			if (!saved) {
+				file.delete();
+			}
+		}
+	}
+
+	private static int[] readInts(DataInputStream in, int n)
+			throws IOException {
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	private static double[] readDoubles(DataInputStream in, int n)
+			throws IOException {
+		double[] values = new double[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = in.readDouble();
+		}
+		return values;
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values)
+			throws IOException {
+		for (int v : values) {
+			out.writeInt(v);
+		}
+	}
+
+	private static void writeDoubles(DataOutputStream out, double[] values)
+			throws IOException {
+		for (double v : values) {
+			out.writeDouble(v);
+		}
+	}
+
+	private static void close(Closeable c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (IOException e) {
+				// nothing to do
+			}
+		}
+	}
+
+	/**
+	 * Resets the static fields of the class
+	 */
+	public static void reset() {
+		instances = new ArrayList<ContractionHierarchyPathFinder>();
+	}
+
+	/**
+	 * Growable list of (weighted) edges of a node used in preprocessing
+	 */
+	private static class EdgeList {
+		private int[] nodes = new int[4];
+		private int[] mids = new int[4];
+		private double[] weights = new double[4];
+		private int size = 0;
+
+		/**
+		 * Adds an edge or updates the existing edge to the same node if the
+		 * new edge is shorter
+		 * @param node The other end of the edge
+		 * @param weight Length of the edge
+		 * @param mid Middle node of a shortcut or -1
+		 */
+		private void put(int node, double weight, int mid) {
+			for (int i = 0; i < size; i++) {
+				if (nodes[i] == node) {
+					if (weight < weights[i]) {
+						weights[i] = weight;
+						mids[i] = mid;
+					}
+					return;
+				}
+			}
+
+			if (size == nodes.length) {
+				nodes = Arrays.copyOf(nodes, size * 2);
+				mids = Arrays.copyOf(mids, size * 2);
+				weights = Arrays.copyOf(weights, size * 2);
+			}
+			nodes[size] = node;
+			mids[size] = mid;
+			weights[size] = weight;
+			size++;
+		}
+	}
+
+	/**
+	 * Node contraction logic of the preprocessing phase
+	 */
+	private class Builder {
+		private int n;
+		private EdgeList[] out;
+		private EdgeList[] in;
+		private boolean[] contracted;
+		private int[] contractedNeighbors;
+
+		/* witness search buffers */
+		private double[] wDist;
+		private int[] wReached;
+		private int wRound;
+		private IndexedMinHeap wQueue;
+
+		/**
+		 * Builds the hierarchy and stores it to the outer class' fields
+		 */
+		private void build() {
+			this.n = graph.getNrofNodes();
+			this.out = new EdgeList[n];
+			this.in = new EdgeList[n];
+			this.contracted = new boolean[n];
+			this.contractedNeighbors = new int[n];
+			this.wDist = new double[n];
+			this.wReached = new int[n];
+			this.wQueue = new IndexedMinHeap(n);
+			rank = new int[n];
+
+			for (int i = 0; i < n; i++) {
+				out[i] = new EdgeList();
+				in[i] = new EdgeList();
+				contracted[i] = !graph.isOk(i, okMapNodeMask);
+				rank[i] = -1;
+			}
+			for (int i = 0; i < n; i++) {
+				if (contracted[i]) {
+					continue;
+				}
+				for (int e = graph.getEdgeStart(i); e < graph.getEdgeEnd(i);
+						e++) {
+					int t = graph.getEdgeTarget(e);
+					if (!contracted[t]) {
+						out[i].put(t, graph.getEdgeWeight(e), -1);
+						in[t].put(i, graph.getEdgeWeight(e), -1);
+					}
+				}
+			}
+
+			IndexedMinHeap order = new IndexedMinHeap(n);
+			for (int i = 0; i < n; i++) {
+				if (!contracted[i]) {
+					order.insertOrDecrease(i, priority(i));
+				}
+			}
+
+			int nextRank = 0;
+			while (!order.isEmpty()) {
+				int v = order.poll();
+				double p = priority(v); // lazy update of the priority
+				if (!order.isEmpty() && p > order.peekKey()) {
+					order.insertOrDecrease(v, p);
+					continue;
+				}
+
+				contract(v, false);
+				contracted[v] = true;
+				rank[v] = nextRank++;
+
+				updateNeighbors(v, out[v], order);
+				updateNeighbors(v, in[v], order);
+			}
+
+			createSearchGraphs();
+		}
+
+		/**
+		 * Updates the priorities of the not yet contracted neighbors
+		 */
+		private void updateNeighbors(int v, EdgeList edges,
+				IndexedMinHeap order) {
+			for (int i = 0; i < edges.size; i++) {
+				int u = edges.nodes[i];
+				if (!contracted[u]) {
+					contractedNeighbors[u]++;
+					order.insertOrUpdate(u, priority(u));
+				}
+			}
+		}
+
+		/**
+		 * Returns the contraction priority of a node (smaller is contracted
+		 * first): edge difference plus the number of contracted neighbors
+		 */
+		private double priority(int v) {
+			int removed = 0;
+			for (int i = 0; i < in[v].size; i++) {
+				removed += contracted[in[v].nodes[i]] ? 0 : 1;
+			}
+			for (int i = 0; i < out[v].size; i++) {
+				removed += contracted[out[v].nodes[i]] ? 0 : 1;
+			}
+			return contract(v, true) - removed + contractedNeighbors[v];
+		}
+
+		/**
+		 * Contracts a node by adding the needed shortcuts between its
+		 * neighbors
+		 * @param v The node to contract
+		 * @param simulate If true, the shortcuts are only counted
+		 * @return The number of (needed) shortcuts
+		 */
+		private int contract(int v, boolean simulate) {
+			int count = 0;
+			EdgeList vIn = in[v];
+			EdgeList vOut = out[v];
+
+			for (int i = 0; i < vIn.size; i++) {
+				int u = vIn.nodes[i];
+				if (contracted[u]) {
+					continue;
+				}
+				double maxDist = -1;
+				for (int j = 0; j < vOut.size; j++) {
+					int w = vOut.nodes[j];
+					if (!contracted[w] && w != u) {
+						maxDist = Math.max(maxDist,
+								vIn.weights[i] + vOut.weights[j]);
+					}
+				}
+				if (maxDist < 0) {
+					continue;
+				}
+
+				witnessSearch(u, v, maxDist);
+
+				for (int j = 0; j < vOut.size; j++) {
+					int w = vOut.nodes[j];
+					if (contracted[w] || w == u) {
+						continue;
+					}
+					double via = vIn.weights[i] + vOut.weights[j];
+					if (wReached[w] == wRound && wDist[w] <= via) {
+						continue; // witness path found
+					}
+					count++;
+					if (!simulate) {
+						out[u].put(w, via, v);
+						in[w].put(u, via, v);
+					}
+				}
+			}
+
+			return count;
+		}
+
+		/**
+		 * Runs a limited Dijkstra search from a node avoiding the node that
+		 * is being contracted
+		 */
+		private void witnessSearch(int source, int avoid, double maxDist) {
+			wRound++;
+			wQueue.clear();
+			wReached[source] = wRound;
+			wDist[source] = 0;
+			wQueue.insertOrDecrease(source, 0);
+			int settled = 0;
+
+			while (!wQueue.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+				if (wQueue.peekKey() > maxDist) {
+					break;
+				}
+				int x = wQueue.poll();
+				settled++;
+				EdgeList edges = out[x];
+				for (int i = 0; i < edges.size; i++) {
+					int y = edges.nodes[i];
+					if (y == avoid || contracted[y]) {
+						continue;
+					}
+					double d = wDist[x] + edges.weights[i];
+					if (wReached[y] != wRound || d < wDist[y]) {
+						wReached[y] = wRound;
+						wDist[y] = d;
+						wQueue.insertOrDecrease(y, d);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Creates the upward and downward search graphs from all the edges
+		 */
+		private void createSearchGraphs() {
+			upOffsets = new int[n + 1];
+			downOffsets = new int[n + 1];
+
+			for (int u = 0; u < n; u++) {
+				for (int i = 0; i < out[u].size; i++) {
+					int w = out[u].nodes[i];
+					if (rank[u] < rank[w]) {
+						upOffsets[u + 1]++;
+					}
+					else {
+						downOffsets[w + 1]++;
+					}
+				}
+			}
+			for (int i = 0; i < n; i++) {
+				upOffsets[i + 1] += upOffsets[i];
+				downOffsets[i + 1] += downOffsets[i];
+			}
+
+			upTargets = new int[upOffsets[n]];
+			upMids = new int[upOffsets[n]];
+			upWeights = new double[upOffsets[n]];
+			downSources = new int[downOffsets[n]];
+			downMids = new int[downOffsets[n]];
+			downWeights = new double[downOffsets[n]];
+
+			int[] upPos = Arrays.copyOf(upOffsets, n);
+			int[] downPos = Arrays.copyOf(downOffsets, n);
+			for (int u = 0; u < n; u++) {
+				EdgeList edges = out[u];
+				for (int i = 0; i < edges.size; i++) {
+					int w = edges.nodes[i];
+					if (rank[u] < rank[w]) {
+						int e = upPos[u]++;
+						upTargets[e] = w;
+						upMids[e] = edges.mids[i];
+						upWeights[e] = edges.weights[i];
+					}
+					else {
+						int e = downPos[w]++;
+						downSources[e] = u;
+						downMids[e] = edges.mids[i];
+						downWeights[e] = edges.weights[i];
+					}
+				}
+			}
+		}
+	}
+}
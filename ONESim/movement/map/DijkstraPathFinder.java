@@ -1,68 +1,81 @@
-/* 
+/*
  * Copyright 2010 Aalto University, ComNet
- * Released under GPLv3. See LICENSE.txt for details. 
+ * Released under GPLv3. See LICENSE.txt for details.
  */
 package movement.map;
 
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.Set;
 
 /**
- * Implementation of the Dijkstra's shortest path algorithm.
+ * Implementation of the Dijkstra's shortest path algorithm. Works on the
+ * compact graph representation of the map ({@link MapGraph}) and reuses
+ * the same search buffers for all queries.
  */
-public class DijkstraPathFinder {
+public class DijkstraPathFinder implements PathFinder {
+	private static final long serialVersionUID = 42L;
+
 	/** Value for infinite distance  */
-	private static final Double INFINITY = Double.MAX_VALUE;
-	/** Initial size of the priority queue */
-	private static final int PQ_INIT_SIZE = 11;
-
-	/** Map of node distances from the source node */
-	private DistanceMap distances;
-	/** Set of already visited nodes (where the shortest path is known) */
-	private Set<MapNode> visited;
+	private static final double INFINITY = Double.MAX_VALUE;
+	/** Previous node index value for nodes that can't be reached: {@value} */
+	public static final int UNREACHABLE = -2;
+
+	/** The map where the paths are searched from */
+	private SimMap map;
+	/** Graph representation of the map for the current search */
+	private MapGraph graph;
+	/** Distances of the nodes from the source node */
+	private double[] distances;
+	/** Indexes of the previous nodes on the shortest path(s) */
+	private int[] prevNodes;
+	/** Search round when the node's distance was last set */
+	private int[] reached;
+	/** Search round when the node was last visited */
+	private int[] visited;
+	/** Number of the current search round */
+	private int round;
 	/** Priority queue of unvisited nodes discovered so far */
-	private Queue<MapNode> unvisited;
-	/** Map of previous nodes on the shortest path(s) */
-	private Map<MapNode, MapNode> prevNodes;
+	private IndexedMinHeap unvisited;
 
+	/** Bit mask of the OK map node types (or -1 for all types) */
+	private int okMapNodeMask;
 	private int [] okMapNodes;
-	
+
 	/**
 	 * Constructor.
+	 * @param map The map whose paths are searched
 	 * @param okMapNodes The map node types that are OK for paths or null if
 	 * all nodes are OK
 	 */
-	public DijkstraPathFinder(int [] okMapNodes) {
+	public DijkstraPathFinder(SimMap map, int [] okMapNodes) {
 		super();
 		this.okMapNodes = okMapNodes;
+		this.okMapNodeMask = MapGraph.toTypeMask(okMapNodes);
+		this.map = map;
 	}
 
 	/**
 	 * Initializes a new search with a source node
-	 * @param node The path's source node
+	 * @param source Index of the path's source node
 	 */
-	private void initWith(MapNode node) {
-		assert (okMapNodes != null ? node.isType(okMapNodes) : true);
-		
-		// create needed data structures
-		this.unvisited = new PriorityQueue<MapNode>(PQ_INIT_SIZE, 
-				new DistanceComparator());
-		this.visited = new HashSet<MapNode>();
-		this.prevNodes = new HashMap<MapNode, MapNode>();
-		this.distances = new DistanceMap();
-		
+	private void initWith(int source) {
+		if (graph.getNrofNodes() != (reached == null ? -1 : reached.length)) {
+			int n = graph.getNrofNodes();
+			this.distances = new double[n];
+			this.prevNodes = new int[n];
+			this.reached = new int[n];
+			this.visited = new int[n];
+			this.unvisited = new IndexedMinHeap(n);
+			this.round = 0;
+		}
+
+		unvisited.clear();
+		round++;
+
 		// set distance to source 0 and initialize unvisited queue
-		this.distances.put(node, 0);
-		this.unvisited.add(node);
+		setDistance(source, -1, 0);
 	}
-	
+
 	/**
 	 * Finds and returns a shortest path between two map nodes
 	 * @param from The source of the path
@@ -72,157 +85,124 @@ public class DijkstraPathFinder {
 	 */
 	public List<MapNode> getShortestPath(MapNode from, MapNode to) {
 		List<MapNode> path = new LinkedList<MapNode>();
-		
+		graph = map.getGraph();
+
+		assert (okMapNodes != null ? from.isType(okMapNodes) : true);
+		assert graph.contains(from) && graph.contains(to) : "Nodes " + from +
+			" and " + to + " are not part of the same map";
+
 		if (from.compareTo(to) == 0) { // source and destination are the same
 			path.add(from); // return a list containing only source node
 			return path;
 		}
-		
-		initWith(from);
-		MapNode node = null;
-		
+
+		int target = to.getIndex();
+
+		// now we either have the path or such path wasn't available
+		if (search(from.getIndex(), target) == target) { // found a path
+			for (int n = target; n != -1; n = prevNodes[n]) {
+				path.add(0, graph.getNode(n)); // put previous node to beginning
+			}
+		}
+
+		return path;
+	}
+
+	/**
+	 * Computes the shortest path tree rooted at the given node, i.e., the
+	 * previous node on the shortest path from the source for all map nodes.
+	 * @param from The source (root) node
+	 * @return Array of previous node indexes (see {@link MapNode#getIndex()})
+	 * indexed by node index. The value for the source node is -1 and
+	 * {@value #UNREACHABLE} for nodes that can't be reached from the source.
+	 */
+	public int[] getShortestPathTree(MapNode from) {
+		graph = map.getGraph();
+
+		assert (okMapNodes != null ? from.isType(okMapNodes) : true);
+		assert graph.contains(from) : "Node " + from + " is not part of the map";
+
+		search(from.getIndex(), -1);
+
+		int[] tree = new int[graph.getNrofNodes()];
+		for (int i = 0; i < tree.length; i++) {
+			tree[i] = (visited[i] == round ? prevNodes[i] : UNREACHABLE);
+		}
+		return tree;
+	}
+
+	/**
+	 * Runs the search from a source node until the target node is found or
+	 * all reachable nodes are visited.
+	 * @param source Index of the source node
+	 * @param target Index of the target node or -1 to visit all nodes
+	 * @return Index of the last node taken from the queue (the target node if
+	 * it was found)
+	 */
+	private int search(int source, int target) {
+		initWith(source);
+		int node = -1;
+
 		// always take the node with shortest distance
-		while ((node = unvisited.poll()) != null) {
-			if (node == to) {
+		while (!unvisited.isEmpty()) {
+			node = unvisited.poll();
+			visited[node] = round; // mark the node as visited
+			if (node == target) {
 				break; // we found the destination -> no need to search further
 			}
-			
-			visited.add(node); // mark the node as visited
+
 			relax(node); // add/update neighbor nodes' distances
 		}
-		
-		// now we either have the path or such path wasn't available
-		if (node == to) { // found a path
-			path.add(0,to); 
-			MapNode prev = prevNodes.get(to); 
-			while (prev != from) { 
-				path.add(0, prev);	// always put previous node to beginning
-				prev = prevNodes.get(prev);
-			}
-			
-			path.add(0, from); // finally put the source node to first node
-		}
-		
-		return path;
+
+		return node;
 	}
-	
+
 	/**
 	 * Relaxes the neighbors of a node (updates the shortest distances).
-	 * @param node The node whose neighbors are relaxed
+	 * @param node Index of the node whose neighbors are relaxed
 	 */
-	private void relax(MapNode node) {
-		double nodeDist = distances.get(node);
-		for (MapNode n : node.getNeighbors()) {
-			if (visited.contains(n)) {
+	private void relax(int node) {
+		double nodeDist = distances[node];
+		for (int e = graph.getEdgeStart(node), end = graph.getEdgeEnd(node);
+				e < end; e++) {
+			int n = graph.getEdgeTarget(e);
+			if (visited[n] == round) {
 				continue; // skip visited nodes
 			}
-			
-			if (okMapNodes != null && !n.isType(okMapNodes)) {
+
+			if (!graph.isOk(n, okMapNodeMask)) {
 				continue; // skip nodes that are not OK
 			}
-			
+
 			// n node's distance from path's source node
-			double nDist = nodeDist + getDistance(node, n);
-			
-			if (distances.get(n) > nDist) { // stored distance > found dist?
-				prevNodes.put(n, node);
-				setDistance(n, nDist);
+			double nDist = nodeDist + graph.getEdgeWeight(e);
+
+			if (getDistance(n) > nDist) { // stored distance > found dist?
+				setDistance(n, node, nDist);
 			}
 		}
 	}
-	
-	/**
-	 * Sets the distance from source node to a node
-	 * @param n The node whose distance is set
-	 * @param distance The distance of the node from the source node
-	 */
-	private void setDistance(MapNode n, double distance) {
-		unvisited.remove(n); // remove node from old place in the queue
-		distances.put(n, distance); // update distance
-		unvisited.add(n); // insert node to the new place in the queue
-	}
-	
-	/**
-	 * Returns the (euclidean) distance between the two map nodes
-	 * @param from The first node
-	 * @param to The second node
-	 * @return Euclidean distance between the two map nodes
-	 */
-	private double getDistance(MapNode from, MapNode to) {
-		return from.getLocation().distance(to.getLocation());
-	}
-	
+
 	/**
-	 * Comparator that compares two map nodes by their distance from
-	 * the source node.
+	 * Returns the distance of a node from the source node
+	 * @param n Index of the node
+	 * @return The distance or {@link #INFINITY} if the node hasn't been
+	 * reached yet
 	 */
-	private class DistanceComparator implements Comparator<MapNode> {
-		
-		/**
-		 * Compares two map nodes by their distance from the source node
-		 * @return -1, 0 or 1 if node1's distance is smaller, equal to, or
-		 * bigger than node2's distance
-		 */
-		public int compare(MapNode node1, MapNode node2) {
-			double dist1 = distances.get(node1);
-			double dist2 = distances.get(node2);
-			
-			if (dist1 > dist2) {
-				return 1;
-			}
-			else if (dist1 < dist2) {
-				return -1;
-			}
-			else {
-				return node1.compareTo(node2);
-			}
-		}
+	private double getDistance(int n) {
+		return reached[n] == round ? distances[n] : INFINITY;
 	}
-	
+
 	/**
-	 * Simple Map implementation for storing distances. 
+	 * Sets the distance from source node to a node
+	 * @param n Index of the node whose distance is set
+	 * @param prev Index of the previous node on the path (or -1 for none)
+	 * @param distance The distance of the node from the source node
 	 */
-	private class DistanceMap {
-		private HashMap<MapNode, Double> map;
-		
-		/**
-		 * Constructor. Creates an empty distance map
-		 */
-		public DistanceMap() {
-			this.map = new HashMap<MapNode, Double>(); 
-		}
-		
-		/**
-		 * Returns the distance to a node. If no distance value
-		 * is found, returns {@link DijkstraPathFinder#INFINITY} as the value.
-		 * @param node The node whose distance is requested
-		 * @return The distance to that node
-		 */
-		public double get(MapNode node) {
-			Double value = map.get(node);
-			if (value != null) {
-				return value;
-			}
-			else {
-				return INFINITY;
-			}
-		}
-		
-		/**
-		 * Puts a new distance value for a map node
-		 * @param node The node
-		 * @param distance Distance to that node
-		 */
-		public void  put(MapNode node, double distance) {
-			map.put(node, distance);
-		}
-		
-		/**
-		 * Returns a string representation of the map's contents
-		 * @return a string representation of the map's contents
-		 */
-		public String toString() {
-			return map.toString();
-		}
+	private void setDistance(int n, int prev, double distance) {
+		reached[n] = round;
+		distances[n] = distance; // update distance
+		prevNodes[n] = prev;
+		unvisited.insertOrDecrease(n, distance); // (re)place node in queue
 	}
-}
\ No newline at end of file
+}
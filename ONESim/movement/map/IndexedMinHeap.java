@@ -0,0 +1,177 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Indexed binary min-heap of integer items (in range [0, capacity)) with
+ * double keys. Supports decreasing the key of an item that is already in
+ * the heap in O(log n) time. All storage is allocated once so the heap can be
+ * reused for multiple searches with {@link #clear()}.
+ */
+public class IndexedMinHeap implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** heap array of items */
+	private int[] heap;
+	/** position of each item in the heap or -1 if not in heap */
+	private int[] positions;
+	/** keys of the items */
+	private double[] keys;
+	/** number of items in the heap */
+	private int size;
+
+	/**
+	 * Constructor.
+	 * @param capacity The number of different items the heap can hold
+	 */
+	public IndexedMinHeap(int capacity) {
+		this.heap = new int[capacity];
+		this.positions = new int[capacity];
+		this.keys = new double[capacity];
+		Arrays.fill(positions, -1);
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the capacity of the heap
+	 * @return the capacity of the heap
+	 */
+	public int capacity() {
+		return positions.length;
+	}
+
+	/**
+	 * Returns true if the heap is empty
+	 * @return true if the heap is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns true if the item is in the heap
+	 * @param item The item
+	 * @return true if the item is in the heap
+	 */
+	public boolean contains(int item) {
+		return positions[item] >= 0;
+	}
+
+	/**
+	 * Removes all items from the heap
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			positions[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Inserts an item to the heap or decreases its key if the item is already
+	 * in the heap and the new key is smaller than the old one
+	 * @param item The item
+	 * @param key The (new) key of the item
+	 */
+	public void insertOrDecrease(int item, double key) {
+		int pos = positions[item];
+		if (pos < 0) {
+			pos = size++;
+			heap[pos] = item;
+			positions[item] = pos;
+			keys[item] = key;
+		}
+		else if (key < keys[item]) {
+			keys[item] = key;
+		}
+		else {
+			return;
+		}
+		siftUp(pos);
+	}
+
+	/**
+	 * Inserts an item to the heap or changes its key (to a smaller or bigger
+	 * value) if the item is already in the heap
+	 * @param item The item
+	 * @param key The (new) key of the item
+	 */
+	public void insertOrUpdate(int item, double key) {
+		int pos = positions[item];
+		if (pos >= 0 && key > keys[item]) {
+			keys[item] = key;
+			siftDown(pos);
+		}
+		else {
+			insertOrDecrease(item, key);
+		}
+	}
+
+	/**
+	 * Removes and returns the item with the smallest key
+	 * @return the item with the smallest key
+	 */
+	public int poll() {
+		assert size > 0 : "Poll from an empty heap";
+		int min = heap[0];
+		positions[min] = -1;
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			positions[heap[0]] = 0;
+			siftDown(0);
+		}
+		return min;
+	}
+
+	/**
+	 * Returns the key of the item with the smallest key
+	 * @return the smallest key in the heap
+	 */
+	public double peekKey() {
+		return keys[heap[0]];
+	}
+
+	private void siftUp(int pos) {
+		int item = heap[pos];
+		double key = keys[item];
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			int p = heap[parent];
+			if (keys[p] <= key) {
+				break;
+			}
+			heap[pos] = p;
+			positions[p] = pos;
+			pos = parent;
+		}
+		heap[pos] = item;
+		positions[item] = pos;
+	}
+
+	private void siftDown(int pos) {
+		int item = heap[pos];
+		double key = keys[item];
+		int half = size >>> 1;
+		while (pos < half) {
+			int child = 2 * pos + 1;
+			int right = child + 1;
+			if (right < size && keys[heap[right]] < keys[heap[child]]) {
+				child = right;
+			}
+			if (key <= keys[heap[child]]) {
+				break;
+			}
+			heap[pos] = heap[child];
+			positions[heap[pos]] = pos;
+			pos = child;
+		}
+		heap[pos] = item;
+		positions[item] = pos;
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Compact, read-only graph representation of a {@link SimMap} in compressed
+ * sparse row (CSR) format. Map nodes are identified by integer indexes
+ * (see {@link MapNode#getIndex()}), the neighbors of node <CODE>i</CODE> are
+ * stored in <CODE>targets[offsets[i]...offsets[i+1]-1]</CODE> and the
+ * (euclidean) edge lengths in the same positions of the weights array.
+ */
+public class MapGraph implements Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** map nodes by their index */
+	private MapNode[] nodes;
+	/** start of each node's edge list in the targets array (size n+1) */
+	private int[] offsets;
+	/** edge target node indexes */
+	private int[] targets;
+	/** edge lengths */
+	private float[] weights;
+	/** type bit masks of the nodes (see {@link MapNode#isType(int)}) */
+	private int[] types;
+	/** x coordinates of the nodes */
+	private double[] xs;
+	/** y coordinates of the nodes */
+	private double[] ys;
+
+	/**
+	 * Constructor. Creates a graph of the given nodes. The nodes' indexes
+	 * must match their position in the list.
+	 * @param nodeList The map nodes of the graph
+	 */
+	public MapGraph(List<MapNode> nodeList) {
+		int n = nodeList.size();
+		int nrofEdges = 0;
+
+		this.nodes = nodeList.toArray(new MapNode[n]);
+		this.offsets = new int[n + 1];
+		this.types = new int[n];
+		this.xs = new double[n];
+		this.ys = new double[n];
+
+		for (int i = 0; i < n; i++) {
+			assert nodes[i].getIndex() == i : "Invalid index for " + nodes[i];
+			nrofEdges += nodes[i].getNeighbors().size();
+		}
+
+		this.targets = new int[nrofEdges];
+		this.weights = new float[nrofEdges];
+
+		int e = 0;
+		for (int i = 0; i < n; i++) {
+			MapNode node = nodes[i];
+			offsets[i] = e;
+			types[i] = node.getTypeMask();
+			xs[i] = node.getLocation().getX();
+			ys[i] = node.getLocation().getY();
+			for (MapNode neighbor : node.getNeighbors()) {
+				targets[e] = neighbor.getIndex();
+				weights[e] = (float)node.getLocation().distance(
+						neighbor.getLocation());
+				e++;
+			}
+		}
+		offsets[n] = e;
+	}
+
+	/**
+	 * Returns the number of nodes in the graph
+	 * @return the number of nodes in the graph
+	 */
+	public int getNrofNodes() {
+		return nodes.length;
+	}
+
+	/**
+	 * Returns the number of (directed) edges in the graph
+	 * @return the number of (directed) edges in the graph
+	 */
+	public int getNrofEdges() {
+		return targets.length;
+	}
+
+	/**
+	 * Returns the map node with the given index
+	 * @param index Index of the node
+	 * @return The map node
+	 */
+	public MapNode getNode(int index) {
+		return nodes[index];
+	}
+
+	/**
+	 * Returns true if the given map node belongs to this graph
+	 * @param node The node to check
+	 * @return True if the node is part of this graph
+	 */
+	public boolean contains(MapNode node) {
+		int i = node.getIndex();
+		return i >= 0 && i < nodes.length && nodes[i] == node;
+	}
+
+	/**
+	 * Returns the offset of the first edge of a node. The edges of node
+	 * <CODE>i</CODE> are in range [<CODE>getEdgeStart(i), getEdgeEnd(i)</CODE>)
+	 * @param index Index of the node
+	 * @return The offset of the node's first edge
+	 */
+	public int getEdgeStart(int index) {
+		return offsets[index];
+	}
+
+	/**
+	 * Returns the offset after the last edge of a node
+	 * @param index Index of the node
+	 * @return The offset after the last edge of the node
+	 * @see #getEdgeStart(int)
+	 */
+	public int getEdgeEnd(int index) {
+		return offsets[index + 1];
+	}
+
+	/**
+	 * Returns the target node index of an edge
+	 * @param edge Offset of the edge
+	 * @return Index of the edge's target node
+	 */
+	public int getEdgeTarget(int edge) {
+		return targets[edge];
+	}
+
+	/**
+	 * Returns the length of an edge
+	 * @param edge Offset of the edge
+	 * @return The (euclidean) length of the edge
+	 */
+	public float getEdgeWeight(int edge) {
+		return weights[edge];
+	}
+
+	/**
+	 * Returns the type bit mask of a node
+	 * @param index Index of the node
+	 * @return The type bit mask of the node
+	 */
+	public int getTypeMask(int index) {
+		return types[index];
+	}
+
+	/**
+	 * Returns the x coordinate of a node
+	 * @param index Index of the node
+	 * @return The x coordinate of the node
+	 */
+	public double getX(int index) {
+		return xs[index];
+	}
+
+	/**
+	 * Returns the y coordinate of a node
+	 * @param index Index of the node
+	 * @return The y coordinate of the node
+	 */
+	public double getY(int index) {
+		return ys[index];
+	}
+
+	/**
+	 * Returns true if a node is of any type in the given bit mask
+	 * @param index Index of the node
+	 * @param typeMask The type bit mask (see {@link #toTypeMask(int[])}) or
+	 * -1 if all nodes are OK
+	 * @return True if the node is OK for the mask
+	 */
+	public boolean isOk(int index, int typeMask) {
+		return typeMask == -1 || (types[index] & typeMask) != 0;
+	}
+
+	/**
+	 * Converts an array of map node types to a type bit mask
+	 * @param types The types (values in range [{@value MapNode#MIN_TYPE},
+	 * {@value MapNode#MAX_TYPE}]) or null for all types
+	 * @return The corresponding bit mask or -1 if types was null
+	 */
+	public static int toTypeMask(int[] types) {
+		if (types == null) {
+			return -1;
+		}
+
+		int mask = 0;
+		for (int type : types) {
+			mask |= MapNode.typeToBitMask(type);
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns a String representation of the graph
+	 * @return a String representation of the graph
+	 */
+	public String toString() {
+		return "MapGraph with " + getNrofNodes() + " nodes and " +
+			getNrofEdges() + " edges";
+	}
+}
@@ -4,6 +4,9 @@
  */
 package movement.map;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.List;
 import java.util.Vector;
 
@@ -14,7 +17,9 @@ import core.SettingsError;
  * A node in a SimMap. Node has a location, 0-n neighbors that it is
  * connected to and possibly a type identifier.
  */
-public class MapNode implements Comparable<MapNode> {
+public class MapNode implements Comparable<MapNode>, Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Smallest valid type of a node: {@value}*/
 	public static final int MIN_TYPE = 1;
 	/** Biggest valid type of a node: {@value} */
@@ -22,9 +27,14 @@ public class MapNode implements Comparable<MapNode> {
 	
 	
 	private Coord location;
-	private Vector<MapNode> neighbors;
+	/** neighbors aren't serialized with the node but by its map (see
+	 * {@link SimMap}), so that serializing the graph doesn't recurse
+	 * through all the nodes */
+	private transient Vector<MapNode> neighbors;
 	// bit mask of map node's types or 0 if no type's are defined
 	private int type;
+	/** index of the node in its SimMap or -1 if not part of a map */
+	private int index;
 	
 	/**
 	 * Constructor. Creates a map node to a location.
@@ -34,6 +44,7 @@ public class MapNode implements Comparable<MapNode> {
 		this.location = location;
 		this.neighbors = new Vector<MapNode>();
 		type = 0;
+		index = -1;
 	}
 	
 	/**
@@ -83,7 +94,7 @@ public class MapNode implements Comparable<MapNode> {
 	 * @return A bit mask for the given type
 	 * @throws SettingsError if the type is out of range
 	 */
-	private int typeToBitMask(int type) {
+	static int typeToBitMask(int type) {
 		assert type >= MIN_TYPE && type <= MAX_TYPE : "Invalid node type "+type;
 		return 1 << type; // create the mask by bitwise shift
 	}
@@ -119,6 +130,31 @@ public class MapNode implements Comparable<MapNode> {
 		return location;
 	}
 	
+	/**
+	 * Returns the type bit mask of this node
+	 * @return the type bit mask of this node or 0 if no types are defined
+	 */
+	public int getTypeMask() {
+		return this.type;
+	}
+	
+	/**
+	 * Returns the index of this node in its SimMap
+	 * @return the index of this node or -1 if it isn't part of a map
+	 * @see MapGraph
+	 */
+	public int getIndex() {
+		return this.index;
+	}
+	
+	/**
+	 * Sets the index of this node in its SimMap
+	 * @param index The index
+	 */
+	void setIndex(int index) {
+		this.index = index;
+	}
+	
 	/**
 	 * Returns the neighbors of this node.
 	 * @return the neighbors in a list
@@ -142,5 +178,17 @@ public class MapNode implements Comparable<MapNode> {
 	public int compareTo(MapNode o) {
 		return this.getLocation().compareTo((o).getLocation());
 	}
+
+	/**
+	 * Reads the node from a stream. The neighbors are added by the map.
+	 * @param in The stream to read from
+	 * @throws IOException if reading failed
+	 * @throws ClassNotFoundException if a class of the stream wasn't found
+	 */
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.neighbors = new Vector<MapNode>();
+	}
 	
 }
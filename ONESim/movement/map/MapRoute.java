@@ -8,6 +8,7 @@ import input.WKTReader;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -19,7 +20,9 @@ import core.SettingsError;
  * and the type is determined by the type parameter ({@value #CIRCULAR}
  * or {@value #PINGPONG}).
  */
-public class MapRoute {
+public class MapRoute implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Type of the route ID: circular ({@value}). 
 	 * After reaching the last node on path, the next node is the first node */
 	public static final int CIRCULAR = 1;
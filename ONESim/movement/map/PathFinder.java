@@ -0,0 +1,24 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Interface for classes that find shortest paths between map nodes of a
+ * {@link SimMap}.
+ */
+public interface PathFinder extends Serializable {
+
+	/**
+	 * Finds and returns a shortest path between two map nodes
+	 * @param from The source of the path
+	 * @param to The destination of the path
+	 * @return a shortest path between the source and destination nodes in
+	 * a list of MapNodes or an empty list if such path is not available
+	 */
+	public List<MapNode> getShortestPath(MapNode from, MapNode to);
+}
@@ -8,6 +8,7 @@ import input.WKTReader;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -21,7 +22,9 @@ import core.Tuple;
 /**
  * Handler for points of interest data.
  */
-public class PointsOfInterest {
+public class PointsOfInterest implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Points Of Interest settings namespace ({@value})*/
 	public static final String POI_NS = "PointsOfInterest";
 	/** Points Of Interest file path -prefix id ({@value})*/
@@ -99,6 +102,18 @@ public class PointsOfInterest {
 		return node;
 	}
  
+	/**
+	 * Returns all the POI nodes of the selected POI groups
+	 * @return The POI nodes in a list (empty if no POIs are defined)
+	 */
+	public List<MapNode> getPoiNodes() {
+		List<MapNode> nodes = new ArrayList<MapNode>();
+		for (Tuple<Double, Integer> t : poiProbs) {
+			nodes.addAll(poiLists.get(t.getValue()));
+		}
+		return nodes;
+	}
+ 
 	/**
 	 * Reads POI selections and their probabilities from given Settings and
 	 * stores them to <CODE>poiLists</CODE> and <CODE>poiProbs</CODE>.
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import core.DTNSim;
+
+/**
+ * Path finder that caches shortest path trees by their source node. Trip
+ * destinations of most map based movement models are selected from a small
+ * set of map nodes (POIs, offices, meeting spots, bus stops), so the next
+ * trip usually starts from a node whose tree has already been computed.
+ * Trees are kept in a bounded least-recently-used cache; trees of
+ * explicitly precomputed sources are never evicted. Caches are shared by all
+ * movement models that use the same map and map node type restrictions.
+ */
+public class ShortestPathCache implements PathFinder {
+	private static final long serialVersionUID = 42L;
+
+	/** All caches created during this run */
+	private static List<ShortestPathCache> caches;
+
+	/** The map of the cache */
+	private SimMap map;
+	/** The OK map node types of the cache */
+	private int[] okMapNodes;
+	/** Finder used for computing the missing trees */
+	private DijkstraPathFinder finder;
+	/** LRU cache of shortest path trees by source node index */
+	private Map<Integer, int[]> trees;
+	/** Precomputed trees that are never evicted */
+	private Map<Integer, int[]> pinnedTrees;
+	/** Maximum number of (non-precomputed) trees in the cache */
+	private int maxSize;
+
+	/** Number of queries answered from the cache */
+	private long hits;
+	/** Number of queries that required computing a new tree */
+	private long misses;
+	/** Number of trees evicted from the cache */
+	private long evictions;
+
+	static {
+		DTNSim.registerForReset(ShortestPathCache.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Constructor.
+	 * @param map The map whose paths are searched
+	 * @param okMapNodes The map node types that are OK for paths or null if
+	 * all nodes are OK
+	 * @param maxSize Maximum number of (non-precomputed) trees to cache
+	 */
+	private ShortestPathCache(SimMap map, int[] okMapNodes, int maxSize) {
+		this.map = map;
+		this.okMapNodes = okMapNodes;
+		this.maxSize = maxSize;
+		this.finder = new DijkstraPathFinder(map, okMapNodes);
+		this.pinnedTrees = new HashMap<Integer, int[]>();
+		this.trees = new LinkedHashMap<Integer, int[]>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<Integer, int[]> e) {
+				if (size() > ShortestPathCache.this.maxSize) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns a cache for the given map and map node types. If a cache for
+	 * the same map and types already exists, that cache is returned and its
+	 * maximum size is raised to the requested size if that is larger.
+	 * @param map The map whose paths are searched
+	 * @param okMapNodes The map node types that are OK for paths or null if
+	 * all nodes are OK
+	 * @param maxSize Maximum number of trees to cache
+	 * @return A (shared) cache
+	 */
+	public static ShortestPathCache getCache(SimMap map, int[] okMapNodes,
+			int maxSize) {
+		int mask = MapGraph.toTypeMask(okMapNodes);
+		for (ShortestPathCache c : caches) {
+			if (c.map == map && MapGraph.toTypeMask(c.okMapNodes) == mask) {
+				c.maxSize = Math.max(c.maxSize, maxSize);
+				return c;
+			}
+		}
+
+		ShortestPathCache c = new ShortestPathCache(map, okMapNodes, maxSize);
+		caches.add(c);
+		return c;
+	}
+
+	/**
+	 * Returns all the caches that have been created during this run
+	 * @return all the caches that have been created during this run
+	 */
+	public static List<ShortestPathCache> getCaches() {
+		return caches;
+	}
+
+	/**
+	 * Computes and stores the trees of the given source nodes. These trees
+	 * are never evicted from the cache.
+	 * @param sources The source nodes
+	 */
+	public void precompute(Collection<MapNode> sources) {
+		for (MapNode n : sources) {
+			Integer key = n.getIndex();
+			if (!pinnedTrees.containsKey(key)) {
+				int[] tree = trees.remove(key);
+				if (tree == null) {
+					tree = finder.getShortestPathTree(n);
+				}
+				pinnedTrees.put(key, tree);
+			}
+		}
+	}
+
+	/**
+	 * Finds and returns a shortest path between two map nodes using the
+	 * cached shortest path tree of the source node (computes and caches
+	 * the tree if it's not in the cache)
+	 * @param from The source of the path
+	 * @param to The destination of the path
+	 * @return a shortest path between the source and destination nodes in
+	 * a list of MapNodes or an empty list if such path is not available
+	 */
+	public List<MapNode> getShortestPath(MapNode from, MapNode to) {
+		List<MapNode> path = new LinkedList<MapNode>();
+
+		if (from.compareTo(to) == 0) { // source and destination are the same
+			path.add(from); // return a list containing only source node
+			return path;
+		}
+
+		int[] tree = getTree(from);
+		int target = to.getIndex();
+		if (tree[target] == DijkstraPathFinder.UNREACHABLE) {
+			return path; // no path available
+		}
+
+		MapGraph graph = map.getGraph();
+		for (int n = target; n != -1; n = tree[n]) {
+			path.add(0, graph.getNode(n)); // put previous node to beginning
+		}
+
+		return path;
+	}
+
+	/**
+	 * Returns the shortest path tree of a source node from the cache or
+	 * computes and caches it.
+	 * @param from The source node
+	 * @return The shortest path tree
+	 */
+	private int[] getTree(MapNode from) {
+		Integer key = from.getIndex();
+		int[] tree = pinnedTrees.get(key);
+		if (tree == null) {
+			tree = trees.get(key);
+		}
+
+		if (tree != null) {
+			hits++;
+		}
+		else {
+			misses++;
+			tree = finder.getShortestPathTree(from);
+			trees.put(key, tree);
+		}
+
+		return tree;
+	}
+
+	/**
+	 * Returns the number of queries answered from cached trees
+	 * @return the number of cache hits
+	 */
+	public long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Returns the number of queries that required computing a new tree
+	 * @return the number of cache misses
+	 */
+	public long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * Returns the number of trees evicted from the cache
+	 * @return the number of evictions
+	 */
+	public long getEvictions() {
+		return this.evictions;
+	}
+
+	/**
+	 * Returns the number of trees currently in the cache (including
+	 * precomputed ones)
+	 * @return the number of cached trees
+	 */
+	public int getSize() {
+		return this.trees.size() + this.pinnedTrees.size();
+	}
+
+	/**
+	 * Returns the number of precomputed trees in the cache
+	 * @return the number of precomputed trees
+	 */
+	public int getNrofPrecomputed() {
+		return this.pinnedTrees.size();
+	}
+
+	/**
+	 * Returns a String representation of the cache
+	 * @return a String representation of the cache
+	 */
+	public String toString() {
+		return "ShortestPathCache for " + map.getNodes().size() +
+			" node map (okMaps: " +
+			(okMapNodes == null ? "all" : Arrays.toString(okMapNodes)) + ")";
+	}
+
+	/**
+	 * Resets the static fields of the class
+	 */
+	public static void reset() {
+		caches = new ArrayList<ShortestPathCache>();
+	}
+}
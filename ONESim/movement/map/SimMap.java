@@ -4,6 +4,9 @@
  */
 package movement.map;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -15,6 +18,8 @@ import core.Coord;
  * A simulation map for node movement.
  */
 public class SimMap implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	private Coord minBound;
 	private Coord maxBound;
 	/** list representation of the map for efficient list-returning */
@@ -28,11 +33,16 @@ public class SimMap implements Serializable {
 	
 	/** is re-hash needed before using hash mode (some coordinates changed) */
 	private boolean needsRehash = false;
+	/** compact graph representation of the map (created on demand) */
+	private transient MapGraph graph = null;
 	
 	public SimMap(Map<Coord, MapNode> nodes) {
 		this.offset = new Coord(0,0);
 		this.nodes = new ArrayList<MapNode>(nodes.values());
 		this.nodesMap = nodes;
+		for (int i = 0, n = this.nodes.size(); i < n; i++) {
+			this.nodes.get(i).setIndex(i);
+		}
 		this.isMirrored = false;
 		setBounds();
 	}
@@ -45,6 +55,19 @@ public class SimMap implements Serializable {
 		return this.nodes;
 	}
 	
+	/**
+	 * Returns a compact (CSR) graph representation of the map. The graph is
+	 * created on the first call and re-created after the map's coordinates
+	 * have changed.
+	 * @return The graph representation of the map
+	 */
+	public MapGraph getGraph() {
+		if (graph == null) {
+			graph = new MapGraph(this.nodes);
+		}
+		return graph;
+	}
+	
 	/**
 	 * Returns a MapNode at given coordinates or null if there's no MapNode
 	 * in the location of the coordinate
@@ -111,6 +134,7 @@ public class SimMap implements Serializable {
 		offset.translate(dx, dy);
 		
 		needsRehash = true;
+		graph = null;
 	}
 	
 	/**
@@ -127,6 +151,7 @@ public class SimMap implements Serializable {
 		setBounds();
 		this.isMirrored = true;
 		needsRehash = true;
+		graph = null;
 	}
 	
 	/**
@@ -164,4 +189,39 @@ public class SimMap implements Serializable {
 	public String toString() {
 		return this.nodes.toString();
 	}
+
+	/**
+	 * Writes the map to a stream. The neighbors of the nodes are written
+	 * as indexes of the nodes, because serializing the neighbor lists
+	 * would recurse through the whole graph.
+	 * @param out The stream to write to
+	 * @throws IOException if writing failed
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		for (MapNode n : nodes) {
+			List<MapNode> neighbors = n.getNeighbors();
+			out.writeInt(neighbors.size());
+			for (MapNode neighbor : neighbors) {
+				assert nodes.get(neighbor.getIndex()) == neighbor;
+				out.writeInt(neighbor.getIndex());
+			}
+		}
+	}
+
+	/**
+	 * Reads the map from a stream
+	 * @param in The stream to read from
+	 * @throws IOException if reading failed
+	 * @throws ClassNotFoundException if a class of the stream wasn't found
+	 */
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		for (MapNode n : nodes) {
+			for (int i = in.readInt(); i > 0; i--) {
+				n.addNeighbor(nodes.get(in.readInt()));
+			}
+		}
+	}
 }
\ No newline at end of file
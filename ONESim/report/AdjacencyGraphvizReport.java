@@ -4,6 +4,7 @@
  */
 package report;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
 
@@ -15,6 +16,8 @@ import core.DTNHost;
  * Connections that happen during the warm up period are ignored.
  */
 public class AdjacencyGraphvizReport extends Report implements ConnectionListener {
+	private static final long serialVersionUID = 42L;
+
 	/** Name of the graphviz report ({@value})*/
 	public static final String GRAPH_NAME = "adjgraph";
 	
@@ -89,7 +92,9 @@ public class AdjacencyGraphvizReport extends Report implements ConnectionListene
 	 * Private class stores information of the connected hosts
 	 * and nrof times they have connected.
 	 */
-	private class ConnectionInfo {
+	private class ConnectionInfo implements Serializable {
+		private static final long serialVersionUID = 42L;
+
 		private DTNHost h1;
 		private DTNHost h2;
 		private int nrofConnections;
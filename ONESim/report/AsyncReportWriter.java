@@ -0,0 +1,235 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import core.SimError;
+
+/**
+ * Writes the lines of a report to a file in a separate thread. The report
+ * adds lines to blocks of a bounded ring buffer and the writer thread takes
+ * full blocks from there, converts the lines to text and writes them to the
+ * file in large chunks. Handing over whole blocks keeps the synchronization
+ * between the threads cheap. If all the blocks are full, adding a line waits
+ * until the writer thread has made room for it, so no lines are ever
+ * dropped.
+ * <p>
+ * A line is either a String, a {@link ReportLine} that converts its values
+ * to text in the writer thread, or an array of parts (see
+ * {@link Report#writeParts(Object...)}) that the writer thread converts to
+ * text: Double parts are formatted with {@link Report#format(double)},
+ * ReportLine parts append their own text, other parts are converted with
+ * {@link String#valueOf(Object)}, and null parts are skipped. The text is
+ * identical to what the report would have written itself.
+ */
+public class AsyncReportWriter {
+	/** maximum number of lines in one block */
+	private static final int MAX_BLOCK_SIZE = 256;
+	/** size of the text that is written to the file at once */
+	private static final int TEXT_SIZE = 64 * 1024;
+	/** line separator (the same that PrintWriter uses) */
+	private static final String NEWLINE =
+		System.getProperty("line.separator");
+
+	private Report report;
+	private Writer out;
+	/** blocks that are ready to be written (in order) */
+	private BlockingQueue<Block> filled;
+	/** blocks that can be filled */
+	private BlockingQueue<Block> free;
+	/** the block that is being filled (or null) */
+	private Block current;
+	private Thread thread;
+	/** exception from writing the lines (if any) */
+	private volatile Exception error;
+	private boolean closed;
+
+	/**
+	 * Creates a new writer and starts its writer thread
+	 * @param report The report whose lines are written
+	 * @param out The writer where the text is written to
+	 * @param capacity Maximum number of lines in the buffer
+	 */
+	public AsyncReportWriter(Report report, Writer out, int capacity) {
+		int blockSize = Math.min(MAX_BLOCK_SIZE, capacity);
+		int nrofBlocks = Math.max(2, (capacity + blockSize - 1) / blockSize);
+
+		this.report = report;
+		this.out = out;
+		this.filled = new ArrayBlockingQueue<Block>(nrofBlocks + 1);
+		this.free = new ArrayBlockingQueue<Block>(nrofBlocks);
+		for (int i = 0; i < nrofBlocks; i++) {
+			this.free.add(new Block(blockSize));
+		}
+		this.current = null;
+		this.closed = false;
+
+		this.thread = new Thread(new Runnable() {
+			public void run() {
+				writeLines();
+			}
+		}, report.getClass().getSimpleName() + "Writer");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Adds a line to the buffer. Waits if the buffer is full. Lines added
+	 * after the writer has been closed are ignored.
+	 * @param line The line (String, ReportLine or array of parts)
+	 */
+	public void add(Object line) {
+		if (closed) {
+			return;
+		}
+		if (error != null) {
+			throw new SimError("Couldn't write report", error);
+		}
+		try {
+			if (current == null) {
+				current = free.take();
+			}
+			current.lines[current.count++] = line;
+			if (current.count == current.lines.length) {
+				filled.put(current);
+				current = null;
+			}
+		} catch (InterruptedException e) {
+			throw new SimError("Interrupted while writing report", e);
+		}
+	}
+
+	/**
+	 * Waits until all the lines in the buffer are written and closes the
+	 * file.
+	 * @throws SimError if writing the lines failed
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (current != null) {
+				filled.put(current);
+				current = null;
+			}
+			filled.put(Block.CLOSE);
+			thread.join();
+		} catch (InterruptedException e) {
+			throw new SimError("Interrupted while closing report", e);
+		}
+		if (error != null) {
+			throw new SimError("Couldn't write report", error);
+		}
+	}
+
+	/**
+	 * Takes blocks from the buffer and writes their lines until the close
+	 * marker is found. If writing fails, the rest of the blocks are taken
+	 * from the buffer but not written. Run by the writer thread.
+	 */
+	private void writeLines() {
+		StringBuilder text = new StringBuilder(TEXT_SIZE + 1024);
+
+		try {
+			Block block;
+			while ((block = filled.take()) != Block.CLOSE) {
+				for (int i = 0; i < block.count; i++) {
+					if (error == null) {
+						writeLine(text, block.lines[i]);
+					}
+					block.lines[i] = null;
+				}
+				block.count = 0;
+				free.put(block);
+			}
+		} catch (InterruptedException e) {
+			return; /* only happens if the JVM is exiting */
+		}
+
+		try {
+			if (error == null) {
+				out.append(text);
+			}
+			out.close();
+		} catch (IOException e) {
+			if (error == null) {
+				error = e;
+			}
+		}
+	}
+
+	/**
+	 * Appends a line to the text and writes the text to the file if there
+	 * is enough of it
+	 * @param text The text
+	 * @param line The line (String, ReportLine or array of parts)
+	 */
+	private void writeLine(StringBuilder text, Object line) {
+		try {
+			append(text, line);
+			text.append(NEWLINE);
+			if (text.length() >= TEXT_SIZE) {
+				out.append(text);
+				text.setLength(0);
+			}
+		} catch (IOException e) {
+			error = e;
+		} catch (RuntimeException e) {
+			error = e;
+		}
+	}
+
+	/**
+	 * Appends the text of a line to a string builder
+	 * @param text The builder
+	 * @param line The line (String, ReportLine or array of parts)
+	 */
+	private void append(StringBuilder text, Object line) {
+		if (line instanceof String) {
+			text.append((String)line);
+			return;
+		}
+		if (line instanceof ReportLine) {
+			((ReportLine)line).appendTo(text);
+			return;
+		}
+
+		for (Object part : (Object[])line) {
+			if (part == null) {
+				continue;
+			}
+			if (part instanceof Double) {
+				text.append(report.format((Double)part));
+			}
+			else if (part instanceof ReportLine) {
+				((ReportLine)part).appendTo(text);
+			}
+			else {
+				text.append(part);
+			}
+		}
+	}
+
+	/**
+	 * A block of lines in the buffer
+	 */
+	private static class Block {
+		/** marker block that is added to the buffer when closing */
+		private static final Block CLOSE = new Block(0);
+		private Object[] lines;
+		private int count;
+
+		private Block(int size) {
+			this.lines = new Object[size];
+			this.count = 0;
+		}
+	}
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reader of binary columnar report files written by
+ * {@link BinaryReportWriter}. The file is read one chunk at a time: after
+ * {@link #nextChunk()} has returned true, the values of the chunk's rows
+ * can be read with the typed getters. The {@link #main(String[])} method
+ * prints a binary report as text for tools that can't read the binary
+ * format.
+ */
+public class BinaryReportReader {
+	private DataInputStream in;
+	private String[] names;
+	private byte[] types;
+	private int nrofRows;
+	/** values of the int columns (and string table indexes) */
+	private int[][] ints;
+	/** values of the double columns */
+	private double[][] doubles;
+	/** string tables of the string columns */
+	private String[][] strings;
+	private Inflater inflater;
+	private byte[] compressed;
+	private byte[] raw;
+
+	/**
+	 * Opens a binary report file and reads its header
+	 * @param fileName Path of the file
+	 * @throws IOException if the file couldn't be read or it isn't a
+	 * binary report file
+	 */
+	public BinaryReportReader(String fileName) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(fileName), 1 << 16));
+
+		if (in.readInt() != BinaryReportWriter.MAGIC) {
+			in.close();
+			throw new IOException("'" + fileName + "' is not a binary report");
+		}
+		int version = in.readInt();
+		if (version != BinaryReportWriter.VERSION) {
+			in.close();
+			throw new IOException("Unsupported binary report version " +
+					version + " in '" + fileName + "'");
+		}
+
+		int n = in.readInt();
+		this.names = new String[n];
+		this.types = new byte[n];
+		for (int c = 0; c < n; c++) {
+			names[c] = in.readUTF();
+			types[c] = in.readByte();
+		}
+
+		this.ints = new int[n][0];
+		this.doubles = new double[n][0];
+		this.strings = new String[n][0];
+		this.inflater = new Inflater();
+		this.compressed = new byte[0];
+		this.raw = new byte[0];
+		this.nrofRows = 0;
+	}
+
+	/**
+	 * Returns the number of columns in the report
+	 * @return the number of columns
+	 */
+	public int getNrofColumns() {
+		return names.length;
+	}
+
+	/**
+	 * Returns the name of a column
+	 * @param column Index of the column
+	 * @return the name of the column
+	 */
+	public String getColumnName(int column) {
+		return names[column];
+	}
+
+	/**
+	 * Returns the type of a column
+	 * @param column Index of the column
+	 * @return the type of the column (one of the TYPE_ constants of
+	 * {@link BinaryReportWriter})
+	 */
+	public byte getColumnType(int column) {
+		return types[column];
+	}
+
+	/**
+	 * Returns the index of the column with the given name
+	 * @param name Name of the column
+	 * @return the index of the column or -1 if there is no such column
+	 */
+	public int getColumnIndex(String name) {
+		for (int c = 0; c < names.length; c++) {
+			if (names[c].equals(name)) {
+				return c;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Reads the next chunk of rows
+	 * @return true if a chunk was read, false if there were no more chunks
+	 * @throws IOException if the chunk couldn't be read
+	 */
+	public boolean nextChunk() throws IOException {
+		try {
+			nrofRows = in.readInt();
+		} catch (EOFException e) {
+			nrofRows = 0;
+			return false;
+		}
+
+		for (int c = 0; c < types.length; c++) {
+			int length = readColumn();
+			DataInputStream col = new DataInputStream(
+					new ByteArrayInputStream(raw, 0, length));
+			if (types[c] == BinaryReportWriter.TYPE_STRING) {
+				int size = col.readInt();
+				if (strings[c].length < size) {
+					strings[c] = new String[size];
+				}
+				for (int i = 0; i < size; i++) {
+					strings[c][i] = col.readUTF();
+				}
+			}
+
+			if (types[c] == BinaryReportWriter.TYPE_DOUBLE) {
+				if (doubles[c].length < nrofRows) {
+					doubles[c] = new double[nrofRows];
+				}
+				for (int r = 0; r < nrofRows; r++) {
+					doubles[c][r] = col.readDouble();
+				}
+			}
+			else {
+				if (ints[c].length < nrofRows) {
+					ints[c] = new int[nrofRows];
+				}
+				for (int r = 0; r < nrofRows; r++) {
+					ints[c][r] = col.readInt();
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads and decompresses the data of one column of a chunk to the
+	 * raw data buffer
+	 * @return Length of the data
+	 * @throws IOException if the data couldn't be read
+	 */
+	private int readColumn() throws IOException {
+		int rawLength = in.readInt();
+		int length = in.readInt();
+		if (compressed.length < length) {
+			compressed = new byte[length];
+		}
+		if (raw.length < rawLength) {
+			raw = new byte[rawLength];
+		}
+		in.readFully(compressed, 0, length);
+
+		inflater.reset();
+		inflater.setInput(compressed, 0, length);
+		try {
+			int n = 0;
+			while (n < rawLength && !inflater.finished()) {
+				n += inflater.inflate(raw, n, rawLength - n);
+			}
+			if (n != rawLength) {
+				throw new IOException("Corrupted chunk: expected " +
+						rawLength + " bytes but got " + n);
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupted chunk: " + e.getMessage());
+		}
+		return rawLength;
+	}
+
+	/**
+	 * Returns the number of rows in the current chunk
+	 * @return the number of rows
+	 */
+	public int getNrofRows() {
+		return nrofRows;
+	}
+
+	/**
+	 * Returns a value of an int column
+	 * @param column Index of the column
+	 * @param row Index of the row in the current chunk
+	 * @return The value
+	 */
+	public int getInt(int column, int row) {
+		assert types[column] == BinaryReportWriter.TYPE_INT;
+		return ints[column][row];
+	}
+
+	/**
+	 * Returns a value of a double column
+	 * @param column Index of the column
+	 * @param row Index of the row in the current chunk
+	 * @return The value
+	 */
+	public double getDouble(int column, int row) {
+		assert types[column] == BinaryReportWriter.TYPE_DOUBLE;
+		return doubles[column][row];
+	}
+
+	/**
+	 * Returns a value of a string column
+	 * @param column Index of the column
+	 * @param row Index of the row in the current chunk
+	 * @return The value (may be null)
+	 */
+	public String getString(int column, int row) {
+		assert types[column] == BinaryReportWriter.TYPE_STRING;
+		int index = ints[column][row];
+		return index < 0 ? null : strings[column][index];
+	}
+
+	/**
+	 * Returns a value of any column as text
+	 * @param column Index of the column
+	 * @param row Index of the row in the current chunk
+	 * @return The value as text ("-" for null strings)
+	 */
+	public String getText(int column, int row) {
+		switch (types[column]) {
+		case BinaryReportWriter.TYPE_INT:
+			return String.valueOf(getInt(column, row));
+		case BinaryReportWriter.TYPE_DOUBLE:
+			return String.valueOf(getDouble(column, row));
+		default:
+			String s = getString(column, row);
+			return s != null ? s : "-";
+		}
+	}
+
+	/**
+	 * Closes the file
+	 * @throws IOException if closing failed
+	 */
+	public void close() throws IOException {
+		inflater.end();
+		in.close();
+	}
+
+	/**
+	 * Prints a binary report as text: a header line with the names of the
+	 * columns (prefixed with '#') and a line with space separated values for
+	 * every row.
+	 * @param args The name of the binary report file
+	 * @throws IOException if the file couldn't be read
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.out.println("Usage: java report.BinaryReportReader " +
+					"reportFile" + BinaryReportWriter.BINARY_SUFFIX);
+			System.exit(1);
+		}
+
+		BinaryReportReader reader = new BinaryReportReader(args[0]);
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out),
+				1 << 16);
+		int n = reader.getNrofColumns();
+
+		out.write("#");
+		for (int c = 0; c < n; c++) {
+			out.write(" " + reader.getColumnName(c));
+		}
+		out.write("\n");
+
+		while (reader.nextChunk()) {
+			for (int r = 0, rows = reader.getNrofRows(); r < rows; r++) {
+				for (int c = 0; c < n; c++) {
+					if (c > 0) {
+						out.write(' ');
+					}
+					out.write(reader.getText(c, r));
+				}
+				out.write('\n');
+			}
+		}
+
+		out.flush();
+		reader.close();
+	}
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import core.SimError;
+
+/**
+ * Writer of binary columnar report files. A report file consists of a header
+ * that describes the columns (name and type of every column) and a sequence
+ * of chunks. Every chunk contains the values of up to
+ * {@link #DEF_CHUNK_ROWS} rows, stored column by column, and every column of
+ * a chunk is compressed separately.
+ * <p>
+ * File format (all values in big endian):
+ * <pre>
+ * int magic ({@value #MAGIC}), int version ({@value #VERSION})
+ * int nrofColumns, nrofColumns * (UTF name, byte type)
+ * chunks: int nrofRows, nrofColumns * (int rawLength, int compressedLength,
+ *         compressedLength bytes of deflated column data)
+ * </pre>
+ * The column data of a {@link #TYPE_INT} column has an int per row and a
+ * {@link #TYPE_DOUBLE} column a double per row. A {@link #TYPE_STRING}
+ * column starts with the chunk's string table (int size, size * UTF
+ * string) and continues with an int per row that is an index to the table
+ * (or -1 for null values). The chunks continue until the end of the file.
+ * @see BinaryReportReader
+ */
+public class BinaryReportWriter {
+	/** Identifier of binary report files ({@value}) */
+	public static final int MAGIC = 0x4F4E4552;
+	/** Version of the file format ({@value}) */
+	public static final int VERSION = 1;
+	/** Suffix of binary report files */
+	public static final String BINARY_SUFFIX = ".bin";
+	/** Default number of rows per chunk ({@value}) */
+	public static final int DEF_CHUNK_ROWS = 1 << 16;
+
+	/** Type of columns with int values */
+	public static final byte TYPE_INT = 0;
+	/** Type of columns with double values */
+	public static final byte TYPE_DOUBLE = 1;
+	/** Type of columns with string values */
+	public static final byte TYPE_STRING = 2;
+
+	private DataOutputStream out;
+	private byte[] types;
+	private int chunkRows;
+	private int nrofRows;
+	/** values of the int and string columns (string table indexes) */
+	private int[][] ints;
+	/** values of the double columns */
+	private double[][] doubles;
+	/** string tables of the string columns */
+	private List<List<String>> strings;
+	/** indexes of the strings in the string tables */
+	private List<Map<String, Integer>> stringIndexes;
+	private Deflater deflater;
+	private ByteArrayOutputStream raw;
+	private byte[] compressed;
+
+	/**
+	 * Creates a new writer and writes the header to the file
+	 * @param fileName Path of the file to create
+	 * @param names Names of the columns
+	 * @param types Types of the columns (one of the TYPE_ constants)
+	 * @throws SimError if the file couldn't be created
+	 */
+	public BinaryReportWriter(String fileName, String[] names, byte[] types) {
+		this(fileName, names, types, DEF_CHUNK_ROWS);
+	}
+
+	/**
+	 * Creates a new writer and writes the header to the file
+	 * @param fileName Path of the file to create
+	 * @param names Names of the columns
+	 * @param types Types of the columns (one of the TYPE_ constants)
+	 * @param chunkRows Number of rows per chunk
+	 * @throws SimError if the file couldn't be created
+	 */
+	public BinaryReportWriter(String fileName, String[] names, byte[] types,
+			int chunkRows) {
+		int n = names.length;
+		this.types = types.clone();
+		this.chunkRows = chunkRows;
+		this.nrofRows = 0;
+		this.ints = new int[n][];
+		this.doubles = new double[n][];
+		this.strings = new ArrayList<List<String>>(n);
+		this.stringIndexes = new ArrayList<Map<String, Integer>>(n);
+
+		for (int c = 0; c < n; c++) {
+			strings.add(null);
+			stringIndexes.add(null);
+			switch (types[c]) {
+			case TYPE_INT:
+				ints[c] = new int[chunkRows];
+				break;
+			case TYPE_DOUBLE:
+				doubles[c] = new double[chunkRows];
+				break;
+			case TYPE_STRING:
+				ints[c] = new int[chunkRows];
+				strings.set(c, new ArrayList<String>());
+				stringIndexes.set(c, new HashMap<String, Integer>());
+				break;
+			default:
+				throw new SimError("Unknown type " + types[c] +
+						" for column " + names[c]);
+			}
+		}
+
+		this.deflater = new Deflater(Deflater.BEST_SPEED);
+		this.raw = new ByteArrayOutputStream(chunkRows * 8);
+		this.compressed = new byte[chunkRows * 8 + 1024];
+
+		try {
+			this.out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(fileName), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(n);
+			for (int c = 0; c < n; c++) {
+				out.writeUTF(names[c]);
+				out.writeByte(types[c]);
+			}
+		} catch (IOException e) {
+			throw new SimError("Couldn't create binary report '" + fileName +
+					"': " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Adds a row to the report. Values of int and double columns must be
+	 * Numbers, values of string columns are converted with toString() (null
+	 * values are allowed).
+	 * @param values The values of the row in column order
+	 * @throws SimError if writing a full chunk to the file failed
+	 */
+	public void addRow(Object... values) {
+		assert values.length == types.length : "Expected " + types.length +
+			" values but got " + values.length;
+
+		for (int c = 0; c < types.length; c++) {
+			switch (types[c]) {
+			case TYPE_INT:
+				ints[c][nrofRows] = ((Number)values[c]).intValue();
+				break;
+			case TYPE_DOUBLE:
+				doubles[c][nrofRows] = ((Number)values[c]).doubleValue();
+				break;
+			default:
+				ints[c][nrofRows] = stringIndex(c, values[c]);
+			}
+		}
+
+		nrofRows++;
+		if (nrofRows == chunkRows) {
+			writeChunk();
+		}
+	}
+
+	/**
+	 * Returns the index of a value in a string column's string table.
+	 * Values that are not in the table are added to it.
+	 * @param column Index of the column
+	 * @param value The value
+	 * @return The index of the value or -1 for null values
+	 */
+	private int stringIndex(int column, Object value) {
+		if (value == null) {
+			return -1;
+		}
+		String s = value.toString();
+		Map<String, Integer> indexes = stringIndexes.get(column);
+		Integer index = indexes.get(s);
+		if (index == null) {
+			List<String> table = strings.get(column);
+			index = table.size();
+			table.add(s);
+			indexes.put(s, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Writes the rows that have been added since the previous chunk as
+	 * a new chunk
+	 */
+	private void writeChunk() {
+		if (nrofRows == 0) {
+			return;
+		}
+
+		try {
+			out.writeInt(nrofRows);
+			for (int c = 0; c < types.length; c++) {
+				raw.reset();
+				DataOutputStream col = new DataOutputStream(raw);
+				if (types[c] == TYPE_STRING) {
+					List<String> table = strings.get(c);
+					col.writeInt(table.size());
+					for (String s : table) {
+						col.writeUTF(s);
+					}
+					table.clear();
+					stringIndexes.get(c).clear();
+				}
+				for (int r = 0; r < nrofRows; r++) {
+					if (types[c] == TYPE_DOUBLE) {
+						col.writeDouble(doubles[c][r]);
+					}
+					else {
+						col.writeInt(ints[c][r]);
+					}
+				}
+				col.flush();
+				writeCompressed(raw.toByteArray());
+			}
+		} catch (IOException e) {
+			throw new SimError("Couldn't write binary report: " +
+					e.getMessage(), e);
+		}
+
+		nrofRows = 0;
+	}
+
+	/**
+	 * Compresses the data of a column and writes it to the file
+	 * @param data The data
+	 * @throws IOException if writing failed
+	 */
+	private void writeCompressed(byte[] data) throws IOException {
+		deflater.reset();
+		deflater.setInput(data);
+		deflater.finish();
+
+		int length = 0;
+		while (!deflater.finished()) {
+			if (length == compressed.length) {
+				compressed = Arrays.copyOf(compressed, length * 2);
+			}
+			length += deflater.deflate(compressed, length,
+					compressed.length - length);
+		}
+
+		out.writeInt(data.length);
+		out.writeInt(length);
+		out.write(compressed, 0, length);
+	}
+
+	/**
+	 * Writes the remaining rows and closes the file. Calling this method for
+	 * a closed writer has no effect.
+	 * @throws SimError if writing failed
+	 */
+	public void close() {
+		if (out == null) {
+			return;
+		}
+		writeChunk();
+		deflater.end();
+		try {
+			out.close();
+			out = null;
+		} catch (IOException e) {
+			throw new SimError("Couldn't close binary report: " +
+					e.getMessage(), e);
+		}
+	}
+}
@@ -10,14 +10,22 @@ import core.DTNHost;
 /**
  * Link connectivity report generator for ONE StandardEventsReader input.
  * Connections that start during the warm up period are ignored.
+ * In binary output mode (see {@link Report#BINARY_OUTPUT_S}) the events are
+ * written to the columns time, host1, host2 (host1 has the lower address)
+ * and state ("up" or "down").
  */
 public class ConnectivityONEReport extends Report 
 	implements ConnectionListener {	
+	private static final long serialVersionUID = 42L;
 	
 	/**
 	 * Constructor.
 	 */
 	public ConnectivityONEReport() {
+		setBinaryColumns(new String[] {"time", "host1", "host2", "state"},
+				new byte[] {BinaryReportWriter.TYPE_DOUBLE,
+				BinaryReportWriter.TYPE_INT, BinaryReportWriter.TYPE_INT,
+				BinaryReportWriter.TYPE_STRING});
 		init();
 	}
 		
@@ -27,6 +35,10 @@ public class ConnectivityONEReport extends Report
 			return;
 		}
 		newEvent();
+		if (isBinaryOutput()) {
+			writeConnectionRecord(h1, h2, "up");
+			return;
+		}
 		write(createTimeStamp() + " CONN " + connectionString(h1, h2) + " up");
 	}
 	
@@ -38,8 +50,24 @@ public class ConnectivityONEReport extends Report
 			return;
 		} 
 		 		
+		if (isBinaryOutput()) {
+			writeConnectionRecord(h1, h2, "down");
+			return;
+		}
 		write(createTimeStamp() + " CONN " + conString + " down");
 	}
+
+	/**
+	 * Writes a connection event to the binary output
+	 * @param h1 The other node of the connection
+	 * @param h2 The other node of the connection
+	 * @param state State of the connection ("up" or "down")
+	 */
+	private void writeConnectionRecord(DTNHost h1, DTNHost h2, String state) {
+		int a1 = Math.min(h1.getAddress(), h2.getAddress());
+		int a2 = Math.max(h1.getAddress(), h2.getAddress());
+		writeRecord(getSimTime(), a1, a2, state);
+	}
 	
 	/**
 	 * Creates and returns a "@" prefixed time stamp of the current simulation
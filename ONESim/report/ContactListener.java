@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import core.DTNHost;
+
+/**
+ * Interface for reports that want to be informed about contacts between
+ * hosts through the shared {@link ContactTracker}. Every connection event
+ * has a sequence number (see {@link ContactTracker#getEventCount()}) that
+ * listeners can use to ignore contacts that started before some point.
+ */
+public interface ContactListener {
+
+	/**
+	 * Method is called when a contact between two hosts starts
+	 * @param host1 Host that initiated the connection
+	 * @param host2 Host that was connected to
+	 * @param lastEndTime Time when the previous contact of the hosts ended
+	 * or -1 if the hosts haven't been in contact before
+	 * @param lastEndEvent Sequence number of the event that ended the
+	 * previous contact or -1 if the hosts haven't been in contact before
+	 */
+	public void contactStarted(DTNHost host1, DTNHost host2,
+			double lastEndTime, long lastEndEvent);
+
+	/**
+	 * Method is called when a contact between two hosts ends
+	 * @param host1 Host that initiated the disconnection
+	 * @param host2 Host at the other end of the connection
+	 * @param startTime Time when the contact started or -1 if the start
+	 * wasn't seen
+	 * @param startEvent Sequence number of the event that started the
+	 * contact or -1 if the start wasn't seen
+	 */
+	public void contactEnded(DTNHost host1, DTNHost host2,
+			double startTime, long startEvent);
+}
@@ -4,10 +4,8 @@
  */
 package report;
 
-import java.util.HashMap;
 import java.util.Vector;
 
-import core.ConnectionListener;
 import core.DTNHost;
 import core.Settings;
 
@@ -16,9 +14,18 @@ import core.Settings;
  * of each other) distribution. Report file contains the count of connections
  * that lasted for certain amount of time. Syntax:<br>
  * <code>time nrofContacts</code>
+ * <p>
+ * The contacts are tracked by the shared {@link ContactTracker}, so all the
+ * contact reports together cost one lookup per connection event.
  */
-public class ContactTimesReport extends Report implements ConnectionListener {
-	protected HashMap<ConnectionInfo, ConnectionInfo> connections;
+public class ContactTimesReport extends Report implements ContactListener {
+	private static final long serialVersionUID = 42L;
+
+	/** The contact tracker this report listens to */
+	protected ContactTracker tracker;
+	/** Sequence number of the first connection event of the current report
+	 * file. Contacts of earlier events are ignored. */
+	protected long firstEvent;
 	private Vector<Integer> nrofContacts;
 	
 	/** Granularity -setting id ({@value}). Defines how many simulated seconds
@@ -31,6 +38,8 @@ public class ContactTimesReport extends Report implements ConnectionListener {
 	 * Constructor.
 	 */
 	public ContactTimesReport() {
+		this.tracker = ContactTracker.getInstance();
+		this.tracker.addListener(this);
 		Settings settings = getSettings();
 		if (settings.contains(GRANULARITY)) {
 			this.granularity = settings.getDouble(GRANULARITY);
@@ -45,42 +54,36 @@ public class ContactTimesReport extends Report implements ConnectionListener {
 	@Override
 	protected void init() {
 		super.init();
-		this.connections = new HashMap<ConnectionInfo,ConnectionInfo>();
+		this.firstEvent = tracker.getEventCount();
 		this.nrofContacts = new Vector<Integer>();
 	}
 		
-	public void hostsConnected(DTNHost host1, DTNHost host2) {
-		if (isWarmup()) {
-			return;
-		}
-		addConnection(host1, host2);
-	}
+	public void contactStarted(DTNHost host1, DTNHost host2,
+			double lastEndTime, long lastEndEvent) {}
 
-	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+	public void contactEnded(DTNHost host1, DTNHost host2,
+			double startTime, long startEvent) {
 		newEvent();
-		ConnectionInfo ci = removeConnection(host1, host2);
 		
-		if (ci == null) {
+		if (!isReported(startTime, startEvent)) {
 			return; /* the connection was started during the warm up period */
 		}
 		
-		ci.connectionEnd();
-		increaseTimeCount(ci.getConnectionTime());
+		increaseTimeCount(getSimTime() - startTime);
 	}
-	
-	protected void addConnection(DTNHost host1, DTNHost host2) {
-		ConnectionInfo ci = new ConnectionInfo(host1, host2);
-		
-		assert !connections.containsKey(ci) : "Already contained "+
-			" a connection of " + host1 + " and " + host2;
-		
-		connections.put(ci,ci);
-	}
-	
-	protected ConnectionInfo removeConnection(DTNHost host1, DTNHost host2) {
-		ConnectionInfo ci = new ConnectionInfo(host1, host2);
-		ci = connections.remove(ci);
-		return ci;
+
+	/**
+	 * Returns true if a contact that started at the given time and event
+	 * belongs to this report, i.e., it didn't start during the warm up
+	 * period or before the current report file was started
+	 * @param startTime Time when the contact started (-1 if not known)
+	 * @param startEvent Sequence number of the event that started the
+	 * contact (-1 if not known)
+	 * @return true if the contact should be reported
+	 */
+	protected boolean isReported(double startTime, long startEvent) {
+		return startEvent >= 0 && startEvent >= this.firstEvent &&
+			startTime >= this.warmupTime;
 	}
 		
 	/**
@@ -119,95 +122,4 @@ public class ContactTimesReport extends Report implements ConnectionListener {
 		
 		super.done();
 	}
-
-	
-	/**
-	 * Objects of this class store time information about contacts.
-	 */
-	protected class ConnectionInfo {
-		private double startTime;
-		private double endTime;
-		private DTNHost h1;
-		private DTNHost h2;
-		
-		public ConnectionInfo (DTNHost h1, DTNHost h2){
-			this.h1 = h1;
-			this.h2 = h2;
-			this.startTime = getSimTime();
-			this.endTime = -1;
-		}
-		
-		/**
-		 * Should be called when the connection ended to record the time.
-		 * Otherwise {@link #getConnectionTime()} will use end time as
-		 * the time of the request.
-		 */
-		public void connectionEnd() {
-			this.endTime = getSimTime();
-		}
-		
-		/**
-		 * Returns the time that passed between creation of this info 
-		 * and call to {@link #connectionEnd()}. Unless connectionEnd() is 
-		 * called, the difference between start time and current sim time
-		 * is returned.
-		 * @return The amount of simulated seconds passed between creation of
-		 * this info and calling connectionEnd()
-		 */
-		public double getConnectionTime() {
-			if (this.endTime == -1) {
-				return getSimTime() - this.startTime;
-			}			
-			else {
-				return this.endTime - this.startTime;
-			}
-		}
-		
-		/**
-		 * Returns true if the other connection info contains the same hosts. 
-		 */
-		public boolean equals(Object other) {
-			if (!(other instanceof ConnectionInfo)) {
-				return false;
-			}
-			
-			ConnectionInfo ci = (ConnectionInfo)other;
-
-			if ((h1 == ci.h1 && h2 == ci.h2)) {
-				return true;
-			}
-			else if ((h1 == ci.h2 && h2 == ci.h1)) {
-				// bidirectional connection the other way
-				return true;
-			}
-			return false;
-		}
-		
-		/**
-		 * Returns the same hash for ConnectionInfos that have the
-		 * same two hosts.
-		 * @return Hash code
-		 */
-		public int hashCode() {
-			String hostString;
-
-			if (this.h1.compareTo(this.h2) < 0) {
-				hostString = h1.toString() + "-" + h2.toString();
-			}
-			else {
-				hostString = h2.toString() + "-" + h1.toString();
-			}
-			
-			return hostString.hashCode();
-		}
-		
-		/**
-		 * Returns a string representation of the info object
-		 * @return a string representation of the info object
-		 */
-		public String toString() {
-			return this.h1 + "<->" + this.h2 + " [" + this.startTime
-				+"-"+ (this.endTime >0 ? this.endTime : "n/a") + "]";
-		}
-	}
 }
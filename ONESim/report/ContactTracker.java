@@ -0,0 +1,273 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import core.ConnectionListener;
+import core.DTNHost;
+import core.DTNSim;
+import core.SimClock;
+import core.SimScenario;
+
+/**
+ * Tracks the contacts between all pairs of hosts for the contact reports.
+ * The tracker is the only connection listener of the contact reports: it
+ * finds the state of the host pair with a single lookup per connection
+ * event and passes the start or end time of the contact to all the
+ * {@link ContactListener}s. The state of a pair is stored in primitive
+ * arrays of an open addressing hash table whose key is the pair of host
+ * addresses packed into a long.
+ * <p>
+ * The tracker is created and registered as a connection listener of the
+ * scenario when it is first requested with {@link #getInstance()}.
+ */
+public class ContactTracker implements ConnectionListener, Serializable {
+	private static final long serialVersionUID = 42L;
+
+	/** initial capacity of the hash table (must be a power of two) */
+	private static final int INIT_CAPACITY = 1024;
+	/** marker for free slots of the hash table */
+	private static final long FREE = -1;
+
+	private static ContactTracker instance;
+
+	private List<ContactListener> listeners;
+	/** number of connection events so far */
+	private long eventCount;
+	/** number of pairs in the table */
+	private int size;
+	/** pair keys of the table slots */
+	private long[] keys;
+	/** start times of the pairs' latest contacts (-1 if none) */
+	private double[] startTimes;
+	/** sequence numbers of the events that started the latest contacts */
+	private long[] startEvents;
+	/** end times of the pairs' latest finished contacts (-1 if none) */
+	private double[] endTimes;
+	/** sequence numbers of the events that ended the latest contacts */
+	private long[] endEvents;
+	/** is the latest contact of a pair still going on */
+	private boolean[] open;
+	/** slots of the pairs whose contact is going on */
+	private int[] openSlots;
+	/** number of the slots in {@link #openSlots} */
+	private int nrofOpen;
+	/** index of every open slot in {@link #openSlots} */
+	private int[] openIndexes;
+
+	static {
+		DTNSim.registerForReset(ContactTracker.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Returns the tracker of the current simulation. The tracker is
+	 * created and registered to the scenario on the first call.
+	 * @return The tracker
+	 */
+	public static ContactTracker getInstance() {
+		if (instance == null) {
+			instance = new ContactTracker();
+			SimScenario.getInstance().addConnectionListener(instance);
+		}
+		return instance;
+	}
+
+	/**
+	 * Constructor.
+	 */
+	private ContactTracker() {
+		this.listeners = new ArrayList<ContactListener>();
+		this.eventCount = 0;
+		this.size = 0;
+		this.nrofOpen = 0;
+		allocate(INIT_CAPACITY);
+	}
+
+	/**
+	 * Allocates empty table arrays
+	 * @param capacity Capacity of the table
+	 */
+	private void allocate(int capacity) {
+		this.keys = new long[capacity];
+		Arrays.fill(keys, FREE);
+		this.startTimes = new double[capacity];
+		this.startEvents = new long[capacity];
+		this.endTimes = new double[capacity];
+		this.endEvents = new long[capacity];
+		this.open = new boolean[capacity];
+		this.openSlots = new int[capacity];
+		this.openIndexes = new int[capacity];
+	}
+
+	/**
+	 * Adds a listener that is informed about the starts and ends of
+	 * contacts
+	 * @param l The listener
+	 */
+	public void addListener(ContactListener l) {
+		this.listeners.add(l);
+	}
+
+	/**
+	 * Returns the number of connection events so far. The next connection
+	 * event gets this number as its sequence number.
+	 * @return the number of connection events
+	 */
+	public long getEventCount() {
+		return this.eventCount;
+	}
+
+	/**
+	 * Returns the sum of the durations (until now) of the ongoing contacts
+	 * that started at or after the given time and event
+	 * @param minStartTime Contacts that started before this time are
+	 * ignored
+	 * @param minStartEvent Contacts that were started by an event whose
+	 * sequence number is smaller than this are ignored
+	 * @return The sum of the durations
+	 */
+	public double getOpenContactTime(double minStartTime, long minStartEvent) {
+		double now = SimClock.getTime();
+		double sum = 0;
+		for (int j = 0; j < nrofOpen; j++) {
+			int i = openSlots[j];
+			if (startTimes[i] >= minStartTime &&
+					startEvents[i] >= minStartEvent) {
+				sum += now - startTimes[i];
+			}
+		}
+		return sum;
+	}
+
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		int i = slot(host1, host2);
+		long event = eventCount++;
+		double lastEndTime = endTimes[i];
+		long lastEndEvent = endEvents[i];
+
+		startTimes[i] = SimClock.getTime();
+		startEvents[i] = event;
+		if (!open[i]) {
+			open[i] = true;
+			openIndexes[i] = nrofOpen;
+			openSlots[nrofOpen++] = i;
+		}
+
+		for (ContactListener l : listeners) {
+			l.contactStarted(host1, host2, lastEndTime, lastEndEvent);
+		}
+	}
+
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		int i = slot(host1, host2);
+		long event = eventCount++;
+		double startTime = open[i] ? startTimes[i] : -1;
+		long startEvent = open[i] ? startEvents[i] : -1;
+
+		endTimes[i] = SimClock.getTime();
+		endEvents[i] = event;
+		if (open[i]) {
+			open[i] = false;
+			/* move the last open slot to the place of this one */
+			int last = openSlots[--nrofOpen];
+			openSlots[openIndexes[i]] = last;
+			openIndexes[last] = openIndexes[i];
+		}
+
+		for (ContactListener l : listeners) {
+			l.contactEnded(host1, host2, startTime, startEvent);
+		}
+	}
+
+	/**
+	 * Returns the table slot of a host pair. A new slot is taken into use
+	 * if the pair isn't in the table yet.
+	 * @param host1 One host of the pair
+	 * @param host2 The other host of the pair
+	 * @return Index of the pair's slot
+	 */
+	private int slot(DTNHost host1, DTNHost host2) {
+		long a1 = host1.getAddress();
+		long a2 = host2.getAddress();
+		long key = a1 < a2 ? (a1 << 32) | a2 : (a2 << 32) | a1;
+
+		int i = indexOf(key, keys);
+		if (keys[i] == FREE) {
+			if (2 * (size + 1) > keys.length) {
+				grow();
+				i = indexOf(key, keys);
+			}
+			keys[i] = key;
+			startTimes[i] = -1;
+			startEvents[i] = -1;
+			endTimes[i] = -1;
+			endEvents[i] = -1;
+			open[i] = false;
+			size++;
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the slot of a key in a table: either the slot that has the key
+	 * or the free slot where the key should be put
+	 * @param key The key
+	 * @param table The keys of the table
+	 * @return Index of the slot
+	 */
+	private static int indexOf(long key, long[] table) {
+		int mask = table.length - 1;
+		long h = key * 0x9E3779B97F4A7C15L;
+		int i = (int)(h ^ (h >>> 32)) & mask;
+		while (table[i] != FREE && table[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Doubles the capacity of the table
+	 */
+	private void grow() {
+		long[] oldKeys = keys;
+		double[] oldStartTimes = startTimes;
+		long[] oldStartEvents = startEvents;
+		double[] oldEndTimes = endTimes;
+		long[] oldEndEvents = endEvents;
+		boolean[] oldOpen = open;
+		int[] oldOpenSlots = openSlots;
+
+		allocate(oldKeys.length * 2);
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != FREE) {
+				int i = indexOf(oldKeys[j], keys);
+				keys[i] = oldKeys[j];
+				startTimes[i] = oldStartTimes[j];
+				startEvents[i] = oldStartEvents[j];
+				endTimes[i] = oldEndTimes[j];
+				endEvents[i] = oldEndEvents[j];
+				open[i] = oldOpen[j];
+			}
+		}
+		/* the slots of the open pairs changed */
+		for (int j = 0; j < nrofOpen; j++) {
+			int i = indexOf(oldKeys[oldOpenSlots[j]], keys);
+			openSlots[j] = i;
+			openIndexes[i] = j;
+		}
+	}
+
+	/**
+	 * Forgets the tracker of the previous simulation
+	 */
+	public static void reset() {
+		instance = null;
+	}
+}
@@ -25,6 +25,7 @@ import core.UpdateListener;
  */
 public class ContactsDuringAnICTReport extends Report 
 	implements ConnectionListener, UpdateListener {
+	private static final long serialVersionUID = 42L;
 
 	private boolean[][] areDisconnected;
 	private int[][] contactCount;
@@ -14,6 +14,8 @@ import core.MessageListener;
  * For output syntax, see {@link #HEADER}.
  */
 public class CreatedMessagesReport extends Report implements MessageListener {
+	private static final long serialVersionUID = 42L;
+
 	public static String HEADER = "# time  ID  size  fromHost  toHost  TTL  " + 
 		"isResponse";
 
@@ -37,9 +39,9 @@ public class CreatedMessagesReport extends Report implements MessageListener {
 		}
 		
 		int ttl = m.getTtl();
-		write(format(getSimTime()) + " " + m.getId() + " " + 
-				m.getSize() + " " + m.getFrom() + " " + m.getTo() + " " +
-				(ttl != Integer.MAX_VALUE ? ttl : "n/a") +  
+		writeParts(getSimTime(), " ", m.getId(), " ", m.getSize(), " ",
+				m.getFrom().toString(), " ", m.getTo().toString(), " ",
+				(ttl != Integer.MAX_VALUE ? ttl : "n/a"),
 				(m.isResponse() ? " Y " : " N "));
 	}
 	
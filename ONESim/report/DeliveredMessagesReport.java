@@ -16,6 +16,8 @@ import core.MessageListener;
  * For output syntax, see {@link #HEADER}.
  */
 public class DeliveredMessagesReport extends Report implements MessageListener {
+	private static final long serialVersionUID = 42L;
+
 	public static String HEADER = "# time  ID  size  hopcount  deliveryTime  " +
 		"fromHost  toHost  remainingTtl  isResponse  path";
 
@@ -52,12 +54,11 @@ public class DeliveredMessagesReport extends Report implements MessageListener {
 			boolean firstDelivery) {
 		if (!isWarmupID(m.getId()) && firstDelivery) {
 			int ttl = m.getTtl();
-			write(format(getSimTime()) + " " + m.getId() + " " + 
-					m.getSize() + " " + m.getHopCount() + " " + 
-					format(getSimTime() - m.getCreationTime()) + " " + 
-					m.getFrom() + " " + m.getTo() + " " +
-					(ttl != Integer.MAX_VALUE ? ttl : "n/a") +  
-					(m.isResponse() ? " Y " : " N ") + getPathString(m));
+			writeParts(getSimTime(), " ", m.getId(), " ", m.getSize(), " ",
+					m.getHopCount(), " ", getSimTime() - m.getCreationTime(),
+					" ", m.getFrom().toString(), " ", m.getTo().toString(),
+					" ", (ttl != Integer.MAX_VALUE ? ttl : "n/a"),
+					(m.isResponse() ? " Y " : " N "), getPathString(m));
 		}
 	}
 
@@ -6,7 +6,6 @@ package report;
 
 import java.util.List;
 
-import core.ConnectionListener;
 import core.DTNHost;
 import core.UpdateListener;
 
@@ -16,7 +15,8 @@ import core.UpdateListener;
  * @author Frans Ekman
  */
 public class EncountersVSUniqueEncountersReport extends Report 
-	implements ConnectionListener, UpdateListener {
+	implements UpdateListener {
+	private static final long serialVersionUID = 42L;
 
 	private TotalEncountersReport totalEncountersReport;
 	private UniqueEncountersReport uniqueEncountersReport;
@@ -26,16 +26,6 @@ public class EncountersVSUniqueEncountersReport extends Report
 		uniqueEncountersReport = new UniqueEncountersReport();
 	}
 	
-	public void hostsConnected(DTNHost host1, DTNHost host2) {
-		totalEncountersReport.hostsConnected(host1, host2);
-		uniqueEncountersReport.hostsConnected(host1, host2);
-	}
-
-	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
-		totalEncountersReport.hostsDisconnected(host1, host2);
-		uniqueEncountersReport.hostsDisconnected(host1, host2);	
-	}
-
 	public void updated(List<DTNHost> hosts) {
 		totalEncountersReport.updated(hosts);
 		uniqueEncountersReport.updated(hosts);
@@ -15,10 +15,13 @@ import input.StandardEventsReader;
  * like {@link input.StandardEventsReader} input. Message relying event has
  * extra one-letter identifier to tell whether that message was delivered to
  * final destination, delivered there again, or just normally relayed 
- * (see the public constants).
+ * (see the public constants). In binary output mode (see
+ * {@link Report#BINARY_OUTPUT_S}) the fields of the events are written to
+ * the columns time, action, host1, host2, message and extra.
  */
 public class EventLogReport extends Report 
 	implements ConnectionListener, MessageListener {
+	private static final long serialVersionUID = 42L;
 
 	/** Extra info for message relayed event ("relayed"): {@value} */
 	public static final String MESSAGE_TRANS_RELAYED = "R";
@@ -26,6 +29,16 @@ public class EventLogReport extends Report
 	public static final String MESSAGE_TRANS_DELIVERED = "D";
 	/** Extra info for message relayed event ("delivered again"): {@value} */
 	public static final String MESSAGE_TRANS_DELIVERED_AGAIN = "A";
+
+	/**
+	 * Constructor.
+	 */
+	public EventLogReport() {
+		byte str = BinaryReportWriter.TYPE_STRING;
+		setBinaryColumns(new String[] {"time", "action", "host1", "host2",
+				"message", "extra"}, new byte[] {
+				BinaryReportWriter.TYPE_DOUBLE, str, str, str, str, str});
+	}
 	
 	/**
 	 * Processes a log event by writing a line to the report file
@@ -37,10 +50,12 @@ public class EventLogReport extends Report
 	 */
 	private void processEvent(final String action, final DTNHost host1, 
 			final DTNHost host2, final Message message, final String extra) {
-		write(getSimTime() + " " + action + " " + (host1 != null ? host1 : "")
-				+ (host2 != null ? (" " + host2) : "")
-				+ (message != null ? " " + message : "")
-				+ (extra != null ? " " + extra : ""));
+		if (isBinaryOutput()) {
+			writeRecord(getSimTime(), action, host1, host2, message, extra);
+			return;
+		}
+		writeLine(new EventLine(getSimTime(), action, host1, host2, message,
+				extra));
 	}
 	
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
@@ -85,4 +100,43 @@ public class EventLogReport extends Report
 	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
 		processEvent(StandardEventsReader.SEND, from, to, m, null);		
 	}
+
+	/**
+	 * Line of one log event. The hosts and the message are converted to
+	 * text only when the line is written.
+	 */
+	private static class EventLine implements ReportLine {
+		private double time;
+		private String action;
+		private DTNHost host1;
+		private DTNHost host2;
+		private Message message;
+		private String extra;
+
+		private EventLine(double time, String action, DTNHost host1,
+				DTNHost host2, Message message, String extra) {
+			this.time = time;
+			this.action = action;
+			this.host1 = host1;
+			this.host2 = host2;
+			this.message = message;
+			this.extra = extra;
+		}
+
+		public void appendTo(StringBuilder text) {
+			text.append(time).append(' ').append(action).append(' ');
+			if (host1 != null) {
+				text.append(host1);
+			}
+			if (host2 != null) {
+				text.append(' ').append(host2);
+			}
+			if (message != null) {
+				text.append(' ').append(message);
+			}
+			if (extra != null) {
+				text.append(' ').append(extra);
+			}
+		}
+	}
 }
\ No newline at end of file
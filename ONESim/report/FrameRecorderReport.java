@@ -0,0 +1,396 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import gui.playfield.MapGraphic;
+import gui.playfield.NodeGraphic;
+import gui.playfield.PlayFieldGraphic;
+import gui.playfield.ScaleReferenceGraphic;
+import gui.playfield.WorldSnapshot;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import core.DTNHost;
+import core.Settings;
+import core.SettingsError;
+import core.SimError;
+import core.SimScenario;
+import core.UpdateListener;
+
+/**
+ * Frame recorder report. Renders frames of the play field (like the GUI
+ * shows it) off-screen at a regular simulation time interval and writes them
+ * to PNG files for creating animations of headless runs. The state of the
+ * world is captured to a {@link WorldSnapshot} by the simulation thread and
+ * the frames are drawn and written by a pool of background threads, so the
+ * simulation only waits for them when all the snapshots are in use. The
+ * report's own output lists the written frames and their simulation times.
+ * <P>
+ * The drawing options of the play field graphics are global, so the frames
+ * should be recorded only in batch mode. The drawing threads and images
+ * aren't checkpointed; they are created again with the settings of the
+ * restored run when the simulation is restored.
+ */
+public class FrameRecorderReport extends Report implements UpdateListener {
+	private static final long serialVersionUID = 42L;
+
+	/** Frame interval -setting id ({@value}). Simulated seconds between
+	 * the frames. */
+	public static final String FRAME_INTERVAL_S = "frameInterval";
+	/** Frame directory -setting id ({@value}). Directory where the frames
+	 * are written. Default is the report directory's
+	 * <CODE>scenarioname_frames</CODE> subdirectory. */
+	public static final String FRAME_DIR_S = "frameDir";
+	/** Viewport -setting id ({@value}). Area of the world the frames show
+	 * (x, y, width, height in meters). Default is the whole world. */
+	public static final String VIEWPORT_S = "viewport";
+	/** Scale -setting id ({@value}). Pixels per meter in the frames.
+	 * Default is {@link #DEF_SCALE}. */
+	public static final String SCALE_S = "scale";
+	/** Layers -setting id ({@value}). Comma separated list of the drawn
+	 * layers in addition to the hosts; any of {@link #LAYER_MAP},
+	 * {@link #LAYER_COVERAGE}, {@link #LAYER_CONNECTIONS},
+	 * {@link #LAYER_NAMES} and {@link #LAYER_SCALE}. Default is all. */
+	public static final String LAYERS_S = "layers";
+	/** Number of threads -setting id ({@value}). Number of threads that
+	 * draw and write the frames. Default is {@link #DEF_NROF_THREADS}. */
+	public static final String NROF_THREADS_S = "nrofThreads";
+
+	/** Map layer name ({@value}) */
+	public static final String LAYER_MAP = "map";
+	/** Radio coverage layer name ({@value}) */
+	public static final String LAYER_COVERAGE = "coverage";
+	/** Connections layer name ({@value}) */
+	public static final String LAYER_CONNECTIONS = "connections";
+	/** Host names layer name ({@value}) */
+	public static final String LAYER_NAMES = "names";
+	/** Reference scale layer name ({@value}) */
+	public static final String LAYER_SCALE = "scale";
+
+	/** Default scale ({@value}) */
+	public static final double DEF_SCALE = 1;
+	/** Default number of threads ({@value}) */
+	public static final int DEF_NROF_THREADS = 2;
+	/** Number of snapshots per thread; limits the frames waiting for
+	 * drawing */
+	private static final int SNAPSHOTS_PER_THREAD = 2;
+	/** Background color of the frames */
+	private static final Color BG_COLOR = Color.WHITE;
+
+	private double frameInterval;
+	private double nextFrameTime;
+	private int nrofFrames;
+	private File frameDir;
+
+	/** viewport in pixels */
+	private int viewX, viewY, viewWidth, viewHeight;
+	private boolean drawScale;
+	/** the background (and map) of every frame */
+	private transient BufferedImage background;
+
+	private transient ExecutorService executor;
+	/** snapshots that are not being drawn */
+	private transient BlockingQueue<WorldSnapshot> freeSnapshots;
+	/** the renderer of each drawing thread */
+	private transient ThreadLocal<FrameRenderer> renderers;
+	/** the first failure of the drawing threads or null if none */
+	private transient volatile Throwable renderError;
+
+	/**
+	 * Constructor. Reads the settings and initializes the report module.
+	 */
+	public FrameRecorderReport() {
+		this.nextFrameTime = 0;
+		this.nrofFrames = 0;
+		setUp();
+		init();
+	}
+
+	/**
+	 * Creates the drawing threads again after a restore
+	 */
+	@Override
+	public void restored() {
+		super.restored();
+		setUp();
+	}
+
+	/**
+	 * Reads the settings, draws the background of the frames and starts
+	 * the drawing threads
+	 */
+	private void setUp() {
+		Settings s = getSettings();
+		SimScenario scen = SimScenario.getInstance();
+
+		this.frameInterval = s.getDouble(FRAME_INTERVAL_S);
+		if (frameInterval <= 0) {
+			throw new SettingsError("Invalid value for " +
+					s.getFullPropertyName(FRAME_INTERVAL_S) + ": " +
+					frameInterval);
+		}
+
+		if (s.contains(FRAME_DIR_S)) {
+			this.frameDir = new File(s.valueFillString(
+					s.getSetting(FRAME_DIR_S)));
+		}
+		else {
+			this.frameDir = new File(new Settings().getSetting(
+					REPORTDIR_SETTING), getScenarioName() + "_frames");
+		}
+		if (!frameDir.isDirectory() && !frameDir.mkdirs()) {
+			throw new SimError("Couldn't create frame directory '" +
+					frameDir.getAbsolutePath() + "'");
+		}
+
+		double[] viewport;
+		if (s.contains(VIEWPORT_S)) {
+			viewport = s.getCsvDoubles(VIEWPORT_S, 4);
+		}
+		else {
+			viewport = new double[] {0, 0, scen.getWorldSizeX(),
+					scen.getWorldSizeY()};
+		}
+		PlayFieldGraphic.setScale(s.contains(SCALE_S) ?
+				s.getDouble(SCALE_S) : DEF_SCALE);
+		this.viewX = PlayFieldGraphic.scale(viewport[0]);
+		this.viewY = PlayFieldGraphic.scale(viewport[1]);
+		this.viewWidth = PlayFieldGraphic.scale(viewport[2]);
+		this.viewHeight = PlayFieldGraphic.scale(viewport[3]);
+		if (viewWidth < 1 || viewHeight < 1) {
+			throw new SettingsError("Empty viewport for " +
+					s.getFullPropertyName(VIEWPORT_S));
+		}
+
+		setLayers(s);
+
+		int nrofThreads = DEF_NROF_THREADS;
+		if (s.contains(NROF_THREADS_S)) {
+			nrofThreads = s.getInt(NROF_THREADS_S);
+			if (nrofThreads < 1) {
+				throw new SettingsError("Invalid value for " +
+						s.getFullPropertyName(NROF_THREADS_S) + ": " +
+						nrofThreads);
+			}
+		}
+		this.executor = Executors.newFixedThreadPool(nrofThreads,
+				new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "FrameRecorder");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		int nrofSnapshots = nrofThreads * SNAPSHOTS_PER_THREAD;
+		this.freeSnapshots = new ArrayBlockingQueue<WorldSnapshot>(
+				nrofSnapshots);
+		for (int i = 0; i < nrofSnapshots; i++) {
+			freeSnapshots.add(new WorldSnapshot());
+		}
+		this.renderers = new ThreadLocal<FrameRenderer>() {
+			protected FrameRenderer initialValue() {
+				return new FrameRenderer();
+			}
+		};
+		this.renderError = null;
+	}
+
+	/**
+	 * Sets the drawn layers and draws the background of the frames
+	 * @param s The settings of the report
+	 */
+	private void setLayers(Settings s) {
+		boolean drawMap = true;
+		boolean drawCoverage = true;
+		boolean drawConnections = true;
+		boolean drawNames = true;
+		this.drawScale = true;
+
+		if (s.contains(LAYERS_S)) {
+			drawMap = drawCoverage = drawConnections = drawNames = false;
+			this.drawScale = false;
+			for (String layer : s.getCsvSetting(LAYERS_S)) {
+				if (layer.equals(LAYER_MAP)) {
+					drawMap = true;
+				} else if (layer.equals(LAYER_COVERAGE)) {
+					drawCoverage = true;
+				} else if (layer.equals(LAYER_CONNECTIONS)) {
+					drawConnections = true;
+				} else if (layer.equals(LAYER_NAMES)) {
+					drawNames = true;
+				} else if (layer.equals(LAYER_SCALE)) {
+					this.drawScale = true;
+				} else {
+					throw new SettingsError("Unknown layer '" + layer +
+							"' for " + s.getFullPropertyName(LAYERS_S));
+				}
+			}
+		}
+		NodeGraphic.setDrawCoverage(drawCoverage);
+		NodeGraphic.setDrawConnections(drawConnections);
+		NodeGraphic.setDrawNodeName(drawNames);
+
+		this.background = new BufferedImage(viewWidth, viewHeight,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g2 = startFrame(background);
+		g2.setBackground(BG_COLOR);
+		g2.clearRect(viewX, viewY, viewWidth, viewHeight);
+		if (drawMap && SimScenario.getInstance().getMap() != null) {
+			new MapGraphic(SimScenario.getInstance().getMap()).draw(g2);
+		}
+		g2.dispose();
+	}
+
+	/**
+	 * Creates a graphics context for drawing to a frame in play field
+	 * coordinates, clipped to the viewport
+	 * @param image The image of the frame
+	 * @return the graphics context
+	 */
+	private Graphics2D startFrame(BufferedImage image) {
+		Graphics2D g2 = image.createGraphics();
+		g2.translate(-viewX, -viewY);
+		g2.setClip(viewX, viewY, viewWidth, viewHeight);
+		return g2;
+	}
+
+	/**
+	 * Captures a snapshot of the world and hands it to the drawing threads
+	 * if it's time for the next frame. Waits if all the snapshots are being
+	 * drawn.
+	 * @param hosts All the hosts in the world
+	 */
+	public void updated(List<DTNHost> hosts) {
+		checkRenderError();
+		double simTime = getSimTime();
+		if (simTime < nextFrameTime) {
+			return;
+		}
+		nextFrameTime = (Math.floor(simTime / frameInterval) + 1) *
+			frameInterval;
+
+		WorldSnapshot snapshot;
+		try {
+			snapshot = freeSnapshots.take();
+		} catch (InterruptedException e) {
+			throw new SimError("Interrupted while waiting for frames", e);
+		}
+		snapshot.capture(SimScenario.getInstance().getWorld());
+
+		nrofFrames++;
+		String fileName = String.format("frame_%05d.png", nrofFrames);
+		write(fileName + " " + format(simTime));
+		executor.execute(new FrameTask(snapshot,
+				new File(frameDir, fileName)));
+	}
+
+	@Override
+	public void done() {
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+				// wait for all the frames to be written
+			}
+		} catch (InterruptedException e) {
+			throw new SimError("Interrupted while waiting for frames", e);
+		}
+		super.done();
+		checkRenderError();
+	}
+
+	/**
+	 * Throws the first failure of the drawing threads, if there was one
+	 * @throws SimError if a frame couldn't be drawn or written
+	 */
+	private void checkRenderError() {
+		Throwable e = renderError;
+		if (e == null) {
+			return;
+		}
+		if (e instanceof Exception) {
+			throw new SimError("Couldn't write frame: " + e, (Exception)e);
+		}
+		SimError error = new SimError("Couldn't write frame: " + e);
+		error.initCause(e);
+		throw error;
+	}
+
+	/**
+	 * Draws frames to an image. Every drawing thread has its own renderer.
+	 */
+	private class FrameRenderer {
+		private BufferedImage image;
+		private NodeGraphic nodeGraphic;
+		private ScaleReferenceGraphic refGraphic;
+
+		public FrameRenderer() {
+			this.image = new BufferedImage(viewWidth, viewHeight,
+					BufferedImage.TYPE_INT_RGB);
+			this.nodeGraphic = new NodeGraphic(new WorldSnapshot());
+			this.refGraphic = new ScaleReferenceGraphic();
+		}
+
+		/**
+		 * Draws a frame of a snapshot and writes it to a file
+		 * @param snapshot The snapshot to draw
+		 * @param file The file to write the frame to
+		 * @throws IOException if the frame couldn't be written
+		 */
+		public void render(WorldSnapshot snapshot, File file)
+				throws IOException {
+			Graphics2D g2 = startFrame(image);
+			g2.drawImage(background, viewX, viewY, null);
+			nodeGraphic.setSnapshot(snapshot);
+			nodeGraphic.draw(g2);
+			g2.dispose();
+
+			if (drawScale) { // the reference scale isn't moved with the view
+				g2 = image.createGraphics();
+				refGraphic.draw(g2);
+				g2.dispose();
+			}
+
+			ImageIO.write(image, "png", file);
+		}
+	}
+
+	/**
+	 * Task that draws and writes one frame and then frees the snapshot.
+	 */
+	private class FrameTask implements Runnable {
+		private WorldSnapshot snapshot;
+		private File file;
+
+		public FrameTask(WorldSnapshot snapshot, File file) {
+			this.snapshot = snapshot;
+			this.file = file;
+		}
+
+		public void run() {
+			try {
+				renderers.get().render(snapshot, file);
+			} catch (Throwable e) { // also rendering bugs, not only I/O errors
+				if (renderError == null) {
+					renderError = e;
+				}
+			} finally {
+				freeSnapshots.add(snapshot);
+			}
+		}
+	}
+}
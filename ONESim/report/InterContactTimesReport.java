@@ -12,24 +12,20 @@ import core.DTNHost;
  * The syntax of the report file is the same as in {@link ContactTimesReport}.
  */
 public class InterContactTimesReport extends ContactTimesReport {
+	private static final long serialVersionUID = 42L;
 	
 	@Override
-	public void hostsConnected(DTNHost host1, DTNHost host2) {
-		ConnectionInfo ci = this.removeConnection(host1, host2);
-		
-		if (ci != null) { // connected again
+	public void contactStarted(DTNHost host1, DTNHost host2,
+			double lastEndTime, long lastEndEvent) {
+		if (isReported(lastEndTime, lastEndEvent)) { // connected again
 			newEvent();
-			ci.connectionEnd();			
-			increaseTimeCount(ci.getConnectionTime());
-		}		
+			increaseTimeCount(getSimTime() - lastEndTime);
+		}
 	}
-	
+
 	@Override
-	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
-		if (isWarmup()) {
-			return;
-		}
-		// start counting time to next connection
-		this.addConnection(host1, host2);
+	public void contactEnded(DTNHost host1, DTNHost host2,
+			double startTime, long startEvent) {
+		// inter-contact times are counted when the hosts connect again
 	}
 }
@@ -15,6 +15,8 @@ import core.MessageListener;
  * For output syntax, see {@link #HEADER}.
  */
 public class MessageDeliveryReport extends Report implements MessageListener {
+	private static final long serialVersionUID = 42L;
+
 	public static String HEADER="# time  created  delivered  delivered/created";
 	private int created;
 	private int delivered;
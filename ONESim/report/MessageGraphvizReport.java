@@ -16,6 +16,8 @@ import core.MessageListener;
  * Messages created during the warm up period are ignored.
  */
 public class MessageGraphvizReport extends Report implements MessageListener {
+	private static final long serialVersionUID = 42L;
+
 	/** Name of the graphviz report ({@value})*/
 	public static final String GRAPH_NAME = "msggraph";
 	private Vector<Message> deliveredMessages;
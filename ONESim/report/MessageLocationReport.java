@@ -4,6 +4,7 @@
  */
 package report;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 
@@ -16,8 +17,12 @@ import core.UpdateListener;
 /**
  * Message location report. Reports the location (coordinates) of messages.
  * The messages that are reported and the reporting interval can be configured.
+ * In binary output mode (see {@link Report#BINARY_OUTPUT_S}) every copy of a
+ * reported message is written to the columns time, host, x, y and message.
  */
 public class MessageLocationReport extends Report implements UpdateListener {
+	private static final long serialVersionUID = 42L;
+
 	/** Reporting granularity -setting id ({@value}). 
 	 * Defines the interval how often (seconds) a new snapshot of message 
 	 * locations is created */
@@ -45,7 +50,12 @@ public class MessageLocationReport extends Report implements UpdateListener {
 		for (String msgId : settings.getCsvSetting(REPORTED_MESSAGES)) {
 			this.reportedMessages.add(msgId);
 		}
-		
+
+		setBinaryColumns(new String[] {"time", "host", "x", "y", "message"},
+				new byte[] {BinaryReportWriter.TYPE_DOUBLE,
+				BinaryReportWriter.TYPE_INT, BinaryReportWriter.TYPE_DOUBLE,
+				BinaryReportWriter.TYPE_DOUBLE,
+				BinaryReportWriter.TYPE_STRING});
 		init();
 	}
 
@@ -68,27 +78,70 @@ public class MessageLocationReport extends Report implements UpdateListener {
 	 * @param hosts The list of hosts in the world
 	 */
 	private void createSnapshot(List<DTNHost> hosts) {
-		boolean isFirstMessage;
-		String reportLine;
+		if (isBinaryOutput()) {
+			writeSnapshotRecords(hosts);
+			return;
+		}
 		
-		write ("[" + (int)getSimTime() + "]"); /* write sim time stamp */
+		writeParts("[", (int)getSimTime(), "]"); /* write sim time stamp */
 		
 		for (DTNHost host : hosts) {
-			isFirstMessage = true;
-			reportLine = "";
+			LocationLine line = null;
+			for (Message m : host.getMessageCollection()) {
+				if (this.reportedMessages.contains(m.getId())) {
+					if (line == null) {
+						line = new LocationLine(host.getLocation().getX(),
+								host.getLocation().getY());
+					}
+					line.messageIds.add(m.getId());
+				}
+			}
+			if (line != null) {
+				writeLine(line); /* write coordinate and message IDs */
+			}
+		}
+	}
+
+	/**
+	 * Writes a record of every copy of the reported messages to the binary
+	 * output
+	 * @param hosts The list of hosts in the world
+	 */
+	private void writeSnapshotRecords(List<DTNHost> hosts) {
+		double simTime = getSimTime();
+
+		for (DTNHost host : hosts) {
 			for (Message m : host.getMessageCollection()) {
 				if (this.reportedMessages.contains(m.getId())) {
-					if (isFirstMessage) {
-						reportLine = host.getLocation().toString();
-						isFirstMessage = false;
-					}		
-					reportLine += " " + m.getId();
+					writeRecord(simTime, host.getAddress(),
+							host.getLocation().getX(),
+							host.getLocation().getY(), m.getId());
 				}
 			}
-			if (reportLine.length() > 0) {
-				write(reportLine); /* write coordinate and message IDs */
+		}
+	}
+
+	/**
+	 * Line of the coordinates of a host and the IDs of the reported
+	 * messages it has. The coordinates are formatted like
+	 * {@link core.Coord#toString()} when the line is written.
+	 */
+	private static class LocationLine implements ReportLine {
+		private double x;
+		private double y;
+		private List<String> messageIds;
+
+		private LocationLine(double x, double y) {
+			this.x = x;
+			this.y = y;
+			this.messageIds = new ArrayList<String>();
+		}
+
+		public void appendTo(StringBuilder text) {
+			text.append(String.format("(%.2f,%.2f)", x, y));
+			for (String id : messageIds) {
+				text.append(' ').append(id);
 			}
 		}
 	}
-	 
 }
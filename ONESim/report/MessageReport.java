@@ -14,6 +14,8 @@ import core.MessageListener;
  *  message_id creation_time deliver_time (duplicate)
  */
 public class MessageReport extends Report implements MessageListener {
+	private static final long serialVersionUID = 42L;
+
 	public static final String HEADER =
 	    "# messages: ID, start time, end time";
 	/** all message delays */
@@ -36,14 +38,12 @@ public class MessageReport extends Report implements MessageListener {
 	public void messageTransferred(Message m, DTNHost from, DTNHost to, 
 			boolean firstDelivery) {
 		if (firstDelivery) {
-			write(m.getId() + " " 
-					+ format(m.getCreationTime()) + " "  
-					+ format(getSimTime()));
+			writeParts(m.getId(), " ", m.getCreationTime(), " ",
+					getSimTime());
 		} else {
 			if (to.getAddress() == m.getTo().getAddress()) {
-				write(m.getId() + " " 
-						+ format(m.getCreationTime()) + " "  
-						+ format(getSimTime()) + " duplicate");
+				writeParts(m.getId(), " ", m.getCreationTime(), " ",
+						getSimTime(), " duplicate");
 			}
 		}
 	}
@@ -12,6 +12,7 @@ import java.util.Map;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.Settings;
 
 /**
  * Report for generating different kind of total statistics about message
@@ -20,8 +21,28 @@ import core.MessageListener;
  * <P><strong>Note:</strong> if some statistics could not be created (e.g.
  * overhead ratio if no messages were delivered) "NaN" is reported for
  * double values and zero for integer median(s).
+ * <P>In streaming mode (see {@link #STREAMING_S}) the report uses memory
+ * that doesn't depend on the number of messages: averages are calculated
+ * online, medians are estimated with {@link StreamingStatistics} (relative
+ * error at most {@value StreamingStatistics#DEF_ACCURACY}), and latencies
+ * are calculated from the messages' creation times instead of storing them
+ * for every message. The 95th and 99th percentiles of latencies are
+ * reported in addition to the normal statistics.
  */
 public class MessageStatsReport extends Report implements MessageListener {
+	private static final long serialVersionUID = 42L;
+
+	/** Streaming mode -setting id ({@value}). Boolean valued. If true, the
+	 * statistics are calculated without storing the values of every
+	 * message. Default is false. */
+	public static final String STREAMING_S = "streaming";
+
+	private boolean streaming;
+	private StreamingStatistics latencyStats;
+	private StreamingStatistics hopCountStats;
+	private StreamingStatistics bufferTimeStats;
+	private StreamingStatistics rttStats;
+
 	private Map<String, Double> creationTimes;
 	private List<Double> latencies;
 	private List<Integer> hopCounts;
@@ -42,17 +63,27 @@ public class MessageStatsReport extends Report implements MessageListener {
 	 * Constructor.
 	 */
 	public MessageStatsReport() {
+		Settings s = getSettings();
+		this.streaming = s.contains(STREAMING_S) && s.getBoolean(STREAMING_S);
 		init();
 	}
 
 	@Override
 	protected void init() {
 		super.init();
-		this.creationTimes = new HashMap<String, Double>();
-		this.latencies = new ArrayList<Double>();
-		this.msgBufferTime = new ArrayList<Double>();
-		this.hopCounts = new ArrayList<Integer>();
-		this.rtt = new ArrayList<Double>();
+		if (this.streaming) {
+			this.latencyStats = new StreamingStatistics();
+			this.hopCountStats = new StreamingStatistics();
+			this.bufferTimeStats = new StreamingStatistics();
+			this.rttStats = new StreamingStatistics();
+		}
+		else {
+			this.creationTimes = new HashMap<String, Double>();
+			this.latencies = new ArrayList<Double>();
+			this.msgBufferTime = new ArrayList<Double>();
+			this.hopCounts = new ArrayList<Integer>();
+			this.rtt = new ArrayList<Double>();
+		}
 		
 		this.nrofDropped = 0;
 		this.nrofRemoved = 0;
@@ -78,7 +109,12 @@ public class MessageStatsReport extends Report implements MessageListener {
 			this.nrofRemoved++;
 		}
 		
-		this.msgBufferTime.add(getSimTime() - m.getReceiveTime());
+		if (this.streaming) {
+			this.bufferTimeStats.add(getSimTime() - m.getReceiveTime());
+		}
+		else {
+			this.msgBufferTime.add(getSimTime() - m.getReceiveTime());
+		}
 	}
 
 	
@@ -98,7 +134,18 @@ public class MessageStatsReport extends Report implements MessageListener {
 		}
 
 		this.nrofRelayed++;
-		if (finalTarget) {
+		if (finalTarget && this.streaming) {
+			this.latencyStats.add(getSimTime() - m.getCreationTime());
+			this.nrofDelivered++;
+			this.hopCountStats.add(m.getHops().size() - 1);
+
+			if (m.isResponse()) {
+				this.rttStats.add(getSimTime() -
+						m.getRequest().getCreationTime());
+				this.nrofResponseDelivered++;
+			}
+		}
+		else if (finalTarget) {
 			this.latencies.add(getSimTime() - 
 				this.creationTimes.get(m.getId()) );
 			this.nrofDelivered++;
@@ -118,7 +165,9 @@ public class MessageStatsReport extends Report implements MessageListener {
 			return;
 		}
 		
-		this.creationTimes.put(m.getId(), getSimTime());
+		if (!this.streaming) {
+			this.creationTimes.put(m.getId(), getSimTime());
+		}
 		this.nrofCreated++;
 		if (m.getResponseSize() > 0) {
 			this.nrofResponseReqCreated++;
@@ -164,19 +213,45 @@ public class MessageStatsReport extends Report implements MessageListener {
 			"\ndelivered: " + this.nrofDelivered +
 			"\ndelivery_prob: " + format(deliveryProb) +
 			"\nresponse_prob: " + format(responseProb) + 
-			"\noverhead_ratio: " + format(overHead) + 
-			"\nlatency_avg: " + getAverage(this.latencies) +
-			"\nlatency_med: " + getMedian(this.latencies) + 
-			"\nhopcount_avg: " + getIntAverage(this.hopCounts) +
-			"\nhopcount_med: " + getIntMedian(this.hopCounts) + 
-			"\nbuffertime_avg: " + getAverage(this.msgBufferTime) +
-			"\nbuffertime_med: " + getMedian(this.msgBufferTime) +
-			"\nrtt_avg: " + getAverage(this.rtt) +
-			"\nrtt_med: " + getMedian(this.rtt)
-			;
+			"\noverhead_ratio: " + format(overHead);
+
+		if (this.streaming) {
+			statsText += getStreamingStatsText();
+		}
+		else {
+			statsText +=
+				"\nlatency_avg: " + getAverage(this.latencies) +
+				"\nlatency_med: " + getMedian(this.latencies) + 
+				"\nhopcount_avg: " + getIntAverage(this.hopCounts) +
+				"\nhopcount_med: " + getIntMedian(this.hopCounts) + 
+				"\nbuffertime_avg: " + getAverage(this.msgBufferTime) +
+				"\nbuffertime_med: " + getMedian(this.msgBufferTime) +
+				"\nrtt_avg: " + getAverage(this.rtt) +
+				"\nrtt_med: " + getMedian(this.rtt)
+				;
+		}
 		
 		write(statsText);
 		super.done();
 	}
+
+	/**
+	 * Returns the text of the latency, hop count, buffer time and round trip
+	 * time statistics in streaming mode
+	 * @return The statistics as text
+	 */
+	private String getStreamingStatsText() {
+		return "\nlatency_avg: " + format(latencyStats.getMean()) +
+			"\nlatency_med: " + format(latencyStats.getQuantile(0.5)) +
+			"\nhopcount_avg: " + format(hopCountStats.getMean()) +
+			"\nhopcount_med: " + (hopCountStats.getCount() == 0 ? 0 :
+				Math.round(hopCountStats.getQuantile(0.5))) +
+			"\nbuffertime_avg: " + format(bufferTimeStats.getMean()) +
+			"\nbuffertime_med: " + format(bufferTimeStats.getQuantile(0.5)) +
+			"\nrtt_avg: " + format(rttStats.getMean()) +
+			"\nrtt_med: " + format(rttStats.getQuantile(0.5)) +
+			"\nlatency_p95: " + format(latencyStats.getQuantile(0.95)) +
+			"\nlatency_p99: " + format(latencyStats.getQuantile(0.99));
+	}
 	
 }
@@ -0,0 +1,452 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import input.EventQueue;
+import input.ExternalEventsQueue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import core.ConnectionListener;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.Settings;
+import core.SettingsError;
+import core.SimError;
+import core.SimScenario;
+import core.UpdateListener;
+
+/**
+ * Live metrics of a running simulation. The metrics are collected by the
+ * simulation thread every {@link #REFRESH_INTERVAL_S} wall clock seconds
+ * and served in the Prometheus text format from a local HTTP port, written
+ * to a JSON file, or both. The metrics are the simulation time and speed,
+ * the number of hosts and connections, the messages and bytes in the
+ * buffers, cumulative message counts (including the warmup period), the
+ * events buffered in the external event queues and the heap usage.
+ * Without this report, no metrics are collected.
+ * <P>
+ * The HTTP server isn't checkpointed; it is started again with the
+ * settings of the restored run when the simulation is restored.
+ * </P>
+ */
+public class MetricsReport extends Report implements UpdateListener,
+		MessageListener, ConnectionListener {
+	private static final long serialVersionUID = 42L;
+
+	/** HTTP port -setting id ({@value}). If set, the metrics are served
+	 * from <CODE>http://localhost:port/metrics</CODE>. */
+	public static final String HTTP_PORT_S = "httpPort";
+	/** JSON file -setting id ({@value}). If set, the metrics are written
+	 * to this file (the file is replaced on every refresh). */
+	public static final String JSON_FILE_S = "jsonFile";
+	/** Refresh interval -setting id ({@value}). Wall clock seconds
+	 * between the metrics updates. Default is
+	 * {@link #DEF_REFRESH_INTERVAL}. */
+	public static final String REFRESH_INTERVAL_S = "refreshInterval";
+	/** Default refresh interval ({@value} seconds) */
+	public static final double DEF_REFRESH_INTERVAL = 10;
+	/** Path of the metrics in the HTTP server ({@value}) */
+	public static final String HTTP_PATH = "/metrics";
+
+	private long refreshNanos;
+	private long startNanos;
+	private long nextRefresh;
+	private File jsonFile;
+	private transient HttpServer server;
+	/** executor of the HTTP server's request handlers */
+	private transient ExecutorService serverExecutor;
+	/** the latest metrics (read by the HTTP server's thread) */
+	private volatile Metrics latest;
+
+	private int nrofConnections;
+	private long nrofCreated;
+	private long nrofRelayed;
+	private long nrofDelivered;
+	private long nrofDropped;
+	private long nrofRemoved;
+	private long nrofAborted;
+
+	/**
+	 * Constructor. Reads the settings and starts the HTTP server if a port
+	 * is given.
+	 */
+	public MetricsReport() {
+		this.startNanos = System.nanoTime();
+		this.nextRefresh = startNanos;
+		this.latest = new Metrics();
+		setUpOutput();
+	}
+
+	/**
+	 * Reads the refresh interval and output settings and starts the HTTP
+	 * server if a port is given
+	 */
+	private void setUpOutput() {
+		Settings s = getSettings();
+		double interval = DEF_REFRESH_INTERVAL;
+		if (s.contains(REFRESH_INTERVAL_S)) {
+			interval = s.getDouble(REFRESH_INTERVAL_S);
+		}
+		this.refreshNanos = (long)(interval * 1e9);
+
+		this.jsonFile = null;
+		if (s.contains(JSON_FILE_S)) {
+			this.jsonFile = new File(s.valueFillString(
+					s.getSetting(JSON_FILE_S)));
+		}
+		if (s.contains(HTTP_PORT_S)) {
+			startServer(s.getInt(HTTP_PORT_S));
+		}
+		if (jsonFile == null && server == null) {
+			throw new SettingsError("Either " +
+					s.getFullPropertyName(HTTP_PORT_S) + " or " +
+					s.getFullPropertyName(JSON_FILE_S) + " must be set");
+		}
+	}
+
+	/**
+	 * Starts the HTTP server again after a restore. The wall clock time
+	 * continues from the checkpoint.
+	 */
+	@Override
+	public void restored() {
+		super.restored();
+		this.startNanos = System.nanoTime() - (long)(latest.wallTime * 1e9);
+		this.nextRefresh = System.nanoTime();
+		setUpOutput();
+	}
+
+	/**
+	 * Starts the HTTP server that serves the metrics. All the threads of
+	 * the server are daemon threads, so the server doesn't keep the JVM
+	 * running if the simulation ends without {@link #done()} (e.g., because
+	 * of an exception).
+	 * @param port The port to listen to (on the loopback interface)
+	 */
+	private void startServer(int port) {
+		try {
+			this.server = HttpServer.create(new InetSocketAddress(
+					InetAddress.getByName(null), port), 0);
+		} catch (IOException e) {
+			throw new SimError("Can't start metrics server at port " + port,
+					e);
+		}
+		server.createContext(HTTP_PATH, new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				byte[] body = latest.toPrometheus().getBytes("UTF-8");
+				exchange.getResponseHeaders().set("Content-Type",
+						"text/plain; version=0.0.4; charset=utf-8");
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		this.serverExecutor = Executors.newSingleThreadExecutor(
+				new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "MetricsReport");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		server.setExecutor(serverExecutor);
+
+		/* the server's dispatcher thread is a daemon only if the thread
+		 * that starts the server is */
+		Thread starter = new Thread("MetricsReport") {
+			public void run() {
+				server.start();
+			}
+		};
+		starter.setDaemon(true);
+		starter.start();
+		try {
+			starter.join();
+		} catch (InterruptedException e) {
+			throw new SimError("Interrupted while starting metrics server",
+					e);
+		}
+	}
+
+	/**
+	 * Collects the metrics if the refresh interval has passed
+	 * @param hosts All the hosts in the world
+	 */
+	public void updated(List<DTNHost> hosts) {
+		long now = System.nanoTime();
+		if (now < nextRefresh) {
+			return;
+		}
+		nextRefresh = now + refreshNanos;
+		refresh(hosts, now);
+	}
+
+	/**
+	 * Collects the metrics, publishes them for the HTTP server and writes
+	 * the JSON file
+	 * @param hosts All the hosts in the world
+	 * @param now Current wall clock time (as given by System.nanoTime())
+	 */
+	private void refresh(List<DTNHost> hosts, long now) {
+		Metrics previous = latest;
+		Metrics m = new Metrics();
+		m.simTime = getSimTime();
+		m.wallTime = (now - startNanos) / 1e9;
+		double wallDiff = m.wallTime - previous.wallTime;
+		m.speed = wallDiff > 0 ? (m.simTime - previous.simTime) / wallDiff : 0;
+
+		m.nrofHosts = hosts.size();
+		m.nrofConnections = nrofConnections;
+		for (int i = 0, n = hosts.size(); i < n; i++) {
+			for (Message msg : hosts.get(i).getMessageCollection()) {
+				m.bufferedMessages++;
+				m.bufferedBytes += msg.getSize();
+			}
+		}
+
+		m.created = nrofCreated;
+		m.relayed = nrofRelayed;
+		m.delivered = nrofDelivered;
+		m.dropped = nrofDropped;
+		m.removed = nrofRemoved;
+		m.aborted = nrofAborted;
+
+		List<EventQueue> queues = SimScenario.getInstance().getExternalEvents();
+		m.queueDepths = new int[queues.size()];
+		for (int i = 0; i < queues.size(); i++) {
+			m.queueDepths[i] = queues.get(i) instanceof ExternalEventsQueue ?
+				((ExternalEventsQueue)queues.get(i)).eventsLeftInBuffer() : -1;
+		}
+
+		Runtime rt = Runtime.getRuntime();
+		m.heapUsed = rt.totalMemory() - rt.freeMemory();
+		m.heapMax = rt.maxMemory();
+
+		this.latest = m;
+		if (jsonFile != null) {
+			writeJson(m);
+		}
+	}
+
+	/**
+	 * Writes metrics to the JSON file. The metrics are first written to a
+	 * temporary file that then atomically replaces the JSON file, so
+	 * readers never see a partially written or a missing file.
+	 * @param m The metrics
+	 */
+	private void writeJson(Metrics m) {
+		File tmp = new File(jsonFile.getPath() + ".tmp");
+		try {
+			PrintWriter out = new PrintWriter(new FileWriter(tmp));
+			out.println(m.toJson());
+			out.close();
+		} catch (IOException e) {
+			throw new SimError("Can't write metrics to " + tmp, e);
+		}
+		try {
+			Files.move(tmp.toPath(), jsonFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new SimError("Can't replace metrics file " + jsonFile, e);
+		}
+	}
+
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		nrofConnections++;
+	}
+
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		nrofConnections--;
+	}
+
+	public void newMessage(Message m) {
+		nrofCreated++;
+	}
+
+	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
+	}
+
+	public void messageDeleted(Message m, DTNHost where, boolean dropped) {
+		if (dropped) {
+			nrofDropped++;
+		}
+		else {
+			nrofRemoved++;
+		}
+	}
+
+	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {
+		nrofAborted++;
+	}
+
+	public void messageTransferred(Message m, DTNHost from, DTNHost to,
+			boolean firstDelivery) {
+		nrofRelayed++;
+		if (firstDelivery) {
+			nrofDelivered++;
+		}
+	}
+
+	@Override
+	public void done() {
+		SimScenario scen = SimScenario.getInstance();
+		refresh(scen.getHosts(), System.nanoTime());
+		if (server != null) {
+			server.stop(0);
+			serverExecutor.shutdown();
+		}
+		super.done();
+	}
+
+	/**
+	 * Metrics collected at one time. The objects are not modified after
+	 * they have been published.
+	 */
+	private static class Metrics implements Serializable {
+		private static final long serialVersionUID = 42L;
+
+		private double simTime;
+		private double wallTime;
+		private double speed;
+		private int nrofHosts;
+		private int nrofConnections;
+		private long bufferedMessages;
+		private long bufferedBytes;
+		private long created;
+		private long relayed;
+		private long delivered;
+		private long dropped;
+		private long removed;
+		private long aborted;
+		/** buffered events of the external event queues (-1 for
+		 * generators) */
+		private int[] queueDepths = new int[0];
+		private long heapUsed;
+		private long heapMax;
+
+		/**
+		 * Returns the metrics in the Prometheus text format
+		 * @return The metrics as text
+		 */
+		public String toPrometheus() {
+			StringBuilder sb = new StringBuilder();
+			gauge(sb, "one_sim_time_seconds", "Simulated time", simTime);
+			gauge(sb, "one_wall_time_seconds", "Wall clock time since start",
+					wallTime);
+			gauge(sb, "one_sim_seconds_per_second",
+					"Simulated seconds per wall clock second", speed);
+			gauge(sb, "one_hosts", "Number of hosts", nrofHosts);
+			gauge(sb, "one_connections", "Number of connections",
+					nrofConnections);
+			gauge(sb, "one_buffered_messages", "Messages in the buffers",
+					bufferedMessages);
+			gauge(sb, "one_buffered_bytes", "Bytes in the buffers",
+					bufferedBytes);
+			counter(sb, "one_messages_created_total", "Created messages",
+					created);
+			counter(sb, "one_messages_relayed_total", "Relayed messages",
+					relayed);
+			counter(sb, "one_messages_delivered_total", "Delivered messages",
+					delivered);
+			counter(sb, "one_messages_dropped_total", "Dropped messages",
+					dropped);
+			counter(sb, "one_messages_removed_total", "Removed messages",
+					removed);
+			counter(sb, "one_messages_aborted_total", "Aborted transfers",
+					aborted);
+
+			sb.append("# HELP one_event_queue_buffered_events Events " +
+					"buffered in the external event queues\n");
+			sb.append("# TYPE one_event_queue_buffered_events gauge\n");
+			for (int i = 0; i < queueDepths.length; i++) {
+				if (queueDepths[i] >= 0) {
+					sb.append("one_event_queue_buffered_events{queue=\"" + i +
+							"\"} " + queueDepths[i] + "\n");
+				}
+			}
+
+			gauge(sb, "one_heap_used_bytes", "Used heap", heapUsed);
+			gauge(sb, "one_heap_max_bytes", "Maximum heap", heapMax);
+			return sb.toString();
+		}
+
+		private static void gauge(StringBuilder sb, String name, String help,
+				double value) {
+			metric(sb, name, help, "gauge", value);
+		}
+
+		private static void counter(StringBuilder sb, String name, String help,
+				double value) {
+			metric(sb, name, help, "counter", value);
+		}
+
+		private static void metric(StringBuilder sb, String name, String help,
+				String type, double value) {
+			sb.append("# HELP " + name + " " + help + "\n");
+			sb.append("# TYPE " + name + " " + type + "\n");
+			sb.append(name + " " + formatValue(value) + "\n");
+		}
+
+		/**
+		 * Formats a value without a fraction if it is an integer
+		 * @param value The value
+		 * @return The value as text
+		 */
+		private static String formatValue(double value) {
+			if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+				return String.valueOf((long)value);
+			}
+			return String.valueOf(value);
+		}
+
+		/**
+		 * Returns the metrics as a JSON object
+		 * @return The metrics as text
+		 */
+		public String toJson() {
+			StringBuilder queues = new StringBuilder();
+			for (int i = 0; i < queueDepths.length; i++) {
+				queues.append(i > 0 ? ", " : "").append(queueDepths[i]);
+			}
+			return "{\"sim_time\": " + formatValue(simTime) +
+				", \"wall_time\": " + formatValue(wallTime) +
+				", \"sim_seconds_per_second\": " + formatValue(speed) +
+				", \"hosts\": " + nrofHosts +
+				", \"connections\": " + nrofConnections +
+				", \"buffered_messages\": " + bufferedMessages +
+				", \"buffered_bytes\": " + bufferedBytes +
+				", \"created\": " + created +
+				", \"relayed\": " + relayed +
+				", \"delivered\": " + delivered +
+				", \"dropped\": " + dropped +
+				", \"removed\": " + removed +
+				", \"aborted\": " + aborted +
+				", \"event_queue_buffered_events\": [" + queues + "]" +
+				", \"heap_used\": " + heapUsed +
+				", \"heap_max\": " + heapMax + "}";
+		}
+	}
+}
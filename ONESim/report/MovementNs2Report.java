@@ -13,9 +13,13 @@ import core.Settings;
  * Movement report that generates suitable movement data for ns-2 simulator
  * as described in <A HREF="http://www.isi.edu/nsnam/ns/doc/node174.html">
  * http://www.isi.edu/nsnam/ns/doc/node174.html</A>.
- * This report ignores the warm up settings.
+ * This report ignores the warm up settings. In binary output mode (see
+ * {@link Report#BINARY_OUTPUT_S}) the locations are written to the columns
+ * time, host, x, y and speed, where the speed of initial locations is NaN.
  */
 public class MovementNs2Report extends Report implements MovementListener {
+	private static final long serialVersionUID = 42L;
+
 	/** node array's name -setting id ({@value})*/
 	public static final String NODE_ARR_S = "nodeArray";
 	/** ns command -setting id ({@value}) */
@@ -55,12 +59,22 @@ public class MovementNs2Report extends Report implements MovementListener {
 		else {
 			nsCmd = DEF_NS_CMD;
 		}
-		
+
+		setBinaryColumns(new String[] {"time", "host", "x", "y", "speed"},
+				new byte[] {BinaryReportWriter.TYPE_DOUBLE,
+				BinaryReportWriter.TYPE_INT, BinaryReportWriter.TYPE_DOUBLE,
+				BinaryReportWriter.TYPE_DOUBLE,
+				BinaryReportWriter.TYPE_DOUBLE});
 		init();
 	}
 
 	public void initialLocation(DTNHost host, Coord location) {
 		int index = host.getAddress();
+		if (isBinaryOutput()) {
+			writeRecord(getSimTime(), index, location.getX(),
+					location.getY(), Double.NaN);
+			return;
+		}
 		write(nodeArray + "("+ index + ") set X_ " + fix(location.getX()));
 		write(nodeArray + "("+ index + ") set Y_ " + fix(location.getY()));
 		write(nodeArray + "("+ index + ") set Z_ 0");
@@ -70,6 +84,10 @@ public class MovementNs2Report extends Report implements MovementListener {
 		int index = host.getAddress();
 		double time = getSimTime();
 		
+		if (isBinaryOutput()) {
+			writeRecord(time, index, dst.getX(), dst.getY(), speed);
+			return;
+		}
 		write(nsCmd + " at " + time + " \"\\" + nodeArray +	"(" + index + ")" + 
 				" setdest " + fix(dst.getX()) + " " + fix(dst.getY()) +
 				" " + speed + "\""); 
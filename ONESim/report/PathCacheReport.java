@@ -0,0 +1,41 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import movement.map.ShortestPathCache;
+
+/**
+ * Reports the hit and miss counts of the shortest path caches of map based
+ * movement models at the end of the simulation. Path caching is enabled with
+ * the {@link movement.MapBasedMovement#PATH_CACHE_SIZE_S} setting.
+ */
+public class PathCacheReport extends Report {
+	private static final long serialVersionUID = 42L;
+
+	@Override
+	public void done() {
+		write("Shortest path cache stats for scenario " + getScenarioName() +
+				"\nsim_time: " + format(getSimTime()));
+
+		if (ShortestPathCache.getCaches().size() == 0) {
+			write("no path caches in use");
+		}
+
+		for (ShortestPathCache c : ShortestPathCache.getCaches()) {
+			long queries = c.getHits() + c.getMisses();
+			double hitRate = queries > 0 ? (1.0 * c.getHits()) / queries : 0;
+
+			write(c.toString() +
+				"\nhits: " + c.getHits() +
+				"\nmisses: " + c.getMisses() +
+				"\nhit_rate: " + format(hitRate) +
+				"\nevictions: " + c.getEvictions() +
+				"\ncached_trees: " + c.getSize() +
+				"\nprecomputed_trees: " + c.getNrofPrecomputed());
+		}
+
+		super.done();
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import core.Profiler;
+import core.Settings;
+import core.SettingsError;
+
+/**
+ * Reports where the wall clock time of the simulation is spent: the time
+ * of every phase of the world updates (see {@link Profiler}) and of the
+ * routers, network interfaces, movement models, external events and
+ * reports within each phase. Creating the report enables profiling. Time
+ * spent on report writes is included in the phase the write happened in.
+ * Optionally, also the bytes allocated in the phases and by the classes are
+ * reported; this makes per-call allocations on the hot paths visible.
+ */
+public class ProfilerReport extends Report {
+	private static final long serialVersionUID = 42L;
+
+	/** Profiling enabled -setting id ({@value}). Boolean; if false, the
+	 * report doesn't enable profiling. Default is true. */
+	public static final String ENABLED_S = "enabled";
+	/** Sample interval -setting id ({@value}). Every sampleInterval'th
+	 * world update is measured. Default is 1 (all updates). */
+	public static final String SAMPLE_INTERVAL_S = "sampleInterval";
+	/** Allocation tracking -setting id ({@value}). Boolean; if true, also
+	 * the bytes allocated by the simulation thread are measured. Requires
+	 * a JVM that supports per-thread allocation counters. Default is
+	 * false. */
+	public static final String TRACK_ALLOCATIONS_S = "trackAllocations";
+
+	/**
+	 * Constructor. Enables profiling unless it is disabled in the settings.
+	 */
+	public ProfilerReport() {
+		Settings s = getSettings();
+		if (s.contains(ENABLED_S) && !s.getBoolean(ENABLED_S)) {
+			return;
+		}
+
+		int interval = 1;
+		if (s.contains(SAMPLE_INTERVAL_S)) {
+			interval = s.getInt(SAMPLE_INTERVAL_S);
+			if (interval < 1) {
+				throw new SettingsError("Invalid value for " +
+						s.getFullPropertyName(SAMPLE_INTERVAL_S) + ": " +
+						interval);
+			}
+		}
+		Profiler.getInstance().setSampleInterval(interval);
+
+		if (s.contains(TRACK_ALLOCATIONS_S) &&
+				s.getBoolean(TRACK_ALLOCATIONS_S)) {
+			if (!Profiler.isAllocationTrackingSupported()) {
+				throw new SettingsError("Can't use " +
+						s.getFullPropertyName(TRACK_ALLOCATIONS_S) + ": the " +
+						"JVM doesn't support tracking allocations");
+			}
+			Profiler.getInstance().setTrackAllocations(true);
+		}
+	}
+
+	@Override
+	public void done() {
+		write("Profiler stats for scenario " + getScenarioName() +
+				"\nsim_time: " + format(getSimTime()));
+
+		if (!Profiler.isEnabled()) {
+			write("profiling disabled");
+			super.done();
+			return;
+		}
+
+		Profiler p = Profiler.getInstance();
+		boolean allocs = p.isTrackingAllocations();
+		long updateTime = p.getUpdateTime();
+		write("updates: " + p.getNrofUpdates() +
+				"\nsampled_updates: " + p.getNrofSampled() +
+				"\nsample_interval: " + p.getSampleInterval() +
+				"\nupdate_time_ms: " + format(updateTime / 1e6) +
+				"\nupdate_avg_ms: " + format(p.getNrofSampled() > 0 ?
+						updateTime / 1e6 / p.getNrofSampled() : 0));
+		if (allocs) {
+			write("update_alloc_mb: " + format(p.getUpdateBytes() / 1048576.0) +
+					"\nupdate_avg_alloc_bytes: " + format(p.getNrofSampled() > 0 ?
+							(1.0 * p.getUpdateBytes()) / p.getNrofSampled() : 0));
+		}
+
+		for (int phase = 0; phase < Profiler.PHASE_NAMES.length; phase++) {
+			long time = p.getTime(phase);
+			write("\n" + Profiler.PHASE_NAMES[phase] +
+					"\ntime_ms: " + format(time / 1e6) +
+					"\ncalls: " + p.getCount(phase) +
+					"\nshare: " + format(updateTime > 0 ?
+							(1.0 * time) / updateTime : 0));
+			if (allocs) {
+				write("alloc_mb: " + format(p.getBytes(phase) / 1048576.0));
+			}
+
+			for (Map.Entry<Class<?>, long[]> e : sortByTime(
+					p.getClassStats(phase))) {
+				long[] stats = e.getValue();
+				write(e.getKey().getName() + " " + format(stats[0] / 1e6) +
+						" ms " + stats[1] + " calls " +
+						format(stats[0] / 1e3 / stats[1]) + " us/call" +
+						(allocs ? " " + format((1.0 * stats[2]) / stats[1]) +
+								" B/call" : ""));
+			}
+		}
+
+		super.done();
+	}
+
+	/**
+	 * Sorts the class statistics of a phase by time, the largest first
+	 * @param stats The time and count of the classes
+	 * @return The sorted entries
+	 */
+	private List<Map.Entry<Class<?>, long[]>> sortByTime(
+			Map<Class<?>, long[]> stats) {
+		List<Map.Entry<Class<?>, long[]>> entries =
+			new ArrayList<Map.Entry<Class<?>, long[]>>(stats.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<Class<?>, long[]>>() {
+			public int compare(Map.Entry<Class<?>, long[]> e1,
+					Map.Entry<Class<?>, long[]> e2) {
+				long t1 = e1.getValue()[0];
+				long t2 = e2.getValue()[0];
+				return t1 > t2 ? -1 : (t1 < t2 ? 1 : 0);
+			}
+		});
+		return entries;
+	}
+}
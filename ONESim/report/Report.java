@@ -5,16 +5,25 @@
 package report;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import core.Profiler;
 import core.Settings;
+import core.SettingsError;
 import core.SimClock;
 import core.SimError;
 import core.SimScenario;
@@ -26,7 +35,9 @@ import core.SimScenario;
  * the reports implement warm up feature ({@link #WARMUP_S}) but the
  * implementations are always report specific.
  */
-public abstract class Report {
+public abstract class Report implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Name space of the settings that are common to all reports ({@value}). */ 
 	public static final String REPORT_NS = "Report";
 	/** The interval (simulated seconds) of creating new settings files 
@@ -53,8 +64,44 @@ public abstract class Report {
 	public static final String OUT_SUFFIX = ".txt";
 	/** Suffix for reports that are created on n second intervals */
 	public static final String INTERVALLED_FORMAT ="%04d" + OUT_SUFFIX; 
+	/** Asynchronous output -setting id ({@value}). Boolean valued. If true,
+	 * the report's lines are written to the file by a separate thread (see
+	 * {@link AsyncReportWriter}). The output is the same in both modes.
+	 * Default is false. */
+	public static final String ASYNC_OUTPUT_S = "asyncOutput";
+	/** Size of the asynchronous output buffer -setting id ({@value}).
+	 * Defines how many lines can wait for the writer thread before writing
+	 * new lines blocks. Default is {@value #DEF_ASYNC_BUFFER_SIZE}. */
+	public static final String ASYNC_BUFFER_SIZE_S = "asyncBufferSize";
+	/** Default size of the asynchronous output buffer */
+	public static final int DEF_ASYNC_BUFFER_SIZE = 8192;
+	/** Binary output -setting id ({@value}). Boolean valued. If true,
+	 * reports that support binary output write their records to a binary
+	 * columnar file (see {@link BinaryReportWriter}) instead of text. The
+	 * {@link #OUT_SUFFIX} of the file name is replaced with
+	 * {@link BinaryReportWriter#BINARY_SUFFIX}. Other reports ignore the
+	 * setting. Default is false. Binary output can't be used with
+	 * checkpoints (see {@link core.Checkpoint}). */
+	public static final String BINARY_OUTPUT_S = "binaryOutput";
+	/** Suffix added to the name of a restored run's output file if the
+	 * name would otherwise be the same as the checkpointed run's file
+	 * ({@value}). See {@link #restored()}. */
+	public static final String RESTORED_SUFFIX = "_restored";
 	/** The print writer used to write output. See {@link #write(String)} */
-	protected PrintWriter out;
+	protected transient PrintWriter out;
+	/** The asynchronous writer used in asynchronous output mode
+	 * (see {@link #ASYNC_OUTPUT_S}) */
+	private transient AsyncReportWriter asyncOut;
+	/** Size of the asynchronous output buffer or 0 for synchronous output */
+	private int asyncBufferSize;
+	/** The writer used in binary output mode (see {@link #BINARY_OUTPUT_S}) */
+	private transient BinaryReportWriter binaryOut;
+	/** Has binary output been requested in the settings */
+	private boolean binaryOutput;
+	/** Names and types of the columns of binary output (or null if the
+	 * report doesn't support binary output) */
+	private String[] binaryColumns;
+	private byte[] binaryTypes;
 	/** String value for values that could not be calculated */
 	public static final String NAN = "NaN";
 	private String prefix = "";
@@ -67,6 +114,10 @@ public abstract class Report {
 	private double lastReportTime;
 	private String outFileName;
 	private String scenarioName;
+	/** Name of the current text output file (null if there's none) */
+	private String textFileName;
+	/** Length of the text output file when the report was checkpointed */
+	private long textFileLength;
 	
 	/**
 	 * Constructor.
@@ -79,11 +130,7 @@ public abstract class Report {
 		this.outputInterval = -1;
 		this.warmupIDs = null;
 
-		Settings settings = new Settings();
-		scenarioName = settings.valueFillString(settings.getSetting(
-				SimScenario.SCENARIO_NS + "." +	SimScenario.NAME_S));
-		
-		settings = getSettings();
+		Settings settings = getSettings();
 		
 		if (settings.contains(INTERVAL_SETTING)) {
 			outputInterval = settings.getDouble(INTERVAL_SETTING);
@@ -106,7 +153,39 @@ public abstract class Report {
 		else {
 			precision = DEF_PRECISION;
 		}
-		
+
+		this.binaryOutput = settings.contains(BINARY_OUTPUT_S) &&
+			settings.getBoolean(BINARY_OUTPUT_S);
+		this.binaryColumns = null;
+		this.asyncBufferSize = 0;
+		if (settings.contains(ASYNC_OUTPUT_S) &&
+				settings.getBoolean(ASYNC_OUTPUT_S)) {
+			this.asyncBufferSize = DEF_ASYNC_BUFFER_SIZE;
+			if (settings.contains(ASYNC_BUFFER_SIZE_S)) {
+				this.asyncBufferSize = settings.getInt(ASYNC_BUFFER_SIZE_S);
+				if (this.asyncBufferSize < 1) {
+					throw new SettingsError("Invalid value for " +
+							settings.getFullPropertyName(ASYNC_BUFFER_SIZE_S) +
+							": " + this.asyncBufferSize);
+				}
+			}
+		}
+
+		setOutputFileName();
+	}
+
+	/**
+	 * Sets the scenario name and the output file name from the current
+	 * settings. Looks for a className.output setting and if such is found,
+	 * uses that as the output file name. Otherwise
+	 * scenarioname_classname.txt is used as the file name.
+	 */
+	private void setOutputFileName() {
+		Settings settings = new Settings();
+		scenarioName = settings.valueFillString(settings.getSetting(
+				SimScenario.SCENARIO_NS + "." +	SimScenario.NAME_S));
+
+		settings = getSettings();
 		if (settings.contains(OUTPUT_SETTING)) {
 			outFileName = settings.getSetting(OUTPUT_SETTING);
 			// fill value place holders in the name
@@ -191,12 +270,151 @@ public abstract class Report {
 	 * @param outFileName Name (&path) of the file to create
 	 */
 	private void createOutput(String outFileName) {
+		if (isBinaryOutput()) {
+			if (outFileName.endsWith(OUT_SUFFIX)) {
+				outFileName = outFileName.substring(0, outFileName.length() -
+						OUT_SUFFIX.length()) + BinaryReportWriter.BINARY_SUFFIX;
+			}
+			this.binaryOut = new BinaryReportWriter(outFileName,
+					binaryColumns, binaryTypes);
+			return;
+		}
+
+		openText(outFileName, false);
+		this.textFileName = outFileName;
+	}
+
+	/**
+	 * Opens the text output writer
+	 * @param fileName Name of the output file
+	 * @param append If true, the output is appended to the file
+	 */
+	private void openText(String fileName, boolean append) {
 		try {
-			this.out = new PrintWriter(new FileWriter(outFileName));
+			if (asyncBufferSize > 0) {
+				this.asyncOut = new AsyncReportWriter(this,
+						new FileWriter(fileName, append), asyncBufferSize);
+			}
+			else {
+				this.out = new PrintWriter(new FileWriter(fileName, append));
+			}
 		} catch (IOException e) {
-			throw new SimError("Couldn't open file '" + outFileName + 
+			throw new SimError("Couldn't open file '" + fileName + 
 					"' for report output\n" + e.getMessage(), e);
-		}		
+		}
+	}
+
+	/**
+	 * Writes the report to a checkpoint. The text output written so far is
+	 * flushed to the file and the length of the file is stored. Binary
+	 * output can't be checkpointed.
+	 * @param stream The stream to write to
+	 * @throws IOException if writing failed
+	 */
+	private void writeObject(ObjectOutputStream stream) throws IOException {
+		if (binaryOut != null) {
+			throw new NotSerializableException(getClass().getName() +
+					" (binary output)");
+		}
+		if (asyncOut != null) {
+			asyncOut.close(); // writes all the lines
+			openText(textFileName, true);
+		}
+		else if (out != null) {
+			out.flush();
+		}
+		this.textFileLength = textFileName != null ?
+				new File(textFileName).length() : 0;
+		stream.defaultWriteObject();
+	}
+
+	/**
+	 * Called when the simulation has been restored from a checkpoint (see
+	 * {@link core.Checkpoint}). The output file name is resolved again with
+	 * the settings of the restored run, so a restored run can write its
+	 * output to another directory or with another scenario name than the
+	 * checkpointed run. The output written before the checkpoint is copied
+	 * to the new file and the output continues from there; the files of the
+	 * checkpointed run are not changed. If the new name is the same as the
+	 * checkpointed one, {@link #RESTORED_SUFFIX} is added to the name.
+	 * Reports that have state that isn't checkpointed (e.g., threads) must
+	 * override this to rebuild the state and call this method.
+	 * @throws SimError if the output can't be continued
+	 */
+	public void restored() {
+		String oldOutFileName = this.outFileName;
+		setOutputFileName();
+		if (new File(outFileName).getAbsoluteFile().equals(
+				new File(oldOutFileName).getAbsoluteFile())) {
+			if (outFileName.endsWith(OUT_SUFFIX)) {
+				outFileName = outFileName.substring(0, outFileName.length() -
+						OUT_SUFFIX.length()) + RESTORED_SUFFIX + OUT_SUFFIX;
+			}
+			else {
+				outFileName += RESTORED_SUFFIX;
+			}
+		}
+		if (textFileName == null) {
+			return; /* no output yet; init() creates the new file */
+		}
+
+		if (outputInterval <= 0) {
+			this.textFileName = outFileName;
+			copyOutput(new File(oldOutFileName), textFileName,
+					textFileLength);
+		}
+		else {
+			/* the earlier files were complete at the checkpoint */
+			for (int i = 0; i < lastOutputSuffix; i++) {
+				String suffix = String.format(INTERVALLED_FORMAT, i);
+				File old = new File(oldOutFileName + suffix);
+				this.textFileName = outFileName + suffix;
+				copyOutput(old, textFileName, i < lastOutputSuffix - 1 ?
+						old.length() : textFileLength);
+			}
+		}
+		openText(textFileName, true);
+	}
+
+	/**
+	 * Copies the beginning of a checkpointed run's output file to a new
+	 * output file
+	 * @param from The checkpointed file
+	 * @param to Name of the new file
+	 * @param length Number of bytes to copy
+	 * @throws SimError if the file is shorter than the given length or
+	 * copying failed
+	 */
+	private static void copyOutput(File from, String to, long length) {
+		if (from.length() < length) {
+			throw new SimError("Report output " + from +
+					" is shorter than when it was checkpointed");
+		}
+		try {
+			InputStream in = new FileInputStream(from);
+			try {
+				OutputStream out = new FileOutputStream(to);
+				try {
+					byte[] buf = new byte[65536];
+					while (length > 0) {
+						int n = in.read(buf, 0,
+								(int)Math.min(buf.length, length));
+						if (n < 0) {
+							throw new IOException("Unexpected end of file");
+						}
+						out.write(buf, 0, n);
+						length -= n;
+					}
+				} finally {
+					out.close();
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new SimError("Couldn't copy report output " + from +
+					" to " + to + ": " + e.getMessage(), e);
+		}
 	}
 	
 	/**
@@ -232,10 +450,155 @@ public abstract class Report {
 	 * @see #setPrefix(String)
 	 */
 	protected void write(String txt) {
-		if (out == null) {
+		if (out == null && asyncOut == null && binaryOut == null) {
+			init();
+		}
+		if (binaryOut != null) {
+			return; /* no text lines in binary output */
+		}
+		Profiler profiler = Profiler.getActive();
+		long start = profiler != null ? System.nanoTime() : 0;
+		long alloc = profiler != null ? profiler.getAllocatedBytes() : 0;
+		if (asyncOut != null) {
+			asyncOut.add(prefix.length() == 0 ? txt : prefix + txt);
+		}
+		else {
+			out.println(prefix + txt);
+		}
+		if (profiler != null) {
+			profiler.add(Profiler.REPORT_WRITES, getClass(),
+					System.nanoTime() - start,
+					profiler.getAllocatedBytes() - alloc);
+		}
+	}
+
+	/**
+	 * Writes a line that is the concatenation of the given parts. Double
+	 * parts are formatted with {@link #format(double)}, other parts are
+	 * converted with {@link String#valueOf(Object)}, and null parts are
+	 * skipped. With asynchronous output (see {@link #ASYNC_OUTPUT_S}) the
+	 * parts are converted to text later by the writer thread, so the text
+	 * of the parts must not change after this call.
+	 * @param parts The parts of the line
+	 * @see #write(String)
+	 */
+	protected void writeParts(Object... parts) {
+		if (out == null && asyncOut == null && binaryOut == null) {
+			init();
+		}
+		if (binaryOut != null) {
+			return; /* no text lines in binary output */
+		}
+		if (asyncOut != null) {
+			if (prefix.length() > 0) {
+				Object[] line = new Object[parts.length + 1];
+				line[0] = prefix;
+				System.arraycopy(parts, 0, line, 1, parts.length);
+				addAsync(line);
+			}
+			else {
+				addAsync(parts);
+			}
+			return;
+		}
+
+		StringBuilder line = new StringBuilder();
+		for (Object part : parts) {
+			if (part instanceof Double) {
+				line.append(format((Double)part));
+			}
+			else if (part != null) {
+				line.append(part);
+			}
+		}
+		write(line.toString());
+	}
+
+	/**
+	 * Writes a line whose text is created from its values by the line
+	 * itself. With asynchronous output (see {@link #ASYNC_OUTPUT_S}) the
+	 * text is created later by the writer thread.
+	 * @param line The line
+	 * @see ReportLine
+	 */
+	protected void writeLine(ReportLine line) {
+		if (out == null && asyncOut == null && binaryOut == null) {
+			init();
+		}
+		if (binaryOut != null) {
+			return; /* no text lines in binary output */
+		}
+		if (asyncOut != null) {
+			addAsync(prefix.length() == 0 ? line : new Object[] {prefix, line});
+			return;
+		}
+
+		StringBuilder text = new StringBuilder();
+		line.appendTo(text);
+		write(text.toString());
+	}
+
+	/**
+	 * Adds a line to the asynchronous output
+	 * @param line The line (an array of parts or a ReportLine)
+	 */
+	private void addAsync(Object line) {
+		Profiler profiler = Profiler.getActive();
+		long start = profiler != null ? System.nanoTime() : 0;
+		long alloc = profiler != null ? profiler.getAllocatedBytes() : 0;
+		asyncOut.add(line);
+		if (profiler != null) {
+			profiler.add(Profiler.REPORT_WRITES, getClass(),
+					System.nanoTime() - start,
+					profiler.getAllocatedBytes() - alloc);
+		}
+	}
+
+	/**
+	 * Defines the columns of the report's binary output. Reports that
+	 * support binary output must call this method in their constructor
+	 * before the output is initialized.
+	 * @param names Names of the columns
+	 * @param types Types of the columns (TYPE_ constants of
+	 * {@link BinaryReportWriter})
+	 * @see #BINARY_OUTPUT_S
+	 */
+	protected void setBinaryColumns(String[] names, byte[] types) {
+		assert names.length == types.length : "Every column needs a type";
+		this.binaryColumns = names;
+		this.binaryTypes = types;
+	}
+
+	/**
+	 * Returns true if the report writes binary output, i.e., binary output
+	 * was requested and the report has defined its columns with
+	 * {@link #setBinaryColumns(String[], byte[])}
+	 * @return true if the report writes binary output
+	 */
+	public boolean isBinaryOutput() {
+		return this.binaryOutput && this.binaryColumns != null;
+	}
+
+	/**
+	 * Writes a record (row) to the binary output. The values must be in
+	 * the same order as the columns given to
+	 * {@link #setBinaryColumns(String[], byte[])}.
+	 * @param values Values of the record
+	 * @see #isBinaryOutput()
+	 */
+	protected void writeRecord(Object... values) {
+		if (binaryOut == null) {
 			init();
 		}
-		out.println(prefix + txt);
+		Profiler profiler = Profiler.getActive();
+		long start = profiler != null ? System.nanoTime() : 0;
+		long alloc = profiler != null ? profiler.getAllocatedBytes() : 0;
+		binaryOut.addRow(values);
+		if (profiler != null) {
+			profiler.add(Profiler.REPORT_WRITES, getClass(),
+					System.nanoTime() - start,
+					profiler.getAllocatedBytes() - alloc);
+		}
 	}
 	
 	/**
@@ -333,6 +696,12 @@ public abstract class Report {
 		if (out != null) {
 			out.close();
 		}
+		if (asyncOut != null) {
+			asyncOut.close();
+		}
+		if (binaryOut != null) {
+			binaryOut.close();
+		}
 	}
 	
 	/**
@@ -0,0 +1,21 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+/**
+ * A line of a report that holds the raw values of the line and converts
+ * them to text only when the line is written. With asynchronous output
+ * (see {@link Report#ASYNC_OUTPUT_S}) the conversion is done by the writer
+ * thread, so the values the line refers to must not change after the line
+ * has been written with {@link Report#writeLine(ReportLine)}.
+ */
+public interface ReportLine {
+
+	/**
+	 * Appends the text of the line (without the line separator)
+	 * @param text The builder where the text is appended to
+	 */
+	public void appendTo(StringBuilder text);
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.Arrays;
+
+/**
+ * Statistics of a stream of values that are calculated without storing the
+ * values. The mean and variance are updated online (Welford's algorithm)
+ * and quantiles are estimated with a log-bucketed histogram like in HDR
+ * histograms: a value x is counted in the bucket
+ * <code>ceil(log(x) / log(gamma))</code>, where
+ * <code>gamma = (1 + a) / (1 - a)</code> for the relative accuracy a. Every
+ * quantile estimate is thus within a relative error of a from a value of
+ * the right rank. The memory use depends only on the range of the values,
+ * not on their number, and statistics of different streams can be merged.
+ * <p>
+ * The histogram is meant for non-negative values (times, counts). Negative
+ * values are counted as zeros in the quantiles, but the mean and variance
+ * use the exact values.
+ */
+public class StreamingStatistics {
+	/** Default relative accuracy of the quantiles ({@value}) */
+	public static final double DEF_ACCURACY = 0.01;
+	/** Values smaller than this are counted in the zero bucket ({@value}) */
+	public static final double MIN_VALUE = 1e-9;
+
+	private double accuracy;
+	private double gamma;
+	private double logGamma;
+
+	private long count;
+	private double mean;
+	/** sum of squared differences from the mean */
+	private double m2;
+	private double min;
+	private double max;
+
+	/** number of values in the zero bucket */
+	private long zeroCount;
+	/** counts of the buckets; buckets[i] is the bucket (i + offset) */
+	private long[] buckets;
+	private int offset;
+
+	/**
+	 * Creates new statistics with the default accuracy
+	 */
+	public StreamingStatistics() {
+		this(DEF_ACCURACY);
+	}
+
+	/**
+	 * Creates new statistics
+	 * @param accuracy Relative accuracy of the quantiles (0 &lt; a &lt; 1)
+	 */
+	public StreamingStatistics(double accuracy) {
+		assert accuracy > 0 && accuracy < 1 : "Invalid accuracy " + accuracy;
+		this.accuracy = accuracy;
+		this.gamma = (1 + accuracy) / (1 - accuracy);
+		this.logGamma = Math.log(gamma);
+		this.count = 0;
+		this.mean = 0;
+		this.m2 = 0;
+		this.min = Double.POSITIVE_INFINITY;
+		this.max = Double.NEGATIVE_INFINITY;
+		this.zeroCount = 0;
+		this.buckets = new long[0];
+		this.offset = 0;
+	}
+
+	/**
+	 * Adds a value to the statistics
+	 * @param value The value
+	 */
+	public void add(double value) {
+		count++;
+		double delta = value - mean;
+		mean += delta / count;
+		m2 += delta * (value - mean);
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+
+		if (value < MIN_VALUE) {
+			zeroCount++;
+		}
+		else {
+			int index = (int)Math.ceil(Math.log(value) / logGamma);
+			ensureBucket(index);
+			buckets[index - offset]++;
+		}
+	}
+
+	/**
+	 * Makes sure that the bucket array covers a bucket
+	 * @param index Index of the bucket
+	 */
+	private void ensureBucket(int index) {
+		if (buckets.length == 0) {
+			buckets = new long[16];
+			offset = index - 8;
+		}
+		else if (index < offset) {
+			int grow = Math.max(offset - index, buckets.length / 2);
+			long[] newBuckets = new long[buckets.length + grow];
+			System.arraycopy(buckets, 0, newBuckets, grow, buckets.length);
+			buckets = newBuckets;
+			offset -= grow;
+		}
+		else if (index - offset >= buckets.length) {
+			int size = Math.max(index - offset + 1,
+					buckets.length + buckets.length / 2);
+			buckets = Arrays.copyOf(buckets, size);
+		}
+	}
+
+	/**
+	 * Merges the values of other statistics to these statistics. Both must
+	 * have the same accuracy.
+	 * @param other The other statistics
+	 */
+	public void merge(StreamingStatistics other) {
+		assert this.accuracy == other.accuracy : "Accuracies differ";
+		if (other.count == 0) {
+			return;
+		}
+
+		long n = count + other.count;
+		double delta = other.mean - mean;
+		m2 += other.m2 + delta * delta * count * other.count / n;
+		mean += delta * other.count / n;
+		count = n;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+
+		zeroCount += other.zeroCount;
+		for (int i = 0; i < other.buckets.length; i++) {
+			if (other.buckets[i] > 0) {
+				int index = i + other.offset;
+				ensureBucket(index);
+				buckets[index - offset] += other.buckets[i];
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of values
+	 * @return the number of values
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the mean of the values
+	 * @return the mean or NaN if there are no values
+	 */
+	public double getMean() {
+		return count > 0 ? mean : Double.NaN;
+	}
+
+	/**
+	 * Returns the (population) variance of the values
+	 * @return the variance or NaN if there are no values
+	 */
+	public double getVariance() {
+		return count > 0 ? m2 / count : Double.NaN;
+	}
+
+	/**
+	 * Returns the smallest value
+	 * @return the smallest value or NaN if there are no values
+	 */
+	public double getMin() {
+		return count > 0 ? min : Double.NaN;
+	}
+
+	/**
+	 * Returns the largest value
+	 * @return the largest value or NaN if there are no values
+	 */
+	public double getMax() {
+		return count > 0 ? max : Double.NaN;
+	}
+
+	/**
+	 * Returns an estimate of a quantile of the values. The quantile q is
+	 * the value with (zero based) rank <code>floor(q * count)</code> in the
+	 * sorted values, so the 0.5 quantile is the same as the median returned
+	 * by {@link Report#getMedian(java.util.List)}.
+	 * @param q The quantile (0 &lt;= q &lt;= 1)
+	 * @return Estimate of the quantile or NaN if there are no values
+	 */
+	public double getQuantile(double q) {
+		if (count == 0) {
+			return Double.NaN;
+		}
+
+		long rank = Math.min((long)(q * count), count - 1);
+		if (rank < zeroCount) {
+			return Math.max(min, 0);
+		}
+		long seen = zeroCount;
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+			if (seen > rank) {
+				double value = 2 * Math.pow(gamma, i + offset) / (gamma + 1);
+				/* the estimate can't be outside the range of the values */
+				return Math.max(min, Math.min(max, value));
+			}
+		}
+		return max;
+	}
+}
@@ -19,6 +19,7 @@ import core.UpdateListener;
  */
 public class TotalContactTimeReport extends ContactTimesReport implements
 		UpdateListener {
+	private static final long serialVersionUID = 42L;
 	
 	/** The header of every report file */
 	public static final String HEADER = "# time totalContactTime";
@@ -38,15 +39,15 @@ public class TotalContactTimeReport extends ContactTimesReport implements
 	}
 
 	@Override
-	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+	public void contactEnded(DTNHost host1, DTNHost host2,
+			double startTime, long startEvent) {
 		newEvent();
-		ConnectionInfo ci = removeConnection(host1, host2);
 		
-		if (ci == null) {
+		if (!isReported(startTime, startEvent)) {
 			return; // connection started during the warm up period
 		}
 		
-		oldContactTimes += ci.getConnectionTime();		
+		oldContactTimes += getSimTime() - startTime;
 	}
 
 	/**
@@ -62,10 +63,8 @@ public class TotalContactTimeReport extends ContactTimesReport implements
 		lastWrite = simTime;
 		
 		// count also the times for connections that are still up
-		double othersTime = 0;
-		for (ConnectionInfo oth : this.connections.values()) {
-			othersTime += oth.getConnectionTime();
-		}
+		double othersTime = tracker.getOpenContactTime(warmupTime,
+				firstEvent);
 		
 		double totalTime = oldContactTimes + othersTime;
 		
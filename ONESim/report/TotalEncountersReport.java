@@ -6,7 +6,6 @@ package report;
 
 import java.util.List;
 
-import core.ConnectionListener;
 import core.DTNHost;
 import core.UpdateListener;
 
@@ -15,16 +14,18 @@ import core.UpdateListener;
  * 
  * @author Frans Ekman
  */
-public class TotalEncountersReport extends Report implements ConnectionListener,
+public class TotalEncountersReport extends Report implements ContactListener,
 	UpdateListener {
+	private static final long serialVersionUID = 42L;
 
 	private int[] encounters;
 	
 	public TotalEncountersReport() {
-		
+		ContactTracker.getInstance().addListener(this);
 	}
 	
-	public void hostsConnected(DTNHost host1, DTNHost host2) {
+	public void contactStarted(DTNHost host1, DTNHost host2,
+			double lastEndTime, long lastEndEvent) {
 		if (encounters == null) {
 			return;
 		}
@@ -32,7 +33,8 @@ public class TotalEncountersReport extends Report implements ConnectionListener,
 		encounters[host2.getAddress()]++;
 	}
 
-	public void hostsDisconnected(DTNHost host1, DTNHost host2) {}
+	public void contactEnded(DTNHost host1, DTNHost host2,
+			double startTime, long startEvent) {}
 
 	public void updated(List<DTNHost> hosts) {
 		if (encounters == null) {
@@ -6,7 +6,6 @@ package report;
 
 import java.util.List;
 
-import core.ConnectionListener;
 import core.DTNHost;
 import core.UpdateListener;
 
@@ -17,15 +16,17 @@ import core.UpdateListener;
  * @author Frans Ekman
  */
 public class UniqueEncountersReport extends Report implements 
-	ConnectionListener, UpdateListener {
+	ContactListener, UpdateListener {
+	private static final long serialVersionUID = 42L;
 
 	private int[][] nodeRelationships;
 	
 	public UniqueEncountersReport() {
-		
+		ContactTracker.getInstance().addListener(this);
 	}
 	
-	public void hostsConnected(DTNHost host1, DTNHost host2) {
+	public void contactStarted(DTNHost host1, DTNHost host2,
+			double lastEndTime, long lastEndEvent) {
 		if (nodeRelationships == null) {
 			return;
 		}
@@ -33,7 +34,8 @@ public class UniqueEncountersReport extends Report implements
 		nodeRelationships[host2.getAddress()][host1.getAddress()]++;
 	}
 
-	public void hostsDisconnected(DTNHost host1, DTNHost host2) {}
+	public void contactEnded(DTNHost host1, DTNHost host2,
+			double startTime, long startEvent) {}
 
 	public void updated(List<DTNHost> hosts) {
 		if (nodeRelationships == null) {
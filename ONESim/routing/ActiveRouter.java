@@ -24,6 +24,8 @@ import core.Tuple;
  * {@link #update()}).
  */
 public abstract class ActiveRouter extends MessageRouter {
+	private static final long serialVersionUID = 42L;
+
 	/** Delete delivered messages -setting id ({@value}). Boolean valued.
 	 * If set to true and final recipient of a message rejects it because it
 	 * already has it, the message is deleted from buffer. Default=false. */
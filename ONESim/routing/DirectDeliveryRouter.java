@@ -15,6 +15,7 @@ import core.Tuple;
  * Router that will deliver messages only to the final recipient.
  */
 public class DirectDeliveryRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
 
 	public DirectDeliveryRouter(Settings s) {
 		super(s);
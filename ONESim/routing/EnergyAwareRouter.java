@@ -12,6 +12,7 @@ import core.*;
  */
 public class EnergyAwareRouter extends ActiveRouter 
 		implements ModuleCommunicationListener{
+	private static final long serialVersionUID = 42L;
 	
 	/** Initial units of energy -setting id ({@value}). Can be either a 
 	 * single value, or a range of two values. In the latter case, the used
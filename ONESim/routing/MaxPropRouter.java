@@ -35,6 +35,8 @@ import core.Tuple;
  * Protocols</I> Chants, 2008 
  */
 public class MaxPropRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
+
     /** Router's setting namespace ({@value})*/
 	public static final String MAXPROP_NS = "MaxPropRouter";
 	/**
@@ -43,6 +43,8 @@ import core.Tuple;
  * @version 1.0
  */
 public class MaxPropRouterWithEstimation extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
+
 	/** probabilities of meeting hosts */
 	private MeetingProbabilitySet probs;
 	/** meeting probabilities of all hosts from this host's point of view 
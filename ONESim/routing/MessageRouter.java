@@ -4,12 +4,17 @@
  */
 package routing;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import core.Application;
@@ -26,7 +31,9 @@ import core.Tuple;
 /**
  * Superclass for message routers.
  */
-public abstract class MessageRouter {
+public abstract class MessageRouter implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Message buffer size -setting id ({@value}). Integer value in bytes.*/
 	public static final String B_SIZE_S = "bufferSize";
 	/**
@@ -65,13 +72,21 @@ public abstract class MessageRouter {
 	/** Receive return value for unspecified reason */
 	public static final int DENIED_UNSPECIFIED = -999;
 	
+	/** Initial capacity of the message maps */
+	private static final int MAP_CAPACITY = 16;
+	/** Load factor of the message maps */
+	private static final float MAP_LOAD_FACTOR = 0.75f;
+
 	private List<MessageListener> mListeners;
 	/** The messages being transferred with msgID_hostName keys */
-	private HashMap<String, Message> incomingMessages;
+	private transient HashMap<String, Message> incomingMessages;
 	/** The messages this router is carrying */
-	private HashMap<String, Message> messages; 
+	private transient HashMap<String, Message> messages; 
 	/** The messages this router has received as the final recipient */
-	private HashMap<String, Message> deliveredMessages;
+	private transient HashMap<String, Message> deliveredMessages;
+	/** The largest sizes the incoming, carried and delivered messages maps
+	 * have had; needed for restoring the maps' capacities */
+	private int[] maxMapSizes;
 	/** Host where this router belongs to */
 	private DTNHost host;
 	/** size of the buffer */
@@ -122,9 +137,13 @@ public abstract class MessageRouter {
 	 * @param mListeners The message listeners
 	 */
 	public void init(DTNHost host, List<MessageListener> mListeners) {
-		this.incomingMessages = new HashMap<String, Message>();
-		this.messages = new HashMap<String, Message>();
-		this.deliveredMessages = new HashMap<String, Message>();
+		this.incomingMessages = new HashMap<String, Message>(MAP_CAPACITY,
+				MAP_LOAD_FACTOR);
+		this.messages = new HashMap<String, Message>(MAP_CAPACITY,
+				MAP_LOAD_FACTOR);
+		this.deliveredMessages = new HashMap<String, Message>(MAP_CAPACITY,
+				MAP_LOAD_FACTOR);
+		this.maxMapSizes = new int[3];
 		this.mListeners = mListeners;
 		this.host = host;
 	}
@@ -342,6 +361,7 @@ public abstract class MessageRouter {
 		}
 		else if (isFirstDelivery) {
 			this.deliveredMessages.put(id, aMessage);
+			updateMaxSize(2, this.deliveredMessages);
 		}
 		
 		for (MessageListener ml : this.mListeners) {
@@ -360,6 +380,7 @@ public abstract class MessageRouter {
 	 */
 	protected void putToIncomingBuffer(Message m, DTNHost from) {
 		this.incomingMessages.put(m.getId() + "_" + from.toString(), m);
+		updateMaxSize(0, this.incomingMessages);
 	}
 	
 	/**
@@ -392,6 +413,7 @@ public abstract class MessageRouter {
 	 */
 	protected void addToMessages(Message m, boolean newMessage) {
 		this.messages.put(m.getId(), m);
+		updateMaxSize(1, this.messages);
 		
 		if (newMessage) {
 			for (MessageListener ml : this.mListeners) {
@@ -605,6 +627,93 @@ public abstract class MessageRouter {
 		return apps;
 	}
 
+	/**
+	 * Updates the largest size a message map has had
+	 * @param index Index of the map in {@link #maxMapSizes}
+	 * @param map The map
+	 */
+	private void updateMaxSize(int index, Map<String, Message> map) {
+		if (map.size() > this.maxMapSizes[index]) {
+			this.maxMapSizes[index] = map.size();
+		}
+	}
+	
+	/**
+	 * Writes the router to a checkpoint stream. The message maps are
+	 * written in their iteration order, because the order of a deserialized
+	 * HashMap may differ from the original one and the order affects e.g.
+	 * the random order messages are sent in.
+	 * @param out The stream to write to
+	 * @throws IOException if writing failed
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		writeMessageMap(out, this.incomingMessages);
+		writeMessageMap(out, this.messages);
+		writeMessageMap(out, this.deliveredMessages);
+	}
+	
+	/**
+	 * Reads the router from a checkpoint stream
+	 * @param in The stream to read from
+	 * @throws IOException if reading failed
+	 * @throws ClassNotFoundException if a class of the stream wasn't found
+	 */
+	private void readObject(ObjectInputStream in) 
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.incomingMessages = readMessageMap(in, this.maxMapSizes[0]);
+		this.messages = readMessageMap(in, this.maxMapSizes[1]);
+		this.deliveredMessages = readMessageMap(in, this.maxMapSizes[2]);
+	}
+	
+	/**
+	 * Writes the entries of a message map in the map's iteration order
+	 * @param out The stream to write to
+	 * @param map The map (or null)
+	 * @throws IOException if writing failed
+	 */
+	private static void writeMessageMap(ObjectOutputStream out, 
+			Map<String, Message> map) throws IOException {
+		out.writeInt(map == null ? -1 : map.size());
+		if (map == null) {
+			return;
+		}
+		for (Map.Entry<String, Message> e : map.entrySet()) {
+			out.writeObject(e.getKey());
+			out.writeObject(e.getValue());
+		}
+	}
+	
+	/**
+	 * Reads a message map written by {@link #writeMessageMap}. The map is
+	 * created with the capacity the original map grew to, so inserting the
+	 * entries in the original order restores the original iteration order.
+	 * @param in The stream to read from
+	 * @param maxSize The largest size the original map had
+	 * @return The map (or null)
+	 * @throws IOException if reading failed
+	 * @throws ClassNotFoundException if a class of the stream wasn't found
+	 */
+	private static HashMap<String, Message> readMessageMap(
+			ObjectInputStream in, int maxSize) 
+			throws IOException, ClassNotFoundException {
+		int size = in.readInt();
+		if (size < 0) {
+			return null;
+		}
+		int capacity = MAP_CAPACITY; /* doubled whenever the map got full */
+		while (maxSize > capacity * MAP_LOAD_FACTOR) {
+			capacity *= 2;
+		}
+		HashMap<String, Message> map = new HashMap<String, Message>(capacity,
+				MAP_LOAD_FACTOR);
+		for (int i = 0; i < size; i++) {
+			map.put((String)in.readObject(), (Message)in.readObject());
+		}
+		return map;
+	}
+
 	/**
 	 * Creates a replicate of this router. The replicate has the same
 	 * settings as this router but empty buffers and routing tables.
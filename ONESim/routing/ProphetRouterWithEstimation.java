@@ -33,6 +33,8 @@ import core.Tuple;
  * 
  */
 public class ProphetRouterWithEstimation extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
+
 	/** delivery predictability initialization constant*/
 	public static final double P_INIT = 0.75;
 	/** delivery predictability transitivity scaling constant default value */
@@ -19,6 +19,8 @@ import core.Settings;
  *
  */
 public class SprayAndWaitRouter extends ActiveRouter {
+	private static final long serialVersionUID = 42L;
+
 	/** identifier for the initial number of copies setting ({@value})*/ 
 	public static final String NROF_COPIES = "nrofCopies";
 	/** identifier for the binary-mode setting ({@value})*/ 
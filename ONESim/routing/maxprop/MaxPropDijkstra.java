@@ -4,6 +4,7 @@
  */
 package routing.maxprop;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -16,7 +17,9 @@ import java.util.Set;
 /**
  * Dijkstra's shortest path implementation for MaxProp Router module.
  */
-public class MaxPropDijkstra {
+public class MaxPropDijkstra implements Serializable {
+	private static final long serialVersionUID = 42L;
+
 	/** Value for infinite distance  */
 	private static final Double INFINITY = Double.MAX_VALUE;
 	/** Initial size of the priority queue */
@@ -152,7 +155,8 @@ public class MaxPropDijkstra {
 	 * the source node.
 	 */
 	private class DistanceComparator implements 
-		Comparator<Integer> {
+		Comparator<Integer>, Serializable {
+		private static final long serialVersionUID = 42L;
 		
 		/**
 		 * Compares two map nodes by their distance from the source node
@@ -178,7 +182,9 @@ public class MaxPropDijkstra {
 	/**
 	 * Simple Map implementation for storing distances. 
 	 */
-	private class DistanceMap {
+	private class DistanceMap implements Serializable {
+		private static final long serialVersionUID = 42L;
+
 		private HashMap<Integer, Double> map;
 		
 		/**
@@ -0,0 +1,2 @@
+#! /bin/sh
+java -cp .:lib/ECLA.jar:lib/DTNConsoleConnection.jar benchmark.ScalabilityRunner $*
\ No newline at end of file
@@ -25,6 +25,7 @@ public class DTNSimTextUI extends DTNSimUI {
 		lastUpdateRt = startTime;
 		
 		while (simTime < endTime && !simCancelled){
+			updateCheckpoint();
 			try {
 				world.update();
 			} catch (AssertionError e) {
@@ -4,11 +4,14 @@
  */
 package ui;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Vector;
 
 import report.Report;
 import core.ApplicationListener;
+import core.Checkpoint;
 import core.ConnectionListener;
 import core.MessageListener;
 import core.MovementListener;
@@ -19,7 +22,6 @@ import core.SimError;
 import core.SimScenario;
 import core.UpdateListener;
 import core.World;
-import movement.map.MapNode;
 
 /**
  * Abstract superclass for user interfaces; contains also some simulation
@@ -66,6 +68,15 @@ public abstract class DTNSimUI {
 	
 	/** simtime of last UI update */
 	protected double lastUpdate;
+
+	/** checkpoint file or null if no checkpoints are written */
+	private String checkpointFile;
+	/** simulated seconds between periodic checkpoints (0 for none) */
+	private double checkpointInterval;
+	/** sorted times of the additional checkpoints */
+	private double[] checkpointTimes;
+	/** simtime of the next checkpoint */
+	private double nextCheckpoint;
 	
 	/**
 	 * Constructor.
@@ -83,10 +94,64 @@ public abstract class DTNSimUI {
 	 */
 	public void start() {
 		initModel();
-		List<MapNode> nodes = scen.getMap().getNodes();
-		System.out.println("Total mapnode: "+nodes.size());
-		for(MapNode m : nodes){
-			System.out.println(m.toString());
+		runSim();
+	}
+
+	/**
+	 * Restores the simulation from a checkpoint and runs it to the end.
+	 * The given settings files override the checkpointed settings and the
+	 * run index can be changed, so several runs can be forked from one
+	 * checkpoint. The overrides affect only the settings that are read
+	 * after the restore: the output files of the reports (see
+	 * {@link Report#restored()}), the reports that are added and the
+	 * checkpoints of the restored run. The checkpointed reports are always
+	 * continued; report classes listed in the settings that aren't in the
+	 * checkpoint are added and report from the restore time onwards.
+	 * @param fileName Path of the checkpoint file
+	 * @param runIndex Run index of the restored run or null to use the
+	 * checkpointed run's index
+	 * @param settingsFiles Settings files that override the checkpointed
+	 * settings
+	 * @see Checkpoint
+	 */
+	@SuppressWarnings("unchecked")
+	public void restore(String fileName, Integer runIndex,
+			String[] settingsFiles) {
+		try {
+			this.reports = (Vector<Report>)Checkpoint.read(fileName);
+			for (String f : settingsFiles) {
+				Settings.addSettings(f);
+			}
+			if (runIndex != null) {
+				Settings.setRunIndex(runIndex);
+			}
+			this.scen = SimScenario.getInstance();
+			this.world = this.scen.getWorld();
+
+			List<String> missing = new ArrayList<String>();
+			Settings settings = new Settings();
+			for (int i=1, n = settings.getInt(NROF_REPORT_S); i<=n; i++){
+				missing.add(REPORT_PAC + settings.getSetting(REPORT_S + i));
+			}
+			for (Report r : this.reports) {
+				missing.remove(r.getClass().getName());
+				r.restored();
+			}
+			for (String reportClass : missing) {
+				addReport((Report)settings.createObject(reportClass));
+			}
+			initCheckpoints(true);
+		}
+		catch (SettingsError se) {
+			System.err.println("Can't restore: error in configuration " +
+					"file(s)");
+			System.err.println(se.getMessage());
+			System.exit(-1);
+		}
+		catch (SimError er) {
+			System.err.println("Can't restore: " + er.getMessage());
+			System.err.println("Caught at " + er.getStackTrace()[0]);
+			System.exit(-1);
 		}
 		runSim();
 	}
@@ -132,6 +197,7 @@ public abstract class DTNSimUI {
 			this.world = this.scen.getWorld();
 			//移动模型的预热
 			world.warmupMovementModel(warmupTime);
+			initCheckpoints(false);
 		}
 		catch (SettingsError se) {
 			System.err.println("Can't start: error in configuration file(s)");
@@ -145,6 +211,86 @@ public abstract class DTNSimUI {
 		}		
 	}
 	
+	/**
+	 * Reads the checkpoint settings (see {@link Checkpoint}) and sets the
+	 * time of the first checkpoint
+	 * @param restored True if the simulation was restored from a checkpoint
+	 * (a new checkpoint isn't written at the current time)
+	 * @throws SettingsError if checkpoints are requested but a report
+	 * writes binary output, which can't be checkpointed
+	 */
+	private void initCheckpoints(boolean restored) {
+		Settings s = new Settings(Checkpoint.SETTINGS_NS);
+		this.checkpointInterval = 0;
+		this.checkpointTimes = new double[0];
+		if (s.contains(Checkpoint.INTERVAL_S)) {
+			this.checkpointInterval = s.getDouble(Checkpoint.INTERVAL_S);
+		}
+		if (s.contains(Checkpoint.TIMES_S)) {
+			this.checkpointTimes = s.getCsvDoubles(Checkpoint.TIMES_S);
+			Arrays.sort(this.checkpointTimes);
+		}
+		if (checkpointInterval <= 0 && checkpointTimes.length == 0) {
+			this.checkpointFile = null;
+			return;
+		}
+		for (Report r : this.reports) {
+			if (r.isBinaryOutput()) {
+				throw new SettingsError("Checkpoints can't be written when " +
+						"report " + r.getClass().getSimpleName() + " has " +
+						"binary output (" + Report.BINARY_OUTPUT_S + ")");
+			}
+		}
+
+		String file = Checkpoint.DEF_FILE;
+		if (s.contains(Checkpoint.FILE_S)) {
+			file = s.getSetting(Checkpoint.FILE_S);
+		}
+		this.checkpointFile = s.valueFillString(file);
+		setNextCheckpoint(SimClock.getTime(), !restored);
+	}
+
+	/**
+	 * Sets the time of the next checkpoint
+	 * @param time Current simulation time
+	 * @param inclusive If true, the next checkpoint can be at the current
+	 * time
+	 */
+	private void setNextCheckpoint(double time, boolean inclusive) {
+		double next = Double.MAX_VALUE;
+		if (checkpointInterval > 0) {
+			next = (Math.floor(time / checkpointInterval) + 1) *
+				checkpointInterval;
+		}
+		for (double t : checkpointTimes) {
+			if (inclusive ? t >= time : t > time) {
+				next = Math.min(next, t);
+				break;
+			}
+		}
+		this.nextCheckpoint = next;
+	}
+
+	/**
+	 * Writes a checkpoint if the time of the next checkpoint has been
+	 * reached. Should be called by the UIs before every world update. If the
+	 * checkpoint can't be written, a warning is printed and the simulation
+	 * continues (the previous checkpoint is kept).
+	 */
+	protected void updateCheckpoint() {
+		if (checkpointFile == null || SimClock.getTime() < nextCheckpoint) {
+			return;
+		}
+		try {
+			Checkpoint.write(checkpointFile, this.reports);
+		} catch (SimError e) {
+			System.err.println("Warning: no checkpoint at " +
+					String.format("%.1f", SimClock.getTime()) + ": " +
+					e.getMessage());
+		}
+		setNextCheckpoint(SimClock.getTime(), false);
+	}
+
 	/**
 	 * Runs maintenance jobs that are needed before exiting.
 	 *模拟执行完毕，此时，执行（输出）所有的报告